@@ -549,21 +549,23 @@
         </xsl:call-template>
       </td>
       <td align="right">
+        <xsl:if test="@approximate = 'true'">~</xsl:if>
         <xsl:call-template name="createListPopupWithLink">
           <xsl:with-param name="set" select="bestFragmenters/classRef"/>
           <xsl:with-param name="number" select="@bestFragmentSize"/>
           <xsl:with-param name="text">Best fragmenter(s) of cycle <xsl:value-of select="@name"/>:</xsl:with-param>
         </xsl:call-template>
       </td>
-      <td align="right"><xsl:value-of select="@girth"/></td>
+      <td align="right"><xsl:if test="@approximate = 'true'">~</xsl:if><xsl:value-of select="@girth"/></td>
       <td align="right">
+        <xsl:if test="@approximate = 'true'">~</xsl:if>
         <xsl:call-template name="createListPopupWithLink">
           <xsl:with-param name="set" select="centerClasses/classRef"/>
           <xsl:with-param name="number" select="@radius"/>
           <xsl:with-param name="text">Center classes of cycle <xsl:value-of select="@name"/>:</xsl:with-param>
         </xsl:call-template>
       </td>
-      <td align="right"><xsl:value-of select="@diameter"/></td>
+      <td align="right"><xsl:if test="@approximate = 'true'">~</xsl:if><xsl:value-of select="@diameter"/></td>
       <td align="right"><xsl:value-of select="@longestWalk"/></td>
     </tr>
   </xsl:template>
@@ -586,21 +588,23 @@
         </xsl:call-template>
       </td>
       <td align="right">
+        <xsl:if test="@approximate = 'true'">~</xsl:if>
         <xsl:call-template name="createListPopupWithLink">
           <xsl:with-param name="set" select="bestFragmenters/packageRef"/>
           <xsl:with-param name="number" select="@bestFragmentSize"/>
           <xsl:with-param name="text">Best fragmenter(s) of cycle <xsl:value-of select="@name"/>:</xsl:with-param>
         </xsl:call-template>
       </td>
-      <td align="right"><xsl:value-of select="@girth"/></td>
+      <td align="right"><xsl:if test="@approximate = 'true'">~</xsl:if><xsl:value-of select="@girth"/></td>
       <td align="right">
+        <xsl:if test="@approximate = 'true'">~</xsl:if>
         <xsl:call-template name="createListPopupWithLink">
           <xsl:with-param name="set" select="centerPackages/packageRef"/>
           <xsl:with-param name="number" select="@radius"/>
           <xsl:with-param name="text">Center packages of cycle <xsl:value-of select="@name"/>:</xsl:with-param>
         </xsl:call-template>
       </td>
-      <td align="right"><xsl:value-of select="@diameter"/></td>
+      <td align="right"><xsl:if test="@approximate = 'true'">~</xsl:if><xsl:value-of select="@diameter"/></td>
       <td align="right"><xsl:value-of select="@longestWalk"/></td>
     </tr>
   </xsl:template>
@@ -28,6 +28,7 @@
  */
 package org.netmelody.neoclassycle;
 
+import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
@@ -40,6 +41,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.netmelody.neoclassycle.graph.AtomicVertex;
+import org.netmelody.neoclassycle.graph.CompactGraph;
 import org.netmelody.neoclassycle.graph.StrongComponent;
 import org.netmelody.neoclassycle.graph.StrongComponentAnalyser;
 import org.netmelody.neoclassycle.renderer.AtomicVertexRenderer;
@@ -67,6 +69,10 @@ public final class Analyser {
     private final StringPattern _pattern;
     private final StringPattern _reflectionPattern;
     private final boolean _mergeInnerClasses;
+    private boolean _descriptorsOnly;
+    private int _numberOfThreads = 1;
+    private File _cacheFile;
+    private File _indexDirectory;
     private StrongComponentAnalyser _classAnalyser;
     private StrongComponentAnalyser _packageAnalyser;
 
@@ -105,6 +111,55 @@ public final class Analyser {
         _mergeInnerClasses = mergeInnerClasses;
     }
 
+    /**
+     * Sets whether only UTF8 constants which are really used as descriptors or
+     * signatures are searched for class names. These are found by walking the
+     * field, method, and attribute tables of a class file. By default every
+     * UTF8 constant which looks like a descriptor is searched, which also
+     * finds string literals looking like descriptors.
+     */
+    public void setDescriptorsOnly(final boolean descriptorsOnly) {
+        _descriptorsOnly = descriptorsOnly;
+    }
+
+    /**
+     * Sets the number of threads used for parsing class files, for finding
+     * the strong components of large graphs, and for calculating the
+     * attributes of cycles. By default everything is done on the calling
+     * thread.
+     *
+     * @param numberOfThreads
+     *            Number of threads. Values less than two mean that nothing is
+     *            done in parallel.
+     */
+    public void setNumberOfThreads(final int numberOfThreads) {
+        _numberOfThreads = numberOfThreads;
+    }
+
+    /**
+     * Sets the file of the persistent cache of parse results. If set only new
+     * or changed class files are parsed and the cache file is updated after
+     * the class graph has been created. By default no cache is used.
+     *
+     * @param cacheFile
+     *            Cache file. Can be <tt>null</tt>.
+     */
+    public void setCacheFile(final File cacheFile) {
+        _cacheFile = cacheFile;
+    }
+
+    /**
+     * Sets the directory of sidecar index files of zip/jar/war/ear files. If
+     * set an archive is only parsed if there is no index file for its content.
+     * Missing index files are created. By default no index files are used.
+     *
+     * @param indexDirectory
+     *            Directory of the index files. Can be <tt>null</tt>.
+     */
+    public void setIndexDirectory(final File indexDirectory) {
+        _indexDirectory = indexDirectory;
+    }
+
     /**
      * Parses the class files and creates the class graph.
      *
@@ -114,8 +169,15 @@ public final class Analyser {
      */
     public long createClassGraph() throws IOException {
         final long time = System.currentTimeMillis();
-        final AtomicVertex[] classGraph = Parser.readClassFiles(_classFiles, _pattern, _reflectionPattern, _mergeInnerClasses);
+        final ParseCache cache = _cacheFile == null ? null : new ParseCache(_cacheFile, _reflectionPattern, _descriptorsOnly);
+        final DependencyIndex index = _indexDirectory == null ? null : new DependencyIndex(_indexDirectory, _reflectionPattern, _descriptorsOnly);
+        final CompactGraph classGraph = Parser.readClassGraph(_classFiles, _pattern, _reflectionPattern, _mergeInnerClasses,
+                                                              _descriptorsOnly, _numberOfThreads, cache, index);
+        if (cache != null) {
+            cache.save();
+        }
         _classAnalyser = new StrongComponentAnalyser(classGraph);
+        _classAnalyser.setNumberOfThreads(_numberOfThreads);
         return System.currentTimeMillis() - time;
     }
 
@@ -182,6 +244,23 @@ public final class Analyser {
         return _classAnalyser.getCondensedGraph();
     }
 
+    /**
+     * Calculates the attributes of all class cycles. Without calling this
+     * method they are calculated one after another when they are accessed the
+     * first time.
+     *
+     * @return the duration of this operation in milliseconds.
+     * @throws IllegalStateException
+     *             if this method is called before {@link #createClassGraph()}.
+     * @see #setNumberOfThreads(int)
+     */
+    public long calculateClassAttributes() {
+        checkClassGraph("calculateClassAttributes()");
+        final long time = System.currentTimeMillis();
+        _classAnalyser.calculateAttributes();
+        return System.currentTimeMillis() - time;
+    }
+
     /**
      * Calculates the for each class its layer index. The layer index of a class
      * is the length of the longest path in the acyclic graph of strong
@@ -194,14 +273,15 @@ public final class Analyser {
     public long calculateClassLayerMap() {
         checkClassGraph("calculateClassLayerMap()");
         final long time = System.currentTimeMillis();
-        _classAnalyser.getLayerMap();
+        _classAnalyser.getLayers();
         return System.currentTimeMillis() - time;
     }
 
     /**
      * Calculates the for each class its layer index and returns a <tt>Map</tt>
      * where the classes are the keys (type {@link AtomicVertex}) and the layer
-     * indices are the values (type <tt>Integer</tt>).
+     * indices are the values (type <tt>Integer</tt>). The map is a read-only
+     * view of {@link StrongComponentAnalyser#getLayers()}.
      *
      * @throws IllegalStateException
      *             if this method is called before {@link #createClassGraph()}.
@@ -211,6 +291,18 @@ public final class Analyser {
         return _classAnalyser.getLayerMap();
     }
 
+    /**
+     * Calculates the for each class its layer index and returns them in the
+     * order of the classes of {@link #getClassGraph()}.
+     *
+     * @throws IllegalStateException
+     *             if this method is called before {@link #createClassGraph()}.
+     */
+    public int[] getClassLayers() {
+        checkClassGraph("getClassLayers()");
+        return _classAnalyser.getLayers();
+    }
+
     /**
      * Creates the package graph from the class graph.
      *
@@ -222,8 +314,9 @@ public final class Analyser {
         checkClassGraph("createPackageGraph()");
         final long time = System.currentTimeMillis();
         final PackageProcessor processor = new PackageProcessor();
-        processor.deepSearchFirst(_classAnalyser.getGraph());
+        processor.deepSearchFirst(_classAnalyser.getCompactGraph());
         _packageAnalyser = new StrongComponentAnalyser(processor.getGraph());
+        _packageAnalyser.setNumberOfThreads(_numberOfThreads);
         return System.currentTimeMillis() - time;
     }
 
@@ -245,11 +338,12 @@ public final class Analyser {
      *            Output stream.
      */
     public void printCSV(final PrintWriter writer) {
+        calculateClassAttributes();
         final StrongComponent[] cycles = getCondensedClassGraph();
         final AtomicVertex[] graph = getClassGraph();
-        final Map<AtomicVertex, Integer> map = getClassLayerMap();
+        final int[] layers = getClassLayers();
         writer.println("class name,type,inner class,size,used by,uses internal classes,uses external classes,layer index,cycle,source");
-        render(graph, cycles, map, new TemplateBasedClassRenderer(CSV_TEMPLATE), writer);
+        render(graph, cycles, layers, new TemplateBasedClassRenderer(CSV_TEMPLATE), writer);
         writer.close();
     }
 
@@ -286,7 +380,8 @@ public final class Analyser {
      */
     public void printComponents(final PrintWriter writer, final int minSize) {
         checkClassGraph("printComponents()");
-        final StrongComponent[] components = getCondensedClassGraph();
+        calculateClassAttributes();
+        final StrongComponent[] components = _classAnalyser.getLayeredCondensedGraph();
         final StrongComponentRenderer renderer = new PlainStrongComponentRenderer();
         for (final StrongComponent component : components) {
             if (component.getNumberOfVertices() >= minSize) {
@@ -344,6 +439,24 @@ public final class Analyser {
         return _packageAnalyser.getCondensedGraph();
     }
 
+    /**
+     * Calculates the attributes of all package cycles. Without calling this
+     * method they are calculated one after another when they are accessed the
+     * first time.
+     *
+     * @return the duration of this operation in milliseconds.
+     * @throws IllegalStateException
+     *             if this method is called before {@link #createPackageGraph()}
+     *             .
+     * @see #setNumberOfThreads(int)
+     */
+    public long calculatePackageAttributes() {
+        checkPackageGraph("calculatePackageAttributes()");
+        final long time = System.currentTimeMillis();
+        _packageAnalyser.calculateAttributes();
+        return System.currentTimeMillis() - time;
+    }
+
     /**
      * Calculates the for each package its layer index. The layer index of a
      * package is the length of the longest path in the acyclic graph of strong
@@ -357,14 +470,15 @@ public final class Analyser {
     public long calculatePackageLayerMap() {
         checkPackageGraph("calculatePackageLayerMap()");
         final long time = System.currentTimeMillis();
-        _packageAnalyser.getLayerMap();
+        _packageAnalyser.getLayers();
         return System.currentTimeMillis() - time;
     }
 
     /**
      * Calculates the for each package its layer index and returns a
      * <tt>Map</tt> where the packages are the keys (type {@link AtomicVertex})
-     * and the layer indices are the values (type <tt>Integer</tt>).
+     * and the layer indices are the values (type <tt>Integer</tt>). The map is
+     * a read-only view of {@link StrongComponentAnalyser#getLayers()}.
      *
      * @throws IllegalStateException
      *             if this method is called before {@link #createPackageGraph()}
@@ -375,6 +489,19 @@ public final class Analyser {
         return _packageAnalyser.getLayerMap();
     }
 
+    /**
+     * Calculates the for each package its layer index and returns them in the
+     * order of the packages of {@link #getPackageGraph()}.
+     *
+     * @throws IllegalStateException
+     *             if this method is called before {@link #createPackageGraph()}
+     *             .
+     */
+    public int[] getPackageLayers() {
+        checkPackageGraph("getPackageLayers()");
+        return _packageAnalyser.getLayers();
+    }
+
     /**
      * Reads and analyses class files. Does only package analysis if
      * <tt>packagesOnly == true</tt>. Reports progress of analysis on
@@ -435,7 +562,8 @@ public final class Analyser {
         writer.print(DATE_FORMAT.format(new Date()));
         writer.println("'>");
         if (!packagesOnly) {
-            final StrongComponent[] components = getCondensedClassGraph();
+            calculateClassAttributes();
+            final StrongComponent[] components = _classAnalyser.getLayeredCondensedGraph();
             writer.println("  <cycles>");
             final StrongComponentRenderer sRenderer = new XMLStrongComponentRenderer(2);
             for (final StrongComponent component : components) {
@@ -444,11 +572,12 @@ public final class Analyser {
             writer.println("  </cycles>");
             writer.println("  <classes numberOfExternalClasses=\"" + getNumberOfExternalClasses() + "\">");
             final AtomicVertex[] graph = getClassGraph();
-            final Map<AtomicVertex, Integer> layerMap = getClassLayerMap();
-            render(graph, components, layerMap, new XMLClassRenderer(), writer);
+            final int[] layers = getClassLayers();
+            render(graph, components, layers, new XMLClassRenderer(), writer);
             writer.println("  </classes>");
         }
-        final StrongComponent[] components = getCondensedPackageGraph();
+        calculatePackageAttributes();
+        final StrongComponent[] components = _packageAnalyser.getLayeredCondensedGraph();
         writer.println("  <packageCycles>");
         final StrongComponentRenderer sRenderer = new XMLPackageStrongComponentRenderer(2);
         for (final StrongComponent component : components) {
@@ -457,19 +586,18 @@ public final class Analyser {
         writer.println("  </packageCycles>");
         writer.println("  <packages>");
         final AtomicVertex[] graph = getPackageGraph();
-        final Map<AtomicVertex, Integer> layerMap = getPackageLayerMap();
-        render(graph, components, layerMap, new XMLPackageRenderer(), writer);
+        final int[] layers = getPackageLayers();
+        render(graph, components, layers, new XMLPackageRenderer(), writer);
         writer.println("  </packages>");
 
         writer.println("</classycle>");
         writer.close();
     }
 
-    private static void render(final AtomicVertex[] graph, final StrongComponent[] cycles, final Map<AtomicVertex, Integer> layerMap, final AtomicVertexRenderer renderer, final PrintWriter writer) {
+    private static void render(final AtomicVertex[] graph, final StrongComponent[] cycles, final int[] layers, final AtomicVertexRenderer renderer, final PrintWriter writer) {
         final List<StrongComponent> list = getTrueCycles(cycles);
-        for (final AtomicVertex vertex : graph) {
-            final Integer layerIndex = layerMap.get(vertex);
-            writer.print(renderer.render(vertex, getCycleFor(vertex, list), layerIndex == null ? -1 : layerIndex.intValue()));
+        for (int i = 0; i < graph.length; i++) {
+            writer.print(renderer.render(graph[i], getCycleFor(graph[i], list), layers[i]));
         }
     }
 
@@ -520,7 +648,11 @@ public final class Analyser {
 
         final Analyser analyser = new Analyser(commandLine.getClassFiles(), commandLine.getPattern(),
                                                commandLine.getReflectionPattern(), commandLine.isMergeInnerClasses());
-        
+        analyser.setDescriptorsOnly(commandLine.isDescriptorsOnly());
+        analyser.setNumberOfThreads(commandLine.getNumberOfThreads());
+        analyser.setCacheFile(commandLine.getCacheFile());
+        analyser.setIndexDirectory(commandLine.getIndexDirectory());
+
         analyser.readAndAnalyse(commandLine.isPackagesOnly());
 
         if (commandLine.getXmlFile() != null) {
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2012 Tom Denley
+ * This file incorporates work covered by the following copyright and
+ * permission notice:
+ *
+ * Copyright (c) 2003-2008, Franz-Josef Elmer, All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.netmelody.neoclassycle;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import org.netmelody.neoclassycle.classfile.ClassFileScanner;
+import org.netmelody.neoclassycle.classfile.StringConstant;
+import org.netmelody.neoclassycle.util.StringPattern;
+
+/**
+ * Creates {@link UnresolvedNode}s from class files. Each thread uses its own
+ * {@link ClassFileScanner}, so an instance can be shared by all parser
+ * threads. They also share the memo cache of the {@link DescriptorParser}.
+ */
+final class ClassFileParser {
+    private static final int ACC_INTERFACE = 0x200, ACC_ABSTRACT = 0x400;
+    private static final int NUMBER_OF_CACHED_DESCRIPTORS = 8192;
+    private static final ThreadLocal<ClassFileScanner> SCANNER = new ThreadLocal<ClassFileScanner>() {
+        @Override
+        protected ClassFileScanner initialValue() {
+            return new ClassFileScanner();
+        }
+    };
+
+    private final SymbolTable _symbols;
+    private final StringPattern _reflectionPattern;
+    private final boolean _descriptorsOnly;
+    private final DescriptorParser _descriptorParser;
+
+    /**
+     * Creates an instance.
+     *
+     * @param symbols
+     *            Symbol table of the class names of the links of the created
+     *            nodes.
+     * @param reflectionPattern
+     *            Pattern used to check whether a {@link StringConstant} refer
+     *            to a class. Can be <tt>null</tt>.
+     * @param descriptorsOnly
+     *            If <tt>true</tt> only UTF8 constants which are used as
+     *            descriptors or signatures are searched for class names.
+     *            Otherwise every UTF8 constant which looks like a descriptor
+     *            is searched.
+     */
+    ClassFileParser(final SymbolTable symbols, final StringPattern reflectionPattern, final boolean descriptorsOnly) {
+        _symbols = symbols;
+        _reflectionPattern = reflectionPattern;
+        _descriptorsOnly = descriptorsOnly;
+        _descriptorParser = new DescriptorParser(symbols, NUMBER_OF_CACHED_DESCRIPTORS);
+    }
+
+    /** Returns the symbol table of the class names of the links. */
+    SymbolTable getSymbols() {
+        return _symbols;
+    }
+
+    /**
+     * Creates a new node with unresolved references.
+     *
+     * @param stream
+     *            A just opended byte stream of a class file. It will be read
+     *            completely.
+     * @param source
+     *            Optional source of the class file. Can be <code>null</code>.
+     * @param size
+     *            Number of bytes of the class file or a negative number if
+     *            unknown.
+     * @param pattern
+     *            Pattern the class name has to match. It is checked right
+     *            after the constant pool has been scanned. Can be
+     *            <tt>null</tt>.
+     * @return a node with unresolved link of all classes used by the analysed
+     *         class or <tt>null</tt> if the class name does not match the
+     *         pattern.
+     */
+    UnresolvedNode createNode(final InputStream stream, final String source, final int size, final StringPattern pattern)
+            throws IOException {
+        final ClassFileScanner scanner = SCANNER.get();
+        scanner.scan(stream, size);
+        return createNode(scanner, source, size < 0 ? scanner.getSize() : size, pattern);
+    }
+
+    /**
+     * Creates a new node with unresolved references from a class file given
+     * between position and limit of the specified buffer.
+     *
+     * @return <tt>null</tt> if the class name does not match the specified
+     *         pattern.
+     */
+    UnresolvedNode createNode(final ByteBuffer classFile, final String source, final StringPattern pattern) throws IOException {
+        final ClassFileScanner scanner = SCANNER.get();
+        scanner.scan(classFile, classFile.position(), classFile.remaining());
+        return createNode(scanner, source, classFile.remaining(), pattern);
+    }
+
+    /**
+     * Returns the name of the class of the class file given between position
+     * and limit of the specified buffer. Only the header and the constant
+     * pool are read.
+     */
+    String readClassName(final ByteBuffer classFile) throws IOException {
+        final ClassFileScanner scanner = SCANNER.get();
+        scanner.scan(classFile, classFile.position(), classFile.remaining());
+        return scanner.getClassName(scanner.getThisClassIndex());
+    }
+
+    private UnresolvedNode createNode(final ClassFileScanner scanner, final String source, final int size, final StringPattern pattern)
+            throws IOException {
+        // Uses accessFlags and class name
+        final int accessFlags = scanner.getAccessFlags();
+        String name = scanner.getClassName(scanner.getThisClassIndex());
+        if (pattern != null && pattern.matches(name) == false) {
+            return null;
+        }
+        final int id = _symbols.getId(name);
+        name = _symbols.getName(id);
+        ClassAttributes attributes = null;
+        if ((accessFlags & ACC_INTERFACE) != 0) {
+            attributes = ClassAttributes.createInterface(name, source, size);
+        }
+        else {
+            if ((accessFlags & ACC_ABSTRACT) != 0) {
+                attributes = ClassAttributes.createAbstractClass(name, source, size);
+            }
+            else {
+                attributes = ClassAttributes.createClass(name, source, size);
+            }
+        }
+        if (_descriptorsOnly) {
+            scanner.findDescriptors();
+        }
+
+        return nodeFor(scanner, id, attributes);
+    }
+
+    /**
+     * Creates a new node with unresolved references. Only the class constants,
+     * the UTF8 constants which are (or might be) descriptors, and (if a
+     * reflection pattern is given) the string constants are decoded.
+     */
+    private UnresolvedNode nodeFor(final ClassFileScanner scanner, final int id, ClassAttributes attributes) {
+        final UnresolvedNode node = new UnresolvedNode(_symbols);
+        node.setAttributes(attributes);
+        for (int i = 1, n = scanner.getNumberOfEntries(); i < n; i++) {
+            final int tag = scanner.getTag(i);
+            if (tag == ClassFileScanner.CONSTANT_CLASS) {
+                final String className = scanner.getClassName(i);
+                if (className != null && !className.startsWith(("["))) {
+                    final int classId = _symbols.getId(className);
+                    if (classId != id) {
+                        node.addLinkTo(classId);
+                    }
+                }
+            }
+            else if (tag == ClassFileScanner.CONSTANT_UTF8) {
+                if (_descriptorsOnly ? scanner.isDescriptor(i) : scanner.isDescriptorCandidate(i)) {
+                    for (final int classId : _descriptorParser.extract(scanner, i)) {
+                        if (classId != id) {
+                            node.addLinkTo(classId);
+                        }
+                    }
+                }
+            }
+            else if (_reflectionPattern != null && tag == ClassFileScanner.CONSTANT_STRING) {
+                final String str = scanner.getString(i);
+                if (str != null && ClassNameExtractor.isValid(str) && _reflectionPattern.matches(str)) {
+                    node.addLinkTo(str);
+                }
+            }
+        }
+        return node;
+    }
+}
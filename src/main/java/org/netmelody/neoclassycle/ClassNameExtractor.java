@@ -68,7 +68,11 @@ final class ClassNameExtractor {
     private boolean _valid = true;
 
     ClassNameExtractor(final Utf8Constant constant) {
-        _constant = constant.getString();
+        this(constant.getString());
+    }
+
+    ClassNameExtractor(final String constant) {
+        _constant = constant;
         _endIndex = _constant.length();
     }
 
@@ -28,6 +28,8 @@
  */
 package org.netmelody.neoclassycle;
 
+import java.io.File;
+
 import org.netmelody.neoclassycle.util.AndStringPattern;
 import org.netmelody.neoclassycle.util.NotStringPattern;
 import org.netmelody.neoclassycle.util.StringPattern;
@@ -42,8 +44,16 @@ public abstract class CommandLine {
     private static final String INCLUDING_CLASSES = "-includingClasses=";
     private static final String EXCLUDING_CLASSES = "-excludingClasses=";
     private static final String REFLECTION_PATTERN = "-reflectionPattern=";
+    private static final String DESCRIPTORS_ONLY = "-descriptorsOnly";
+    private static final String THREADS = "-threads=";
+    private static final String CACHE = "-cache=";
+    private static final String INDEX_DIRECTORY = "-indexDirectory=";
 
     private boolean _mergeInnerClasses;
+    private boolean _descriptorsOnly;
+    private int _numberOfThreads = 1;
+    private File _cacheFile;
+    private File _indexDirectory;
     protected boolean _valid = true;
     protected AndStringPattern _pattern = new AndStringPattern();
     protected StringPattern _reflectionPattern;
@@ -83,6 +93,38 @@ public abstract class CommandLine {
                 _reflectionPattern = WildCardPattern.createFromsPatterns(patterns, ",");
             }
         }
+        else if (argument.equals(DESCRIPTORS_ONLY)) {
+            _descriptorsOnly = true;
+        }
+        else if (argument.startsWith(THREADS)) {
+            try {
+                _numberOfThreads = Integer.parseInt(argument.substring(THREADS.length()));
+                if (_numberOfThreads < 1) {
+                    _valid = false;
+                }
+            }
+            catch (final NumberFormatException e) {
+                _valid = false;
+            }
+        }
+        else if (argument.startsWith(CACHE)) {
+            final String fileName = argument.substring(CACHE.length());
+            if (fileName.length() == 0) {
+                _valid = false;
+            }
+            else {
+                _cacheFile = new File(fileName);
+            }
+        }
+        else if (argument.startsWith(INDEX_DIRECTORY)) {
+            final String directoryName = argument.substring(INDEX_DIRECTORY.length());
+            if (directoryName.length() == 0) {
+                _valid = false;
+            }
+            else {
+                _indexDirectory = new File(directoryName);
+            }
+        }
         else {
             _valid = false;
         }
@@ -131,11 +173,46 @@ public abstract class CommandLine {
         return _mergeInnerClasses;
     }
 
+    /**
+     * Returns <code>true</code> if the command line option
+     * <code>-descriptorsOnly</code> occured.
+     */
+    public boolean isDescriptorsOnly() {
+        return _descriptorsOnly;
+    }
+
+    /**
+     * Returns the number of threads used for parsing class files, finding
+     * strong components and executing dependency checks as defined by the
+     * option <tt>-threads</tt>. Default is 1.
+     */
+    public int getNumberOfThreads() {
+        return _numberOfThreads;
+    }
+
+    /**
+     * Returns the file of the persistent cache of parse results as defined by
+     * the option <tt>-cache</tt>. Returns <tt>null</tt> if undefined.
+     */
+    public File getCacheFile() {
+        return _cacheFile;
+    }
+
+    /**
+     * Returns the directory of the sidecar index files of zip/jar/war/ear
+     * files as defined by the option <tt>-indexDirectory</tt>. Returns
+     * <tt>null</tt> if undefined.
+     */
+    public File getIndexDirectory() {
+        return _indexDirectory;
+    }
+
     /** Returns the usage of correct command line arguments and options. */
     public final String getUsage() {
         return specificUsage() + 
                 "[" + MERGE_INNER_CLASSES + "] " + "[" + INCLUDING_CLASSES + "<pattern1>,<pattern2>,...] " + "[" + EXCLUDING_CLASSES
-                + "<pattern1>,<pattern2>,...] " + "[" + REFLECTION_PATTERN + "<pattern1>,<pattern2>,...] "
+                + "<pattern1>,<pattern2>,...] " + "[" + REFLECTION_PATTERN + "<pattern1>,<pattern2>,...] " + "[" + DESCRIPTORS_ONLY + "] "
+                + "[" + THREADS + "<number>] " + "[" + CACHE + "<file>] " + "[" + INDEX_DIRECTORY + "<folder>] "
                 + "<class files, zip/jar/war/ear files, or folders>";
     }
     
@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2012 Tom Denley
+ * This file incorporates work covered by the following copyright and
+ * permission notice:
+ *
+ * Copyright (c) 2003-2008, Franz-Josef Elmer, All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.netmelody.neoclassycle;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.netmelody.neoclassycle.util.StringPattern;
+
+/**
+ * Directory of sidecar index files holding the parse results of whole
+ * zip/jar/war/ear files. An index file is named after the SHA-1 hash of the
+ * content of the archive (and of the reflection pattern and the parsing mode
+ * if they are not the default).
+ * Thus an index can be shared between modules and machines as long as the
+ * archive does not change.
+ * <p>
+ * If an index file exists it is read (memory-mapped) instead of the archive.
+ * Otherwise the archive is parsed and a new index file is written. Index files
+ * which can not be read are ignored and replaced.
+ * <p>
+ * Instances are thread-safe.
+ */
+public final class DependencyIndex {
+    private static final int MAGIC = 0x4e434449;
+    private static final int VERSION = 2;
+    private static final String SUFFIX = ".idx";
+    private static final String ENCODING = "UTF-8";
+    private static final String[] TYPES = new String[] { ClassAttributes.CLASS, ClassAttributes.ABSTRACT_CLASS, ClassAttributes.INTERFACE };
+
+    private final File _directory;
+    private final String _configuration;
+    private int _numberOfReadIndices;
+    private int _numberOfWrittenIndices;
+
+    /**
+     * Creates an instance for the specified directory. Short-cut of
+     * <tt>new DependencyIndex(directory, reflectionPattern, false)</tt>.
+     */
+    public DependencyIndex(final File directory, final StringPattern reflectionPattern) {
+        this(directory, reflectionPattern, false);
+    }
+
+    /**
+     * Creates an instance for the specified directory.
+     *
+     * @param directory
+     *            Directory of the index files. It will be created if
+     *            necessary.
+     * @param reflectionPattern
+     *            Reflection pattern used to parse class files. Can be
+     *            <tt>null</tt>.
+     * @param descriptorsOnly
+     *            <tt>true</tt> if only real descriptors are parsed.
+     */
+    public DependencyIndex(final File directory, final StringPattern reflectionPattern, final boolean descriptorsOnly) {
+        _directory = directory;
+        if (reflectionPattern == null && descriptorsOnly == false) {
+            _configuration = null;
+        }
+        else {
+            _configuration = (descriptorsOnly ? "descriptorsOnly;" : "") + (reflectionPattern == null ? "" : "reflection:" + reflectionPattern);
+        }
+    }
+
+    /** Returns the directory of the index files. */
+    public File getDirectory() {
+        return _directory;
+    }
+
+    /** Returns the number of index files read instead of archives. */
+    public synchronized int getNumberOfReadIndices() {
+        return _numberOfReadIndices;
+    }
+
+    /** Returns the number of index files written. */
+    public synchronized int getNumberOfWrittenIndices() {
+        return _numberOfWrittenIndices;
+    }
+
+    /**
+     * Returns the index file for the specified archive. The file might not
+     * exist.
+     */
+    File getIndexFile(final File archive) throws IOException {
+        final MessageDigest digest = createDigest();
+        final FileInputStream stream = new FileInputStream(archive);
+        try {
+            final FileChannel channel = stream.getChannel();
+            final ByteBuffer buffer = ByteBuffer.allocate(65536);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        finally {
+            stream.close();
+        }
+        if (_configuration != null) {
+            digest.update(_configuration.getBytes(ENCODING));
+        }
+        final StringBuffer name = new StringBuffer();
+        for (final byte b : digest.digest()) {
+            name.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return new File(_directory, name.append(SUFFIX).toString());
+    }
+
+    private static MessageDigest createDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        }
+        catch (final NoSuchAlgorithmException e) {
+            throw new IOException("SHA-1 not supported: " + e);
+        }
+    }
+
+    /**
+     * Reads the specified index file.
+     *
+     * @param source
+     *            Optional source of the class files. Can be <code>null</code>.
+     * @param symbols
+     *            Symbol table of the links of the returned nodes.
+     * @return the nodes in the order they have been written or <tt>null</tt>
+     *         if the index file does not exist or can not be read.
+     */
+    List<UnresolvedNode> read(final File indexFile, final String source, final SymbolTable symbols) {
+        if (indexFile.isFile() == false) {
+            return null;
+        }
+        try {
+            final RandomAccessFile file = new RandomAccessFile(indexFile, "r");
+            try {
+                final FileChannel channel = file.getChannel();
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                final List<UnresolvedNode> nodes = read(buffer, source, symbols);
+                if (nodes != null) {
+                    synchronized (this) {
+                        _numberOfReadIndices++;
+                    }
+                }
+                return nodes;
+            }
+            finally {
+                file.close();
+            }
+        }
+        catch (final IOException e) {
+            return null;
+        }
+    }
+
+    private static List<UnresolvedNode> read(final ByteBuffer buffer, final String source, final SymbolTable symbols)
+            throws UnsupportedEncodingException {
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            final String[] strings = new String[checkCount(buffer.getInt(), buffer)];
+            final int[] ids = new int[strings.length];
+            for (int i = 0; i < strings.length; i++) {
+                final byte[] bytes = new byte[buffer.getShort() & 0xffff];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, ENCODING);
+                ids[i] = -1;
+            }
+            final int numberOfNodes = checkCount(buffer.getInt(), buffer);
+            final List<UnresolvedNode> nodes = new ArrayList<UnresolvedNode>(numberOfNodes);
+            for (int i = 0; i < numberOfNodes; i++) {
+                final String type = TYPES[buffer.get()];
+                final String name = strings[buffer.getInt()];
+                final String nestedSource = strings[buffer.getInt()];
+                final UnresolvedNode node = new UnresolvedNode(symbols);
+                node.setAttributes(new ClassAttributes(name, source + nestedSource, type, buffer.getInt()));
+                for (int j = 0, n = buffer.getInt(); j < n; j++) {
+                    final int index = buffer.getInt();
+                    if (ids[index] < 0) {
+                        ids[index] = symbols.getId(strings[index]);
+                    }
+                    node.addLinkTo(ids[index]);
+                }
+                nodes.add(node);
+            }
+            return nodes;
+        }
+        catch (final RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks that a count read from a possibly corrupted index file does not
+     * exceed the number of remaining bytes.
+     */
+    private static int checkCount(final int count, final ByteBuffer buffer) {
+        if (count < 0 || count > buffer.remaining()) {
+            throw new IllegalStateException("Invalid count: " + count);
+        }
+        return count;
+    }
+
+    /**
+     * Writes the specified nodes into the specified index file. The file is
+     * written under a temporary name first and renamed afterwards. Thus
+     * concurrent readers never see an incomplete index file.
+     *
+     * @param source
+     *            Source of the archive. Sources of nodes from nested archives
+     *            are stored relative to it.
+     */
+    void write(final File indexFile, final List<UnresolvedNode> nodes, final String source) throws IOException {
+        final Map<String, Integer> stringIndices = new HashMap<String, Integer>();
+        final List<byte[]> strings = new ArrayList<byte[]>();
+        int size = 16;
+        for (final UnresolvedNode node : nodes) {
+            size += 17;
+            addString(node.getAttributes().getName(), stringIndices, strings);
+            addString(getNestedSource(node, source), stringIndices, strings);
+            for (final Iterator<String> iterator = node.linkIterator(); iterator.hasNext();) {
+                size += 4;
+                addString(iterator.next(), stringIndices, strings);
+            }
+        }
+        for (final byte[] bytes : strings) {
+            size += 2 + bytes.length;
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(strings.size());
+        for (final byte[] bytes : strings) {
+            buffer.putShort((short) bytes.length).put(bytes);
+        }
+        buffer.putInt(nodes.size());
+        for (final UnresolvedNode node : nodes) {
+            final ClassAttributes attributes = node.getAttributes();
+            int type = 0;
+            while (TYPES[type].equals(attributes.getType()) == false) {
+                type++;
+            }
+            buffer.put((byte) type).putInt(stringIndices.get(attributes.getName()).intValue());
+            buffer.putInt(stringIndices.get(getNestedSource(node, source)).intValue()).putInt(attributes.getSize());
+            final int linksPosition = buffer.position();
+            buffer.putInt(0);
+            int numberOfLinks = 0;
+            for (final Iterator<String> iterator = node.linkIterator(); iterator.hasNext(); numberOfLinks++) {
+                buffer.putInt(stringIndices.get(iterator.next()).intValue());
+            }
+            buffer.putInt(linksPosition, numberOfLinks);
+        }
+        buffer.flip();
+
+        _directory.mkdirs();
+        final File tempFile = File.createTempFile("index", ".tmp", _directory);
+        try {
+            final RandomAccessFile file = new RandomAccessFile(tempFile, "rw");
+            try {
+                final FileChannel channel = file.getChannel();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            finally {
+                file.close();
+            }
+            if (tempFile.renameTo(indexFile) == false && indexFile.isFile() == false) {
+                throw new IOException("Couldn't create index file " + indexFile);
+            }
+            synchronized (this) {
+                _numberOfWrittenIndices++;
+            }
+        }
+        finally {
+            tempFile.delete();
+        }
+    }
+
+    private static String getNestedSource(final UnresolvedNode node, final String source) {
+        final String sources = node.getAttributes().getSources();
+        return sources.startsWith(source) ? sources.substring(source.length()) : "";
+    }
+
+    private static void addString(final String string, final Map<String, Integer> stringIndices, final List<byte[]> strings)
+            throws UnsupportedEncodingException {
+        if (stringIndices.containsKey(string)) {
+            return;
+        }
+        final byte[] bytes = string.getBytes(ENCODING);
+        if (bytes.length > 0xffff) {
+            throw new UnsupportedEncodingException("Class name too long: " + string);
+        }
+        stringIndices.put(string, Integer.valueOf(strings.size()));
+        strings.add(bytes);
+    }
+}
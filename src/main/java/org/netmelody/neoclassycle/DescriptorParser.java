@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2012 Tom Denley
+ * This file incorporates work covered by the following copyright and
+ * permission notice:
+ *
+ * Copyright (c) 2003-2008, Franz-Josef Elmer, All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.netmelody.neoclassycle;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.netmelody.neoclassycle.classfile.ClassFileScanner;
+
+/**
+ * Extracts class names from descriptors and signatures straight from the
+ * bytes of UTF8 constants scanned by a {@link ClassFileScanner}. The grammar
+ * is the same as the one of {@link ClassNameExtractor}. Class names are
+ * returned as ids of a {@link SymbolTable}.
+ * <p>
+ * Results are memoised in a bounded direct-mapped cache keyed by the bytes of
+ * the descriptor. A slot holds the descriptor most recently parsed for it.
+ * Looking up a descriptor which is in the cache creates no objects.
+ * <p>
+ * Instances are thread-safe and meant to be shared by all parser threads.
+ */
+final class DescriptorParser {
+    private static final int[] NO_CLASS_IDS = new int[0];
+
+    /** Immutable cache entry. */
+    private static final class Entry {
+        private final byte[] _descriptor;
+        private final int _hash;
+        private final int[] _classIds;
+
+        Entry(final byte[] descriptor, final int hash, final int[] classIds) {
+            _descriptor = descriptor;
+            _hash = hash;
+            _classIds = classIds;
+        }
+    }
+
+    private final SymbolTable _symbols;
+    private final AtomicReferenceArray<Entry> _entries;
+    private final int _mask;
+
+    /**
+     * Creates an instance.
+     *
+     * @param symbols
+     *            Symbol table the class names are added to.
+     * @param capacity
+     *            Maximum number of cached descriptors. It is rounded up to the
+     *            next power of two.
+     */
+    DescriptorParser(final SymbolTable symbols, final int capacity) {
+        _symbols = symbols;
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        _entries = new AtomicReferenceArray<Entry>(size);
+        _mask = size - 1;
+    }
+
+    /**
+     * Returns the ids of the class names of the specified UTF8 entry of the
+     * specified scanner in the order of their first appearance. The returned
+     * array must not be modified.
+     *
+     * @return an empty array if the entry is not a valid descriptor or
+     *         signature.
+     */
+    int[] extract(final ClassFileScanner scanner, final int index) {
+        final ByteBuffer buffer = scanner.getBuffer();
+        final int offset = scanner.getUtf8Offset(index);
+        final int length = scanner.getUtf8Length(index);
+        int hash = length;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            hash = 31 * hash + buffer.get(i);
+        }
+        final int slot = (hash ^ (hash >>> 16)) & _mask;
+        final Entry entry = _entries.get(slot);
+        if (entry != null && entry._hash == hash && equals(entry._descriptor, buffer, offset)) {
+            return entry._classIds;
+        }
+
+        final int[] classIds = toIds(new Extraction(scanner, offset, length).extract());
+        final byte[] descriptor = new byte[length];
+        for (int i = 0; i < length; i++) {
+            descriptor[i] = buffer.get(offset + i);
+        }
+        _entries.set(slot, new Entry(descriptor, hash, classIds));
+        return classIds;
+    }
+
+    private int[] toIds(final List<String> classNames) {
+        if (classNames == null) {
+            return NO_CLASS_IDS;
+        }
+        final int[] classIds = new int[classNames.size()];
+        for (int i = 0; i < classIds.length; i++) {
+            classIds[i] = _symbols.getId(classNames.get(i));
+        }
+        return classIds;
+    }
+
+    private static boolean equals(final byte[] descriptor, final ByteBuffer buffer, final int offset) {
+        for (int i = 0; i < descriptor.length; i++) {
+            if (descriptor[i] != buffer.get(offset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * State of the extraction of class names from a single descriptor. All
+     * indices are absolute buffer positions. Only ASCII characters are
+     * significant for the grammar. Bytes of multi-byte characters never
+     * match them.
+     */
+    private static final class Extraction {
+        private final ClassFileScanner _scanner;
+        private final ByteBuffer _buffer;
+        private final int _end;
+        private final List<String> _classNames = new ArrayList<String>();
+        private int _index;
+        private int _endIndex;
+        private boolean _valid = true;
+
+        Extraction(final ClassFileScanner scanner, final int offset, final int length) {
+            _scanner = scanner;
+            _buffer = scanner.getBuffer();
+            _index = offset;
+            _end = offset + length;
+            _endIndex = _end;
+        }
+
+        /** Returns the class names or <tt>null</tt> if the descriptor is invalid. */
+        List<String> extract() {
+            if (getCurrentCharacter() == '<') {
+                final int ddIndex = indexOf("::", _index);
+                if (ddIndex >= 0) {
+                    _index = ddIndex + 2;
+                    parseTypes(false);
+                    if (getCurrentCharacter() == '>') {
+                        _index++;
+                    }
+                    else {
+                        _valid = false;
+                    }
+                }
+                else {
+                    _valid = false;
+                }
+            }
+            if (getCurrentCharacter() == '(') {
+                final int endIndex = indexOf(')', _index);
+                if (endIndex >= 0) {
+                    _index++;
+                    _endIndex = endIndex;
+                    parseTypes(false);
+                    _index = endIndex + 1;
+                    _endIndex = _end;
+                }
+                else {
+                    _valid = false;
+                }
+            }
+            if (_valid && parseTypes(false) == 0) {
+                _valid = false;
+            }
+            return _valid ? _classNames : null;
+        }
+
+        private int charAt(final int index) {
+            return _buffer.get(index) & 0xff;
+        }
+
+        private int getCurrentCharacter() {
+            return _index < _endIndex ? charAt(_index) : 0;
+        }
+
+        private int indexOf(final char c, final int from) {
+            for (int i = from; i < _end; i++) {
+                if (charAt(i) == c) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private int indexOf(final String str, final int from) {
+            for (int i = from, n = _end - str.length(); i <= n; i++) {
+                int j = 0;
+                while (j < str.length() && charAt(i + j) == str.charAt(j)) {
+                    j++;
+                }
+                if (j == str.length()) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private boolean endOfTypes() {
+            return _index >= _endIndex || charAt(_index) == '>';
+        }
+
+        private int parseTypes(final boolean generics) {
+            int numberOfTypes = 0;
+            while (_valid && endOfTypes() == false) {
+                parseType(generics);
+                numberOfTypes++;
+            }
+            return numberOfTypes;
+        }
+
+        private void parseType(final boolean generics) {
+            if (generics) {
+                final int currentCharacter = getCurrentCharacter();
+                if (currentCharacter == '+') {
+                    _index++;
+                }
+                else if (currentCharacter == '*') {
+                    _index++;
+                    return;
+                }
+            }
+            boolean arrayType = false;
+            for (; getCurrentCharacter() == '['; _index++) {
+                arrayType = true;
+            }
+            if (arrayType && endOfTypes()) {
+                _valid = false;
+            }
+            else {
+                final int c = getCurrentCharacter();
+                _index++;
+                if (c == 'L') {
+                    parseComplexType();
+                }
+                else if (c == 'T') {
+                    final int index = indexOf(';', _index);
+                    if (index < 0) {
+                        _valid = false;
+                    }
+                    else {
+                        _index = index + 1;
+                    }
+                }
+                else if ("BCDFIJSVZ".indexOf(c) < 0) {
+                    _valid = false;
+                }
+            }
+        }
+
+        private void parseComplexType() {
+            final int typeIndex = indexOf('<', _index);
+            final int endIndex = indexOf(';', _index);
+            if (typeIndex >= 0 && typeIndex < endIndex) {
+                extractClassName(typeIndex);
+                parseTypes(true);
+                _index += 2;
+            }
+            else if (endIndex >= 0) {
+                extractClassName(endIndex);
+            }
+            else {
+                _valid = false;
+            }
+        }
+
+        private void extractClassName(final int endIndex) {
+            final String className = _scanner.decodeClassName(_index, endIndex - _index);
+            if (_classNames.contains(className) == false) {
+                _classNames.add(className);
+            }
+            _index = endIndex + 1;
+            if (ClassNameExtractor.isValid(className) == false) {
+                _valid = false;
+            }
+        }
+    }
+}
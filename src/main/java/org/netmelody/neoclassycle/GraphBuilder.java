@@ -28,12 +28,13 @@
  */
 package org.netmelody.neoclassycle;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
+import java.util.List;
 
 import org.netmelody.neoclassycle.graph.AtomicVertex;
+import org.netmelody.neoclassycle.graph.CompactGraph;
+import org.netmelody.neoclassycle.graph.Vertex;
 
 final class GraphBuilder {
     /**
@@ -41,72 +42,170 @@ final class GraphBuilder {
      *
      * @param unresolvedNodes
      *            All nodes with unresolved references.
+     * @param symbols
+     *            Symbol table of the links of the nodes.
      * @param mergeInnerClasses
      *            Merge inner class nodes with their outer class if
      *            <code>true</code>.
      * @return an array of length <tt>unresolvedNodes.size()</tt> with all
      *         unresolved nodes transformed into <tt>Node</tt> objects with
      *         appropriated links. External nodes are created and linked but not
-     *         added to the result array.
+     *         added to the result array. The vertices are in the order of
+     *         the sorted nodes.
      */
-    static AtomicVertex[] createGraph(final UnresolvedNode[] unresolvedNodes, final boolean mergeInnerClasses) {
+    static AtomicVertex[] createGraph(final UnresolvedNode[] unresolvedNodes, final SymbolTable symbols, final boolean mergeInnerClasses) {
+        final CompactGraph graph = createCompactGraph(unresolvedNodes, symbols, mergeInnerClasses);
+        final AtomicVertex[] result = new AtomicVertex[graph.getNumberOfGraphVertices()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (AtomicVertex) graph.getVertex(i);
+        }
+        return result;
+    }
+
+    /**
+     * Creates a graph from the bunch of unresolved nodes. Same as
+     * {@link #createGraph} but returns the graph as a {@link CompactGraph}.
+     * The arcs are also added to the vertices. The vertices of the graph are
+     * in the order of the sorted nodes. They are followed by the external
+     * vertices.
+     */
+    static CompactGraph createCompactGraph(final UnresolvedNode[] unresolvedNodes, final SymbolTable symbols, final boolean mergeInnerClasses) {
         Arrays.sort(unresolvedNodes);
-        final Map<String, AtomicVertex> vertices = createVertices(unresolvedNodes, mergeInnerClasses);
-        final AtomicVertex[] result = vertices.values().toArray(new AtomicVertex[0]);
+        final int[] nodeIds = new int[unresolvedNodes.length];
+        for (int i = 0; i < nodeIds.length; i++) {
+            nodeIds[i] = symbols.getId(unresolvedNodes[i].getAttributes().getName());
+        }
+        final int[] normalizedIds = normalize(symbols, mergeInnerClasses);
+        final AtomicVertex[] vertices = new AtomicVertex[symbols.size()];
+        final int[] graphIds = createVertices(unresolvedNodes, nodeIds, symbols, normalizedIds, vertices);
 
-        // Add arces to vertices
-        for (final UnresolvedNode node : unresolvedNodes) {
-            String name = normalize(node.getAttributes().getName(), mergeInnerClasses);
-            final AtomicVertex vertex = vertices.get(name);
-            for (final Iterator<String> iterator = node.linkIterator(); iterator.hasNext();) {
-                name = normalize(iterator.next(), mergeInnerClasses);
-                AtomicVertex head = vertices.get(name);
-                if (head == null) {
-                    head = new AtomicVertex(ClassAttributes.createUnknownClass(name, 0));
-                    vertices.put(name, head);
-                }
-                if (vertex != head) {
-                    vertex.addOutgoingArcTo(head);
+        // Index of the vertex of each id in the compact graph
+        final int[] indices = new int[vertices.length];
+        Arrays.fill(indices, -1);
+        final List<AtomicVertex> compactVertices = new ArrayList<AtomicVertex>(graphIds.length);
+        for (final int id : graphIds) {
+            indices[id] = compactVertices.size();
+            compactVertices.add(vertices[id]);
+        }
+
+        // Groups the nodes by vertex keeping their order
+        final int[] nodeOffsets = new int[graphIds.length + 1];
+        int numberOfLinks = 0;
+        for (int j = 0; j < unresolvedNodes.length; j++) {
+            nodeOffsets[indices[normalizedIds[nodeIds[j]]] + 1]++;
+            numberOfLinks += unresolvedNodes[j].getNumberOfLinks();
+        }
+        for (int i = 0; i < graphIds.length; i++) {
+            nodeOffsets[i + 1] += nodeOffsets[i];
+        }
+        final int[] nodesByVertex = new int[unresolvedNodes.length];
+        final int[] positions = new int[graphIds.length];
+        System.arraycopy(nodeOffsets, 0, positions, 0, graphIds.length);
+        for (int j = 0; j < unresolvedNodes.length; j++) {
+            nodesByVertex[positions[indices[normalizedIds[nodeIds[j]]]]++] = j;
+        }
+
+        // Collect the arcs without duplicates and add them to the vertices
+        final int[] offsets = new int[vertices.length + 1];
+        final int[] tails = new int[numberOfLinks];
+        final int[] heads = new int[numberOfLinks];
+        final int[] lastTails = new int[vertices.length];
+        Arrays.fill(lastTails, -1);
+        int numberOfArcs = 0;
+        for (int tail = 0; tail < graphIds.length; tail++) {
+            offsets[tail] = numberOfArcs;
+            for (int k = nodeOffsets[tail]; k < nodeOffsets[tail + 1]; k++) {
+                final UnresolvedNode node = unresolvedNodes[nodesByVertex[k]];
+                for (int i = 0, n = node.getNumberOfLinks(); i < n; i++) {
+                    final int id = normalizedIds[node.getLinkId(i)];
+                    if (vertices[id] == null) {
+                        vertices[id] = new AtomicVertex(ClassAttributes.createUnknownClass(symbols.getName(id), 0));
+                        vertices[id].setGraphVertex(false);
+                    }
+                    if (indices[id] < 0) {
+                        indices[id] = compactVertices.size();
+                        compactVertices.add(vertices[id]);
+                    }
+                    final int head = indices[id];
+                    if (head != tail && lastTails[head] != tail) {
+                        lastTails[head] = tail;
+                        tails[numberOfArcs] = tail;
+                        heads[numberOfArcs++] = head;
+                    }
                 }
             }
         }
-
-        return result;
+        final int numberOfVertices = compactVertices.size();
+        final AtomicVertex[] graphVertices = compactVertices.toArray(new AtomicVertex[numberOfVertices]);
+        Vertex.addArcs(graphVertices, tails, heads, numberOfArcs);
+        for (int i = graphIds.length; i <= numberOfVertices; i++) {
+            offsets[i] = numberOfArcs;
+        }
+        final int[] compactOffsets = new int[numberOfVertices + 1];
+        System.arraycopy(offsets, 0, compactOffsets, 0, compactOffsets.length);
+        final int[] compactHeads = new int[numberOfArcs];
+        System.arraycopy(heads, 0, compactHeads, 0, numberOfArcs);
+        return new CompactGraph(graphVertices, graphIds.length, compactOffsets, compactHeads);
     }
 
-    private static Map<String, AtomicVertex> createVertices(final UnresolvedNode[] unresolvedNodes, final boolean mergeInnerClasses) {
-        final Map<String, AtomicVertex> vertices = new HashMap<String, AtomicVertex>();
-        for (final UnresolvedNode unresolvedNode : unresolvedNodes) {
-            final ClassAttributes attributes = unresolvedNode.getAttributes();
+    /**
+     * Creates the vertices of the nodes.
+     *
+     * @return the ids of the created vertices in the order of their creation.
+     */
+    private static int[] createVertices(final UnresolvedNode[] unresolvedNodes, final int[] nodeIds, final SymbolTable symbols,
+            final int[] normalizedIds, final AtomicVertex[] vertices) {
+        final List<Integer> ids = new ArrayList<Integer>();
+        for (int i = 0; i < unresolvedNodes.length; i++) {
+            final ClassAttributes attributes = unresolvedNodes[i].getAttributes();
             String type = attributes.getType();
-            final String originalName = attributes.getName();
+            final int originalId = nodeIds[i];
             int size = attributes.getSize();
-            final String name = normalize(originalName, mergeInnerClasses);
-            AtomicVertex vertex = vertices.get(name);
-            if (vertex != null) {
+            final int id = normalizedIds[originalId];
+            AtomicVertex vertex = vertices[id];
+            if (vertex == null) {
+                ids.add(Integer.valueOf(id));
+            }
+            else {
                 final ClassAttributes vertexAttributes = (ClassAttributes) vertex.getAttributes();
                 size += vertexAttributes.getSize();
-                if (name.equals(originalName) == false) {
+                if (id != originalId) {
                     type = vertexAttributes.getType();
                 }
                 attributes.addSourcesOf(vertexAttributes);
             }
-            final ClassAttributes newAttributes = new ClassAttributes(name, null, type, size);
+            final ClassAttributes newAttributes = new ClassAttributes(symbols.getName(id), null, type, size);
             newAttributes.addSourcesOf(attributes);
             vertex = new AtomicVertex(newAttributes);
-            vertices.put(name, vertex);
+            vertices[id] = vertex;
+        }
+        final int[] result = new int[ids.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ids.get(i).intValue();
         }
-        return vertices;
+        return result;
     }
 
-    private static String normalize(String name, final boolean mergeInnerClasses) {
-        if (mergeInnerClasses) {
-            final int index = name.indexOf('$');
-            if (index >= 0) {
-                return name.substring(0, index);
+    /**
+     * Returns for each id of the symbol table the id of the class the vertex
+     * of which represents the class. If inner classes are merged this is the
+     * id of the outermost class. The names of outermost classes are added to
+     * the symbol table if necessary.
+     */
+    private static int[] normalize(final SymbolTable symbols, final boolean mergeInnerClasses) {
+        final int numberOfClasses = symbols.size();
+        final int[] normalizedIds = new int[numberOfClasses];
+        for (int id = 0; id < numberOfClasses; id++) {
+            normalizedIds[id] = id;
+            if (mergeInnerClasses) {
+                final String name = symbols.getName(id);
+                final int index = name.indexOf('$');
+                if (index >= 0) {
+                    normalizedIds[id] = symbols.getId(name.substring(0, index));
+                }
             }
         }
-        return name;
+        return normalizedIds;
     }
 
 }
@@ -28,14 +28,14 @@
  */
 package org.netmelody.neoclassycle;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 /**
  * @author Franz-Josef Elmer
  */
 public final class PackageAttributes extends NameAndSourceAttributes {
-    private final List<String> _classes = new ArrayList<String>();
+    private final Set<String> _classes = new LinkedHashSet<String>();
 
     public PackageAttributes(final String name) {
         super(name);
@@ -51,10 +51,7 @@ public final class PackageAttributes extends NameAndSourceAttributes {
     }
 
     public void addClass(final ClassAttributes classAttributes) {
-        final String className = classAttributes.getName();
-        if (_classes.contains(className) == false) {
-            _classes.add(className);
-        }
+        _classes.add(classAttributes.getName());
         addSourcesOf(classAttributes);
     }
 
@@ -29,11 +29,11 @@
 package org.netmelody.neoclassycle;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.BitSet;
 import java.util.List;
 
 import org.netmelody.neoclassycle.graph.AtomicVertex;
+import org.netmelody.neoclassycle.graph.CompactGraph;
 import org.netmelody.neoclassycle.graph.GraphProcessor;
 import org.netmelody.neoclassycle.graph.Vertex;
 
@@ -45,24 +45,23 @@ import org.netmelody.neoclassycle.graph.Vertex;
  */
 public final class PackageProcessor extends GraphProcessor {
     private static final class Arc {
-        final AtomicVertex tail;
-        final AtomicVertex head;
+        final int tail;
+        final int head;
         final boolean internalHeadClass;
 
-        private Arc(final AtomicVertex tail, final AtomicVertex head, final boolean internalHeadClass) {
+        private Arc(final int tail, final int head, final boolean internalHeadClass) {
             this.tail = tail;
             this.head = head;
             this.internalHeadClass = internalHeadClass;
         }
-
-        void create() {
-            if (internalHeadClass || head.isGraphVertex() == false) {
-                tail.addOutgoingArcTo(head);
-            }
-        }
     }
 
-    private final HashMap<String, PackageVertex> _packageVertices = new HashMap<String, PackageVertex>();
+    /** Class and package names. Package vertices are indexed by package id. */
+    private SymbolTable _symbols = new SymbolTable();
+    private PackageVertex[] _packageVerticesById = new PackageVertex[0];
+    /** Ids of the packages with at least one class of the graph. */
+    private final BitSet _internalPackageIds = new BitSet();
+    private final List<PackageVertex> _packageVertices = new ArrayList<PackageVertex>();
     private final List<Arc> _arcs = new ArrayList<Arc>();
     private AtomicVertex[] _packageGraph;
 
@@ -75,59 +74,108 @@ public final class PackageProcessor extends GraphProcessor {
         return _packageGraph;
     }
 
+    /**
+     * Extracts the package graph from the specified compact class graph. A
+     * class is internal if it is a vertex of the graph and a graph vertex
+     * (see {@link AtomicVertex#isGraphVertex()}). The class vertices are not
+     * modified.
+     */
+    @Override
+    public void deepSearchFirst(final CompactGraph graph) {
+        final int numberOfVertices = graph.getNumberOfGraphVertices();
+        initializeProcessing(null);
+        for (int i = 0; i < numberOfVertices; i++) {
+            final Vertex tail = graph.getVertex(i);
+            final boolean internalTailClass = isGraphVertex(tail);
+            for (int j = 0, n = graph.getNumberOfOutgoingArcs(i); j < n; j++) {
+                final int head = graph.getHead(i, j);
+                final Vertex headVertex = graph.getVertex(head);
+                final int tailPackageId = getPackageId(tail, internalTailClass);
+                final boolean internalHeadClass = head < numberOfVertices && isGraphVertex(headVertex);
+                _arcs.add(new Arc(tailPackageId, getPackageId(headVertex, internalHeadClass), internalHeadClass));
+            }
+        }
+        finishProcessing(null);
+    }
+
     @Override
     protected void initializeProcessing(final Vertex[] graph) {
+        _symbols = new SymbolTable();
+        _packageVerticesById = new PackageVertex[0];
+        _internalPackageIds.clear();
         _packageVertices.clear();
+        _arcs.clear();
     }
 
+    /** Not used because the arcs are taken from the compact graph. */
     @Override
     protected void processBefore(final Vertex vertex) {
     }
 
+    /** Not used because the arcs are taken from the compact graph. */
     @Override
     protected void processArc(final Vertex tail, final Vertex head) {
-        final PackageVertex tailPackage = getPackageVertex(tail);
-        final PackageVertex headPackage = getPackageVertex(head);
-        final boolean internalHeadClass = ((AtomicVertex) head).isGraphVertex();
-        _arcs.add(new Arc(tailPackage, headPackage, internalHeadClass));
     }
 
-    private PackageVertex getPackageVertex(final Vertex vertex) {
+    /**
+     * Returns the id of the package of the specified class vertex. The
+     * package vertex is created if necessary.
+     *
+     * @param internalClass
+     *            <tt>true</tt> if the class belongs to the graph. Then the
+     *            package belongs to the graph too.
+     */
+    private int getPackageId(final Vertex vertex, final boolean internalClass) {
         final ClassAttributes classAttributes = (ClassAttributes) vertex.getAttributes();
-        final String className = (classAttributes).getName();
-        final int index = className.lastIndexOf('.');
-        final String packageName = index < 0 ? "(default package)" : className.substring(0, index);
-        PackageVertex result = _packageVertices.get(packageName);
+        final int packageId = _symbols.getPackageId(_symbols.getId(classAttributes.getName()));
+        if (packageId >= _packageVerticesById.length) {
+            final PackageVertex[] packageVertices = new PackageVertex[Math.max(packageId + 1, 2 * _packageVerticesById.length)];
+            System.arraycopy(_packageVerticesById, 0, packageVertices, 0, _packageVerticesById.length);
+            _packageVerticesById = packageVertices;
+        }
+        PackageVertex result = _packageVerticesById[packageId];
         if (result == null) {
-            result = new PackageVertex(packageName);
-            _packageVertices.put(packageName, result);
+            result = new PackageVertex(_symbols.getName(packageId));
+            _packageVerticesById[packageId] = result;
+            _packageVertices.add(result);
         }
-        if (isVertexFromGraph(vertex)) {
-            // not an external package
-            result.reset();
+        if (internalClass) {
+            _internalPackageIds.set(packageId);
         }
         result.addClass(classAttributes);
-        return result;
+        return packageId;
     }
 
-    private static boolean isVertexFromGraph(final Vertex vertex) {
+    private static boolean isGraphVertex(final Vertex vertex) {
         return vertex instanceof AtomicVertex && ((AtomicVertex) vertex).isGraphVertex();
     }
 
+    /** Not used because the arcs are taken from the compact graph. */
     @Override
     protected void processAfter(final Vertex vertex) {
     }
 
     @Override
     protected void finishProcessing(final Vertex[] graph) {
+        final int[] tails = new int[_arcs.size()];
+        final int[] heads = new int[_arcs.size()];
+        int numberOfArcs = 0;
         for (int i = 0; i < _arcs.size(); i++) {
-            _arcs.get(i).create();
+            final Arc arc = _arcs.get(i);
+            if (arc.internalHeadClass || _internalPackageIds.get(arc.head) == false) {
+                tails[numberOfArcs] = arc.tail;
+                heads[numberOfArcs++] = arc.head;
+            }
         }
-        final Iterator<PackageVertex> vertices = _packageVertices.values().iterator();
+        Vertex.addArcs(_packageVerticesById, tails, heads, numberOfArcs);
         final ArrayList<AtomicVertex> list = new ArrayList<AtomicVertex>();
-
-        while (vertices.hasNext()) {
-            final AtomicVertex vertex = vertices.next();
+        for (int id = 0; id < _packageVerticesById.length; id++) {
+            final PackageVertex vertex = _packageVerticesById[id];
+            if (vertex != null) {
+                vertex.setGraphVertex(_internalPackageIds.get(id));
+            }
+        }
+        for (final AtomicVertex vertex : _packageVertices) {
             if (vertex.isGraphVertex()) {
                 list.add(vertex);
             }
@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2012 Tom Denley
+ * This file incorporates work covered by the following copyright and
+ * permission notice:
+ *
+ * Copyright (c) 2003-2008, Franz-Josef Elmer, All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.netmelody.neoclassycle;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.netmelody.neoclassycle.util.StringPattern;
+
+/**
+ * Persistent cache of parse results. An entry holds type, name, size, and
+ * links of a class. Class files are keyed by path, size, and time of last
+ * modification. Class files inside a zip/jar/war/ear file are keyed by
+ * archive path, entry name, size, and CRC.
+ * <p>
+ * The cache is loaded when created and written back by {@link #save()}. Only
+ * entries which have been looked up or stored since loading are saved. Thus
+ * entries of removed class files disappear after one run. If the cache file
+ * does not exist, is unreadable, has been written by an incompatible version,
+ * or was created for another reflection pattern or parsing mode the cache
+ * starts empty.
+ * <p>
+ * Lookups and stores are thread-safe.
+ */
+public final class ParseCache {
+    private static final int MAGIC = 0x4e435043;
+    private static final int VERSION = 1;
+    private static final String[] TYPES = new String[] { ClassAttributes.CLASS, ClassAttributes.ABSTRACT_CLASS, ClassAttributes.INTERFACE };
+
+    /** Parse result of a single class file. */
+    private static final class Entry {
+        private final long _size;
+        private final long _stamp;
+        private final int _type;
+        private final String _name;
+        private final int _classSize;
+        private final String[] _links;
+
+        Entry(final long size, final long stamp, final int type, final String name, final int classSize, final String[] links) {
+            _size = size;
+            _stamp = stamp;
+            _type = type;
+            _name = name;
+            _classSize = classSize;
+            _links = links;
+        }
+    }
+
+    private final File _file;
+    private final String _configuration;
+    private final Map<String, Entry> _loadedEntries = new HashMap<String, Entry>();
+    private final Map<String, Entry> _usedEntries = new ConcurrentHashMap<String, Entry>();
+    private int _numberOfHits;
+
+    /**
+     * Creates an instance for the specified file and loads its content if
+     * the file exists. Short-cut of
+     * <tt>new ParseCache(file, reflectionPattern, false)</tt>.
+     */
+    public ParseCache(final File file, final StringPattern reflectionPattern) {
+        this(file, reflectionPattern, false);
+    }
+
+    /**
+     * Creates an instance for the specified file and loads its content if
+     * the file exists.
+     *
+     * @param file
+     *            Cache file.
+     * @param reflectionPattern
+     *            Reflection pattern used to parse class files. Can be
+     *            <tt>null</tt>.
+     * @param descriptorsOnly
+     *            <tt>true</tt> if only real descriptors are parsed.
+     */
+    public ParseCache(final File file, final StringPattern reflectionPattern, final boolean descriptorsOnly) {
+        _file = file;
+        _configuration = (descriptorsOnly ? "descriptorsOnly;" : "") + (reflectionPattern == null ? "" : "reflection:" + reflectionPattern);
+        if (file.isFile()) {
+            try {
+                load();
+            }
+            catch (final IOException e) {
+                _loadedEntries.clear();
+            }
+        }
+    }
+
+    /** Returns the cache file. */
+    public File getFile() {
+        return _file;
+    }
+
+    /** Returns the number of successful lookups since creation. */
+    public synchronized int getNumberOfHits() {
+        return _numberOfHits;
+    }
+
+    /**
+     * Returns the key of the specified class file.
+     */
+    static String createKey(final File classFile) {
+        return classFile.getAbsolutePath();
+    }
+
+    /**
+     * Returns the key of the specified entry of a zip/jar/war/ear file.
+     */
+    static String createKey(final File archive, final String entryName) {
+        return archive.getAbsolutePath() + '!' + entryName;
+    }
+
+    /**
+     * Returns a node with the cached parse result or <tt>null</tt> if there
+     * is no entry with the specified key, size, and stamp.
+     *
+     * @param stamp
+     *            Time of last modification in the case of a class file and
+     *            CRC in the case of an entry of a zip/jar/war/ear file.
+     * @param source
+     *            Optional source of the class file. Can be <code>null</code>.
+     * @param symbols
+     *            Symbol table of the links of the returned node.
+     */
+    UnresolvedNode lookup(final String key, final long size, final long stamp, final String source, final SymbolTable symbols) {
+        Entry entry = _usedEntries.get(key);
+        if (entry == null) {
+            entry = _loadedEntries.get(key);
+        }
+        if (entry == null || entry._size != size || entry._stamp != stamp) {
+            return null;
+        }
+        _usedEntries.put(key, entry);
+        synchronized (this) {
+            _numberOfHits++;
+        }
+        final UnresolvedNode node = new UnresolvedNode(symbols);
+        node.setAttributes(new ClassAttributes(entry._name, source, TYPES[entry._type], entry._classSize));
+        for (final String link : entry._links) {
+            node.addLinkTo(link);
+        }
+        return node;
+    }
+
+    /**
+     * Stores the parse result for the specified key, size, and stamp.
+     */
+    void store(final String key, final long size, final long stamp, final UnresolvedNode node) {
+        final ClassAttributes attributes = node.getAttributes();
+        int type = 0;
+        while (TYPES[type].equals(attributes.getType()) == false) {
+            type++;
+        }
+        final List<String> links = new ArrayList<String>();
+        for (final Iterator<String> iterator = node.linkIterator(); iterator.hasNext();) {
+            links.add(iterator.next());
+        }
+        _usedEntries.put(key, new Entry(size, stamp, type, attributes.getName(), attributes.getSize(), links.toArray(new String[links.size()])));
+    }
+
+    private void load() throws IOException {
+        final DataInputStream stream = new DataInputStream(new BufferedInputStream(new FileInputStream(_file)));
+        try {
+            if (stream.readInt() != MAGIC || stream.readInt() != VERSION || stream.readUTF().equals(_configuration) == false) {
+                return;
+            }
+            final String[] strings = new String[checkCount(stream.readInt())];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = stream.readUTF();
+            }
+            for (int i = 0, n = stream.readInt(); i < n; i++) {
+                final String key = stream.readUTF();
+                final long size = stream.readLong();
+                final long stamp = stream.readLong();
+                final int type = stream.readUnsignedByte();
+                final String name = strings[stream.readInt()];
+                final int classSize = stream.readInt();
+                final String[] links = new String[checkCount(stream.readInt())];
+                for (int j = 0; j < links.length; j++) {
+                    links[j] = strings[stream.readInt()];
+                }
+                if (type >= TYPES.length) {
+                    throw new IOException("Invalid class type " + type + " in " + _file);
+                }
+                _loadedEntries.put(key, new Entry(size, stamp, type, name, classSize, links));
+            }
+        }
+        catch (final RuntimeException e) {
+            throw new IOException("Corrupted cache file " + _file);
+        }
+        finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Checks that a count read from a possibly corrupted cache file does not
+     * exceed the file length.
+     */
+    private int checkCount(final int count) throws IOException {
+        if (count < 0 || count > _file.length()) {
+            throw new IOException("Corrupted cache file " + _file);
+        }
+        return count;
+    }
+
+    /**
+     * Writes all entries which have been looked up or stored since creation
+     * into the cache file. Class names are written only once into a string
+     * table and referred to by their index.
+     */
+    public void save() throws IOException {
+        final Map<String, Entry> entries = new TreeMap<String, Entry>(_usedEntries);
+        final Map<String, Integer> stringIndices = new HashMap<String, Integer>();
+        final List<String> strings = new ArrayList<String>();
+        for (final Entry entry : entries.values()) {
+            addString(entry._name, stringIndices, strings);
+            for (final String link : entry._links) {
+                addString(link, stringIndices, strings);
+            }
+        }
+
+        final File parent = _file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        final DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(_file)));
+        try {
+            stream.writeInt(MAGIC);
+            stream.writeInt(VERSION);
+            stream.writeUTF(_configuration);
+            stream.writeInt(strings.size());
+            for (final String string : strings) {
+                stream.writeUTF(string);
+            }
+            stream.writeInt(entries.size());
+            for (final Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+                final Entry entry = mapEntry.getValue();
+                stream.writeUTF(mapEntry.getKey());
+                stream.writeLong(entry._size);
+                stream.writeLong(entry._stamp);
+                stream.writeByte(entry._type);
+                stream.writeInt(stringIndices.get(entry._name).intValue());
+                stream.writeInt(entry._classSize);
+                stream.writeInt(entry._links.length);
+                for (final String link : entry._links) {
+                    stream.writeInt(stringIndices.get(link).intValue());
+                }
+            }
+        }
+        finally {
+            stream.close();
+        }
+    }
+
+    private static void addString(final String string, final Map<String, Integer> stringIndices, final List<String> strings) {
+        if (stringIndices.containsKey(string) == false) {
+            stringIndices.put(string, Integer.valueOf(strings.size()));
+            strings.add(string);
+        }
+    }
+}
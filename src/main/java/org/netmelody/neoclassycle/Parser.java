@@ -28,26 +28,27 @@
  */
 package org.netmelody.neoclassycle;
 
-import java.io.DataInputStream;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.Enumeration;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 
-import org.netmelody.neoclassycle.classfile.ClassConstant;
-import org.netmelody.neoclassycle.classfile.Constant;
-import org.netmelody.neoclassycle.classfile.ConstantPool;
-import org.netmelody.neoclassycle.classfile.StringConstant;
-import org.netmelody.neoclassycle.classfile.Utf8Constant;
 import org.netmelody.neoclassycle.graph.AtomicVertex;
+import org.netmelody.neoclassycle.graph.CompactGraph;
+import org.netmelody.neoclassycle.util.MappedZipFile;
 import org.netmelody.neoclassycle.util.StringPattern;
+import org.netmelody.neoclassycle.util.TaskRunner;
 import org.netmelody.neoclassycle.util.TrueStringPattern;
 
 /**
@@ -58,8 +59,179 @@ import org.netmelody.neoclassycle.util.TrueStringPattern;
  * @author Franz-Josef Elmer
  */
 public final class Parser {
-    private static final int ACC_INTERFACE = 0x200, ACC_ABSTRACT = 0x400;
     private static final String[] ZIP_FILE_TYPES = new String[] { ".zip", ".jar", ".war", ".ear" };
+    private static final int ZIP_ENTRIES_PER_TASK = 64;
+
+    /** Parsing of one or more class files which can be done independently. */
+    private abstract static class ParseTask implements Callable<List<UnresolvedNode>> {
+        protected final String _source;
+        protected final ClassFileParser _parser;
+        protected final StringPattern _pattern;
+        protected final ParseCache _cache;
+
+        ParseTask(final String source, final ClassFileParser parser, final StringPattern pattern, final ParseCache cache) {
+            _source = source;
+            _parser = parser;
+            _pattern = pattern;
+            _cache = cache;
+        }
+    }
+
+    private static final class ClassFileTask extends ParseTask {
+        private final File _file;
+
+        ClassFileTask(final File file, final String source, final ClassFileParser parser, final StringPattern pattern,
+                final ParseCache cache) {
+            super(source, parser, pattern, cache);
+            _file = file;
+        }
+
+        @Override
+        public List<UnresolvedNode> call() throws IOException {
+            UnresolvedNode node = null;
+            if (_cache == null) {
+                node = extractNode(_file, _source, _parser, _pattern);
+            }
+            else {
+                final String key = ParseCache.createKey(_file);
+                final long size = _file.length();
+                final long lastModified = _file.lastModified();
+                node = _cache.lookup(key, size, lastModified, _source, _parser.getSymbols());
+                if (node == null) {
+                    node = extractNode(_file, _source, _parser, _pattern);
+                    if (node != null) {
+                        _cache.store(key, size, lastModified, node);
+                    }
+                }
+            }
+            return node == null ? Collections.<UnresolvedNode> emptyList() : Collections.singletonList(node);
+        }
+    }
+
+    private static final class ZipEntriesTask extends ParseTask {
+        private final File _archive;
+        private final MappedZipFile _zipFile;
+        private final List<MappedZipFile.Entry> _entries;
+
+        ZipEntriesTask(final File archive, final MappedZipFile zipFile, final List<MappedZipFile.Entry> entries, final String source,
+                final ClassFileParser parser, final StringPattern pattern, final ParseCache cache) {
+            super(source, parser, pattern, cache);
+            _archive = archive;
+            _zipFile = zipFile;
+            _entries = entries;
+        }
+
+        @Override
+        public List<UnresolvedNode> call() throws IOException {
+            final List<UnresolvedNode> nodes = new ArrayList<UnresolvedNode>(_entries.size());
+            for (final MappedZipFile.Entry entry : _entries) {
+                final long crc = entry.getCrc();
+                UnresolvedNode node = null;
+                if (_cache == null || crc == -1) {
+                    node = extractNode(_zipFile, entry, _source, _parser, _pattern);
+                }
+                else {
+                    final String key = ParseCache.createKey(_archive, entry.getName());
+                    node = _cache.lookup(key, entry.getSize(), crc, _source, _parser.getSymbols());
+                    if (node == null) {
+                        node = extractNode(_zipFile, entry, _source, _parser, _pattern);
+                        if (node != null) {
+                            _cache.store(key, entry.getSize(), crc, node);
+                        }
+                    }
+                }
+                if (node != null) {
+                    nodes.add(node);
+                }
+            }
+            return nodes;
+        }
+    }
+
+    /**
+     * Parsing of an archive nested in a zip/jar/war/ear file. The archive is
+     * streamed from the entry of the outer archive. Archives nested further
+     * are streamed recursively.
+     */
+    private static final class NestedArchiveTask extends ParseTask {
+        private final MappedZipFile _zipFile;
+        private final MappedZipFile.Entry _entry;
+
+        NestedArchiveTask(final MappedZipFile zipFile, final MappedZipFile.Entry entry, final String source,
+                final ClassFileParser parser, final StringPattern pattern) {
+            super(source, parser, pattern, null);
+            _zipFile = zipFile;
+            _entry = entry;
+        }
+
+        @Override
+        public List<UnresolvedNode> call() throws IOException {
+            final List<UnresolvedNode> nodes = new ArrayList<UnresolvedNode>();
+            final InputStream stream = _zipFile.getInputStream(_entry);
+            try {
+                extractNodes(stream, _source, _parser, _pattern, nodes);
+            }
+            finally {
+                stream.close();
+            }
+            return nodes;
+        }
+    }
+
+    /**
+     * Parsing of a zip/jar/war/ear file which is not supported by
+     * {@link MappedZipFile} (e.g.&nbsp;a ZIP64 archive). The archive is
+     * streamed on one thread without using the cache.
+     */
+    private static final class StreamedArchiveTask extends ParseTask {
+        private final File _archive;
+
+        StreamedArchiveTask(final File archive, final String source, final ClassFileParser parser, final StringPattern pattern) {
+            super(source, parser, pattern, null);
+            _archive = archive;
+        }
+
+        @Override
+        public List<UnresolvedNode> call() throws IOException {
+            final List<UnresolvedNode> nodes = new ArrayList<UnresolvedNode>();
+            extractNodes(_archive, _source, _parser, _pattern, nodes);
+            return nodes;
+        }
+    }
+
+    private static final class IndexedArchiveTask extends ParseTask {
+        private final File _archive;
+        private final DependencyIndex _index;
+
+        IndexedArchiveTask(final File archive, final String source, final ClassFileParser parser, final DependencyIndex index) {
+            super(source, parser, null, null);
+            _archive = archive;
+            _index = index;
+        }
+
+        @Override
+        public List<UnresolvedNode> call() throws IOException {
+            final File indexFile = _index.getIndexFile(_archive);
+            List<UnresolvedNode> nodes = _index.read(indexFile, _source, _parser.getSymbols());
+            if (nodes == null) {
+                nodes = new ArrayList<UnresolvedNode>();
+                final MappedZipFile zipFile = openZipFile(_archive);
+                if (zipFile == null) {
+                    extractNodes(_archive, _source, _parser, null, nodes);
+                }
+                else {
+                    try {
+                        extractNodes(zipFile, _source, _parser, nodes);
+                    }
+                    finally {
+                        zipFile.close();
+                    }
+                }
+                _index.write(indexFile, nodes, _source);
+            }
+            return nodes;
+        }
+    }
 
     /** Private constructor to prohibit instanciation. */
     private Parser() {
@@ -88,13 +260,19 @@ public final class Parser {
      * </ul>
      * Folders and zip/jar/war/ear files are searched recursively for class
      * files. If a folder is specified only the top-level zip/jar/war/ear files
-     * of that folder are analysed.
+     * of that folder are analysed. Zip/jar/war/ear files nested in such an
+     * archive (e.g.&nbsp;the libraries of a web application) are analysed, too.
+     * They are streamed without extracting them.
      *
      * @param classFiles
      *            Array of file names.
      * @param pattern
      *            Pattern fully qualified class names have to match in order to
      *            be added to the graph. Otherwise they count as 'external'.
+     *            Class files in zip/jar/war/ear files are skipped without
+     *            reading them if the class name given by the entry name does
+     *            not match. All other class files are skipped right after
+     *            their class name has been read.
      * @param reflectionPattern
      *            Pattern ordinary string constants of a class file have to
      *            fullfill in order to be handled as class references. In
@@ -107,30 +285,101 @@ public final class Parser {
      */
     public static AtomicVertex[] readClassFiles(final String[] classFiles, final StringPattern pattern, final StringPattern reflectionPattern,
             final boolean mergeInnerClasses) throws IOException {
-        final ArrayList<UnresolvedNode> unresolvedNodes = new ArrayList<UnresolvedNode>();
-        for (final String classFile : classFiles) {
-            final File file = new File(classFile);
-            if (file.isDirectory()) {
-                analyseClassFile(file, classFile, unresolvedNodes, reflectionPattern);
-                final File[] files = file.listFiles(new FileFilter() {
-                    @Override
-                    public boolean accept(final File candidateFile) {
-                        return isZipFile(candidateFile);
+        return readClassFiles(classFiles, pattern, reflectionPattern, mergeInnerClasses, false, 1, null, null);
+    }
+
+    /**
+     * Reads the specified class files and creates a directed graph where each
+     * vertex represents a class. Same as
+     * {@link #readClassFiles(String[], StringPattern, StringPattern, boolean)}
+     * but parses class files on the specified number of threads, optionally
+     * uses a cache and an index, and optionally parses only real descriptors.
+     * The resulting graph does not depend on the number of threads.
+     *
+     * @param descriptorsOnly
+     *            If <tt>true</tt> only UTF8 constants which are really used as
+     *            descriptors or signatures are searched for class names.
+     *            Otherwise all UTF8 constants which look like descriptors are
+     *            searched.
+     * @param numberOfThreads
+     *            Number of threads parsing class files. If less than two all
+     *            class files are parsed on the calling thread.
+     * @param cache
+     *            Cache of parse results. Only class files which are not in the
+     *            cache or have been changed are parsed. The cache will be
+     *            updated but not saved. Can be <tt>null</tt>. The cache has to
+     *            be created for the same <tt>reflectionPattern</tt> and
+     *            <tt>descriptorsOnly</tt>.
+     * @param index
+     *            Index of already parsed zip/jar/war/ear files. Archives with
+     *            an index file are not parsed. For all other archives an index
+     *            file will be created. The cache is not used for archives if
+     *            an index is specified. Can be <tt>null</tt>. The index has to
+     *            be created for the same <tt>reflectionPattern</tt> and
+     *            <tt>descriptorsOnly</tt>.
+     */
+    public static AtomicVertex[] readClassFiles(final String[] classFiles, final StringPattern pattern, final StringPattern reflectionPattern,
+            final boolean mergeInnerClasses, final boolean descriptorsOnly, final int numberOfThreads, final ParseCache cache,
+            final DependencyIndex index) throws IOException {
+        final CompactGraph graph = readClassGraph(classFiles, pattern, reflectionPattern, mergeInnerClasses, descriptorsOnly, numberOfThreads,
+                                                  cache, index);
+        final AtomicVertex[] result = new AtomicVertex[graph.getNumberOfGraphVertices()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (AtomicVertex) graph.getVertex(i);
+        }
+        return result;
+    }
+
+    /**
+     * Reads the specified class files and creates a directed graph where each
+     * vertex represents a class. Same as
+     * {@link #readClassFiles(String[], StringPattern, StringPattern, boolean, boolean, int, ParseCache, DependencyIndex)}
+     * but returns the graph as a {@link CompactGraph}. The vertices of the
+     * classes are followed by the vertices of external classes. All vertices
+     * are instances of {@link AtomicVertex} and have the same arcs as in the
+     * compact graph.
+     */
+    public static CompactGraph readClassGraph(final String[] classFiles, final StringPattern pattern, final StringPattern reflectionPattern,
+            final boolean mergeInnerClasses, final boolean descriptorsOnly, final int numberOfThreads, final ParseCache cache,
+            final DependencyIndex index) throws IOException {
+        final SymbolTable symbols = new SymbolTable();
+        final ClassFileParser parser = new ClassFileParser(symbols, reflectionPattern, descriptorsOnly);
+        final List<UnresolvedNode> unresolvedNodes = new ArrayList<UnresolvedNode>();
+        final List<ParseTask> tasks = new ArrayList<ParseTask>();
+        final List<MappedZipFile> zipFiles = new ArrayList<MappedZipFile>();
+        try {
+            for (final String classFile : classFiles) {
+                final File file = new File(classFile);
+                if (file.isDirectory()) {
+                    collectClassFileTasks(file, classFile, tasks, parser, pattern, cache);
+                    final File[] files = file.listFiles(new FileFilter() {
+                        @Override
+                        public boolean accept(final File candidateFile) {
+                            return isZipFile(candidateFile);
+                        }
+                    });
+                    for (final File file2 : files) {
+                        final String source = createSourceName(classFile, file2.getName());
+                        collectArchiveTasks(file2, source, tasks, parser, pattern, cache, index, zipFiles);
                     }
-                });
-                for (final File file2 : files) {
-                    final String source = createSourceName(classFile, file2.getName());
-                    analyseClassFiles(new ZipFile(file2.getAbsoluteFile()), source, unresolvedNodes, reflectionPattern);
+                }
+                else if (file.getName().endsWith(".class")) {
+                    collectClassFileTasks(file, null, tasks, parser, pattern, cache);
+                }
+                else if (isZipFile(file)) {
+                    collectArchiveTasks(file, classFile, tasks, parser, pattern, cache, index, zipFiles);
+                }
+                else {
+                    throw new IOException(classFile + " is an invalid file.");
                 }
             }
-            else if (file.getName().endsWith(".class")) {
-                analyseClassFile(file, null, unresolvedNodes, reflectionPattern);
-            }
-            else if (isZipFile(file)) {
-                analyseClassFiles(new ZipFile(file.getAbsoluteFile()), classFile, unresolvedNodes, reflectionPattern);
+            for (final List<UnresolvedNode> nodes : runTasks(tasks, numberOfThreads)) {
+                unresolvedNodes.addAll(nodes);
             }
-            else {
-                throw new IOException(classFile + " is an invalid file.");
+        }
+        finally {
+            for (final MappedZipFile zipFile : zipFiles) {
+                zipFile.close();
             }
         }
         final List<UnresolvedNode> filteredNodes = new ArrayList<UnresolvedNode>();
@@ -142,16 +391,36 @@ public final class Parser {
         }
         UnresolvedNode[] nodes = new UnresolvedNode[filteredNodes.size()];
         nodes = filteredNodes.toArray(nodes);
-        return GraphBuilder.createGraph(nodes, mergeInnerClasses);
+        return GraphBuilder.createCompactGraph(nodes, symbols, mergeInnerClasses);
+    }
+
+    private static List<List<UnresolvedNode>> runTasks(final List<ParseTask> tasks, final int numberOfThreads) throws IOException {
+        try {
+            return TaskRunner.run(tasks, numberOfThreads);
+        }
+        catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw TaskRunner.toUncheckedException(e);
+        }
     }
 
     private static String createSourceName(final String classFile, final String name) {
         return classFile + (classFile.endsWith(File.separator) ? name : File.separatorChar + name);
     }
 
+    private static String createNestedSourceName(final String source, final String entryName) {
+        return source + '!' + entryName;
+    }
+
     private static boolean isZipFile(final File file) {
+        return isZipFileName(file.getName());
+    }
+
+    private static boolean isZipFileName(final String name) {
         boolean result = false;
-        final String name = file.getName();
         for (final String element : ZIP_FILE_TYPES) {
             if (name.endsWith(element)) {
                 result = true;
@@ -161,28 +430,29 @@ public final class Parser {
         return result;
     }
 
-    private static void analyseClassFile(final File file, final String source, final ArrayList<UnresolvedNode> unresolvedNodes, final StringPattern reflectionPattern)
-            throws IOException {
+    private static void collectClassFileTasks(final File file, final String source, final List<ParseTask> tasks, final ClassFileParser parser,
+            final StringPattern pattern, final ParseCache cache) {
         if (file.isDirectory()) {
             final String[] files = file.list();
             for (final String file2 : files) {
                 final File child = new File(file, file2);
                 if (child.isDirectory() || file2.endsWith(".class")) {
-                    analyseClassFile(child, source, unresolvedNodes, reflectionPattern);
+                    collectClassFileTasks(child, source, tasks, parser, pattern, cache);
                 }
             }
         }
         else {
-            unresolvedNodes.add(extractNode(file, source, reflectionPattern));
+            tasks.add(new ClassFileTask(file, source, parser, pattern, cache));
         }
     }
 
-    private static UnresolvedNode extractNode(final File file, final String source, final StringPattern reflectionPattern) throws IOException {
+    private static UnresolvedNode extractNode(final File file, final String source, final ClassFileParser parser, final StringPattern pattern)
+            throws IOException {
         InputStream stream = null;
         UnresolvedNode result = null;
         try {
             stream = new FileInputStream(file);
-            result = Parser.createNode(stream, source, (int) file.length(), reflectionPattern);
+            result = parser.createNode(stream, source, (int) file.length(), pattern);
         }
         finally {
             if (stream != null) {
@@ -196,89 +466,179 @@ public final class Parser {
         return result;
     }
 
-    private static void analyseClassFiles(final ZipFile zipFile, final String source, final ArrayList<UnresolvedNode> unresolvedNodes, final StringPattern reflectionPattern)
-            throws IOException {
-        final Enumeration<? extends ZipEntry> entries = zipFile.entries();
-        while (entries.hasMoreElements()) {
-            final ZipEntry entry = entries.nextElement();
-            if (!entry.isDirectory() && entry.getName().endsWith(".class")) {
-                final InputStream stream = zipFile.getInputStream(entry);
-                final int size = (int) entry.getSize();
-                unresolvedNodes.add(Parser.createNode(stream, source, size, reflectionPattern));
+    /**
+     * Collects the tasks parsing the specified archive.
+     *
+     * @param openedZipFiles
+     *            List to which opened zip files are added. They have to be
+     *            closed after the tasks have been run.
+     */
+    private static void collectArchiveTasks(final File archive, final String source, final List<ParseTask> tasks,
+            final ClassFileParser parser, final StringPattern pattern, final ParseCache cache, final DependencyIndex index,
+            final List<MappedZipFile> openedZipFiles) throws IOException {
+        if (index == null) {
+            final MappedZipFile zipFile = openZipFile(archive);
+            if (zipFile == null) {
+                tasks.add(new StreamedArchiveTask(archive, source, parser, pattern));
             }
+            else {
+                openedZipFiles.add(zipFile);
+                collectZipEntryTasks(archive, zipFile, source, tasks, parser, pattern, cache);
+            }
+        }
+        else {
+            tasks.add(new IndexedArchiveTask(archive, source, parser, index));
         }
     }
 
     /**
-     * Creates a new node with unresolved references.
+     * Opens the specified archive as a {@link MappedZipFile}.
      *
-     * @param stream
-     *            A just opended byte stream of a class file. If this method
-     *            finishes succefully the internal pointer of the stream will
-     *            point onto the superclass index.
-     * @param source
-     *            Optional source of the class file. Can be <code>null</code>.
-     * @param size
-     *            Number of bytes of the class file.
-     * @param reflectionPattern
-     *            Pattern used to check whether a {@link StringConstant} refer
-     *            to a class. Can be <tt>null</tt>.
-     * @return a node with unresolved link of all classes used by the analysed
-     *         class.
+     * @return <tt>null</tt> if the archive is not supported by
+     *         {@link MappedZipFile} (e.g.&nbsp;a ZIP64 archive) and has to be
+     *         streamed instead.
      */
-    private static UnresolvedNode createNode(final InputStream stream, final String source, final int size, final StringPattern reflectionPattern)
-            throws IOException {
-        // Reads constant pool, accessFlags, and class name
-        final DataInputStream dataStream = new DataInputStream(stream);
-        final ConstantPool pool = ConstantPool.extractConstantPool(dataStream);
-        final int accessFlags = dataStream.readUnsignedShort();
-        final String name = ((ClassConstant) pool.getConstantAt(dataStream.readUnsignedShort())).getName();
-        ClassAttributes attributes = null;
-        if ((accessFlags & ACC_INTERFACE) != 0) {
-            attributes = ClassAttributes.createInterface(name, source, size);
+    private static MappedZipFile openZipFile(final File archive) throws IOException {
+        try {
+            return new MappedZipFile(archive.getAbsoluteFile());
         }
-        else {
-            if ((accessFlags & ACC_ABSTRACT) != 0) {
-                attributes = ClassAttributes.createAbstractClass(name, source, size);
+        catch (final MappedZipFile.UnsupportedZipFileException e) {
+            return null;
+        }
+    }
+
+    private static void collectZipEntryTasks(final File archive, final MappedZipFile zipFile, final String source, final List<ParseTask> tasks,
+            final ClassFileParser parser, final StringPattern pattern, final ParseCache cache) throws IOException {
+        final Map<String, String> packagesByDirectory = new HashMap<String, String>();
+        List<MappedZipFile.Entry> batch = new ArrayList<MappedZipFile.Entry>();
+        for (final MappedZipFile.Entry entry : zipFile.getEntries()) {
+            if (entry.isDirectory()) {
+                continue;
             }
-            else {
-                attributes = ClassAttributes.createClass(name, source, size);
+            if (entry.getName().endsWith(".class")) {
+                if (isExcluded(zipFile, entry, parser, pattern, packagesByDirectory)) {
+                    continue;
+                }
+                batch.add(entry);
+                if (batch.size() == ZIP_ENTRIES_PER_TASK) {
+                    tasks.add(new ZipEntriesTask(archive, zipFile, batch, source, parser, pattern, cache));
+                    batch = new ArrayList<MappedZipFile.Entry>();
+                }
+            }
+            else if (isZipFileName(entry.getName())) {
+                tasks.add(new NestedArchiveTask(zipFile, entry, createNestedSourceName(source, entry.getName()), parser, pattern));
             }
         }
+        if (!batch.isEmpty()) {
+            tasks.add(new ZipEntriesTask(archive, zipFile, batch, source, parser, pattern, cache));
+        }
+    }
 
-        return nodeFor(reflectionPattern, pool, name, attributes);
+    /**
+     * Returns <tt>true</tt> if the specified zip entry of a class file can be
+     * skipped without parsing it because its class name does not match the
+     * specified pattern. The class name is the package of the directory of the
+     * entry followed by the simple name given by the entry name. The package
+     * of a directory is read from the header of the first class file of the
+     * directory. Thus prefixes like <tt>WEB-INF/classes</tt> or
+     * <tt>META-INF/versions/9</tt> do not matter. If the class name of this
+     * class file does not fit its entry name, no entry of the directory is
+     * skipped.
+     *
+     * @param pattern
+     *            Pattern the class name has to match. Can be <tt>null</tt>.
+     * @param packagesByDirectory
+     *            Package names (followed by a '.' unless empty) of the
+     *            directories already seen. The value is <tt>null</tt> if the
+     *            package of a directory is unknown.
+     */
+    private static boolean isExcluded(final MappedZipFile zipFile, final MappedZipFile.Entry entry, final ClassFileParser parser,
+            final StringPattern pattern, final Map<String, String> packagesByDirectory) throws IOException {
+        if (pattern == null) {
+            return false;
+        }
+        final String entryName = entry.getName();
+        final int index = entryName.lastIndexOf('/');
+        final String directory = entryName.substring(0, index + 1);
+        final String simpleName = entryName.substring(index + 1, entryName.length() - ".class".length());
+        if (packagesByDirectory.containsKey(directory) == false) {
+            final String className = parser.readClassName(zipFile.getContent(entry));
+            final int packageLength = className.length() - simpleName.length();
+            final boolean fits = className.endsWith(simpleName) && (packageLength == 0 || className.charAt(packageLength - 1) == '.');
+            packagesByDirectory.put(directory, fits ? className.substring(0, packageLength) : null);
+        }
+        final String packageName = packagesByDirectory.get(directory);
+        return packageName != null && pattern.matches(packageName + simpleName) == false;
     }
 
     /**
-     * Creates a new node with unresolved references.
+     * Extracts the nodes of all class files of the specified zip/jar/war/ear
+     * file including the nodes of nested archives.
      */
-    private static UnresolvedNode nodeFor(final StringPattern reflectionPattern, final ConstantPool pool,
-                                          final String name, ClassAttributes attributes) {
-        final UnresolvedNode node = new UnresolvedNode();
-        node.setAttributes(attributes);
-        for (final Constant constant : pool.getConstants()) {
-            if (constant instanceof ClassConstant) {
-                final ClassConstant cc = (ClassConstant) constant;
-                if (!cc.getName().startsWith(("[")) && !cc.getName().equals(name)) {
-                    node.addLinkTo(cc.getName());
-                }
+    private static void extractNodes(final MappedZipFile zipFile, final String source, final ClassFileParser parser,
+            final List<UnresolvedNode> nodes) throws IOException {
+        for (final MappedZipFile.Entry entry : zipFile.getEntries()) {
+            if (entry.isDirectory()) {
+                continue;
             }
-            else if (constant instanceof Utf8Constant) {
-                final Set<String> classNames = new ClassNameExtractor((Utf8Constant) constant).extract();
-                for (final String string : classNames) {
-                    final String element = string;
-                    if (name.equals(element) == false) {
-                        node.addLinkTo(element);
-                    }
+            if (entry.getName().endsWith(".class")) {
+                nodes.add(extractNode(zipFile, entry, source, parser, null));
+            }
+            else if (isZipFileName(entry.getName())) {
+                final InputStream stream = zipFile.getInputStream(entry);
+                try {
+                    extractNodes(stream, createNestedSourceName(source, entry.getName()), parser, null, nodes);
+                }
+                finally {
+                    stream.close();
                 }
             }
-            else if (reflectionPattern != null && constant instanceof StringConstant) {
-                final String str = ((StringConstant) constant).getString();
-                if (ClassNameExtractor.isValid(str) && reflectionPattern.matches(str)) {
-                    node.addLinkTo(str);
+        }
+    }
+
+    /**
+     * Extracts the nodes of all class files of the specified zip/jar/war/ear
+     * file by streaming it. This works for all archives supported by
+     * <tt>java.util.zip</tt>.
+     */
+    private static void extractNodes(final File archive, final String source, final ClassFileParser parser, final StringPattern pattern,
+            final List<UnresolvedNode> nodes) throws IOException {
+        final InputStream stream = new BufferedInputStream(new FileInputStream(archive));
+        try {
+            extractNodes(stream, source, parser, pattern, nodes);
+        }
+        finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Extracts the nodes of all class files of a zip/jar/war/ear file given as
+     * a stream. Nested archives are streamed recursively without extracting
+     * them. The stream will not be closed. If a pattern is specified only
+     * nodes of classes matching it are extracted.
+     */
+    private static void extractNodes(final InputStream stream, final String source, final ClassFileParser parser,
+            final StringPattern pattern, final List<UnresolvedNode> nodes) throws IOException {
+        final ZipInputStream zipStream = new ZipInputStream(stream);
+        for (ZipEntry entry = zipStream.getNextEntry(); entry != null; entry = zipStream.getNextEntry()) {
+            if (entry.isDirectory()) {
+                continue;
+            }
+            if (entry.getName().endsWith(".class")) {
+                final UnresolvedNode node = parser.createNode(zipStream, source, (int) entry.getSize(), pattern);
+                if (node != null) {
+                    nodes.add(node);
                 }
             }
+            else if (isZipFileName(entry.getName())) {
+                extractNodes(zipStream, createNestedSourceName(source, entry.getName()), parser, pattern, nodes);
+            }
         }
-        return node;
     }
-}
\ No newline at end of file
+
+    private static UnresolvedNode extractNode(final MappedZipFile zipFile, final MappedZipFile.Entry entry, final String source,
+            final ClassFileParser parser, final StringPattern pattern) throws IOException {
+        return parser.createNode(zipFile.getContent(entry), source, pattern);
+    }
+}
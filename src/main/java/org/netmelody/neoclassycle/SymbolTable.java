@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2012 Tom Denley
+ * This file incorporates work covered by the following copyright and
+ * permission notice:
+ *
+ * Copyright (c) 2003-2008, Franz-Josef Elmer, All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.netmelody.neoclassycle;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Table of class and package names. Each name is stored only once and is
+ * identified by a dense id. Ids start with 0 and are given out in the order
+ * the names are added. Thus arrays indexed by id can be used instead of maps
+ * keyed by name.
+ * <p>
+ * Adding and looking up names is thread-safe. Typically one table is shared
+ * by all threads parsing the class files of an analysis.
+ */
+final class SymbolTable {
+    /** Name of the default package. */
+    static final String DEFAULT_PACKAGE = "(default package)";
+
+    private final ConcurrentHashMap<String, Integer> _ids = new ConcurrentHashMap<String, Integer>();
+    private volatile String[] _names = new String[256];
+    private int _size;
+    private int[] _packageIds = new int[0];
+
+    /**
+     * Returns the id of the specified name. The name is added if it is not
+     * already in the table.
+     */
+    int getId(final String name) {
+        final Integer id = _ids.get(name);
+        return id == null ? add(name) : id.intValue();
+    }
+
+    private synchronized int add(final String name) {
+        Integer id = _ids.get(name);
+        if (id == null) {
+            String[] names = _names;
+            if (_size == names.length) {
+                names = new String[2 * _size];
+                System.arraycopy(_names, 0, names, 0, _size);
+            }
+            names[_size] = name;
+            _names = names;
+            id = Integer.valueOf(_size++);
+            _ids.put(name, id);
+        }
+        return id.intValue();
+    }
+
+    /** Returns the name of the specified id. */
+    String getName(final int id) {
+        return _names[id];
+    }
+
+    /** Returns the number of names in this table. */
+    synchronized int size() {
+        return _size;
+    }
+
+    /**
+     * Returns the id of the package of the class with the specified id. The
+     * package name of a class without a '.' in its name is
+     * {@link #DEFAULT_PACKAGE}. Package ids are calculated only once.
+     */
+    synchronized int getPackageId(final int classId) {
+        if (classId >= _packageIds.length) {
+            final int[] packageIds = new int[Math.max(classId + 1, _names.length)];
+            System.arraycopy(_packageIds, 0, packageIds, 0, _packageIds.length);
+            Arrays.fill(packageIds, _packageIds.length, packageIds.length, -1);
+            _packageIds = packageIds;
+        }
+        int packageId = _packageIds[classId];
+        if (packageId < 0) {
+            final String className = getName(classId);
+            final int index = className.lastIndexOf('.');
+            packageId = getId(index < 0 ? DEFAULT_PACKAGE : className.substring(0, index));
+            _packageIds[classId] = packageId;
+        }
+        return packageId;
+    }
+}
@@ -28,20 +28,25 @@
  */
 package org.netmelody.neoclassycle;
 
-import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.List;
 
 import org.netmelody.neoclassycle.util.StringPattern;
 
 /**
- * Class representing a node without resolved links.
+ * Class representing a node without resolved links. Links are stored as ids
+ * of a {@link SymbolTable}.
  *
  * @author Franz-Josef Elmer
  */
 final class UnresolvedNode implements Comparable<UnresolvedNode> {
+    private final SymbolTable _symbols;
     private ClassAttributes _attributes;
-    private final List<String> _nodes = new ArrayList<String>();
+    private int[] _links = new int[8];
+    private int _numberOfLinks;
+
+    UnresolvedNode(final SymbolTable symbols) {
+        _symbols = symbols;
+    }
 
     void setAttributes(final ClassAttributes attributes) {
         _attributes = attributes;
@@ -52,7 +57,25 @@ final class UnresolvedNode implements Comparable<UnresolvedNode> {
     }
 
     void addLinkTo(final String node) {
-        _nodes.add(node);
+        addLinkTo(_symbols.getId(node));
+    }
+
+    void addLinkTo(final int id) {
+        if (_numberOfLinks == _links.length) {
+            final int[] links = new int[2 * _numberOfLinks];
+            System.arraycopy(_links, 0, links, 0, _numberOfLinks);
+            _links = links;
+        }
+        _links[_numberOfLinks++] = id;
+    }
+
+    int getNumberOfLinks() {
+        return _numberOfLinks;
+    }
+
+    /** Returns the symbol id of the link with the specified index. */
+    int getLinkId(final int index) {
+        return _links[index];
     }
 
     Iterator<String> linkIterator() {
@@ -66,12 +89,12 @@ final class UnresolvedNode implements Comparable<UnresolvedNode> {
 
             @Override
             public boolean hasNext() {
-                return _index < _nodes.size();
+                return _index < _numberOfLinks;
             }
 
             @Override
             public String next() {
-                return hasNext() ? _nodes.get(_index++) : null;
+                return hasNext() ? _symbols.getName(_links[_index++]) : null;
             }
         };
     }
@@ -53,6 +53,10 @@ public abstract class ClassycleTask extends Task {
     private StringPattern _includingClasses = new TrueStringPattern();
     private StringPattern _excludingClasses = new TrueStringPattern();
     private StringPattern _reflectionPattern;
+    private boolean _descriptorsOnly;
+    private int _numberOfThreads = 1;
+    private File _cacheFile;
+    private File _indexDirectory;
     private final LinkedList<ResourceCollection> _resources = new LinkedList<ResourceCollection>();
     protected File _reportFile;
 
@@ -77,6 +81,25 @@ public abstract class ClassycleTask extends Task {
         }
     }
 
+    public void setDescriptorsOnly(final boolean descriptorsOnly) {
+        _descriptorsOnly = descriptorsOnly;
+    }
+
+    public void setNumberOfThreads(final int numberOfThreads) {
+        if (numberOfThreads < 1) {
+            throw new BuildException("invalid attribute 'numberOfThreads': " + numberOfThreads);
+        }
+        _numberOfThreads = numberOfThreads;
+    }
+
+    public void setCacheFile(final File cacheFile) {
+        _cacheFile = cacheFile;
+    }
+
+    public void setIndexDirectory(final File indexDirectory) {
+        _indexDirectory = indexDirectory;
+    }
+
     public void add(ResourceCollection rc) {
         _resources.add(rc);
     }
@@ -124,6 +147,22 @@ public abstract class ClassycleTask extends Task {
         return _mergeInnerClasses;
     }
 
+    protected boolean isDescriptorsOnly() {
+        return _descriptorsOnly;
+    }
+
+    protected int getNumberOfThreads() {
+        return _numberOfThreads;
+    }
+
+    protected File getCacheFile() {
+        return _cacheFile;
+    }
+
+    protected File getIndexDirectory() {
+        return _indexDirectory;
+    }
+
     public void setReportFile(final File xmlFile) {
         _reportFile = xmlFile;
     }
@@ -84,6 +84,33 @@ import org.netmelody.neoclassycle.util.Text;
  * class references.</td>
  * </tr>
  * <tr>
+ * <td valign="top">descriptorsOnly</td>
+ * <td valign="top">If <tt>true</tt> only constants which are really used as
+ * descriptors or signatures are searched for class names. Otherwise every
+ * constant looking like a descriptor is searched, including string
+ * literals.</td>
+ * <td valign="top">No. Default is <tt>false</tt>.</td>
+ * </tr>
+ * <tr>
+ * <td valign="top">numberOfThreads</td>
+ * <td valign="top">Number of threads parsing the class files, finding strong components of large graphs and executing the dependency checks.</td>
+ * <td valign="top">No. Default is <tt>1</tt>.</td>
+ * </tr>
+ * <tr>
+ * <td valign="top">cacheFile</td>
+ * <td valign="top">File of a persistent cache of parse results. Only new or
+ * changed class files are parsed if the cache file exists. It will be created
+ * or updated after parsing.</td>
+ * <td valign="top">No. By default no cache is used.</td>
+ * </tr>
+ * <tr>
+ * <td valign="top">indexDirectory</td>
+ * <td valign="top">Directory of sidecar index files of zip/jar/war/ear
+ * files. An archive is not parsed if there is an index file for its content.
+ * Otherwise an index file will be created.</td>
+ * <td valign="top">No. By default no index files are used.</td>
+ * </tr>
+ * <tr>
  * <td valign="top">definitionFile</td>
  * <td valign="top">Path of the dependency definition file. It is either
  * absolute or relative to the base directory.</td>
@@ -140,8 +167,13 @@ public final class DependencyCheckingTask extends ClassycleTask {
         PrintWriter printWriter = null;
         try {
             final Analyser analyser = new Analyser(getClassFileNames(), getPattern(), getReflectionPattern(), isMergeInnerClasses());
+            analyser.setDescriptorsOnly(isDescriptorsOnly());
+            analyser.setNumberOfThreads(getNumberOfThreads());
+            analyser.setCacheFile(getCacheFile());
+            analyser.setIndexDirectory(getIndexDirectory());
             final Map<Object, Object> properties = _definitionFile == null ? getProject().getProperties() : System.getProperties();
             final DependencyChecker dependencyChecker = new DependencyChecker(analyser, getDependencyDefinitions(), properties, getRenderer());
+            dependencyChecker.setNumberOfThreads(getNumberOfThreads());
             printWriter = _reportFile == null ? new PrintWriter(System.out) : new PrintWriter(new FileWriter(_reportFile));
             ok = dependencyChecker.check(printWriter);
             printWriter.flush();
@@ -99,6 +99,33 @@ import org.netmelody.neoclassycle.Analyser;
  * <td valign="top">No. By default ordinary string constants are not treated as
  * class references.</td>
  * </tr>
+ * <tr>
+ * <td valign="top">descriptorsOnly</td>
+ * <td valign="top">If <tt>true</tt> only constants which are really used as
+ * descriptors or signatures are searched for class names. Otherwise every
+ * constant looking like a descriptor is searched, including string
+ * literals.</td>
+ * <td valign="top">No. Default is <tt>false</tt>.</td>
+ * </tr>
+ * <tr>
+ * <td valign="top">numberOfThreads</td>
+ * <td valign="top">Number of threads parsing the class files and finding strong components of large graphs.</td>
+ * <td valign="top">No. Default is <tt>1</tt>.</td>
+ * </tr>
+ * <tr>
+ * <td valign="top">cacheFile</td>
+ * <td valign="top">File of a persistent cache of parse results. Only new or
+ * changed class files are parsed if the cache file exists. It will be created
+ * or updated after parsing.</td>
+ * <td valign="top">No. By default no cache is used.</td>
+ * </tr>
+ * <tr>
+ * <td valign="top">indexDirectory</td>
+ * <td valign="top">Directory of sidecar index files of zip/jar/war/ear
+ * files. An archive is not parsed if there is an index file for its content.
+ * Otherwise an index file will be created.</td>
+ * <td valign="top">No. By default no index files are used.</td>
+ * </tr>
  * </table>
  *
  * @author Boris Gruschko
@@ -146,6 +173,10 @@ public final class ReportTask extends ClassycleTask {
             _title = classFiles[0];
         }
         final Analyser analyser = new Analyser(classFiles, getPattern(), getReflectionPattern(), isMergeInnerClasses());
+        analyser.setDescriptorsOnly(isDescriptorsOnly());
+        analyser.setNumberOfThreads(getNumberOfThreads());
+        analyser.setCacheFile(getCacheFile());
+        analyser.setIndexDirectory(getIndexDirectory());
         try {
             analyser.readAndAnalyse(_packagesOnly);
             final PrintWriter writer = new PrintWriter(new FileWriter(_reportFile));
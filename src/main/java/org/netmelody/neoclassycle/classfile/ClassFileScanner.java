@@ -0,0 +1,618 @@
+/*
+ * Copyright (c) 2012 Tom Denley
+ * This file incorporates work covered by the following copyright and
+ * permission notice:
+ *
+ * Copyright (c) 2003-2008, Franz-Josef Elmer, All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.netmelody.neoclassycle.classfile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Light-weight scanner of the constant pool of a class file. In contrast to
+ * {@link ConstantPool} no {@link Constant} objects are created. The scanner
+ * only records the tag and the offset of each entry. Strings are decoded on
+ * demand, so a caller pays only for the entries it really needs.
+ * <p>
+ * All constant types up to Java SE 11 are understood, including
+ * <tt>MethodHandle</tt>, <tt>MethodType</tt>, <tt>Dynamic</tt>,
+ * <tt>InvokeDynamic</tt>, <tt>Module</tt>, and <tt>Package</tt>.
+ * <p>
+ * An instance keeps its internal buffers between two scans and can therefore
+ * be reused for many class files. It is not thread-safe.
+ */
+public final class ClassFileScanner {
+    private static final int MAGIC = 0xcafebabe;
+    private static final String DESCRIPTOR_START_CHARACTERS = "<([LTBCDFIJSVZ";
+    public static final int CONSTANT_UTF8 = 1,
+                            CONSTANT_INTEGER = 3,
+                            CONSTANT_FLOAT = 4,
+                            CONSTANT_LONG = 5,
+                            CONSTANT_DOUBLE = 6,
+                            CONSTANT_CLASS = 7,
+                            CONSTANT_STRING = 8,
+                            CONSTANT_FIELDREF = 9,
+                            CONSTANT_METHODREF = 10,
+                            CONSTANT_INTERFACE_METHODREF = 11,
+                            CONSTANT_NAME_AND_TYPE = 12,
+                            CONSTANT_METHOD_HANDLE = 15,
+                            CONSTANT_METHOD_TYPE = 16,
+                            CONSTANT_DYNAMIC = 17,
+                            CONSTANT_INVOKE_DYNAMIC = 18,
+                            CONSTANT_MODULE = 19,
+                            CONSTANT_PACKAGE = 20;
+
+    private byte[] _bytes = new byte[8192];
+    private ByteBuffer _wrappedBytes = ByteBuffer.wrap(_bytes);
+    private ByteBuffer _buffer;
+    private int _start;
+    private int _end;
+    private int[] _offsets = new int[256];
+    private byte[] _tags = new byte[256];
+    private int _numberOfEntries;
+    private int _endOfPool;
+    private char[] _chars = new char[256];
+    private boolean[] _descriptors = new boolean[256];
+
+    /**
+     * Reads the specified stream completely into the internal buffer and scans
+     * it.
+     *
+     * @param stream
+     *            Input stream of a class file starting at the first byte.
+     * @param size
+     *            Expected number of bytes or a negative number if unknown.
+     * @throws IOException
+     *             in case of reading errors or invalid class file.
+     */
+    public void scan(final InputStream stream, final int size) throws IOException {
+        if (size > _bytes.length) {
+            growBytes(size);
+        }
+        int length = 0;
+        while (true) {
+            if (length == _bytes.length) {
+                growBytes(2 * length);
+            }
+            final int n = stream.read(_bytes, length, _bytes.length - length);
+            if (n < 0) {
+                break;
+            }
+            length += n;
+        }
+        scan(_wrappedBytes, 0, length);
+    }
+
+    private void growBytes(final int size) {
+        final byte[] bytes = new byte[size];
+        System.arraycopy(_bytes, 0, bytes, 0, _bytes.length);
+        _bytes = bytes;
+        _wrappedBytes = ByteBuffer.wrap(bytes);
+    }
+
+    /**
+     * Scans the constant pool of the class file stored in the specified byte
+     * array.
+     */
+    public void scan(final byte[] bytes, final int offset, final int length) throws IOException {
+        scan(ByteBuffer.wrap(bytes), offset, length);
+    }
+
+    /**
+     * Scans the constant pool of the class file stored in the specified
+     * buffer. The buffer is only accessed with absolute positions, it has to
+     * stay unchanged as long as this scanner is used to access the scanned
+     * class.
+     *
+     * @param buffer
+     *            Buffer containing the class file.
+     * @param offset
+     *            Absolute position of the first byte of the class file.
+     * @param length
+     *            Number of bytes of the class file.
+     * @throws IOException
+     *             if the bytes are not a valid class file.
+     */
+    public void scan(final ByteBuffer buffer, final int offset, final int length) throws IOException {
+        _buffer = buffer;
+        _start = offset;
+        _end = offset + length;
+        if (length < 10 || buffer.getInt(offset) != MAGIC) {
+            throw new IOException("Not a class file: Magic number missing.");
+        }
+        _numberOfEntries = readUnsignedShort(offset + 8);
+        if (_offsets.length < _numberOfEntries) {
+            _offsets = new int[_numberOfEntries];
+            _tags = new byte[_numberOfEntries];
+            _descriptors = new boolean[_numberOfEntries];
+        }
+        int position = offset + 10;
+        for (int i = 1; i < _numberOfEntries; i++) {
+            final int tag = readUnsignedByteChecked(position);
+            _tags[i] = (byte) tag;
+            _offsets[i] = position + 1;
+            switch (tag) {
+            case CONSTANT_UTF8:
+                position += 3 + readU2(position + 1);
+                break;
+            case CONSTANT_CLASS:
+            case CONSTANT_STRING:
+            case CONSTANT_METHOD_TYPE:
+            case CONSTANT_MODULE:
+            case CONSTANT_PACKAGE:
+                position += 3;
+                break;
+            case CONSTANT_METHOD_HANDLE:
+                position += 4;
+                break;
+            case CONSTANT_INTEGER:
+            case CONSTANT_FLOAT:
+            case CONSTANT_FIELDREF:
+            case CONSTANT_METHODREF:
+            case CONSTANT_INTERFACE_METHODREF:
+            case CONSTANT_NAME_AND_TYPE:
+            case CONSTANT_DYNAMIC:
+            case CONSTANT_INVOKE_DYNAMIC:
+                position += 5;
+                break;
+            case CONSTANT_LONG:
+            case CONSTANT_DOUBLE:
+                // long and double constants occupy two entries
+                position += 9;
+                i++;
+                if (i < _numberOfEntries) {
+                    _tags[i] = 0;
+                }
+                break;
+            default:
+                throw new IOException("Invalid class file: Unknown constant pool tag " + tag + " at index " + i + ".");
+            }
+        }
+        _endOfPool = position;
+        if (_endOfPool + 6 > _end) {
+            throw new IOException("Invalid class file: Unexpected end of file.");
+        }
+    }
+
+    /**
+     * Returns the number of bytes of the scanned class file.
+     */
+    public int getSize() {
+        return _end - _start;
+    }
+
+    /**
+     * Returns the number of entries of the constant pool. Note, that the
+     * entry with index 0 does not exist.
+     */
+    public int getNumberOfEntries() {
+        return _numberOfEntries;
+    }
+
+    /**
+     * Returns the tag of the specified constant pool entry. It is 0 for
+     * index 0 and for the unusable entry following a long or double constant.
+     */
+    public int getTag(final int index) {
+        return index > 0 && index < _numberOfEntries ? _tags[index] : 0;
+    }
+
+    /** Returns the access flags of the scanned class. */
+    public int getAccessFlags() {
+        return readUnsignedShort(_endOfPool);
+    }
+
+    /** Returns the index of the class constant of the scanned class. */
+    public int getThisClassIndex() {
+        return readUnsignedShort(_endOfPool + 2);
+    }
+
+    /**
+     * Returns the absolute buffer position of the first byte after the
+     * constant pool (i.e.&nbsp;of the access flags).
+     */
+    public int getEndOfConstantPool() {
+        return _endOfPool;
+    }
+
+    /** Returns the underlying buffer of the last scan. */
+    public ByteBuffer getBuffer() {
+        return _buffer;
+    }
+
+    /**
+     * Returns the index of the UTF8 entry the specified entry refers to. This
+     * works for <tt>Class</tt>, <tt>String</tt>, <tt>MethodType</tt>,
+     * <tt>Module</tt>, and <tt>Package</tt> entries.
+     */
+    public int getReferencedIndex(final int index) {
+        return readUnsignedShort(_offsets[index]);
+    }
+
+    /**
+     * Returns the absolute buffer position of the first byte of the specified
+     * UTF8 entry. The length of the entry in bytes is given by
+     * {@link #getUtf8Length(int)}.
+     */
+    public int getUtf8Offset(final int index) {
+        return _offsets[index] + 2;
+    }
+
+    /** Returns the length in bytes of the specified UTF8 entry. */
+    public int getUtf8Length(final int index) {
+        return readUnsignedShort(_offsets[index]);
+    }
+
+    /**
+     * Decodes the specified UTF8 entry.
+     *
+     * @return <tt>null</tt> if the entry is not a UTF8 entry.
+     */
+    public String getUtf8(final int index) {
+        if (getTag(index) != CONSTANT_UTF8) {
+            return null;
+        }
+        return decode(getUtf8Offset(index), getUtf8Length(index), false);
+    }
+
+    /**
+     * Returns the string value of the specified <tt>String</tt> entry.
+     *
+     * @return <tt>null</tt> if the entry does not refer to a UTF8 entry.
+     */
+    public String getString(final int index) {
+        return getUtf8(getReferencedIndex(index));
+    }
+
+    /**
+     * Returns the fully-qualified class name in standard notation with '.' of
+     * the specified <tt>Class</tt> entry. In the case of an object array only
+     * the class name of the object is returned.
+     *
+     * @return <tt>null</tt> if the entry does not refer to a UTF8 entry.
+     */
+    public String getClassName(final int index) {
+        final int nameIndex = getReferencedIndex(index);
+        if (getTag(nameIndex) != CONSTANT_UTF8) {
+            return null;
+        }
+        final int offset = getUtf8Offset(nameIndex);
+        final int length = getUtf8Length(nameIndex);
+        if (length > 0 && readUnsignedByte(offset) == '[') {
+            // An array class: Extract class name
+            for (int i = 1; i < length; i++) {
+                if (readUnsignedByte(offset + i) == 'L') {
+                    return decode(offset + i + 1, length - i - 2, true);
+                }
+            }
+        }
+        return decode(offset, length, true);
+    }
+
+    /**
+     * Decodes the specified bytes of a UTF8 entry as a class name with '/'
+     * replaced by '.'.
+     *
+     * @param offset
+     *            Absolute buffer position of the first byte, see
+     *            {@link #getUtf8Offset(int)}.
+     * @param length
+     *            Number of bytes.
+     */
+    public String decodeClassName(final int offset, final int length) {
+        return decode(offset, length, true);
+    }
+
+    /**
+     * Returns <tt>true</tt> if the specified UTF8 entry might be a field,
+     * method, or generic signature descriptor referring to at least one class.
+     * This is a cheap check on the raw bytes: it is necessary but not
+     * sufficient for a valid descriptor. The entry has to start with a
+     * character a descriptor can start with and has to contain a ';'.
+     */
+    public boolean isDescriptorCandidate(final int index) {
+        final int offset = getUtf8Offset(index);
+        final int length = getUtf8Length(index);
+        if (length < 3) {
+            return false;
+        }
+        final int first = readUnsignedByte(offset);
+        if (DESCRIPTOR_START_CHARACTERS.indexOf(first) < 0) {
+            return false;
+        }
+        for (int i = offset + length - 1; i > offset; i--) {
+            if (readUnsignedByte(i) == ';') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns <tt>true</tt> if the specified UTF8 entry has been identified as
+     * a descriptor or signature by {@link #findDescriptors()}.
+     */
+    public boolean isDescriptor(final int index) {
+        return index > 0 && index < _numberOfEntries && _descriptors[index];
+    }
+
+    /**
+     * Identifies all UTF8 entries which are descriptors or signatures. These
+     * are the descriptors referred to by <tt>NameAndType</tt> and
+     * <tt>MethodType</tt> constants and the descriptors and signatures found
+     * by walking the field, method, and attribute tables: field and method
+     * descriptors, <tt>Signature</tt> attributes, local variable (type)
+     * tables, record components, and the types of annotations including
+     * class and enum values of annotation elements.
+     *
+     * @throws IOException
+     *             if the tables after the constant pool are invalid.
+     */
+    public void findDescriptors() throws IOException {
+        Arrays.fill(_descriptors, 0, _numberOfEntries, false);
+        for (int i = 1; i < _numberOfEntries; i++) {
+            if (_tags[i] == CONSTANT_NAME_AND_TYPE) {
+                markDescriptor(readUnsignedShort(_offsets[i] + 2));
+            }
+            else if (_tags[i] == CONSTANT_METHOD_TYPE) {
+                markDescriptor(readUnsignedShort(_offsets[i]));
+            }
+        }
+        int position = _endOfPool + 6;
+        position += 2 + 2 * readU2(position);
+        for (int k = 0; k < 2; k++) {
+            // fields and methods
+            final int n = readU2(position);
+            position += 2;
+            for (int i = 0; i < n; i++) {
+                markDescriptor(readU2(position + 4));
+                position = walkAttributes(position + 6);
+            }
+        }
+        walkAttributes(position);
+    }
+
+    private void markDescriptor(final int index) {
+        if (getTag(index) == CONSTANT_UTF8) {
+            _descriptors[index] = true;
+        }
+    }
+
+    /**
+     * Walks the attribute table starting with the number of attributes at the
+     * specified position.
+     *
+     * @return the position after the table.
+     */
+    private int walkAttributes(final int start) throws IOException {
+        int position = start + 2;
+        for (int i = 0, n = readU2(start); i < n; i++) {
+            final int nameIndex = readU2(position);
+            final int length = readU2(position + 2) << 16 | readU2(position + 4);
+            final int data = position + 6;
+            position = data + length;
+            if (length < 0 || position > _end) {
+                throw new IOException("Invalid class file: Attribute exceeds end of file.");
+            }
+            if (utf8Equals(nameIndex, "Signature")) {
+                markDescriptor(readU2(data));
+            }
+            else if (utf8Equals(nameIndex, "Code")) {
+                final int exceptionTable = data + 8 + (readU2(data + 4) << 16 | readU2(data + 6));
+                walkAttributes(exceptionTable + 2 + 8 * readU2(exceptionTable));
+            }
+            else if (utf8Equals(nameIndex, "LocalVariableTable") || utf8Equals(nameIndex, "LocalVariableTypeTable")) {
+                for (int j = 0, m = readU2(data); j < m; j++) {
+                    markDescriptor(readU2(data + 2 + 10 * j + 6));
+                }
+            }
+            else if (utf8Equals(nameIndex, "RuntimeVisibleAnnotations") || utf8Equals(nameIndex, "RuntimeInvisibleAnnotations")) {
+                walkAnnotations(data);
+            }
+            else if (utf8Equals(nameIndex, "RuntimeVisibleParameterAnnotations")
+                    || utf8Equals(nameIndex, "RuntimeInvisibleParameterAnnotations")) {
+                int p = data + 1;
+                for (int j = 0, m = readUnsignedByteChecked(data); j < m; j++) {
+                    p = walkAnnotations(p);
+                }
+            }
+            else if (utf8Equals(nameIndex, "RuntimeVisibleTypeAnnotations") || utf8Equals(nameIndex, "RuntimeInvisibleTypeAnnotations")) {
+                int p = data + 2;
+                for (int j = 0, m = readU2(data); j < m; j++) {
+                    p = walkAnnotation(skipTypeAnnotationTarget(p));
+                }
+            }
+            else if (utf8Equals(nameIndex, "AnnotationDefault")) {
+                walkElementValue(data);
+            }
+            else if (utf8Equals(nameIndex, "Record")) {
+                int p = data + 2;
+                for (int j = 0, m = readU2(data); j < m; j++) {
+                    markDescriptor(readU2(p + 2));
+                    p = walkAttributes(p + 4);
+                }
+            }
+        }
+        return position;
+    }
+
+    /** Walks a table of annotations. Returns the position after the table. */
+    private int walkAnnotations(final int start) throws IOException {
+        int position = start + 2;
+        for (int i = 0, n = readU2(start); i < n; i++) {
+            position = walkAnnotation(position);
+        }
+        return position;
+    }
+
+    /** Walks an annotation. Returns the position after the annotation. */
+    private int walkAnnotation(final int start) throws IOException {
+        markDescriptor(readU2(start));
+        int position = start + 4;
+        for (int i = 0, n = readU2(start + 2); i < n; i++) {
+            position = walkElementValue(position + 2);
+        }
+        return position;
+    }
+
+    /** Walks an element value. Returns the position after the value. */
+    private int walkElementValue(final int start) throws IOException {
+        final int tag = readUnsignedByteChecked(start);
+        switch (tag) {
+        case 'e':
+            markDescriptor(readU2(start + 1));
+            return start + 5;
+        case 'c':
+            markDescriptor(readU2(start + 1));
+            return start + 3;
+        case '@':
+            return walkAnnotation(start + 1);
+        case '[':
+            int position = start + 3;
+            for (int i = 0, n = readU2(start + 1); i < n; i++) {
+                position = walkElementValue(position);
+            }
+            return position;
+        default:
+            return start + 3;
+        }
+    }
+
+    /**
+     * Skips target info and type path of a type annotation. Returns the
+     * position of the annotation.
+     */
+    private int skipTypeAnnotationTarget(final int start) throws IOException {
+        final int targetType = readUnsignedByteChecked(start);
+        int position = start + 1;
+        switch (targetType) {
+        case 0x00:
+        case 0x01:
+        case 0x16:
+            position += 1;
+            break;
+        case 0x10:
+        case 0x17:
+        case 0x42:
+        case 0x43:
+        case 0x44:
+        case 0x45:
+        case 0x46:
+        case 0x11:
+        case 0x12:
+            position += 2;
+            break;
+        case 0x13:
+        case 0x14:
+        case 0x15:
+            break;
+        case 0x40:
+        case 0x41:
+            position += 2 + 6 * readU2(position);
+            break;
+        case 0x47:
+        case 0x48:
+        case 0x49:
+        case 0x4a:
+        case 0x4b:
+            position += 3;
+            break;
+        default:
+            throw new IOException("Invalid class file: Unknown type annotation target " + targetType + ".");
+        }
+        return position + 1 + 2 * readUnsignedByteChecked(position);
+    }
+
+    private boolean utf8Equals(final int index, final String ascii) {
+        if (getTag(index) != CONSTANT_UTF8 || getUtf8Length(index) != ascii.length()) {
+            return false;
+        }
+        final int offset = getUtf8Offset(index);
+        for (int i = 0, n = ascii.length(); i < n; i++) {
+            if (readUnsignedByte(offset + i) != ascii.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int readUnsignedByteChecked(final int position) throws IOException {
+        if (position >= _end) {
+            throw new IOException("Invalid class file: Unexpected end of file.");
+        }
+        return readUnsignedByte(position);
+    }
+
+    private int readU2(final int position) throws IOException {
+        if (position + 2 > _end) {
+            throw new IOException("Invalid class file: Unexpected end of file.");
+        }
+        return readUnsignedShort(position);
+    }
+
+    private int readUnsignedByte(final int position) {
+        return _buffer.get(position) & 0xff;
+    }
+
+    private int readUnsignedShort(final int position) {
+        return (readUnsignedByte(position) << 8) | readUnsignedByte(position + 1);
+    }
+
+    /**
+     * Decodes modified UTF-8 as used by class files.
+     */
+    private String decode(final int offset, final int length, final boolean slashToDot) {
+        if (_chars.length < length) {
+            _chars = new char[Math.max(length, 2 * _chars.length)];
+        }
+        final char[] chars = _chars;
+        int count = 0;
+        for (int i = offset, end = offset + length; i < end;) {
+            final int c = readUnsignedByte(i);
+            char ch;
+            if (c < 0x80) {
+                ch = (char) c;
+                i++;
+            }
+            else if ((c & 0xe0) == 0xc0 && i + 1 < end) {
+                ch = (char) (((c & 0x1f) << 6) | (readUnsignedByte(i + 1) & 0x3f));
+                i += 2;
+            }
+            else if (i + 2 < end) {
+                ch = (char) (((c & 0x0f) << 12) | ((readUnsignedByte(i + 1) & 0x3f) << 6) | (readUnsignedByte(i + 2) & 0x3f));
+                i += 3;
+            }
+            else {
+                ch = '?';
+                i = end;
+            }
+            chars[count++] = slashToDot && ch == '/' ? '.' : ch;
+        }
+        return new String(chars, 0, count);
+    }
+}
@@ -16,7 +16,13 @@ public final class ConstantPool {
                              CONSTANT_LONG = 5,
                              CONSTANT_DOUBLE = 6,
                              CONSTANT_NAME_AND_TYPE = 12,
-                             CONSTANT_UTF8 = 1;
+                             CONSTANT_UTF8 = 1,
+                             CONSTANT_METHOD_HANDLE = 15,
+                             CONSTANT_METHOD_TYPE = 16,
+                             CONSTANT_DYNAMIC = 17,
+                             CONSTANT_INVOKE_DYNAMIC = 18,
+                             CONSTANT_MODULE = 19,
+                             CONSTANT_PACKAGE = 20;
     
     private Constant[] contents;
     
@@ -85,6 +91,21 @@ public final class ConstantPool {
             case CONSTANT_UTF8:
                 c = new Utf8Constant(cp, stream.readUTF());
                 break;
+            // constants without a dedicated representation are skipped
+            case CONSTANT_METHOD_HANDLE:
+                stream.skipBytes(3);
+                break;
+            case CONSTANT_METHOD_TYPE:
+            case CONSTANT_MODULE:
+            case CONSTANT_PACKAGE:
+                stream.skipBytes(2);
+                break;
+            case CONSTANT_DYNAMIC:
+            case CONSTANT_INVOKE_DYNAMIC:
+                stream.skipBytes(4);
+                break;
+            default:
+                throw new IOException("Invalid class file: Unknown constant pool tag " + type + " at index " + i + ".");
             }
             pool[i] = c;
             i += skipIndex ? 2 : 1; // double and long constants occupy two entries
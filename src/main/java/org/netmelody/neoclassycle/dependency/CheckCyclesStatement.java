@@ -31,12 +31,10 @@
  */
 package org.netmelody.neoclassycle.dependency;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.BitSet;
 
 import org.netmelody.neoclassycle.PackageProcessor;
 import org.netmelody.neoclassycle.graph.AtomicVertex;
-import org.netmelody.neoclassycle.graph.NameAttributes;
 import org.netmelody.neoclassycle.graph.StrongComponent;
 import org.netmelody.neoclassycle.graph.StrongComponentAnalyser;
 import org.netmelody.neoclassycle.graph.Vertex;
@@ -47,23 +45,24 @@ public final class CheckCyclesStatement implements Statement {
     private final int _maximumSize;
     private final boolean _packageCycles;
     private final SetDefinitionRepository _repository;
+    private final GraphCache _graphCache;
 
-    public CheckCyclesStatement(final StringPattern set, final int size, final boolean cycles, final SetDefinitionRepository repository) {
+    public CheckCyclesStatement(final StringPattern set, final int size, final boolean cycles, final SetDefinitionRepository repository,
+            final GraphCache graphCache) {
         _set = set;
         _maximumSize = size;
         _packageCycles = cycles;
         _repository = repository;
+        _graphCache = graphCache;
     }
 
     @Override
     public Result execute(AtomicVertex[] graph) {
-        final List<AtomicVertex> filteredGraph = new ArrayList<AtomicVertex>();
-        for (final AtomicVertex element : graph) {
-            if (_set.matches(((NameAttributes) element.getAttributes()).getName())) {
-                filteredGraph.add(element);
-            }
+        final BitSet members = _graphCache.getMembers(graph, _set);
+        AtomicVertex[] graph2 = new AtomicVertex[members.get(0, graph.length).cardinality()];
+        for (int i = members.nextSetBit(0), j = 0; i >= 0 && i < graph.length; i = members.nextSetBit(i + 1)) {
+            graph2[j++] = graph[i];
         }
-        AtomicVertex[] graph2 = filteredGraph.toArray(new AtomicVertex[0]);
         if (_packageCycles) {
             final PackageProcessor processor = new PackageProcessor();
             processor.deepSearchFirst(graph2);
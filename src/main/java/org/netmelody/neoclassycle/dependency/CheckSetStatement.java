@@ -32,26 +32,22 @@
 package org.netmelody.neoclassycle.dependency;
 
 import org.netmelody.neoclassycle.graph.AtomicVertex;
-import org.netmelody.neoclassycle.graph.NameAttributes;
 import org.netmelody.neoclassycle.util.StringPattern;
 
 public final class CheckSetStatement implements Statement {
     private final StringPattern _set;
     private final SetDefinitionRepository _repository;
+    private final GraphCache _graphCache;
 
-    public CheckSetStatement(final StringPattern set, final SetDefinitionRepository repository) {
+    public CheckSetStatement(final StringPattern set, final SetDefinitionRepository repository, final GraphCache graphCache) {
         _set = set;
         _repository = repository;
+        _graphCache = graphCache;
     }
 
     @Override
     public Result execute(final AtomicVertex[] graph) {
-        int size = 0;
-        for (final AtomicVertex element : graph) {
-            if (_set.matches(((NameAttributes) element.getAttributes()).getName())) {
-                size++;
-            }
-        }
+        final int size = _graphCache.getMembers(graph, _set).get(0, graph.length).cardinality();
         final StringBuffer buffer = new StringBuffer("Set ");
         buffer.append(_repository.toString(_set));
         if (size == 0) {
@@ -44,6 +44,7 @@ public final class DependencyChecker {
     private final Analyser _analyser;
     private final ResultRenderer _renderer;
     private final DependencyProcessor _processor;
+    private int _numberOfThreads = 1;
 
     /**
      * Creates a new instance. Note, that the constructor does not create the
@@ -66,6 +67,16 @@ public final class DependencyChecker {
         _processor = new DependencyProcessor(dependencyDefinition, dp, renderer);
     }
 
+    /**
+     * Sets the number of threads used to execute the statements of the
+     * dependency definition. By default they are executed one after another.
+     *
+     * @see DependencyProcessor#executeRemainingStatements(AtomicVertex[], int)
+     */
+    public void setNumberOfThreads(final int numberOfThreads) {
+        _numberOfThreads = numberOfThreads;
+    }
+
     /**
      * Checks the graph and write unwanted dependencies onto the specified
      * writer.
@@ -82,12 +93,7 @@ public final class DependencyChecker {
      * Checks the graph.
      */
     public Result check() {
-        final AtomicVertex[] graph = _analyser.getClassGraph();
-        final ResultContainer result = new ResultContainer();
-        while (_processor.hasMoreStatements()) {
-            result.add(_processor.executeNextStatement(graph));
-        }
-        return result;
+        return _processor.executeRemainingStatements(_analyser.getClassGraph(), _numberOfThreads);
     }
 
     /**
@@ -103,8 +109,13 @@ public final class DependencyChecker {
 
         final Analyser analyser = new Analyser(commandLine.getClassFiles(), commandLine.getPattern(), commandLine.getReflectionPattern(),
                 commandLine.isMergeInnerClasses());
+        analyser.setDescriptorsOnly(commandLine.isDescriptorsOnly());
+        analyser.setNumberOfThreads(commandLine.getNumberOfThreads());
+        analyser.setCacheFile(commandLine.getCacheFile());
+        analyser.setIndexDirectory(commandLine.getIndexDirectory());
         final DependencyChecker dependencyChecker = new DependencyChecker(analyser, commandLine.getDependencyDefinition(),
                 System.getProperties(), commandLine.getRenderer());
+        dependencyChecker.setNumberOfThreads(commandLine.getNumberOfThreads());
         final PrintWriter printWriter = new PrintWriter(System.out);
         final boolean ok = dependencyChecker.check(printWriter);
         printWriter.flush();
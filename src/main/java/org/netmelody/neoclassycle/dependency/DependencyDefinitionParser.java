@@ -71,6 +71,7 @@ public final class DependencyDefinitionParser {
     private final ResultRenderer _renderer;
     final SetDefinitionRepository _setDefinitions = new SetDefinitionRepository();
     final LayerDefinitionRepository _layerDefinitions = new LayerDefinitionRepository();
+    private final GraphCache _graphCache = new GraphCache();
     private final ArrayList<Statement> _statements = new ArrayList<Statement>();
 
     public DependencyDefinitionParser(final String dependencyDefinition, final DependencyProperties properties, final ResultRenderer renderer) {
@@ -309,7 +310,7 @@ public final class DependencyDefinitionParser {
             throwException("'in' expected.", lineNumber, 4);
         }
         final StringPattern pattern = createPattern(tokens[5], lineNumber, 4);
-        _statements.add(new CheckCyclesStatement(pattern, size, packageCycles, _setDefinitions));
+        _statements.add(new CheckCyclesStatement(pattern, size, packageCycles, _setDefinitions, _graphCache));
     }
 
     private void createCheckSetStatements(final String[] tokens, final int lineNumber) {
@@ -318,7 +319,7 @@ public final class DependencyDefinitionParser {
         }
         for (int i = 2; i < tokens.length; i++) {
             final StringPattern pattern = createPattern(tokens[i], lineNumber, i);
-            _statements.add(new CheckSetStatement(pattern, _setDefinitions));
+            _statements.add(new CheckSetStatement(pattern, _setDefinitions, _graphCache));
         }
     }
 
@@ -332,7 +333,7 @@ public final class DependencyDefinitionParser {
             }
         }
         final boolean strict = tokens[1].equals(STRICT_LAYERING_OF_KEY_WORD);
-        _statements.add(new LayeringStatement(layers, strict, _setDefinitions, _layerDefinitions, _renderer));
+        _statements.add(new LayeringStatement(layers, strict, _setDefinitions, _layerDefinitions, _graphCache));
     }
 
     private void createDependencyStatement(final String[] tokens, final int lineNumber) {
@@ -344,7 +345,8 @@ public final class DependencyDefinitionParser {
             throwException("Missing end sets. Probably one of the following " + "key words are missing: " + Arrays.asList(INDEPENDENT),
                     lineNumber, tokens.length);
         }
-        _statements.add(new DependencyStatement(lists[0], lists[1], tokens[lists[0].length + 1], _setDefinitions, _renderer));
+        _statements.add(new DependencyStatement(lists[0], lists[1], tokens[lists[0].length + 1], _setDefinitions, _graphCache,
+                _renderer));
     }
 
     private StringPattern[][] getLists(final String[] tokens, final int lineNumber, final String[] keyWords, final int startIndex) {
@@ -42,9 +42,11 @@ import org.netmelody.neoclassycle.util.StringPattern;
 public final class DependencyPathsRenderer {
     private static final String INDENT = "  ";
     private final Vertex[] _graph;
-    private final VertexCondition _startSetCondition;
-    private final VertexCondition _finalSetCondition;
     private final Set<Vertex> _vertices = new HashSet<Vertex>();
+    /** Vertices of the graph in the start set. */
+    private final Set<Vertex> _startVertices = new HashSet<Vertex>();
+    /** Vertices of the graph in the final set. */
+    private final Set<Vertex> _finalVertices = new HashSet<Vertex>();
 
     public DependencyPathsRenderer(final Vertex[] graph, final StringPattern startSetPattern, final StringPattern finalSetPattern) {
         this(graph, new PatternVertexCondition(startSetPattern), new PatternVertexCondition(finalSetPattern));
@@ -52,10 +54,14 @@ public final class DependencyPathsRenderer {
 
     public DependencyPathsRenderer(final Vertex[] graph, final VertexCondition startSetCondition, final VertexCondition finalSetCondition) {
         _graph = graph;
-        _startSetCondition = startSetCondition;
-        _finalSetCondition = finalSetCondition;
         for (final Vertex element : graph) {
             _vertices.add(element);
+            if (startSetCondition.isFulfilled(element)) {
+                _startVertices.add(element);
+            }
+            if (finalSetCondition.isFulfilled(element)) {
+                _finalVertices.add(element);
+            }
         }
     }
 
@@ -96,7 +102,7 @@ public final class DependencyPathsRenderer {
     public void renderGraph(final DependencyPathRenderer renderer) {
         final Set<Vertex> visitedVertices = new HashSet<Vertex>();
         for (final Vertex vertex : _graph) {
-            if (_startSetCondition.isFulfilled(vertex)) {
+            if (_startVertices.contains(vertex)) {
                 renderer.add(getNameOf(vertex));
                 renderPaths(renderer, vertex, visitedVertices);
             }
@@ -108,9 +114,9 @@ public final class DependencyPathsRenderer {
         renderer.increaseIndentation();
         for (int i = 0, n = vertex.getNumberOfOutgoingArcs(); i < n; i++) {
             final Vertex headVertex = vertex.getHeadVertex(i);
-            if (_vertices.contains(headVertex) && !_startSetCondition.isFulfilled(headVertex)) {
+            if (_vertices.contains(headVertex) && !_startVertices.contains(headVertex)) {
                 renderer.add(getNameOf(headVertex));
-                if (!_finalSetCondition.isFulfilled(headVertex) && !visitedVertices.contains(headVertex)) {
+                if (!_finalVertices.contains(headVertex) && !visitedVertices.contains(headVertex)) {
                     renderPaths(renderer, headVertex, visitedVertices);
                 }
             }
@@ -28,7 +28,12 @@
  */
 package org.netmelody.neoclassycle.dependency;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
 import org.netmelody.neoclassycle.graph.AtomicVertex;
+import org.netmelody.neoclassycle.util.TaskRunner;
 
 /**
  * Processor of {@link Statement Statements} as defined in a dependency
@@ -77,4 +82,49 @@ public final class DependencyProcessor {
     public Result executeNextStatement(final AtomicVertex[] graph) {
         return hasMoreStatements() ? _statements[_index++].execute(graph) : null;
     }
+
+    /**
+     * Executes all unprocessed statements and returns their results in the
+     * order of the statements. The statements between two
+     * {@link ShowStatement ShowStatements} are independent of each other and
+     * are executed concurrently. A show statement is executed after all
+     * preceding statements and before all following statements because it
+     * changes the preferences of the renderer which are used by the
+     * statements.
+     *
+     * @param graph
+     *            The graph to be checked by the statements. It is not
+     *            modified.
+     * @param numberOfThreads
+     *            Number of threads. If less than two all statements are
+     *            executed one after another on the calling thread.
+     */
+    public ResultContainer executeRemainingStatements(final AtomicVertex[] graph, final int numberOfThreads) {
+        final ResultContainer result = new ResultContainer();
+        final List<Callable<Result>> tasks = new ArrayList<Callable<Result>>();
+        while (hasMoreStatements()) {
+            final Statement statement = _statements[_index++];
+            if (statement instanceof ShowStatement) {
+                execute(tasks, numberOfThreads, result);
+                result.add(statement.execute(graph));
+            }
+            else {
+                tasks.add(new Callable<Result>() {
+                    @Override
+                    public Result call() {
+                        return statement.execute(graph);
+                    }
+                });
+            }
+        }
+        execute(tasks, numberOfThreads, result);
+        return result;
+    }
+
+    private static void execute(final List<Callable<Result>> tasks, final int numberOfThreads, final ResultContainer result) {
+        for (final Result taskResult : TaskRunner.runUnchecked(tasks, numberOfThreads)) {
+            result.add(taskResult);
+        }
+        tasks.clear();
+    }
 }
@@ -28,12 +28,12 @@
  */
 package org.netmelody.neoclassycle.dependency;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.BitSet;
 
 import org.netmelody.neoclassycle.graph.AtomicVertex;
+import org.netmelody.neoclassycle.graph.CompactGraph;
 import org.netmelody.neoclassycle.graph.PathsFinder;
-import org.netmelody.neoclassycle.graph.Vertex;
+import org.netmelody.neoclassycle.graph.ReachabilityIndex;
 import org.netmelody.neoclassycle.graph.VertexCondition;
 import org.netmelody.neoclassycle.util.OrStringPattern;
 import org.netmelody.neoclassycle.util.StringPattern;
@@ -44,24 +44,6 @@ import static org.netmelody.neoclassycle.dependency.DependencyDefinitionParser.D
  * @author Franz-Josef Elmer
  */
 public final class DependencyStatement implements Statement {
-    private static final class VertexUnionCondition implements VertexCondition {
-        private final VertexCondition[] _conditions;
-
-        VertexUnionCondition(final VertexCondition[] conditions) {
-            _conditions = conditions;
-        }
-
-        @Override
-        public boolean isFulfilled(final Vertex vertex) {
-            for (final VertexCondition condition : _conditions) {
-                if (condition.isFulfilled(vertex)) {
-                    return true;
-                }
-            }
-            return false;
-        }
-    }
-
     private static final String CHECK = DependencyDefinitionParser.CHECK_KEY_WORD + ' ';
     private final StringPattern[] _startSets;
     private final StringPattern[] _finalSets;
@@ -69,21 +51,21 @@ public final class DependencyStatement implements Statement {
     private final String _dependencyType;
     private final VertexCondition[] _startConditions;
     private final VertexCondition[] _finalConditions;
-    private final VertexCondition _finalCondition;
     private final SetDefinitionRepository _repository;
+    private final GraphCache _graphCache;
     private final ResultRenderer _renderer;
 
     public DependencyStatement(final StringPattern[] startSets, final StringPattern[] finalSets, final String dependencyType,
-            final SetDefinitionRepository repository, final ResultRenderer renderer) {
+            final SetDefinitionRepository repository, final GraphCache graphCache, final ResultRenderer renderer) {
         _startSets = startSets;
         _finalSets = finalSets;
         _dependencyType = dependencyType;
         _repository = repository;
+        _graphCache = graphCache;
         _renderer = renderer;
         _startConditions = createVertexConditions(startSets);
         _finalConditions = createVertexConditions(finalSets);
         _finalSet = new OrStringPattern(_finalSets);
-        _finalCondition = new VertexUnionCondition(_finalConditions);
     }
 
     private static VertexCondition[] createVertexConditions(final StringPattern[] patterns) {
@@ -99,35 +81,67 @@ public final class DependencyStatement implements Statement {
         final ResultContainer result = new ResultContainer();
         final boolean directPathsOnly = DIRECTLY_INDEPENDENT_OF_KEY_WORD.equals(_dependencyType);
         final boolean dependsOnly = DependencyDefinitionParser.DEPENDENT_ONLY_ON_KEY_WORD.equals(_dependencyType);
-        for (int i = 0; i < _startConditions.length; i++) {
-            final VertexCondition startCondition = _startConditions[i];
+        final CompactGraph compactGraph = _graphCache.getCompactGraph(graph);
+        final BitSet[] finalVertices = new BitSet[_finalSets.length];
+        for (int j = 0; j < finalVertices.length; j++) {
+            finalVertices[j] = _graphCache.getMembers(graph, _finalSets[j]);
+        }
+        ReachabilityIndex index = null;
+        for (int i = 0; i < _startSets.length; i++) {
             final StringPattern startSet = _startSets[i];
+            final BitSet startVertices = _graphCache.getMembers(graph, startSet);
             if (dependsOnly) {
-                final Set<AtomicVertex> invalids = new HashSet<AtomicVertex>();
-                for (final AtomicVertex vertex : graph) {
-                    if (startCondition.isFulfilled(vertex)) {
-                        for (int j = 0, n = vertex.getNumberOfOutgoingArcs(); j < n; j++) {
-                            final Vertex headVertex = vertex.getHeadVertex(j);
-                            if (_finalCondition.isFulfilled(headVertex) == false && startCondition.isFulfilled(headVertex) == false) {
-                                invalids.add(vertex);
-                                invalids.add((AtomicVertex) headVertex);
-                            }
-                        }
-                    }
-                }
-                result.add(new DependencyResult(startSet, _finalSet, toString(startSet, _finalSet), invalids.toArray(new AtomicVertex[0])));
+                final AtomicVertex[] invalids = findInvalidDependencies(compactGraph, startVertices, finalVertices);
+                result.add(new DependencyResult(startSet, _finalSet, toString(startSet, _finalSet), invalids));
             }
             else {
+                if (index == null) {
+                    index = _graphCache.getReachabilityIndex(graph);
+                }
                 for (int j = 0; j < _finalConditions.length; j++) {
-                    final PathsFinder finder = new PathsFinder(startCondition, _finalConditions[j], _renderer.onlyShortestPaths(),
-                            directPathsOnly);
-                    result.add(new DependencyResult(startSet, _finalSets[j], toString(i, j), finder.findPaths(graph)));
+                    AtomicVertex[] paths = new AtomicVertex[0];
+                    if (index.canReach(startVertices, finalVertices[j])) {
+                        final PathsFinder finder = new PathsFinder(_startConditions[i], _finalConditions[j], _renderer.onlyShortestPaths(),
+                                directPathsOnly);
+                        paths = finder.findPaths(compactGraph, startVertices, finalVertices[j]);
+                    }
+                    result.add(new DependencyResult(startSet, _finalSets[j], toString(i, j), paths));
                 }
             }
         }
         return result;
     }
 
+    /**
+     * Returns the vertices of the start set which depend directly on vertices
+     * neither in the start set nor in one of the final sets together with
+     * these vertices.
+     */
+    private static AtomicVertex[] findInvalidDependencies(final CompactGraph graph, final BitSet startVertices, final BitSet[] finalVertices) {
+        final BitSet invalids = new BitSet();
+        final int numberOfGraphVertices = graph.getNumberOfGraphVertices();
+        for (int vertex = startVertices.nextSetBit(0); vertex >= 0 && vertex < numberOfGraphVertices; vertex = startVertices
+                .nextSetBit(vertex + 1)) {
+            for (int i = 0, n = graph.getNumberOfOutgoingArcs(vertex); i < n; i++) {
+                final int head = graph.getHead(vertex, i);
+                if (startVertices.get(head) == false && isMember(head, finalVertices) == false) {
+                    invalids.set(vertex);
+                    invalids.set(head);
+                }
+            }
+        }
+        return PathsFinder.toVertices(graph, invalids);
+    }
+
+    private static boolean isMember(final int vertex, final BitSet[] sets) {
+        for (final BitSet set : sets) {
+            if (set.get(vertex)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private String toString(final int i, final int j) {
         return toString(_startSets[i], _finalSets[j]);
     }
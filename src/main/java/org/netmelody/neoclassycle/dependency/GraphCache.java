@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2012 Tom Denley
+ * This file incorporates work covered by the following copyright and
+ * permission notice:
+ *
+ * Copyright (c) 2003-2008, Franz-Josef Elmer, All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.netmelody.neoclassycle.dependency;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.netmelody.neoclassycle.graph.AtomicVertex;
+import org.netmelody.neoclassycle.graph.CompactGraph;
+import org.netmelody.neoclassycle.graph.PathsFinder;
+import org.netmelody.neoclassycle.graph.ReachabilityIndex;
+import org.netmelody.neoclassycle.util.StringPattern;
+
+/**
+ * Data derived from the graph checked by the statements of one dependency
+ * definition. It is created on first request and shared by all statements
+ * as long as they are executed on the same graph. This includes the members
+ * of each set used by a statement. Thus a set defined once and referred to by
+ * many statements is matched only once against the names of the vertices.
+ * <p>
+ * Instances are thread-safe.
+ */
+final class GraphCache {
+    private AtomicVertex[] _graph;
+    private CompactGraph _compactGraph;
+    private ReachabilityIndex _reachabilityIndex;
+    private final Map<StringPattern, BitSet> _members = new HashMap<StringPattern, BitSet>();
+
+    /** Returns the specified graph as a compact graph. */
+    public synchronized CompactGraph getCompactGraph(final AtomicVertex[] graph) {
+        if (_graph != graph) {
+            _graph = graph;
+            _compactGraph = CompactGraph.create(graph);
+            _reachabilityIndex = null;
+            _members.clear();
+        }
+        return _compactGraph;
+    }
+
+    /**
+     * Returns the reachability index of the compact graph returned by
+     * {@link #getCompactGraph(AtomicVertex[])}.
+     */
+    public synchronized ReachabilityIndex getReachabilityIndex(final AtomicVertex[] graph) {
+        final CompactGraph compactGraph = getCompactGraph(graph);
+        if (_reachabilityIndex == null) {
+            _reachabilityIndex = new ReachabilityIndex(compactGraph);
+        }
+        return _reachabilityIndex;
+    }
+
+    /**
+     * Returns the indices of the vertices of the compact graph returned by
+     * {@link #getCompactGraph(AtomicVertex[])} (including vertices not in the
+     * graph) the names of which match the specified pattern. The pattern is
+     * evaluated on first request. Patterns are identified by identity.
+     *
+     * @return a bit set which must not be modified.
+     */
+    public BitSet getMembers(final AtomicVertex[] graph, final StringPattern pattern) {
+        final CompactGraph compactGraph;
+        synchronized (this) {
+            compactGraph = getCompactGraph(graph);
+            final BitSet members = _members.get(pattern);
+            if (members != null) {
+                return members;
+            }
+        }
+        final BitSet members = PathsFinder.getVertices(compactGraph, new PatternVertexCondition(pattern));
+        synchronized (this) {
+            if (_compactGraph == compactGraph) {
+                final BitSet previousMembers = _members.get(pattern);
+                if (previousMembers != null) {
+                    return previousMembers;
+                }
+                _members.put(pattern, members);
+            }
+        }
+        return members;
+    }
+}
@@ -28,61 +28,183 @@
  */
 package org.netmelody.neoclassycle.dependency;
 
+import java.util.BitSet;
+
 import org.netmelody.neoclassycle.graph.AtomicVertex;
+import org.netmelody.neoclassycle.graph.CompactGraph;
+import org.netmelody.neoclassycle.graph.PathsFinder;
 import org.netmelody.neoclassycle.util.StringPattern;
 
 import static org.netmelody.neoclassycle.dependency.DependencyDefinitionParser.DIRECTLY_INDEPENDENT_OF_KEY_WORD;
 
 /**
+ * Checks a layering. The result is the same as the result of the statements
+ * <tt>check <i>a</i> directlyIndependentOf <i>b</i></tt> for each pair of
+ * sets <i>a</i> and <i>b</i> which are different sets of the same layer,
+ * where <i>b</i> is in a higher layer than <i>a</i> or, in the case of strict
+ * layering, where <i>b</i> is in a layer at least two layers below the layer
+ * of <i>a</i>. But all pairs are checked by visiting each arc of the graph
+ * only once.
+ *
  * @author Franz-Josef Elmer
  */
 public final class LayeringStatement implements Statement {
+    private static final String CHECK = DependencyDefinitionParser.CHECK_KEY_WORD + ' ';
     private final StringPattern[][] _layers;
     private final boolean _strictLayering;
     private final SetDefinitionRepository _repository;
     private final LayerDefinitionRepository _layerRepository;
-    private final ResultRenderer _renderer;
+    private final GraphCache _graphCache;
+    /** Sets of all layers. A set is identified by its index. */
+    private final StringPattern[] _sets;
+    /** Layer index of each set. */
+    private final int[] _layerIndices;
+    /** Index of the first set of each layer. */
+    private final int[] _firstSets;
 
     public LayeringStatement(final StringPattern[][] layers, final boolean strictLayering, final SetDefinitionRepository repository,
-            final LayerDefinitionRepository layerRepository, final ResultRenderer renderer) {
+            final LayerDefinitionRepository layerRepository, final GraphCache graphCache) {
         _layers = layers;
         _repository = repository;
         _layerRepository = layerRepository;
+        _graphCache = graphCache;
         _strictLayering = strictLayering;
-        _renderer = renderer;
+        _firstSets = new int[layers.length + 1];
+        for (int i = 0; i < layers.length; i++) {
+            _firstSets[i + 1] = _firstSets[i] + layers[i].length;
+        }
+        _sets = new StringPattern[_firstSets[layers.length]];
+        _layerIndices = new int[_sets.length];
+        for (int i = 0; i < layers.length; i++) {
+            for (int j = 0; j < layers[i].length; j++) {
+                final int set = _firstSets[i] + j;
+                _sets[set] = layers[i][j];
+                _layerIndices[set] = i;
+            }
+        }
     }
 
     @Override
     public Result execute(final AtomicVertex[] graph) {
+        final CompactGraph compactGraph = _graphCache.getCompactGraph(graph);
+        final BitSet[] paths = findPaths(compactGraph, graph);
         final ResultContainer result = new ResultContainer();
         for (int i = 0; i < _layers.length; i++) {
-            checkIntraLayerDependencies(result, _layers[i], graph);
+            for (int startSet = _firstSets[i]; startSet < _firstSets[i + 1]; startSet++) {
+                for (int finalSet = _firstSets[i]; finalSet < _firstSets[i + 1]; finalSet++) {
+                    if (finalSet != startSet) {
+                        result.add(createResult(compactGraph, paths, startSet, finalSet));
+                    }
+                }
+            }
             for (int j = i + 1; j < _layers.length; j++) {
-                final DependencyStatement s = new DependencyStatement(_layers[i], _layers[j], DIRECTLY_INDEPENDENT_OF_KEY_WORD, _repository,
-                        _renderer);
-                result.add(s.execute(graph));
+                addResults(result, compactGraph, paths, i, j);
             }
             if (_strictLayering) {
                 for (int j = i - 2; j >= 0; j--) {
-                    final DependencyStatement s = new DependencyStatement(_layers[i], _layers[j], DIRECTLY_INDEPENDENT_OF_KEY_WORD, _repository,
-                            _renderer);
-                    result.add(s.execute(graph));
+                    addResults(result, compactGraph, paths, i, j);
                 }
             }
         }
         return result;
     }
 
-    private void checkIntraLayerDependencies(final ResultContainer result, final StringPattern[] patterns, final AtomicVertex[] graph) {
-        final StringPattern[] startSets = new StringPattern[1];
-        final StringPattern[] endSets = new StringPattern[patterns.length - 1];
-        for (int i = 0; i < patterns.length; i++) {
-            startSets[0] = patterns[i];
-            System.arraycopy(patterns, 0, endSets, 0, i);
-            System.arraycopy(patterns, i + 1, endSets, i, patterns.length - i - 1);
-            final DependencyStatement s = new DependencyStatement(startSets, endSets, DIRECTLY_INDEPENDENT_OF_KEY_WORD, _repository, _renderer);
-            result.add(s.execute(graph));
+    /**
+     * Returns <tt>true</tt> if vertices of the specified start set must not
+     * depend directly on vertices of the specified final set.
+     */
+    private boolean isForbidden(final int startSet, final int finalSet) {
+        final int startLayer = _layerIndices[startSet];
+        final int finalLayer = _layerIndices[finalSet];
+        if (startLayer == finalLayer) {
+            return startSet != finalSet;
+        }
+        return finalLayer > startLayer || (_strictLayering && finalLayer < startLayer - 1);
+    }
+
+    /**
+     * Finds the direct paths between all pairs of sets which are forbidden.
+     * The paths of the pair of start set <i>s</i> and final set <i>f</i> are
+     * stored at index <i>s</i>&nbsp;*&nbsp;<i>number of sets</i>&nbsp;+&nbsp;
+     * <i>f</i>. The entry is <tt>null</tt> if there are no paths.
+     */
+    private BitSet[] findPaths(final CompactGraph graph, final AtomicVertex[] vertices) {
+        final int numberOfSets = _sets.length;
+        final int numberOfVertices = graph.getNumberOfVertices();
+        final BitSet[] members = new BitSet[numberOfSets];
+        final int[] offsets = new int[numberOfVertices + 1];
+        for (int set = 0; set < numberOfSets; set++) {
+            members[set] = _graphCache.getMembers(vertices, _sets[set]);
+            for (int v = members[set].nextSetBit(0); v >= 0; v = members[set].nextSetBit(v + 1)) {
+                offsets[v + 1]++;
+            }
+        }
+
+        // Sets of each vertex in increasing order
+        for (int v = 0; v < numberOfVertices; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        final int[] vertexSets = new int[offsets[numberOfVertices]];
+        final int[] positions = new int[numberOfVertices];
+        System.arraycopy(offsets, 0, positions, 0, numberOfVertices);
+        for (int set = 0; set < numberOfSets; set++) {
+            for (int v = members[set].nextSetBit(0); v >= 0; v = members[set].nextSetBit(v + 1)) {
+                vertexSets[positions[v]++] = set;
+            }
         }
+
+        final BitSet[] result = new BitSet[numberOfSets * numberOfSets];
+        for (int tail = 0, n = graph.getNumberOfGraphVertices(); tail < n; tail++) {
+            for (int i = offsets[tail]; i < offsets[tail + 1]; i++) {
+                final int startSet = vertexSets[i];
+                for (int j = offsets[tail]; j < offsets[tail + 1]; j++) {
+                    if (isForbidden(startSet, vertexSets[j])) {
+                        getPaths(result, startSet, vertexSets[j]).set(tail);
+                    }
+                }
+            }
+            for (int k = 0, m = graph.getNumberOfOutgoingArcs(tail); k < m; k++) {
+                final int head = graph.getHead(tail, k);
+                for (int i = offsets[tail]; i < offsets[tail + 1]; i++) {
+                    final int startSet = vertexSets[i];
+                    for (int j = offsets[head]; j < offsets[head + 1]; j++) {
+                        final int finalSet = vertexSets[j];
+                        if (isForbidden(startSet, finalSet) && members[finalSet].get(tail) == false) {
+                            final BitSet paths = getPaths(result, startSet, finalSet);
+                            paths.set(tail);
+                            paths.set(head);
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private BitSet getPaths(final BitSet[] paths, final int startSet, final int finalSet) {
+        final int index = startSet * _sets.length + finalSet;
+        if (paths[index] == null) {
+            paths[index] = new BitSet();
+        }
+        return paths[index];
+    }
+
+    private void addResults(final ResultContainer result, final CompactGraph graph, final BitSet[] paths, final int startLayer,
+            final int finalLayer) {
+        for (int startSet = _firstSets[startLayer]; startSet < _firstSets[startLayer + 1]; startSet++) {
+            for (int finalSet = _firstSets[finalLayer]; finalSet < _firstSets[finalLayer + 1]; finalSet++) {
+                result.add(createResult(graph, paths, startSet, finalSet));
+            }
+        }
+    }
+
+    private DependencyResult createResult(final CompactGraph graph, final BitSet[] paths, final int startSet, final int finalSet) {
+        final BitSet pathVertices = paths[startSet * _sets.length + finalSet];
+        final AtomicVertex[] vertices = pathVertices == null ? new AtomicVertex[0] : PathsFinder.toVertices(graph, pathVertices);
+        final StringBuffer buffer = new StringBuffer(CHECK);
+        buffer.append(_repository.toString(_sets[startSet])).append(' ').append(DIRECTLY_INDEPENDENT_OF_KEY_WORD).append(' ')
+                .append(_repository.toString(_sets[finalSet]));
+        return new DependencyResult(_sets[startSet], _sets[finalSet], new String(buffer), vertices);
     }
 
     @Override
@@ -29,22 +29,15 @@
 package org.netmelody.neoclassycle.graph;
 
 /**
- * A subclass of {@link Vertex} with the following additional properties:
- * <ul>
- * <li>A flag indicating whether this vertex belongs to the graph or not.
- * <li>The order of visiting.
- * <li>The low function.
- * </ul>
- * The last two properties are used in Tarjan's algorithm to find the strong
- * components (see {@link StrongComponentProcessor}).
+ * A subclass of {@link Vertex} with a flag indicating whether this vertex
+ * belongs to the graph or not. Vertices which do not belong to the graph
+ * (e.g.&nbsp;external classes) are not reached via arcs by the
+ * {@link StrongComponentProcessor}.
  *
  * @author Franz-Josef Elmer
  */
 public class AtomicVertex extends Vertex {
-    private boolean _graphVertexDefaultValue = true;
-    private boolean _graphVertex;
-    private int _order;
-    private int _low;
+    private boolean _graphVertex = true;
 
     /** Creates an instance for the specified attributes. */
     public AtomicVertex(final Attributes attributes) {
@@ -52,50 +45,30 @@ public class AtomicVertex extends Vertex {
     }
 
     /**
-     * Reset this instance. That is, it becomes a unvisited vertex where
-     * <tt>order = low = -1</tt>. Whether it is a graph vertex or not depends on
-     * the default value defined by the method
-     * {@link #setDefaultValueOfGraphVertexFlag}.
+     * Returns <tt>true</tt> if this vertex belongs to a graph. By default a
+     * vertex belongs to a graph.
      */
-    @Override
-    public void reset() {
-        super.reset();
-        _graphVertex = _graphVertexDefaultValue;
-        _order = -1;
-        _low = -1;
-    }
-
-    /** Returns <tt>true</tt> if this vertex belongs to a graph. */
     public boolean isGraphVertex() {
         return _graphVertex;
     }
 
     /**
-     * Sets the default value of graphVertex flag.
+     * Sets the flag which defines whether this vertex belongs to a graph.
      *
-     * @see #reset()
+     * @see #isGraphVertex()
      */
-    public void setDefaultValueOfGraphVertexFlag(final boolean flag) {
-        _graphVertexDefaultValue = flag;
-    }
-
-    /** Returns the order of visiting. */
-    public int getOrder() {
-        return _order;
-    }
-
-    /** Sets the order of visiting. */
-    public void setOrder(final int order) {
-        _order = order;
+    public void setGraphVertex(final boolean graphVertex) {
+        _graphVertex = graphVertex;
     }
 
-    /** Returns the current value of the low function. */
-    public int getLow() {
-        return _low;
-    }
-
-    /** Sets the current value of the low function. */
-    public void setLow(final int low) {
-        _low = low;
+    /**
+     * Sets the flag which defines whether this vertex belongs to a graph.
+     *
+     * @deprecated There is no default value any more because vertices are not
+     *             reset. Use {@link #setGraphVertex(boolean)}.
+     */
+    @Deprecated
+    public void setDefaultValueOfGraphVertexFlag(final boolean flag) {
+        setGraphVertex(flag);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2012 Tom Denley
+ * This file incorporates work covered by the following copyright and
+ * permission notice:
+ *
+ * Copyright (c) 2003-2008, Franz-Josef Elmer, All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.netmelody.neoclassycle.graph;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable directed graph in compressed sparse row format. Vertices are
+ * identified by their index. The indices of the head vertices of the outgoing
+ * arcs of a vertex are stored consecutively in one <tt>int</tt> array, the
+ * indices of the tail vertices of the incoming arcs in another one. For each
+ * vertex an offset array gives the position of its first arc.
+ * <p>
+ * The first {@link #getNumberOfGraphVertices()} vertices are the vertices of
+ * the graph. They are followed by all other vertices which can be reached from
+ * them, e.g.&nbsp;vertices of external classes.
+ * <p>
+ * Algorithms running on an instance keep their state in arrays indexed by
+ * vertex. Thus an instance can be shared by several threads.
+ */
+public final class CompactGraph {
+    private final Vertex[] _vertices;
+    private final int _numberOfGraphVertices;
+    private final int[] _outgoingOffsets;
+    private final int[] _heads;
+    private final int[] _incomingOffsets;
+    private final int[] _tails;
+
+    /**
+     * Creates an instance. The arrays are not copied. They must not be
+     * modified afterwards.
+     *
+     * @param vertices
+     *            All vertices. The vertices of the graph come first.
+     * @param numberOfGraphVertices
+     *            Number of vertices of the graph.
+     * @param outgoingOffsets
+     *            Array of length <tt>vertices.length + 1</tt>. The head
+     *            vertices of vertex <tt>i</tt> are stored in <tt>heads</tt>
+     *            from index <tt>outgoingOffsets[i]</tt> (inclusive) to
+     *            <tt>outgoingOffsets[i + 1]</tt> (exclusive).
+     * @param heads
+     *            Indices of the head vertices of all arcs.
+     */
+    public CompactGraph(final Vertex[] vertices, final int numberOfGraphVertices, final int[] outgoingOffsets, final int[] heads) {
+        if (outgoingOffsets.length != vertices.length + 1 || outgoingOffsets[vertices.length] != heads.length) {
+            throw new IllegalArgumentException("Offsets do not match " + vertices.length + " vertices and " + heads.length + " arcs.");
+        }
+        _vertices = vertices;
+        _numberOfGraphVertices = numberOfGraphVertices;
+        _outgoingOffsets = outgoingOffsets;
+        _heads = heads;
+
+        // Reverse arcs by counting sort of the heads
+        _incomingOffsets = new int[vertices.length + 1];
+        for (final int head : heads) {
+            _incomingOffsets[head + 1]++;
+        }
+        for (int i = 0; i < vertices.length; i++) {
+            _incomingOffsets[i + 1] += _incomingOffsets[i];
+        }
+        _tails = new int[heads.length];
+        final int[] positions = new int[vertices.length];
+        System.arraycopy(_incomingOffsets, 0, positions, 0, vertices.length);
+        for (int tail = 0; tail < vertices.length; tail++) {
+            for (int i = outgoingOffsets[tail], n = outgoingOffsets[tail + 1]; i < n; i++) {
+                _tails[positions[heads[i]]++] = tail;
+            }
+        }
+    }
+
+    /**
+     * Creates an instance from the specified graph. Vertices which are not in
+     * the graph but can be reached from it are added after the vertices of the
+     * graph in the order they are found.
+     */
+    public static CompactGraph create(final Vertex[] graph) {
+        final Map<Vertex, Integer> indices = new IdentityHashMap<Vertex, Integer>();
+        final List<Vertex> vertices = new ArrayList<Vertex>(graph.length);
+        for (final Vertex vertex : graph) {
+            if (indices.containsKey(vertex) == false) {
+                indices.put(vertex, Integer.valueOf(vertices.size()));
+                vertices.add(vertex);
+            }
+        }
+        final int numberOfGraphVertices = vertices.size();
+        int numberOfArcs = 0;
+        for (int i = 0; i < vertices.size(); i++) {
+            final Vertex vertex = vertices.get(i);
+            for (int j = 0, n = vertex.getNumberOfOutgoingArcs(); j < n; j++) {
+                final Vertex head = vertex.getHeadVertex(j);
+                if (indices.containsKey(head) == false) {
+                    indices.put(head, Integer.valueOf(vertices.size()));
+                    vertices.add(head);
+                }
+            }
+            numberOfArcs += vertex.getNumberOfOutgoingArcs();
+        }
+
+        final int[] offsets = new int[vertices.size() + 1];
+        final int[] heads = new int[numberOfArcs];
+        for (int i = 0, position = 0; i < vertices.size(); i++) {
+            final Vertex vertex = vertices.get(i);
+            offsets[i] = position;
+            for (int j = 0, n = vertex.getNumberOfOutgoingArcs(); j < n; j++) {
+                heads[position++] = indices.get(vertex.getHeadVertex(j)).intValue();
+            }
+        }
+        offsets[vertices.size()] = numberOfArcs;
+        return new CompactGraph(vertices.toArray(new Vertex[vertices.size()]), numberOfGraphVertices, offsets, heads);
+    }
+
+    /** Returns the number of all vertices including vertices not in the graph. */
+    public int getNumberOfVertices() {
+        return _vertices.length;
+    }
+
+    /**
+     * Returns the number of vertices of the graph. These are the vertices with
+     * indices from 0 to this number (exclusive).
+     */
+    public int getNumberOfGraphVertices() {
+        return _numberOfGraphVertices;
+    }
+
+    /** Returns the number of arcs. */
+    public int getNumberOfArcs() {
+        return _heads.length;
+    }
+
+    /** Returns the vertex with the specified index. */
+    public Vertex getVertex(final int index) {
+        return _vertices[index];
+    }
+
+    /** Returns the number of outgoing arcs of the specified vertex. */
+    public int getNumberOfOutgoingArcs(final int vertex) {
+        return _outgoingOffsets[vertex + 1] - _outgoingOffsets[vertex];
+    }
+
+    /**
+     * Returns the index of the head vertex of the specified outgoing arc of the
+     * specified vertex.
+     */
+    public int getHead(final int vertex, final int arc) {
+        return _heads[_outgoingOffsets[vertex] + arc];
+    }
+
+    /** Returns the number of incoming arcs of the specified vertex. */
+    public int getNumberOfIncomingArcs(final int vertex) {
+        return _incomingOffsets[vertex + 1] - _incomingOffsets[vertex];
+    }
+
+    /**
+     * Returns the index of the tail vertex of the specified incoming arc of the
+     * specified vertex.
+     */
+    public int getTail(final int vertex, final int arc) {
+        return _tails[_incomingOffsets[vertex] + arc];
+    }
+}
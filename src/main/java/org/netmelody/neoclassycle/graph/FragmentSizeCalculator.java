@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2012 Tom Denley
+ * This file incorporates work covered by the following copyright and
+ * permission notice:
+ *
+ * Copyright (c) 2003-2008, Franz-Josef Elmer, All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.netmelody.neoclassycle.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.netmelody.neoclassycle.util.TaskRunner;
+
+/**
+ * Calculates for each vertex of a strongly connected {@link CompactGraph} the
+ * size of the largest strong component which remains after removing the
+ * vertex. The removed vertex counts as a component of size one. The strong
+ * components are found by a {@link StrongComponentSearch} which is created
+ * once per instance and reused for each removed vertex.
+ * <p>
+ * Instances are not thread-safe. {@link #calculate(CompactGraph, int)} uses
+ * one instance per worker thread.
+ */
+final class FragmentSizeCalculator {
+    /**
+     * Minimum number of vertices of a graph for which fragment sizes are
+     * calculated on several threads.
+     */
+    static final int MINIMUM_PARALLEL_SIZE = 500;
+
+    private final StrongComponentSearch _search;
+    private final boolean[] _reachableVertices;
+
+    FragmentSizeCalculator(final CompactGraph graph) {
+        final int n = graph.getNumberOfVertices();
+        _search = new StrongComponentSearch(graph, n);
+        _reachableVertices = new boolean[n];
+        Arrays.fill(_reachableVertices, true);
+    }
+
+    /**
+     * Returns the maximum fragment sizes of all vertices of the specified
+     * graph.
+     *
+     * @param numberOfThreads
+     *            Number of worker threads. If less than two or if the graph is
+     *            smaller than {@link #MINIMUM_PARALLEL_SIZE} everything is
+     *            calculated on the calling thread.
+     */
+    static int[] calculate(final CompactGraph graph, final int numberOfThreads) {
+        final int n = graph.getNumberOfVertices();
+        final int[] result = new int[n];
+        if (numberOfThreads < 2 || n < MINIMUM_PARALLEL_SIZE) {
+            final FragmentSizeCalculator calculator = new FragmentSizeCalculator(graph);
+            for (int i = 0; i < n; i++) {
+                result[i] = calculator.getMaximumFragmentSize(i);
+            }
+            return result;
+        }
+
+        final List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(numberOfThreads);
+        for (int t = 0; t < numberOfThreads; t++) {
+            final int firstVertex = t;
+            tasks.add(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    final FragmentSizeCalculator calculator = new FragmentSizeCalculator(graph);
+                    for (int i = firstVertex; i < result.length; i += numberOfThreads) {
+                        result[i] = calculator.getMaximumFragmentSize(i);
+                    }
+                    return null;
+                }
+            });
+        }
+        TaskRunner.runUnchecked(tasks, numberOfThreads);
+        return result;
+    }
+
+    /**
+     * Returns the number of vertices of the largest strong component of the
+     * graph without the specified vertex.
+     */
+    int getMaximumFragmentSize(final int removedVertex) {
+        // Without arcs to the removed vertex it is a component of its own
+        _reachableVertices[removedVertex] = false;
+        _search.run(_reachableVertices);
+        _reachableVertices[removedVertex] = true;
+        final int[] componentOffsets = _search.getComponentOffsets();
+        int result = 1;
+        for (int c = 0, n = _search.getNumberOfComponents(); c < n; c++) {
+            result = Math.max(result, componentOffsets[c + 1] - componentOffsets[c]);
+        }
+        return result;
+    }
+}
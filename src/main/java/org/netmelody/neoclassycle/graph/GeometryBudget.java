@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2012 Tom Denley
+ * This file incorporates work covered by the following copyright and
+ * permission notice:
+ *
+ * Copyright (c) 2003-2008, Franz-Josef Elmer, All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.netmelody.neoclassycle.graph;
+
+/**
+ * Limits the effort spent on the exact geometry of the strong components of
+ * one analysis. Calculating eccentricities and maximum fragment sizes exactly
+ * takes time proportional to the number of vertices times the number of arcs
+ * of a component. A component is calculated exactly only if it is not larger
+ * than the maximum exact size and if the time spent so far on exact
+ * calculations does not exceed the maximum time. Otherwise its attributes are
+ * estimated from a sample of vertices and marked as approximate, see
+ * {@link GraphAttributes#isApproximate()}.
+ * <p>
+ * Instances are thread-safe.
+ */
+public final class GeometryBudget {
+    /** Default of the maximum number of vertices of an exactly calculated component. */
+    public static final int DEFAULT_MAXIMUM_EXACT_SIZE = 10000;
+
+    /** Default of the maximum time in milliseconds spent on exact calculations. */
+    public static final long DEFAULT_MAXIMUM_TIME = 60000;
+
+    /** Default number of vertices sampled in approximate calculations. */
+    public static final int DEFAULT_NUMBER_OF_SAMPLES = 64;
+
+    private final int _maximumExactSize;
+    private final long _maximumTime;
+    private final int _numberOfSamples;
+    private long _time;
+
+    /** Creates an instance with default limits. */
+    public GeometryBudget() {
+        this(DEFAULT_MAXIMUM_EXACT_SIZE, DEFAULT_MAXIMUM_TIME, DEFAULT_NUMBER_OF_SAMPLES);
+    }
+
+    /**
+     * Creates an instance.
+     *
+     * @param maximumExactSize
+     *            Maximum number of vertices of a component calculated exactly.
+     * @param maximumTime
+     *            Maximum time in milliseconds spent on exact calculations.
+     *            Once it is used up all further components with more than one
+     *            vertex are calculated approximately.
+     * @param numberOfSamples
+     *            Number of vertices sampled in approximate calculations.
+     */
+    public GeometryBudget(final int maximumExactSize, final long maximumTime, final int numberOfSamples) {
+        _maximumExactSize = maximumExactSize;
+        _maximumTime = maximumTime;
+        _numberOfSamples = Math.max(1, numberOfSamples);
+    }
+
+    /** Returns the number of vertices sampled in approximate calculations. */
+    public int getNumberOfSamples() {
+        return _numberOfSamples;
+    }
+
+    /**
+     * Returns <tt>true</tt> if a component with the specified number of
+     * vertices can be calculated exactly.
+     */
+    public synchronized boolean allowsExactCalculation(final int numberOfVertices) {
+        return numberOfVertices <= _maximumExactSize && _time <= _maximumTime;
+    }
+
+    /** Adds the specified time in milliseconds spent on an exact calculation. */
+    public synchronized void addTime(final long time) {
+        _time += time;
+    }
+}
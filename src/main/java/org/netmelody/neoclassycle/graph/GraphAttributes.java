@@ -58,6 +58,16 @@ package org.netmelody.neoclassycle.graph;
  * @author Franz-Josef Elmer
  */
 public interface GraphAttributes extends Attributes {
+    /**
+     * Returns <tt>true</tt> if the attributes have been estimated from a
+     * sample of vertices because the {@link GeometryBudget} was exceeded. In
+     * this case only the eccentricities and maximum fragment sizes of the
+     * sampled vertices are exact. The eccentricities of all other vertices
+     * are lower bounds and their maximum fragment sizes are upper bounds. The
+     * girth is an upper bound.
+     */
+    public boolean isApproximate();
+
     /** Returns the girth. */
     public int getGirth();
 
@@ -34,59 +34,100 @@ package org.netmelody.neoclassycle.graph;
  * (implemented in the method {@link #process}) reads:
  *
  * <pre>
- * vertex.visit();
- * processBefore(vertex);
- * for (int i = 0, n = vertex.getNumberOfOutgoingArcs(); i &lt; n; i++) {
- *     processArc(vertex, vertex.getHeadVertex(i));
+ * visited[vertex] = true;
+ * processBefore(v);
+ * for (int i = 0, n = graph.getNumberOfOutgoingArcs(vertex); i &lt; n; i++) {
+ *     processArc(v, graph.getVertex(graph.getHead(vertex, i)));
  * }
- * processAfter(vertex);
+ * processAfter(v);
  * </pre>
  *
- * The methods {@link #initializeProcessing initializeProcessing()},
- * {@link #processBefore processBefore()}, {@link #processArc processArc()}, and
- * {@link #processAfter processAfter()} have to be implemented by concrete
- * classes.
+ * where <tt>vertex</tt> is the index of the vertex <tt>v</tt> in a
+ * {@link CompactGraph}. The methods {@link #initializeProcessing
+ * initializeProcessing()}, {@link #processBefore processBefore()},
+ * {@link #processArc processArc()}, and {@link #processAfter processAfter()}
+ * have to be implemented by concrete classes.
  * <p>
  * The class will be used by creating an instance and invoking
  * {@link #deepSearchFirst deepSearchFirst()} one or several times. Either the
  * graph will be modified or some result objects are created which can be
- * obtained by special methods defined in concrete subclasses. Note, that a
- * <tt>GraphProcessor</tt> is not thread-safe.
+ * obtained by special methods defined in concrete subclasses. The visited
+ * flags are kept in an array of the processor for one invocation. Thus the
+ * vertices are not modified and several processors can process the same
+ * graph at the same time. Note, that a <tt>GraphProcessor</tt> itself is not
+ * thread-safe.
  *
  * @author Franz-Josef Elmer
  */
 public abstract class GraphProcessor {
+    private CompactGraph _graph;
+    private boolean[] _visited;
+
     /**
-     * Performs a deep search first of the specified graph. First, processing
-     * will be initialized and all vertices of the graph will be reset. Then for
-     * all unvisited vertices the method <tt>process(Vertex)</tt> will be
-     * invoked. At last, processing will be finished.
+     * Performs a deep search first of the specified graph. Same as
+     * {@link #deepSearchFirst(CompactGraph)} for the compact graph of the
+     * specified graph.
      *
      * @param graph
      *            A directed graph.
      */
     public void deepSearchFirst(final Vertex[] graph) {
-        initializeProcessing(graph);
-        for (final Vertex element : graph) {
-            element.reset();
-        }
+        deepSearchFirst(CompactGraph.create(graph));
+    }
 
-        for (int i = 0; i < graph.length; i++) {
-            if (!graph[i].isVisited()) {
-                process(graph[i]);
+    /**
+     * Performs a deep search first of the specified compact graph. First,
+     * processing will be initialized and all vertices of the graph will be
+     * marked as unvisited. Then for all unvisited vertices of the graph the
+     * method <tt>process(int)</tt> will be invoked. At last, processing will be
+     * finished.
+     *
+     * @param graph
+     *            A directed graph.
+     */
+    public void deepSearchFirst(final CompactGraph graph) {
+        final Vertex[] vertices = new Vertex[graph.getNumberOfGraphVertices()];
+        for (int i = 0; i < vertices.length; i++) {
+            vertices[i] = graph.getVertex(i);
+        }
+        initializeProcessing(vertices);
+        _graph = graph;
+        _visited = new boolean[graph.getNumberOfVertices()];
+        try {
+            for (int i = 0; i < vertices.length; i++) {
+                if (_visited[i] == false) {
+                    process(i);
+                }
             }
         }
-        finishProcessing(graph);
+        finally {
+            _graph = null;
+            _visited = null;
+        }
+        finishProcessing(vertices);
     }
 
-    /** Processes the specified vertex. */
-    protected void process(final Vertex vertex) {
-        vertex.visit();
-        processBefore(vertex);
-        for (int i = 0, n = vertex.getNumberOfOutgoingArcs(); i < n; i++) {
-            processArc(vertex, vertex.getHeadVertex(i));
+    /**
+     * Processes the vertex with the specified index in the compact graph of the
+     * current invocation of {@link #deepSearchFirst(CompactGraph)}.
+     */
+    protected void process(final int vertex) {
+        _visited[vertex] = true;
+        final Vertex v = _graph.getVertex(vertex);
+        processBefore(v);
+        for (int i = 0, n = _graph.getNumberOfOutgoingArcs(vertex); i < n; i++) {
+            processArc(v, _graph.getVertex(_graph.getHead(vertex, i)));
         }
-        processAfter(vertex);
+        processAfter(v);
+    }
+
+    /**
+     * Returns <tt>true</tt> if the vertex with the specified index has been
+     * visited in the current invocation of
+     * {@link #deepSearchFirst(CompactGraph)}.
+     */
+    protected boolean isVisited(final int vertex) {
+        return _visited[vertex];
     }
 
     /**
@@ -125,4 +166,4 @@ public abstract class GraphProcessor {
      * Finishes processing. Will be called in method {@link #deepSearchFirst}.
      */
     protected abstract void finishProcessing(Vertex[] graph);
-}
\ No newline at end of file
+}
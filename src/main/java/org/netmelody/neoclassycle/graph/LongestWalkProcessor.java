@@ -28,82 +28,249 @@
  */
 package org.netmelody.neoclassycle.graph;
 
-import java.util.Arrays;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.netmelody.neoclassycle.util.TaskRunner;
 
 /**
  * Calculates for each vertex the longest walk. This processor assumes that the
  * graph has no cycles.
+ * <p>
+ * The longest walks are calculated without recursion in reverse topological
+ * order, frontier by frontier: The first frontier contains all vertices
+ * without outgoing arcs. The next frontier contains all vertices whose last
+ * unprocessed head vertex is in the current frontier. The longest walk of a
+ * vertex is the number of the frontier it belongs to. Large frontiers are
+ * processed in parallel.
  *
  * @author Franz-Josef Elmer
  */
 public final class LongestWalkProcessor extends GraphProcessor {
-    /** Does nothing. */
-    @Override
-    protected void initializeProcessing(final Vertex[] graph) {
+    /** Minimum size of a frontier which is processed in parallel. */
+    static final int MINIMUM_PARALLEL_FRONTIER_SIZE = 20000;
+
+    private final int _numberOfThreads;
+
+    /** Creates an instance which processes graphs on the calling thread. */
+    public LongestWalkProcessor() {
+        this(1);
+    }
+
+    /**
+     * Creates an instance which processes large frontiers on the specified
+     * number of threads.
+     */
+    public LongestWalkProcessor(final int numberOfThreads) {
+        _numberOfThreads = numberOfThreads;
     }
 
     /**
-     * Resets the specified vertex.
+     * Calculates the longest walk of all vertices of the specified graph and
+     * sorts the graph in accordance with the walk length. Only arcs between
+     * vertices of the graph are taken into account.
      *
      * @throws IllegalArgumentException
-     *             if <tt>vertex</tt> is not an instance of
-     *             {@link StrongComponent}.
+     *             if a vertex is not an instance of {@link StrongComponent} or
+     *             if the graph has a cycle.
      */
     @Override
-    protected void processBefore(final Vertex vertex) {
-        final StrongComponent component = castAsStrongComponent(vertex);
-        component.setActive(true);
-        component.setLongestWalk(0);
+    public void deepSearchFirst(final Vertex[] graph) {
+        for (final Vertex vertex : graph) {
+            castAsStrongComponent(vertex);
+        }
+        deepSearchFirst(CompactGraph.create(graph));
+        sort(graph);
     }
 
     /**
-     * Processes arc from <tt>tail</tt> to <tt>head</tt>. Calculates the longest
-     * walk of <tt>tail</tt>.
+     * Calculates the longest walk of all vertices of the specified compact
+     * graph. In contrast to {@link #deepSearchFirst(Vertex[])} the graph can
+     * not be sorted because it is immutable. Use {@link #sort} instead.
      *
      * @throws IllegalArgumentException
-     *             if both vertices are not instances of {@link StrongComponent}
-     *             or if <tt>head</tt> is visited and active which indicates a
-     *             cycle in the graph.
+     *             if a vertex is not an instance of {@link StrongComponent} or
+     *             if the graph has a cycle.
      */
     @Override
-    protected void processArc(final Vertex tail, final Vertex head) {
-        final StrongComponent t = castAsStrongComponent(tail);
-        final StrongComponent h = castAsStrongComponent(head);
-        if (!h.isVisited()) {
-            process(h);
+    public void deepSearchFirst(final CompactGraph graph) {
+        final int numberOfVertices = graph.getNumberOfGraphVertices();
+        for (int i = 0; i < numberOfVertices; i++) {
+            castAsStrongComponent(graph.getVertex(i));
         }
-        else if (h.isActive()) {
-            // Oops! should never be happen if the graph has been created with StrongComponentProcessor
-            throw new IllegalArgumentException(h + " is not a strong component.");
+        final int[] longestWalks = calculateLongestWalks(graph);
+        for (int i = 0; i < numberOfVertices; i++) {
+            ((StrongComponent) graph.getVertex(i)).setLongestWalk(longestWalks[i]);
         }
-        t.setLongestWalk(Math.max(t.getLongestWalk(), 1 + h.getLongestWalk()));
     }
 
     /**
-     * Deactivate the specified vertex.
+     * Returns the longest walk of each vertex of the specified compact graph.
+     * Only arcs between vertices of the graph are taken into account. The
+     * vertices themselves are not used.
      *
+     * @return array indexed like the vertices of the graph.
      * @throws IllegalArgumentException
-     *             if <tt>vertex</tt> is not an instance of
-     *             {@link StrongComponent}.
+     *             if the graph has a cycle.
      */
-    @Override
-    protected void processAfter(final Vertex vertex) {
-        castAsStrongComponent(vertex).setActive(false);
+    public int[] calculateLongestWalks(final CompactGraph graph) {
+        final int numberOfVertices = graph.getNumberOfGraphVertices();
+        final int[] longestWalks = new int[numberOfVertices];
+        final AtomicIntegerArray numbersOfUnprocessedHeads = new AtomicIntegerArray(numberOfVertices);
+        int[] frontier = new int[numberOfVertices];
+        int frontierSize = 0;
+        for (int vertex = 0; vertex < numberOfVertices; vertex++) {
+            int numberOfHeads = 0;
+            for (int i = 0, n = graph.getNumberOfOutgoingArcs(vertex); i < n; i++) {
+                if (graph.getHead(vertex, i) < numberOfVertices) {
+                    numberOfHeads++;
+                }
+            }
+            numbersOfUnprocessedHeads.set(vertex, numberOfHeads);
+            if (numberOfHeads == 0) {
+                frontier[frontierSize++] = vertex;
+            }
+        }
+        if (frontierSize < frontier.length) {
+            frontier = copy(frontier, frontierSize);
+        }
+
+        int numberOfProcessedVertices = 0;
+        for (int walk = 0; frontier.length > 0; walk++) {
+            for (final int vertex : frontier) {
+                longestWalks[vertex] = walk;
+            }
+            numberOfProcessedVertices += frontier.length;
+            frontier = _numberOfThreads < 2 || frontier.length < MINIMUM_PARALLEL_FRONTIER_SIZE ? processFrontier(graph,
+                    frontier, 0, frontier.length, numbersOfUnprocessedHeads) : processFrontierInParallel(graph, frontier,
+                    numbersOfUnprocessedHeads);
+        }
+        if (numberOfProcessedVertices < numberOfVertices) {
+            for (int vertex = 0; vertex < numberOfVertices; vertex++) {
+                if (numbersOfUnprocessedHeads.get(vertex) > 0) {
+                    throw new IllegalArgumentException(graph.getVertex(vertex) + " is not a strong component.");
+                }
+            }
+        }
+        return longestWalks;
+    }
+
+    /**
+     * Returns the next frontier of the specified part of the frontier. That
+     * is, all tail vertices whose last unprocessed head vertex is in this
+     * part.
+     */
+    private static int[] processFrontier(final CompactGraph graph, final int[] frontier, final int from, final int to,
+            final AtomicIntegerArray numbersOfUnprocessedHeads) {
+        final int numberOfVertices = numbersOfUnprocessedHeads.length();
+        int[] result = new int[Math.max(16, to - from)];
+        int size = 0;
+        for (int j = from; j < to; j++) {
+            final int vertex = frontier[j];
+            for (int i = 0, n = graph.getNumberOfIncomingArcs(vertex); i < n; i++) {
+                final int tail = graph.getTail(vertex, i);
+                if (tail < numberOfVertices && numbersOfUnprocessedHeads.decrementAndGet(tail) == 0) {
+                    if (size == result.length) {
+                        result = copy(result, 2 * size);
+                    }
+                    result[size++] = tail;
+                }
+            }
+        }
+        return copy(result, size);
     }
 
     /**
-     * Finishes processing by sorting the result in accordance with the walk
-     * length.
+     * Processes equal parts of the specified frontier on all threads. The
+     * parts of the next frontier are concatenated in the order of the parts.
      */
+    private int[] processFrontierInParallel(final CompactGraph graph, final int[] frontier,
+            final AtomicIntegerArray numbersOfUnprocessedHeads) {
+        final List<Callable<int[]>> tasks = new ArrayList<Callable<int[]>>(_numberOfThreads);
+        for (int t = 0; t < _numberOfThreads; t++) {
+            final int from = (int) ((long) t * frontier.length / _numberOfThreads);
+            final int to = (int) ((long) (t + 1) * frontier.length / _numberOfThreads);
+            tasks.add(new Callable<int[]>() {
+                @Override
+                public int[] call() {
+                    return processFrontier(graph, frontier, from, to, numbersOfUnprocessedHeads);
+                }
+            });
+        }
+        final List<int[]> parts = TaskRunner.runUnchecked(tasks, _numberOfThreads);
+        int size = 0;
+        for (final int[] part : parts) {
+            size += part.length;
+        }
+        final int[] result = new int[size];
+        size = 0;
+        for (final int[] part : parts) {
+            System.arraycopy(part, 0, result, size, part.length);
+            size += part.length;
+        }
+        return result;
+    }
+
+    private static int[] copy(final int[] array, final int length) {
+        final int[] result = new int[length];
+        System.arraycopy(array, 0, result, 0, Math.min(length, array.length));
+        return result;
+    }
+
+    /**
+     * Sorts the specified strong components in accordance with their longest
+     * walk. The sort is stable. It is a counting sort, thus linear in the
+     * number of components.
+     */
+    public static void sort(final Vertex[] graph) {
+        if (graph.length == 0) {
+            return;
+        }
+        int minimumWalk = Integer.MAX_VALUE;
+        int maximumWalk = Integer.MIN_VALUE;
+        for (final Vertex vertex : graph) {
+            final int walk = ((StrongComponent) vertex).getLongestWalk();
+            minimumWalk = Math.min(minimumWalk, walk);
+            maximumWalk = Math.max(maximumWalk, walk);
+        }
+        final int[] positions = new int[maximumWalk - minimumWalk + 2];
+        for (final Vertex vertex : graph) {
+            positions[((StrongComponent) vertex).getLongestWalk() - minimumWalk + 1]++;
+        }
+        for (int i = 1; i < positions.length; i++) {
+            positions[i] += positions[i - 1];
+        }
+        final Vertex[] vertices = graph.clone();
+        for (final Vertex vertex : vertices) {
+            graph[positions[((StrongComponent) vertex).getLongestWalk() - minimumWalk]++] = vertex;
+        }
+    }
+
+    /** Not used because the longest walks are not calculated recursively. */
+    @Override
+    protected void initializeProcessing(final Vertex[] graph) {
+    }
+
+    /** Not used because the longest walks are not calculated recursively. */
+    @Override
+    protected void processBefore(final Vertex vertex) {
+    }
+
+    /** Not used because the longest walks are not calculated recursively. */
+    @Override
+    protected void processArc(final Vertex tail, final Vertex head) {
+    }
+
+    /** Not used because the longest walks are not calculated recursively. */
+    @Override
+    protected void processAfter(final Vertex vertex) {
+    }
+
+    /** Not used because the longest walks are not calculated recursively. */
     @Override
     protected void finishProcessing(final Vertex[] graph) {
-        Arrays.sort(graph, new Comparator<Vertex>() {
-            @Override
-            public int compare(final Vertex obj1, final Vertex obj2) {
-                return ((StrongComponent) obj1).getLongestWalk() - ((StrongComponent) obj2).getLongestWalk();
-            }
-        });
     }
 
     /**
@@ -119,4 +286,4 @@ public final class LongestWalkProcessor extends GraphProcessor {
         }
         throw new IllegalArgumentException(vertex + " is not an instance of StrongComponent");
     }
-}
\ No newline at end of file
+}
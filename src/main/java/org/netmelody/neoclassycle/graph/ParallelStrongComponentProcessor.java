@@ -0,0 +1,517 @@
+/*
+ * Copyright (c) 2012 Tom Denley
+ * This file incorporates work covered by the following copyright and
+ * permission notice:
+ *
+ * Copyright (c) 2003-2008, Franz-Josef Elmer, All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.netmelody.neoclassycle.graph;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.netmelody.neoclassycle.util.TaskRunner;
+
+/**
+ * Extracts the strong components of a {@link CompactGraph} on several
+ * threads. First, vertices without incoming or outgoing arcs are trimmed
+ * repeatedly. Each of them is a strong component of its own. The remaining
+ * vertices are decomposed by the forward-backward algorithm: The strong
+ * component of a pivot vertex is the intersection of the vertices reachable
+ * from the pivot and the vertices the pivot is reachable from. All other
+ * vertices fall into three sets without common strong components. These sets
+ * are decomposed in parallel. Sets smaller than the threshold are decomposed by
+ * Tarjan's algorithm of {@link StrongComponentProcessor}.
+ * <p>
+ * The result contains the same strong components as the result of
+ * {@link StrongComponentProcessor}. The components are in reverse topological
+ * order. That is, there is no arc from a component to a component with a
+ * higher index. The vertices of a component are in the order of their indices.
+ * Graphs smaller than the threshold and single-threaded processing are
+ * delegated to {@link StrongComponentProcessor}. In this case the order is the
+ * same as of {@link StrongComponentProcessor}.
+ */
+public final class ParallelStrongComponentProcessor {
+    /** Default of the minimum number of vertices processed in parallel. */
+    public static final int DEFAULT_THRESHOLD = 10000;
+
+    private final boolean _calculateAttributes;
+    private final int _numberOfThreads;
+    private final int _threshold;
+    private StrongComponent[] _graph;
+    private CompactGraph _condensedGraph;
+    private int[] _componentIndices;
+
+    /**
+     * Creates an instance with the default threshold.
+     *
+     * @param calculateAttributes
+     *            If <tt>true</tt> the attributes of the strong components will
+     *            be calculated. Otherwise they are calculated when they are
+     *            accessed the first time.
+     * @param numberOfThreads
+     *            Number of worker threads.
+     */
+    public ParallelStrongComponentProcessor(final boolean calculateAttributes, final int numberOfThreads) {
+        this(calculateAttributes, numberOfThreads, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Creates an instance.
+     *
+     * @param calculateAttributes
+     *            If <tt>true</tt> the attributes of the strong components will
+     *            be calculated. Otherwise they are calculated when they are
+     *            accessed the first time.
+     * @param numberOfThreads
+     *            Number of worker threads. If less than two the graph is
+     *            processed by {@link StrongComponentProcessor}.
+     * @param threshold
+     *            Graphs and sets of vertices with less vertices are processed
+     *            sequentially by Tarjan's algorithm.
+     */
+    public ParallelStrongComponentProcessor(final boolean calculateAttributes, final int numberOfThreads, final int threshold) {
+        _calculateAttributes = calculateAttributes;
+        _numberOfThreads = numberOfThreads;
+        _threshold = Math.max(1, threshold);
+    }
+
+    /** Returns the strong components found by {@link #process}. */
+    public StrongComponent[] getStrongComponents() {
+        return _graph;
+    }
+
+    /**
+     * Returns the result of {@link #process} as a compact graph. The vertices
+     * are the strong components in the same order as in
+     * {@link #getStrongComponents()}.
+     *
+     * @return <tt>null</tt> before processing.
+     */
+    public CompactGraph getCondensedGraph() {
+        return _condensedGraph;
+    }
+
+    /**
+     * Returns for each graph vertex of the processed compact graph the index
+     * of its strong component in {@link #getStrongComponents()}.
+     *
+     * @return <tt>null</tt> before processing.
+     */
+    public int[] getComponentIndices() {
+        return _componentIndices;
+    }
+
+    /**
+     * Extracts the strong components of the specified graph. Same as
+     * {@link StrongComponentProcessor#deepSearchFirst(CompactGraph)} except
+     * for the order of the components and their vertices.
+     *
+     * @throws IllegalArgumentException
+     *             if a vertex of the graph is not an instance of
+     *             {@link AtomicVertex}.
+     */
+    public void process(final CompactGraph graph) {
+        if (_numberOfThreads < 2 || graph.getNumberOfGraphVertices() < _threshold) {
+            final StrongComponentProcessor processor = new StrongComponentProcessor(false);
+            processor.deepSearchFirst(graph);
+            _graph = processor.getStrongComponents();
+            _condensedGraph = processor.getCondensedGraph();
+            _componentIndices = processor.getComponentIndices();
+            calculateAttributes();
+            return;
+        }
+        final boolean[] graphVertices = StrongComponentProcessor.getGraphVertexFlags(graph);
+        final Decomposition decomposition = new Decomposition(graph, graphVertices);
+        decomposition.trim();
+        decomposition.decompose();
+        final int[] components = decomposition.getComponents();
+        final int numberOfComponents = decomposition.getNumberOfComponents();
+        final int[] members = new int[graphVertices.length];
+        final int[] componentOffsets = new int[numberOfComponents + 1];
+        groupByComponent(components, numberOfComponents, members, componentOffsets);
+        final int[] order = sortTopologically(graph, graphVertices, components, numberOfComponents, members, componentOffsets);
+        for (int i = 0; i < components.length; i++) {
+            components[i] = order[components[i]];
+        }
+        groupByComponent(components, numberOfComponents, members, componentOffsets);
+
+        _graph = StrongComponentProcessor.createStrongComponents(graph, members, componentOffsets, numberOfComponents);
+        _componentIndices = components;
+        calculateAttributes();
+        _condensedGraph = StrongComponentProcessor.createCondensedGraph(graph, graphVertices, _graph, components, members,
+                                                                        componentOffsets);
+    }
+
+    /**
+     * Calculates the attributes of the strong components if requested. The
+     * maximum fragment sizes of large components are calculated in parallel.
+     */
+    private void calculateAttributes() {
+        if (_calculateAttributes) {
+            for (final StrongComponent component : _graph) {
+                component.calculateAttributes(_numberOfThreads);
+            }
+        }
+    }
+
+    /**
+     * Stores the vertices of each component consecutively in <tt>members</tt>
+     * in the order of their indices.
+     */
+    private static void groupByComponent(final int[] components, final int numberOfComponents, final int[] members,
+            final int[] componentOffsets) {
+        Arrays.fill(componentOffsets, 0);
+        for (final int component : components) {
+            componentOffsets[component + 1]++;
+        }
+        for (int c = 0; c < numberOfComponents; c++) {
+            componentOffsets[c + 1] += componentOffsets[c];
+        }
+        final int[] positions = new int[numberOfComponents];
+        System.arraycopy(componentOffsets, 0, positions, 0, numberOfComponents);
+        for (int i = 0; i < components.length; i++) {
+            members[positions[components[i]]++] = i;
+        }
+    }
+
+    /**
+     * Returns for each component its index in a reverse topological order.
+     * The order is the post-order of a non-recursive deep search first of the
+     * condensed graph which starts at the components in the order of their
+     * smallest vertex.
+     */
+    private static int[] sortTopologically(final CompactGraph graph, final boolean[] graphVertices, final int[] components,
+            final int numberOfComponents, final int[] members, final int[] componentOffsets) {
+        final int[] order = new int[numberOfComponents];
+        final boolean[] visited = new boolean[numberOfComponents];
+        final int[] frameComponents = new int[numberOfComponents];
+        final int[] frameMembers = new int[numberOfComponents];
+        final int[] frameArcs = new int[numberOfComponents];
+        int numberOfOrderedComponents = 0;
+        for (int root = 0; root < components.length; root++) {
+            if (visited[components[root]]) {
+                continue;
+            }
+            int depth = 0;
+            visited[components[root]] = true;
+            frameComponents[0] = components[root];
+            frameMembers[0] = componentOffsets[components[root]];
+            frameArcs[0] = 0;
+            while (depth >= 0) {
+                final int component = frameComponents[depth];
+                int nextComponent = -1;
+                while (nextComponent < 0 && frameMembers[depth] < componentOffsets[component + 1]) {
+                    final int vertex = members[frameMembers[depth]];
+                    if (frameArcs[depth] < graph.getNumberOfOutgoingArcs(vertex)) {
+                        final int head = graph.getHead(vertex, frameArcs[depth]++);
+                        if (head < graphVertices.length && graphVertices[head] && visited[components[head]] == false) {
+                            nextComponent = components[head];
+                        }
+                    }
+                    else {
+                        frameMembers[depth]++;
+                        frameArcs[depth] = 0;
+                    }
+                }
+                if (nextComponent < 0) {
+                    order[component] = numberOfOrderedComponents++;
+                    depth--;
+                }
+                else {
+                    visited[nextComponent] = true;
+                    depth++;
+                    frameComponents[depth] = nextComponent;
+                    frameMembers[depth] = componentOffsets[nextComponent];
+                    frameArcs[depth] = 0;
+                }
+            }
+        }
+        return order;
+    }
+
+    /**
+     * State of the parallel decomposition. Each task owns a set of vertices
+     * labeled by a unique number in <tt>_partitions</tt>. A task only writes
+     * array elements of its own vertices. Thus tasks do not need to be
+     * synchronized.
+     */
+    private final class Decomposition {
+        private final CompactGraph _graph;
+        private final boolean[] _graphVertices;
+        private final int[] _components;
+        private final int[] _partitions;
+        private final int[] _forwardMarks;
+        private final int[] _backwardMarks;
+        private final int[] _localIndices;
+        private final AtomicInteger _numberOfComponents = new AtomicInteger();
+        private final AtomicInteger _numberOfLabels = new AtomicInteger();
+        private final AtomicInteger _numberOfPendingTasks = new AtomicInteger();
+        private final CountDownLatch _finished = new CountDownLatch(1);
+        private volatile Throwable _failure;
+        private ExecutorService _executor;
+
+        Decomposition(final CompactGraph graph, final boolean[] graphVertices) {
+            _graph = graph;
+            _graphVertices = graphVertices;
+            final int numberOfVertices = graphVertices.length;
+            _components = new int[numberOfVertices];
+            Arrays.fill(_components, -1);
+            _partitions = new int[numberOfVertices];
+            _forwardMarks = new int[numberOfVertices];
+            _backwardMarks = new int[numberOfVertices];
+            _localIndices = new int[numberOfVertices];
+        }
+
+        int[] getComponents() {
+            return _components;
+        }
+
+        int getNumberOfComponents() {
+            return _numberOfComponents.get();
+        }
+
+        private boolean isHead(final int vertex) {
+            return vertex < _graphVertices.length && _graphVertices[vertex];
+        }
+
+        /**
+         * Assigns a component of its own to all vertices without incoming or
+         * outgoing arcs. This is repeated for the remaining graph.
+         */
+        void trim() {
+            final int numberOfVertices = _graphVertices.length;
+            final int[] inDegrees = new int[numberOfVertices];
+            final int[] outDegrees = new int[numberOfVertices];
+            for (int vertex = 0; vertex < numberOfVertices; vertex++) {
+                for (int i = 0, n = _graph.getNumberOfOutgoingArcs(vertex); i < n; i++) {
+                    final int head = _graph.getHead(vertex, i);
+                    if (isHead(head)) {
+                        outDegrees[vertex]++;
+                        inDegrees[head]++;
+                    }
+                }
+            }
+            final int[] queue = new int[numberOfVertices];
+            int queueSize = 0;
+            for (int vertex = 0; vertex < numberOfVertices; vertex++) {
+                if (inDegrees[vertex] == 0 || outDegrees[vertex] == 0) {
+                    _components[vertex] = _numberOfComponents.getAndIncrement();
+                    queue[queueSize++] = vertex;
+                }
+            }
+            for (int q = 0; q < queueSize; q++) {
+                final int vertex = queue[q];
+                for (int i = 0, n = _graph.getNumberOfOutgoingArcs(vertex); i < n; i++) {
+                    final int head = _graph.getHead(vertex, i);
+                    if (isHead(head) && _components[head] < 0 && --inDegrees[head] == 0) {
+                        _components[head] = _numberOfComponents.getAndIncrement();
+                        queue[queueSize++] = head;
+                    }
+                }
+                if (_graphVertices[vertex]) {
+                    for (int i = 0, n = _graph.getNumberOfIncomingArcs(vertex); i < n; i++) {
+                        final int tail = _graph.getTail(vertex, i);
+                        if (tail < numberOfVertices && _components[tail] < 0 && --outDegrees[tail] == 0) {
+                            _components[tail] = _numberOfComponents.getAndIncrement();
+                            queue[queueSize++] = tail;
+                        }
+                    }
+                }
+            }
+        }
+
+        /** Decomposes all vertices which have not been trimmed. */
+        void decompose() {
+            int numberOfRemainingVertices = 0;
+            for (final int component : _components) {
+                if (component < 0) {
+                    numberOfRemainingVertices++;
+                }
+            }
+            if (numberOfRemainingVertices == 0) {
+                return;
+            }
+            final int[] vertices = new int[numberOfRemainingVertices];
+            final int label = _numberOfLabels.incrementAndGet();
+            for (int i = 0, j = 0; i < _components.length; i++) {
+                if (_components[i] < 0) {
+                    _partitions[i] = label;
+                    vertices[j++] = i;
+                }
+            }
+            _executor = TaskRunner.createPool(_numberOfThreads);
+            try {
+                submit(vertices, label);
+                _finished.await();
+            }
+            catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while searching strong components.");
+            }
+            finally {
+                _executor.shutdownNow();
+            }
+            if (_failure instanceof RuntimeException) {
+                throw (RuntimeException) _failure;
+            }
+            if (_failure instanceof Error) {
+                throw (Error) _failure;
+            }
+        }
+
+        private void submit(final int[] vertices, final int label) {
+            _numberOfPendingTasks.incrementAndGet();
+            _executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (_failure == null) {
+                            decompose(vertices, label);
+                        }
+                    }
+                    catch (final Throwable e) {
+                        _failure = e;
+                    }
+                    finally {
+                        if (_numberOfPendingTasks.decrementAndGet() == 0) {
+                            _finished.countDown();
+                        }
+                    }
+                }
+            });
+        }
+
+        /** Decomposes the specified vertices. They are labeled by <tt>label</tt>. */
+        private void decompose(final int[] vertices, final int label) {
+            if (vertices.length < _threshold) {
+                decomposeSequentially(vertices, label);
+                return;
+            }
+            final int[] queue = new int[vertices.length];
+            final int pivot = vertices[0];
+            _forwardMarks[pivot] = label;
+            queue[0] = pivot;
+            for (int q = 0, queueSize = 1; q < queueSize; q++) {
+                final int vertex = queue[q];
+                for (int i = 0, n = _graph.getNumberOfOutgoingArcs(vertex); i < n; i++) {
+                    final int head = _graph.getHead(vertex, i);
+                    if (head < _partitions.length && _partitions[head] == label && _forwardMarks[head] != label) {
+                        _forwardMarks[head] = label;
+                        queue[queueSize++] = head;
+                    }
+                }
+            }
+            _backwardMarks[pivot] = label;
+            queue[0] = pivot;
+            for (int q = 0, queueSize = 1; q < queueSize; q++) {
+                final int vertex = queue[q];
+                for (int i = 0, n = _graph.getNumberOfIncomingArcs(vertex); i < n; i++) {
+                    final int tail = _graph.getTail(vertex, i);
+                    if (tail < _partitions.length && _partitions[tail] == label && _backwardMarks[tail] != label) {
+                        _backwardMarks[tail] = label;
+                        queue[queueSize++] = tail;
+                    }
+                }
+            }
+
+            final int component = _numberOfComponents.getAndIncrement();
+            final int[] sizes = new int[3];
+            for (final int vertex : vertices) {
+                final boolean forward = _forwardMarks[vertex] == label;
+                final boolean backward = _backwardMarks[vertex] == label;
+                if (forward && backward) {
+                    _components[vertex] = component;
+                    _partitions[vertex] = 0;
+                }
+                else {
+                    sizes[forward ? 0 : backward ? 1 : 2]++;
+                }
+            }
+            final int[][] subsets = new int[3][];
+            final int[] labels = new int[3];
+            for (int i = 0; i < 3; i++) {
+                subsets[i] = new int[sizes[i]];
+                labels[i] = _numberOfLabels.incrementAndGet();
+                sizes[i] = 0;
+            }
+            for (final int vertex : vertices) {
+                if (_partitions[vertex] == label) {
+                    final int i = _forwardMarks[vertex] == label ? 0 : _backwardMarks[vertex] == label ? 1 : 2;
+                    subsets[i][sizes[i]++] = vertex;
+                    _partitions[vertex] = labels[i];
+                }
+            }
+            for (int i = 0; i < 3; i++) {
+                if (subsets[i].length > 0) {
+                    submit(subsets[i], labels[i]);
+                }
+            }
+        }
+
+        /**
+         * Decomposes the specified vertices by Tarjan's algorithm applied to
+         * the subgraph of these vertices.
+         */
+        private void decomposeSequentially(final int[] vertices, final int label) {
+            for (int i = 0; i < vertices.length; i++) {
+                _localIndices[vertices[i]] = i;
+            }
+            int numberOfArcs = 0;
+            for (final int vertex : vertices) {
+                for (int i = 0, n = _graph.getNumberOfOutgoingArcs(vertex); i < n; i++) {
+                    final int head = _graph.getHead(vertex, i);
+                    if (head < _partitions.length && _partitions[head] == label) {
+                        numberOfArcs++;
+                    }
+                }
+            }
+            final int[] offsets = new int[vertices.length + 1];
+            final int[] heads = new int[numberOfArcs];
+            numberOfArcs = 0;
+            for (int j = 0; j < vertices.length; j++) {
+                offsets[j] = numberOfArcs;
+                final int vertex = vertices[j];
+                for (int i = 0, n = _graph.getNumberOfOutgoingArcs(vertex); i < n; i++) {
+                    final int head = _graph.getHead(vertex, i);
+                    if (head < _partitions.length && _partitions[head] == label) {
+                        heads[numberOfArcs++] = _localIndices[head];
+                    }
+                }
+            }
+            offsets[vertices.length] = numberOfArcs;
+            final StrongComponentSearch search = new StrongComponentSearch(new CompactGraph(new Vertex[vertices.length],
+                    vertices.length, offsets, heads), vertices.length);
+            search.run(null);
+            final int firstComponent = _numberOfComponents.getAndAdd(search.getNumberOfComponents());
+            final int[] components = search.getComponents();
+            for (int i = 0; i < vertices.length; i++) {
+                _components[vertices[i]] = firstComponent + components[i];
+                _partitions[vertices[i]] = 0;
+            }
+        }
+    }
+}
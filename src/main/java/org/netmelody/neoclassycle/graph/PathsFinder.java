@@ -28,15 +28,29 @@
  */
 package org.netmelody.neoclassycle.graph;
 
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.BitSet;
 
 /**
  * Class searching for all (or only the shortest) paths between classes of a
  * start set and classes of a final set.
+ * <p>
+ * The search works on the vertex indices of a {@link CompactGraph}. The
+ * vertices are not modified. Paths are found by a depth first search from each
+ * start vertex in the order of the indices. Path lengths calculated by a
+ * search are reused by later searches, thus each vertex is searched only once
+ * and the search takes time linear in the number of vertices and arcs of the
+ * graph. Vertices which reach the final set only through the current path
+ * (i.e.&nbsp;detours) are not path vertices. Because of the reuse this depends
+ * on the order of the start vertices. If only the shortest paths are
+ * requested, the path vertices are followed only along arcs which shorten the
+ * path length by one.
  *
  * @author Franz-Josef Elmer
  */
 public final class PathsFinder {
+    private static final int NO_PATH = Integer.MAX_VALUE;
+
     private final VertexCondition _startSetCondition;
     private final VertexCondition _finalSetCondition;
     private final boolean _shortestPathsOnly;
@@ -98,98 +112,227 @@ public final class PathsFinder {
      *         subgraph with all paths.
      */
     public AtomicVertex[] findPaths(final AtomicVertex[] graph) {
-        prepareGraph(graph);
-        final HashSet<Vertex> pathVertices = new HashSet<Vertex>();
-        final HashSet<Vertex> currentPath = new HashSet<Vertex>();
-        for (final AtomicVertex vertex : graph) {
-            if (_startSetCondition.isFulfilled(vertex)) {
-                if (_directPathsOnly) {
-                    findDirectPaths(vertex, pathVertices);
-                }
-                else {
-                    prepareIfFinal(vertex);
-                    final int pathLength = calculateShortestPath(vertex, currentPath);
-                    if (pathLength < Integer.MAX_VALUE) {
-                        vertex.setOrder(pathLength);
-                        followPaths(vertex, pathVertices);
-                    }
-                }
-            }
-        }
-        return pathVertices.toArray(new AtomicVertex[pathVertices.size()]);
+        return findPaths(CompactGraph.create(graph));
+    }
+
+    /**
+     * Finds all paths from the specified start vertices to the vertices
+     * fullfilling the specified condition. Same as
+     * {@link #findPaths(AtomicVertex[])} for the vertices of the compact graph.
+     * The conditions are evaluated only once per vertex.
+     *
+     * @param graph
+     *            Complete graph. All vertices have to be instances of
+     *            {@link AtomicVertex}.
+     * @return All vertices including start and end vertices defining the
+     *         subgraph with all paths in the order of their indices.
+     */
+    public AtomicVertex[] findPaths(final CompactGraph graph) {
+        return findPaths(graph, getVertices(graph, _startSetCondition), getVertices(graph, _finalSetCondition));
     }
 
-    private void findDirectPaths(final AtomicVertex vertex, final HashSet<Vertex> pathVertices) {
-        if (_finalSetCondition.isFulfilled(vertex)) {
-            pathVertices.add(vertex);
+    /**
+     * Finds all paths between the specified sets of vertices. The conditions
+     * of this instance are not used. Thus sets which are used for several
+     * searches have to be evaluated only once, see
+     * {@link #getVertices(CompactGraph, VertexCondition)}.
+     *
+     * @param graph
+     *            Complete graph. All vertices have to be instances of
+     *            {@link AtomicVertex}.
+     * @param startVertices
+     *            Indices of the vertices of the start set. Only vertices of
+     *            the graph are the start of paths.
+     * @param finalVertices
+     *            Indices of the vertices of the final set.
+     * @return All vertices including start and end vertices defining the
+     *         subgraph with all paths in the order of their indices.
+     */
+    public AtomicVertex[] findPaths(final CompactGraph graph, final BitSet startVertices, final BitSet finalVertices) {
+        BitSet pathVertices = null;
+        if (_directPathsOnly) {
+            pathVertices = findDirectPaths(graph, startVertices, finalVertices);
         }
         else {
-            for (int i = 0, n = vertex.getNumberOfOutgoingArcs(); i < n; i++) {
-                final Vertex headVertex = vertex.getHeadVertex(i);
-                if (_finalSetCondition.isFulfilled(headVertex)) {
-                    pathVertices.add(vertex);
-                    pathVertices.add(headVertex);
-                }
-            }
+            pathVertices = new PathsSearch(graph, startVertices, finalVertices, _shortestPathsOnly).findPaths();
         }
+        return toVertices(graph, pathVertices);
     }
 
-    private void prepareGraph(final AtomicVertex[] graph) {
-        for (final AtomicVertex vertex : graph) {
-            prepareVertex(vertex);
-            for (int j = 0, n = vertex.getNumberOfOutgoingArcs(); j < n; j++) {
-                prepareVertex((AtomicVertex) vertex.getHeadVertex(j));
+    /**
+     * Returns the vertices of the specified graph with the specified indices
+     * in the order of their indices.
+     */
+    public static AtomicVertex[] toVertices(final CompactGraph graph, final BitSet indices) {
+        final AtomicVertex[] result = new AtomicVertex[indices.cardinality()];
+        for (int i = indices.nextSetBit(0), j = 0; i >= 0; i = indices.nextSetBit(i + 1)) {
+            result[j++] = (AtomicVertex) graph.getVertex(i);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the indices of all vertices of the specified graph (including
+     * vertices not in the graph) which fulfill the specified condition.
+     */
+    public static BitSet getVertices(final CompactGraph graph, final VertexCondition condition) {
+        final int numberOfVertices = graph.getNumberOfVertices();
+        final BitSet result = new BitSet(numberOfVertices);
+        for (int i = 0; i < numberOfVertices; i++) {
+            if (condition.isFulfilled(graph.getVertex(i))) {
+                result.set(i);
             }
         }
+        return result;
     }
 
-    private void prepareVertex(final AtomicVertex vertex) {
-        vertex.reset();
-        vertex.setOrder(Integer.MAX_VALUE);
-        if (_startSetCondition.isFulfilled(vertex)) {
-            vertex.visit();
+    private static BitSet findDirectPaths(final CompactGraph graph, final BitSet startVertices, final BitSet finalVertices) {
+        final BitSet pathVertices = new BitSet(graph.getNumberOfVertices());
+        final int numberOfGraphVertices = graph.getNumberOfGraphVertices();
+        for (int vertex = startVertices.nextSetBit(0); vertex >= 0 && vertex < numberOfGraphVertices; vertex = startVertices
+                .nextSetBit(vertex + 1)) {
+            if (finalVertices.get(vertex)) {
+                pathVertices.set(vertex);
+            }
+            else {
+                for (int i = 0, n = graph.getNumberOfOutgoingArcs(vertex); i < n; i++) {
+                    final int head = graph.getHead(vertex, i);
+                    if (finalVertices.get(head)) {
+                        pathVertices.set(vertex);
+                        pathVertices.set(head);
+                    }
+                }
+            }
         }
+        return pathVertices;
     }
 
-    private int calculateShortestPath(final AtomicVertex vertex, final HashSet<Vertex> currentPath) {
-        currentPath.add(vertex);
-        int shortestPath = Integer.MAX_VALUE;
-        for (int i = 0, n = vertex.getNumberOfOutgoingArcs(); i < n; i++) {
-            final AtomicVertex nextVertex = (AtomicVertex) vertex.getHeadVertex(i);
-            prepareIfFinal(nextVertex);
-            int pathLength = _startSetCondition.isFulfilled(nextVertex) ? Integer.MAX_VALUE : nextVertex.getOrder();
-            if (!currentPath.contains(nextVertex) && !nextVertex.isVisited()) {
-                pathLength = calculateShortestPath(nextVertex, currentPath);
-                nextVertex.setOrder(pathLength);
-                nextVertex.visit();
+    /**
+     * State of a search for all (or only the shortest) paths. The depth first
+     * searches are done
+     * without recursion on an explicit stack. Each vertex is on the stack at
+     * most once.
+     */
+    private static final class PathsSearch {
+        private final CompactGraph _graph;
+        private final BitSet _startVertices;
+        private final BitSet _finalVertices;
+        private final boolean _shortestPathsOnly;
+        /** Vertices whose path length is known. */
+        private final BitSet _visited;
+        private final BitSet _currentPath;
+        /** Length of the path of each vertex into the final set. */
+        private final int[] _orders;
+        private final int[] _stack;
+        /** Index of the next outgoing arc of each vertex on the stack. */
+        private final int[] _arcIndices;
+        /** Shortest path length found so far of each vertex on the stack. */
+        private final int[] _shortestPaths;
+
+        PathsSearch(final CompactGraph graph, final BitSet startVertices, final BitSet finalVertices, final boolean shortestPathsOnly) {
+            _graph = graph;
+            _startVertices = startVertices;
+            _finalVertices = finalVertices;
+            _shortestPathsOnly = shortestPathsOnly;
+            final int numberOfVertices = graph.getNumberOfVertices();
+            _visited = (BitSet) startVertices.clone();
+            _currentPath = new BitSet(numberOfVertices);
+            _orders = new int[numberOfVertices];
+            Arrays.fill(_orders, NO_PATH);
+            _stack = new int[numberOfVertices];
+            _arcIndices = new int[numberOfVertices];
+            _shortestPaths = new int[numberOfVertices];
+        }
+
+        BitSet findPaths() {
+            final BitSet pathVertices = new BitSet(_graph.getNumberOfVertices());
+            final int numberOfGraphVertices = _graph.getNumberOfGraphVertices();
+            for (int vertex = _startVertices.nextSetBit(0); vertex >= 0 && vertex < numberOfGraphVertices; vertex = _startVertices
+                    .nextSetBit(vertex + 1)) {
+                prepareIfFinal(vertex);
+                final int pathLength = calculateShortestPath(vertex);
+                if (pathLength < NO_PATH) {
+                    _orders[vertex] = pathLength;
+                    followPaths(vertex, pathVertices);
+                }
             }
-            shortestPath = Math.min(shortestPath, pathLength);
+            return pathVertices;
         }
-        currentPath.remove(vertex);
-        if (shortestPath < Integer.MAX_VALUE) {
-            shortestPath++;
+
+        private void prepareIfFinal(final int vertex) {
+            if (_finalVertices.get(vertex)) {
+                _visited.set(vertex);
+                _orders[vertex] = 0;
+            }
         }
-        return shortestPath;
-    }
 
-    private void prepareIfFinal(final AtomicVertex vertex) {
-        if (_finalSetCondition.isFulfilled(vertex)) {
-            vertex.visit();
-            vertex.setOrder(0);
+        /**
+         * Returns the length of the shortest path from the specified vertex
+         * into the final set which does not pass a vertex of the current path
+         * or a start vertex. The path lengths of all vertices searched are
+         * stored.
+         */
+        private int calculateShortestPath(final int start) {
+            int size = 0;
+            _stack[size++] = start;
+            _currentPath.set(start);
+            _arcIndices[start] = 0;
+            _shortestPaths[start] = NO_PATH;
+            while (true) {
+                final int vertex = _stack[size - 1];
+                final int arcIndex = _arcIndices[vertex];
+                if (arcIndex < _graph.getNumberOfOutgoingArcs(vertex)) {
+                    _arcIndices[vertex] = arcIndex + 1;
+                    final int head = _graph.getHead(vertex, arcIndex);
+                    prepareIfFinal(head);
+                    if (_currentPath.get(head) == false && _visited.get(head) == false) {
+                        _stack[size++] = head;
+                        _currentPath.set(head);
+                        _arcIndices[head] = 0;
+                        _shortestPaths[head] = NO_PATH;
+                    }
+                    else {
+                        final int pathLength = _startVertices.get(head) ? NO_PATH : _orders[head];
+                        _shortestPaths[vertex] = Math.min(_shortestPaths[vertex], pathLength);
+                    }
+                    continue;
+                }
+                size--;
+                _currentPath.clear(vertex);
+                final int pathLength = _shortestPaths[vertex] < NO_PATH ? _shortestPaths[vertex] + 1 : NO_PATH;
+                if (size == 0) {
+                    return pathLength;
+                }
+                _orders[vertex] = pathLength;
+                _visited.set(vertex);
+                final int tail = _stack[size - 1];
+                _shortestPaths[tail] = Math.min(_shortestPaths[tail], pathLength);
+            }
         }
-    }
 
-    private void followPaths(final AtomicVertex vertex, final HashSet<Vertex> pathVertices) {
-        pathVertices.add(vertex);
-        final int shortestPathLength = vertex.getOrder() - 1;
-        for (int i = 0, n = vertex.getNumberOfOutgoingArcs(); i < n; i++) {
-            final AtomicVertex nextVertex = (AtomicVertex) vertex.getHeadVertex(i);
-            final int pathLength = nextVertex.getOrder();
-            if (pathLength < Integer.MAX_VALUE && !pathVertices.contains(nextVertex)) {
-                if (!_shortestPathsOnly || pathLength == shortestPathLength) {
-                    pathVertices.add(nextVertex);
-                    if (pathLength > 0) {
-                        followPaths(nextVertex, pathVertices);
+        /**
+         * Adds all vertices to the specified path vertices which can be
+         * reached from the specified vertex via vertices with a path into the
+         * final set. Vertices of the final set are not passed. If only the
+         * shortest paths are requested, the path length of the head of a
+         * followed arc has to be the one of its tail minus one.
+         */
+        private void followPaths(final int start, final BitSet pathVertices) {
+            pathVertices.set(start);
+            int size = 0;
+            _stack[size++] = start;
+            while (size > 0) {
+                final int vertex = _stack[--size];
+                final int shortestPathLength = _orders[vertex] - 1;
+                for (int i = 0, n = _graph.getNumberOfOutgoingArcs(vertex); i < n; i++) {
+                    final int head = _graph.getHead(vertex, i);
+                    final int pathLength = _orders[head];
+                    if (pathLength < NO_PATH && pathVertices.get(head) == false
+                            && (_shortestPathsOnly == false || pathLength == shortestPathLength)) {
+                        pathVertices.set(head);
+                        if (pathLength > 0) {
+                            _stack[size++] = head;
+                        }
                     }
                 }
             }
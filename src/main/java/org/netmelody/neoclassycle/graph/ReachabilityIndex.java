@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2012 Tom Denley
+ * This file incorporates work covered by the following copyright and
+ * permission notice:
+ *
+ * Copyright (c) 2003-2008, Franz-Josef Elmer, All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.netmelody.neoclassycle.graph;
+
+import java.util.BitSet;
+
+/**
+ * Index answering whether a set of vertices of a {@link CompactGraph} can
+ * reach another set of vertices. It is built once per graph in linear time
+ * and can be queried many times.
+ * <p>
+ * All vertices of the compact graph including the vertices not in the graph
+ * are condensed into their strong components. Each component is labeled by
+ * two intervals of post-order numbers of depth first searches of the
+ * condensed graph, one following the arcs in forward and one in backward
+ * order. If a component reaches another one then the other's intervals are
+ * contained in its own intervals. Thus most queries without path are answered
+ * by the labels alone. Otherwise a breadth first search of the condensed graph
+ * decides, which skips all components whose intervals do not contain a
+ * component of the target set.
+ * <p>
+ * Instances are immutable and can be shared by several threads.
+ */
+public final class ReachabilityIndex {
+    private static final int NUMBER_OF_LABELINGS = 2;
+
+    private final int[] _components;
+    private final int _numberOfComponents;
+    private final int[] _offsets;
+    private final int[] _heads;
+    /** Post-order number of each component for each labeling. */
+    private final int[][] _postorderNumbers = new int[NUMBER_OF_LABELINGS][];
+    /**
+     * Smallest post-order number of all components reachable from each
+     * component for each labeling.
+     */
+    private final int[][] _lowNumbers = new int[NUMBER_OF_LABELINGS][];
+
+    /** Creates the index for all vertices of the specified graph. */
+    public ReachabilityIndex(final CompactGraph graph) {
+        final StrongComponentSearch search = new StrongComponentSearch(graph, graph.getNumberOfVertices());
+        search.run(null);
+        _components = search.getComponents();
+        _numberOfComponents = search.getNumberOfComponents();
+        _offsets = new int[_numberOfComponents + 1];
+        _heads = createCondensedArcs(graph);
+        for (int i = 0; i < NUMBER_OF_LABELINGS; i++) {
+            _postorderNumbers[i] = new int[_numberOfComponents];
+            _lowNumbers[i] = new int[_numberOfComponents];
+            label(i % 2 == 1, _postorderNumbers[i], _lowNumbers[i]);
+        }
+    }
+
+    /** Returns the number of strong components of the indexed graph. */
+    public int getNumberOfComponents() {
+        return _numberOfComponents;
+    }
+
+    /**
+     * Returns <tt>true</tt> if a vertex of the specified source set reaches a
+     * vertex of the specified target set. A vertex in both sets reaches
+     * itself.
+     *
+     * @param sources
+     *            Indices of the source vertices.
+     * @param targets
+     *            Indices of the target vertices.
+     */
+    public boolean canReach(final BitSet sources, final BitSet targets) {
+        final BitSet targetComponents = toComponents(targets);
+        if (targetComponents.isEmpty()) {
+            return false;
+        }
+        final BitSet[] targetNumbers = new BitSet[NUMBER_OF_LABELINGS];
+        for (int i = 0; i < NUMBER_OF_LABELINGS; i++) {
+            targetNumbers[i] = new BitSet(_numberOfComponents);
+            for (int c = targetComponents.nextSetBit(0); c >= 0; c = targetComponents.nextSetBit(c + 1)) {
+                targetNumbers[i].set(_postorderNumbers[i][c]);
+            }
+        }
+
+        final BitSet visited = new BitSet(_numberOfComponents);
+        final int[] queue = new int[_numberOfComponents];
+        int size = 0;
+        final BitSet sourceComponents = toComponents(sources);
+        for (int c = sourceComponents.nextSetBit(0); c >= 0; c = sourceComponents.nextSetBit(c + 1)) {
+            if (targetComponents.get(c)) {
+                return true;
+            }
+            if (mayReach(c, targetNumbers)) {
+                visited.set(c);
+                queue[size++] = c;
+            }
+        }
+        for (int index = 0; index < size; index++) {
+            final int component = queue[index];
+            for (int i = _offsets[component], n = _offsets[component + 1]; i < n; i++) {
+                final int head = _heads[i];
+                if (targetComponents.get(head)) {
+                    return true;
+                }
+                if (visited.get(head) == false && mayReach(head, targetNumbers)) {
+                    visited.set(head);
+                    queue[size++] = head;
+                }
+            }
+        }
+        return false;
+    }
+
+    private BitSet toComponents(final BitSet vertices) {
+        final BitSet result = new BitSet(_numberOfComponents);
+        for (int v = vertices.nextSetBit(0); v >= 0 && v < _components.length; v = vertices.nextSetBit(v + 1)) {
+            result.set(_components[v]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns <tt>false</tt> if the specified component can not reach a
+     * component with one of the specified post-order numbers because none of
+     * them is in the intervals of the component.
+     */
+    private boolean mayReach(final int component, final BitSet[] targetNumbers) {
+        for (int i = 0; i < NUMBER_OF_LABELINGS; i++) {
+            final int number = targetNumbers[i].nextSetBit(_lowNumbers[i][component]);
+            if (number < 0 || number > _postorderNumbers[i][component]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates the arcs between different components, grouped by tail
+     * component. Fills {@link #_offsets}.
+     */
+    private int[] createCondensedArcs(final CompactGraph graph) {
+        final int numberOfVertices = graph.getNumberOfVertices();
+        for (int vertex = 0; vertex < numberOfVertices; vertex++) {
+            final int component = _components[vertex];
+            for (int i = 0, n = graph.getNumberOfOutgoingArcs(vertex); i < n; i++) {
+                if (_components[graph.getHead(vertex, i)] != component) {
+                    _offsets[component + 1]++;
+                }
+            }
+        }
+        for (int c = 0; c < _numberOfComponents; c++) {
+            _offsets[c + 1] += _offsets[c];
+        }
+        final int[] heads = new int[_offsets[_numberOfComponents]];
+        final int[] positions = new int[_numberOfComponents];
+        System.arraycopy(_offsets, 0, positions, 0, _numberOfComponents);
+        for (int vertex = 0; vertex < numberOfVertices; vertex++) {
+            final int component = _components[vertex];
+            for (int i = 0, n = graph.getNumberOfOutgoingArcs(vertex); i < n; i++) {
+                final int headComponent = _components[graph.getHead(vertex, i)];
+                if (headComponent != component) {
+                    heads[positions[component]++] = headComponent;
+                }
+            }
+        }
+        return heads;
+    }
+
+    /**
+     * Labels the components by a non-recursive depth first search of the
+     * condensed graph. Components are numbered in reverse topological order
+     * by Tarjan's algorithm. Thus starting with the last component as root
+     * starts with a component without incoming arcs.
+     *
+     * @param backward
+     *            If <tt>true</tt> the arcs of each component are visited in
+     *            reverse order.
+     */
+    private void label(final boolean backward, final int[] postorderNumbers, final int[] lowNumbers) {
+        final boolean[] visited = new boolean[_numberOfComponents];
+        final int[] frameComponents = new int[_numberOfComponents];
+        final int[] frameArcs = new int[_numberOfComponents];
+        int count = 0;
+        for (int root = _numberOfComponents - 1; root >= 0; root--) {
+            if (visited[root]) {
+                continue;
+            }
+            visited[root] = true;
+            int depth = 0;
+            frameComponents[0] = root;
+            frameArcs[0] = 0;
+            lowNumbers[root] = Integer.MAX_VALUE;
+            while (depth >= 0) {
+                final int component = frameComponents[depth];
+                final int numberOfArcs = _offsets[component + 1] - _offsets[component];
+                if (frameArcs[depth] < numberOfArcs) {
+                    final int arc = frameArcs[depth]++;
+                    final int head = _heads[backward ? _offsets[component + 1] - 1 - arc : _offsets[component] + arc];
+                    if (visited[head]) {
+                        lowNumbers[component] = Math.min(lowNumbers[component], lowNumbers[head]);
+                    }
+                    else {
+                        visited[head] = true;
+                        depth++;
+                        frameComponents[depth] = head;
+                        frameArcs[depth] = 0;
+                        lowNumbers[head] = Integer.MAX_VALUE;
+                    }
+                }
+                else {
+                    postorderNumbers[component] = count++;
+                    lowNumbers[component] = Math.min(lowNumbers[component], postorderNumbers[component]);
+                    depth--;
+                    if (depth >= 0) {
+                        final int tail = frameComponents[depth];
+                        lowNumbers[tail] = Math.min(lowNumbers[tail], lowNumbers[component]);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -29,7 +29,8 @@
 package org.netmelody.neoclassycle.graph;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.Vector;
 
 /**
@@ -39,7 +40,17 @@ import java.util.Vector;
  * @author Franz-Josef Elmer
  */
 public final class StrongComponent extends Vertex {
+    /** Distance between vertices without a connecting path. */
+    private static final int NO_PATH = Integer.MAX_VALUE / 2;
+
+    /**
+     * Geometry of a strong component. It is calculated when one of its
+     * properties is accessed the first time.
+     */
     private static class GeometryAttributes implements GraphAttributes {
+        private StrongComponent _component;
+        private boolean _calculated;
+        private boolean _approximate;
         private int _girth;
         private int _radius;
         private int _diameter;
@@ -52,8 +63,43 @@ public final class StrongComponent extends Vertex {
         public GeometryAttributes() {
         }
 
+        void setComponent(final StrongComponent component) {
+            _component = component;
+        }
+
+        /** Calculates all properties again. */
+        synchronized void calculate(final int numberOfThreads, final GeometryBudget budget) {
+            _centerVertices.clear();
+            _bestFragmenters.clear();
+            _approximate = false;
+            _component.calculateGeometry(this, numberOfThreads, budget);
+            _calculated = true;
+        }
+
+        private void calculateIfNecessary() {
+            calculateIfNecessary(1);
+        }
+
+        synchronized void calculateIfNecessary(final int numberOfThreads) {
+            if (_calculated == false) {
+                calculate(numberOfThreads, _component._geometryBudget);
+            }
+        }
+
+        /** Marks the properties as outdated because the component has changed. */
+        synchronized void invalidate() {
+            _calculated = false;
+        }
+
+        @Override
+        public boolean isApproximate() {
+            calculateIfNecessary();
+            return _approximate;
+        }
+
         @Override
         public int getGirth() {
+            calculateIfNecessary();
             return _girth;
         }
 
@@ -63,21 +109,25 @@ public final class StrongComponent extends Vertex {
 
         @Override
         public int getRadius() {
+            calculateIfNecessary();
             return _radius;
         }
 
         @Override
         public int getDiameter() {
+            calculateIfNecessary();
             return _diameter;
         }
 
         @Override
         public int getBestFragmentSize() {
+            calculateIfNecessary();
             return _bestFragmentSize;
         }
 
         @Override
         public Vertex[] getCenterVertices() {
+            calculateIfNecessary();
             return _centerVertices.toArray(new Vertex[_centerVertices.size()]);
         }
 
@@ -87,6 +137,7 @@ public final class StrongComponent extends Vertex {
 
         @Override
         public Vertex[] getBestFragmenters() {
+            calculateIfNecessary();
             return _bestFragmenters.toArray(new Vertex[_bestFragmenters.size()]);
         }
 
@@ -96,6 +147,7 @@ public final class StrongComponent extends Vertex {
 
         @Override
         public int[] getEccentricities() {
+            calculateIfNecessary();
             return _eccentricities;
         }
 
@@ -113,6 +165,7 @@ public final class StrongComponent extends Vertex {
 
         @Override
         public int[] getMaximumFragmentSizes() {
+            calculateIfNecessary();
             return _maximumFragmentSizes;
         }
 
@@ -127,8 +180,10 @@ public final class StrongComponent extends Vertex {
 
         @Override
         public int compareTo(final Attributes object) {
+            calculateIfNecessary();
             int result = 1;
             if (object instanceof GeometryAttributes && _bestFragmenters.size() > 0) {
+                ((GeometryAttributes) object).calculateIfNecessary();
                 final ArrayList<Vertex> list = ((GeometryAttributes) object)._bestFragmenters;
                 if (list.size() > 0) {
                     final Attributes attributes = _bestFragmenters.get(0).getAttributes();
@@ -142,15 +197,16 @@ public final class StrongComponent extends Vertex {
     }
 
     private final Vector<Vertex> _vertices = new Vector<Vertex>();
-    private boolean _active;
     private int _longestWalk;
+    private GeometryBudget _geometryBudget;
 
     /**
-     * Default constructor. The {@link Attributes} of a strong component will a
-     * <tt>null</tt> pointer.
+     * Default constructor. The {@link Attributes} of a strong component are
+     * {@link GraphAttributes} which are calculated on first access.
      */
     public StrongComponent() {
         super(new GeometryAttributes());
+        ((GeometryAttributes) getAttributes()).setComponent(this);
     }
 
     /** Returns the number of vertices building this strong component. */
@@ -169,136 +225,259 @@ public final class StrongComponent extends Vertex {
      */
     public void addVertex(final AtomicVertex vertex) {
         _vertices.insertElementAt(vertex, 0);
+        ((GeometryAttributes) getAttributes()).invalidate();
+    }
+
+    /**
+     * Sets the budget which decides whether the attributes are calculated
+     * exactly or approximately when they are accessed the first time. By
+     * default they are calculated exactly.
+     */
+    void setGeometryBudget(final GeometryBudget budget) {
+        _geometryBudget = budget;
     }
 
     /**
-     * Calculates all graph properties of this component. These properties can
-     * be obtained from <tt>getAttributes</tt> casted as {@link GraphAttributes}
-     * .
+     * Calculates all graph properties of this component exactly. These
+     * properties can be obtained from <tt>getAttributes</tt> casted as
+     * {@link GraphAttributes}. Without calling this method they are calculated
+     * on first access.
      */
     public void calculateAttributes() {
-        final HashMap<Vertex, Integer> indexMap = calculateIndexMap();
-        final int[][] distances = calculateDistances(indexMap);
-
-        // Calculate girth and eccentricity
-        final GeometryAttributes attributes = (GeometryAttributes) getAttributes();
-        int girth = Integer.MAX_VALUE;
-        final int[] eccentricities = new int[distances.length];
-        for (int i = 0; i < distances.length; i++) {
-            girth = Math.min(girth, distances[i][i]);
-            eccentricities[i] = 0;
-            for (int j = 0; j < distances.length; j++) {
-                if (i != j) {
-                    eccentricities[i] = Math.max(eccentricities[i], distances[i][j]);
+        calculateAttributes(1);
+    }
+
+    /**
+     * Calculates all graph properties of this component like
+     * {@link #calculateAttributes()}. The maximum fragment sizes of large
+     * components are calculated on the specified number of threads.
+     */
+    public void calculateAttributes(final int numberOfThreads) {
+        ((GeometryAttributes) getAttributes()).calculate(numberOfThreads, null);
+    }
+
+    /**
+     * Calculates the attributes within the limits of the geometry budget
+     * unless they have already been calculated. The maximum fragment sizes of
+     * large components are calculated on the specified number of threads.
+     */
+    void calculateAttributesIfNecessary(final int numberOfThreads) {
+        ((GeometryAttributes) getAttributes()).calculateIfNecessary(numberOfThreads);
+    }
+
+    private void calculateGeometry(final GeometryAttributes attributes, final int numberOfThreads, final GeometryBudget budget) {
+        final int n = getNumberOfVertices();
+        if (n == 1) {
+            // Trivial geometry, only a loop is a cycle
+            final AtomicVertex vertex = getVertex(0);
+            int girth = NO_PATH;
+            for (int i = 0, m = vertex.getNumberOfOutgoingArcs(); i < m; i++) {
+                if (vertex.getHeadVertex(i) == vertex) {
+                    girth = 1;
                 }
             }
+            attributes.setGirth(girth);
+            attributes.setEccentricities(new int[] { 0 });
+            attributes.setMaximumFragmentSizes(new int[] { 1 });
+            attributes.addVertex(vertex);
+            attributes.addFragmenter(vertex);
+            return;
+        }
+
+        final CompactGraph graph = createCompactGraph();
+        final int[] eccentricities = new int[n];
+        int[] maximumFragmentSizes;
+        if (budget == null || budget.allowsExactCalculation(n)) {
+            final long time = System.currentTimeMillis();
+            attributes.setGirth(calculateEccentricities(graph, eccentricities));
+            maximumFragmentSizes = FragmentSizeCalculator.calculate(graph, numberOfThreads);
+            if (budget != null) {
+                budget.addTime(System.currentTimeMillis() - time);
+            }
+        }
+        else {
+            final int[] samples = createSamples(n, budget.getNumberOfSamples());
+            attributes.setGirth(estimateEccentricities(graph, samples, eccentricities));
+            maximumFragmentSizes = estimateMaximumFragmentSizes(graph, samples);
+            attributes._approximate = true;
         }
         attributes.setEccentricities(eccentricities);
-        attributes.setGirth(girth);
-        attributes.setMaximumFragmentSizes(calculateMaximumFragmentSizes(indexMap));
+        attributes.setMaximumFragmentSizes(maximumFragmentSizes);
 
         // Obtain center vertices and best fragmenters
-        for (int i = 0, r = attributes.getRadius(), s = attributes.getBestFragmentSize(); i < distances.length; i++) {
+        for (int i = 0, r = attributes._radius, s = attributes._bestFragmentSize; i < n; i++) {
             if (eccentricities[i] == r) {
                 attributes.addVertex(getVertex(i));
             }
-            if (attributes.getMaximumFragmentSizes()[i] == s) {
+            if (maximumFragmentSizes[i] == s) {
                 attributes.addFragmenter(getVertex(i));
             }
         }
-
     }
 
-    private int[][] calculateDistances(final HashMap<Vertex, Integer> indexMap) {
-        // Calculate the adjacency matrix
+    /**
+     * Creates the subgraph of this component. The index of a vertex is its
+     * index in this component. Arcs to other vertices are dropped.
+     */
+    private CompactGraph createCompactGraph() {
         final int n = getNumberOfVertices();
-        final int[][] distances = new int[n][n];
+        final Vertex[] vertices = new Vertex[n];
+        final IdentityHashMap<Vertex, Integer> indexMap = new IdentityHashMap<Vertex, Integer>();
+        int numberOfArcs = 0;
         for (int i = 0; i < n; i++) {
-            final int[] row = distances[i];
-            final AtomicVertex vertex = getVertex(i);
-            for (int j = 0; j < n; j++) {
-                row[j] = Integer.MAX_VALUE / 2;
-            }
-            for (int j = 0, m = vertex.getNumberOfOutgoingArcs(); j < m; j++) {
-                final Integer index = indexMap.get(vertex.getHeadVertex(j));
+            vertices[i] = getVertex(i);
+            indexMap.put(vertices[i], Integer.valueOf(i));
+            numberOfArcs += vertices[i].getNumberOfOutgoingArcs();
+        }
+        final int[] offsets = new int[n + 1];
+        int[] heads = new int[numberOfArcs];
+        numberOfArcs = 0;
+        for (int i = 0; i < n; i++) {
+            offsets[i] = numberOfArcs;
+            for (int j = 0, m = vertices[i].getNumberOfOutgoingArcs(); j < m; j++) {
+                final Integer index = indexMap.get(vertices[i].getHeadVertex(j));
                 if (index != null) {
-                    row[index.intValue()] = 1;
+                    heads[numberOfArcs++] = index.intValue();
                 }
             }
         }
+        offsets[n] = numberOfArcs;
+        if (numberOfArcs < heads.length) {
+            final int[] arcs = new int[numberOfArcs];
+            System.arraycopy(heads, 0, arcs, 0, numberOfArcs);
+            heads = arcs;
+        }
+        return new CompactGraph(vertices, n, offsets, heads);
+    }
+
+    /**
+     * Calculates the eccentricities by a breadth first search from each
+     * vertex. Vertices which can not be reached have the distance
+     * {@link #NO_PATH}.
+     *
+     * @param eccentricities
+     *            Array to be filled with the eccentricity of each vertex.
+     * @return the girth or {@link #NO_PATH} if there is no cycle.
+     */
+    private static int calculateEccentricities(final CompactGraph graph, final int[] eccentricities) {
+        final int n = graph.getNumberOfVertices();
+        final int[] distances = new int[n];
+        final int[] queue = new int[n];
+        int girth = NO_PATH;
+        for (int start = 0; start < n; start++) {
+            final int numberOfReachedVertices = search(graph, start, true, distances, queue);
+            eccentricities[start] = numberOfReachedVertices < n ? NO_PATH : distances[queue[n - 1]];
+            girth = Math.min(girth, getShortestCycle(graph, start, distances));
+        }
+        return girth;
+    }
 
-        // Floyd-Warshall algorithm for the distances
-        for (int k = 0; k < n; k++) {
+    /**
+     * Estimates the eccentricities from breadth first searches along and
+     * against the arcs starting at the sampled vertices. The eccentricities of
+     * the sampled vertices are exact. For all other vertices the largest
+     * distance to a sampled vertex is a lower bound of the eccentricity.
+     *
+     * @return the length of the shortest cycle through a sampled vertex. It is
+     *         an upper bound of the girth.
+     */
+    private static int estimateEccentricities(final CompactGraph graph, final int[] samples, final int[] eccentricities) {
+        final int n = graph.getNumberOfVertices();
+        final int[] distances = new int[n];
+        final int[] queue = new int[n];
+        int girth = NO_PATH;
+        for (final int sample : samples) {
+            search(graph, sample, false, distances, queue);
             for (int i = 0; i < n; i++) {
-                for (int j = 0; j < n; j++) {
-                    if (distances[i][k] + distances[k][j] < distances[i][j]) {
-                        distances[i][j] = distances[i][k] + distances[k][j];
-                    }
-                }
+                eccentricities[i] = Math.max(eccentricities[i], distances[i] < 0 ? NO_PATH : distances[i]);
             }
+            final int numberOfReachedVertices = search(graph, sample, true, distances, queue);
+            eccentricities[sample] = numberOfReachedVertices < n ? NO_PATH : distances[queue[n - 1]];
+            girth = Math.min(girth, getShortestCycle(graph, sample, distances));
         }
-
-        return distances;
+        return girth;
     }
 
-    private HashMap<Vertex, Integer> calculateIndexMap() {
-        final HashMap<Vertex, Integer> result = new HashMap<Vertex, Integer>();
-        for (int i = 0, n = getNumberOfVertices(); i < n; i++) {
-            result.put(getVertex(i), new Integer(i));
+    /**
+     * Calculates the maximum fragment sizes of the sampled vertices. All other
+     * vertices get the upper bound <tt>n - 1</tt>.
+     */
+    private static int[] estimateMaximumFragmentSizes(final CompactGraph graph, final int[] samples) {
+        final int[] result = new int[graph.getNumberOfVertices()];
+        Arrays.fill(result, result.length - 1);
+        final FragmentSizeCalculator calculator = new FragmentSizeCalculator(graph);
+        for (final int sample : samples) {
+            result[sample] = calculator.getMaximumFragmentSize(sample);
         }
         return result;
     }
 
-    private int[] calculateMaximumFragmentSizes(final HashMap<Vertex, Integer> indexMap) {
-        // clone graph defining this strong component
-        final AtomicVertex[] graph = new AtomicVertex[getNumberOfVertices()];
-        for (int i = 0; i < graph.length; i++) {
-            graph[i] = new AtomicVertex(null);
+    /** Returns the specified number of vertices spread evenly over all vertices. */
+    private static int[] createSamples(final int numberOfVertices, final int numberOfSamples) {
+        final int[] result = new int[Math.min(numberOfVertices, numberOfSamples)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (int) ((long) i * numberOfVertices / result.length);
         }
-        for (int i = 0; i < graph.length; i++) {
-            final AtomicVertex vertex = getVertex(i);
-            for (int j = 0, n = vertex.getNumberOfOutgoingArcs(); j < n; j++) {
-                final Integer index = indexMap.get(vertex.getHeadVertex(j));
-                if (index != null) {
-                    graph[i].addOutgoingArcTo(graph[index.intValue()]);
+        return result;
+    }
+
+    /**
+     * Breadth first search from the start vertex.
+     *
+     * @param forward
+     *            If <tt>true</tt> the search follows the arcs. Otherwise it
+     *            follows the arcs backwards.
+     * @param distances
+     *            Array to be filled with the distance of each vertex from (or
+     *            to) the start vertex. It is -1 for unreached vertices.
+     * @param queue
+     *            Array to be filled with the reached vertices in the order of
+     *            their distances.
+     * @return the number of reached vertices.
+     */
+    private static int search(final CompactGraph graph, final int start, final boolean forward, final int[] distances,
+            final int[] queue) {
+        Arrays.fill(distances, -1);
+        distances[start] = 0;
+        queue[0] = start;
+        int queueSize = 1;
+        for (int q = 0; q < queueSize; q++) {
+            final int vertex = queue[q];
+            final int distance = distances[vertex] + 1;
+            final int m = forward ? graph.getNumberOfOutgoingArcs(vertex) : graph.getNumberOfIncomingArcs(vertex);
+            for (int i = 0; i < m; i++) {
+                final int next = forward ? graph.getHead(vertex, i) : graph.getTail(vertex, i);
+                if (distances[next] < 0) {
+                    distances[next] = distance;
+                    queue[queueSize++] = next;
                 }
             }
         }
+        return queueSize;
+    }
 
-        final StrongComponentProcessor processor = new StrongComponentProcessor(false);
-        final int[] maximumFragmentSizes = new int[getNumberOfVertices()];
-        for (int i = 0; i < maximumFragmentSizes.length; i++) {
-            graph[i].setDefaultValueOfGraphVertexFlag(false);
-            processor.deepSearchFirst(graph);
-            final StrongComponent[] fragments = processor.getStrongComponents();
-            maximumFragmentSizes[i] = 0;
-            for (final StrongComponent fragment : fragments) {
-                maximumFragmentSizes[i] = Math.max(maximumFragmentSizes[i], fragment.getNumberOfVertices());
+    /**
+     * Returns the length of the shortest cycle through the start vertex of a
+     * forward search which calculated the specified distances. Every incoming
+     * arc of the start vertex from a reached vertex closes a cycle.
+     */
+    private static int getShortestCycle(final CompactGraph graph, final int start, final int[] distances) {
+        int result = NO_PATH;
+        for (int i = 0, m = graph.getNumberOfIncomingArcs(start); i < m; i++) {
+            final int tail = graph.getTail(start, i);
+            if (distances[tail] >= 0) {
+                result = Math.min(result, distances[tail] + 1);
             }
-            graph[i].setDefaultValueOfGraphVertexFlag(true);
         }
-        return maximumFragmentSizes;
+        return result;
     }
 
     /**
-     * Reset this component. Calls reset of the superclass. Sets the activity
-     * flag to false and the longest walk to -1.
+     * Returns the longest walk from this component as calculated by
+     * {@link LongestWalkProcessor}. Strong components are created by each
+     * analysis. Thus the longest walk is a result of an analysis and not
+     * state shared by analyses.
      */
-    @Override
-    public void reset() {
-        super.reset();
-        _active = false;
-        _longestWalk = -1;
-    }
-
-    public boolean isActive() {
-        return _active;
-    }
-
-    public void setActive(final boolean active) {
-        _active = active;
-    }
-
     public int getLongestWalk() {
         return _longestWalk;
     }
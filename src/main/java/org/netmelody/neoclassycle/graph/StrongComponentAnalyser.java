@@ -28,18 +28,44 @@
  */
 package org.netmelody.neoclassycle.graph;
 
-import java.util.HashMap;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import org.netmelody.neoclassycle.util.TaskRunner;
 
 /**
- * Analyser of a directed graph for finding its strong components.
+ * Analyser of a directed graph for finding its strong components. The results
+ * are calculated on first access. An instance can be accessed concurrently.
  *
  * @author Franz-Josef Elmer
  */
 public final class StrongComponentAnalyser {
+    private static final Comparator<StrongComponent> BY_DECREASING_SIZE = new Comparator<StrongComponent>() {
+        @Override
+        public int compare(final StrongComponent component1, final StrongComponent component2) {
+            return component2.getNumberOfVertices() - component1.getNumberOfVertices();
+        }
+    };
+
     private final AtomicVertex[] _graph;
+    private CompactGraph _compactGraph;
     private StrongComponent[] _components;
-    private HashMap<AtomicVertex, Integer> _layerMap;
+    private CompactGraph _condensedGraph;
+    private int[] _componentIndices;
+    private int[] _layers;
+    private StrongComponent[] _layeredComponents;
+    private LayerMap _layerMap;
+    private int _numberOfThreads = 1;
+    private GeometryBudget _geometryBudget = new GeometryBudget();
 
     /**
      * Creates an instance for the specified graph.
@@ -48,41 +74,238 @@ public final class StrongComponentAnalyser {
         _graph = graph;
     }
 
+    /**
+     * Creates an instance for the specified compact graph. All its vertices
+     * have to be instances of {@link AtomicVertex}.
+     */
+    public StrongComponentAnalyser(final CompactGraph graph) {
+        _compactGraph = graph;
+        _graph = new AtomicVertex[graph.getNumberOfGraphVertices()];
+        for (int i = 0; i < _graph.length; i++) {
+            _graph[i] = (AtomicVertex) graph.getVertex(i);
+        }
+    }
+
+    /**
+     * Sets the number of threads used for finding the strong components and
+     * by {@link #calculateAttributes()}. By default strong components are
+     * found by {@link StrongComponentProcessor} on the calling thread.
+     * Otherwise large graphs are processed by
+     * {@link ParallelStrongComponentProcessor}. It finds the same components
+     * but in a different order.
+     *
+     * @param numberOfThreads
+     *            Number of threads. Values less than two mean that the graph
+     *            is not processed in parallel.
+     */
+    public void setNumberOfThreads(final int numberOfThreads) {
+        _numberOfThreads = numberOfThreads;
+    }
+
+    /**
+     * Sets the budget for the calculation of the {@link GraphAttributes} of
+     * the strong components. They are calculated when they are accessed the
+     * first time. By default a {@link GeometryBudget} with default limits is
+     * used for all components found by this analyser. Has no effect after the
+     * condensed graph has been created.
+     */
+    public void setGeometryBudget(final GeometryBudget budget) {
+        _geometryBudget = budget;
+    }
+
     /** Returns the original graph. That is, the argument of the constructor. */
     public AtomicVertex[] getGraph() {
         return _graph;
     }
 
-    /** Returns the graph of strong components. */
-    public StrongComponent[] getCondensedGraph() {
+    /**
+     * Returns the original graph as a compact graph. It will be created if the
+     * instance has been created for an array of vertices.
+     */
+    public synchronized CompactGraph getCompactGraph() {
+        if (_compactGraph == null) {
+            _compactGraph = CompactGraph.create(_graph);
+        }
+        return _compactGraph;
+    }
+
+    /**
+     * Returns the graph of strong components. Their attributes are calculated
+     * on first access within the limits of the geometry budget.
+     *
+     * @return the components in the order they have been found. The array
+     *         must not be modified.
+     */
+    public synchronized StrongComponent[] getCondensedGraph() {
         if (_components == null) {
-            final StrongComponentProcessor processor = new StrongComponentProcessor(true);
-            processor.deepSearchFirst(_graph);
+            final ParallelStrongComponentProcessor processor = new ParallelStrongComponentProcessor(false, _numberOfThreads);
+            processor.process(getCompactGraph());
             _components = processor.getStrongComponents();
+            for (final StrongComponent component : _components) {
+                component.setGeometryBudget(_geometryBudget);
+            }
+            _condensedGraph = processor.getCondensedGraph();
+            _componentIndices = processor.getComponentIndices();
         }
         return _components;
     }
 
+    /**
+     * Calculates the {@link GraphAttributes} of all strong components with
+     * more than one vertex within the limits of the geometry budget. Otherwise
+     * they are calculated on first access. The largest components come first,
+     * so that no large component is left over when all other work is done.
+     * Components which are large enough are calculated one after another,
+     * each on all threads. All other components are calculated in parallel,
+     * each on one of the threads.
+     *
+     * @see #setNumberOfThreads(int)
+     */
+    public void calculateAttributes() {
+        final List<StrongComponent> cycles = new ArrayList<StrongComponent>();
+        for (final StrongComponent component : getCondensedGraph()) {
+            if (component.getNumberOfVertices() > 1) {
+                cycles.add(component);
+            }
+        }
+        Collections.sort(cycles, BY_DECREASING_SIZE);
+        final List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(cycles.size());
+        for (final StrongComponent cycle : cycles) {
+            if (cycle.getNumberOfVertices() >= FragmentSizeCalculator.MINIMUM_PARALLEL_SIZE) {
+                cycle.calculateAttributesIfNecessary(_numberOfThreads);
+            }
+            else {
+                tasks.add(new Callable<Object>() {
+                    @Override
+                    public Object call() {
+                        cycle.calculateAttributesIfNecessary(1);
+                        return null;
+                    }
+                });
+            }
+        }
+        TaskRunner.runUnchecked(tasks, _numberOfThreads);
+    }
+
+    /**
+     * Returns the layer index of each vertex of the original graph
+     * (i.e.&nbsp;length of the longest path of the condensed graph starting
+     * at the strong component of the vertex). On first call the longest walks
+     * of the strong components are calculated. The condensed graph returned
+     * by {@link #getCondensedGraph()} is not reordered.
+     *
+     * @return array indexed like the array returned by {@link #getGraph()}.
+     *         It must not be modified.
+     */
+    public synchronized int[] getLayers() {
+        if (_layers == null) {
+            final StrongComponent[] components = getCondensedGraph();
+            final int[] longestWalks = new LongestWalkProcessor(_numberOfThreads).calculateLongestWalks(_condensedGraph);
+            for (int i = 0; i < longestWalks.length; i++) {
+                ((StrongComponent) _condensedGraph.getVertex(i)).setLongestWalk(longestWalks[i]);
+            }
+            _layeredComponents = components.clone();
+            LongestWalkProcessor.sort(_layeredComponents);
+            _layers = new int[_componentIndices.length];
+            for (int i = 0; i < _layers.length; i++) {
+                _layers[i] = longestWalks[_componentIndices[i]];
+            }
+        }
+        return _layers;
+    }
+
+    /**
+     * Returns the graph of strong components sorted in accordance with their
+     * longest walk. The sort is stable.
+     *
+     * @return a copy of the array returned by {@link #getCondensedGraph()}.
+     *         It must not be modified.
+     */
+    public synchronized StrongComponent[] getLayeredCondensedGraph() {
+        getLayers();
+        return _layeredComponents;
+    }
+
     /**
      * Returns the maping of the nodes of the original graph onto a layer index
-     * (i.e.&nbsp;length of the longest path of the condensed graph).
+     * (i.e.&nbsp;length of the longest path of the condensed graph). The map
+     * is a read-only view of the array returned by {@link #getLayers()}. A
+     * vertex is looked up in an identity hash map of the vertex indices.
      *
      * @return a map where the keys are instances of {@link AtomicVertex} and
      *         the values are instances of <tt>Integer</tt>.
      */
-    public Map<AtomicVertex, Integer> getLayerMap() {
+    public synchronized Map<AtomicVertex, Integer> getLayerMap() {
         if (_layerMap == null) {
-            final StrongComponent[] components = getCondensedGraph();
-            new LongestWalkProcessor().deepSearchFirst(components);
-            _layerMap = new HashMap<AtomicVertex, Integer>();
-            for (final StrongComponent component : components) {
-                final Integer layer = new Integer(component.getLongestWalk());
-                for (int j = 0, n = component.getNumberOfVertices(); j < n; j++) {
-                    _layerMap.put(component.getVertex(j), layer);
-                }
-            }
+            _layerMap = new LayerMap(_graph, getLayers());
         }
         return _layerMap;
     }
 
+    /**
+     * Read-only map of vertices onto layer indices backed by the layer array.
+     * Only the vertex indices are stored. Keys are compared by identity like
+     * in the vertex indices of a {@link CompactGraph}.
+     */
+    private static final class LayerMap extends AbstractMap<AtomicVertex, Integer> {
+        private final IdentityHashMap<AtomicVertex, Integer> _indices;
+        private final int[] _layers;
+
+        LayerMap(final AtomicVertex[] vertices, final int[] layers) {
+            _indices = new IdentityHashMap<AtomicVertex, Integer>(vertices.length);
+            for (int i = 0; i < vertices.length; i++) {
+                _indices.put(vertices[i], Integer.valueOf(i));
+            }
+            _layers = layers;
+        }
+
+        @Override
+        public int size() {
+            return _indices.size();
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return _indices.containsKey(key);
+        }
+
+        @Override
+        public Integer get(final Object key) {
+            final Integer index = _indices.get(key);
+            return index == null ? null : Integer.valueOf(_layers[index.intValue()]);
+        }
+
+        @Override
+        public Set<Map.Entry<AtomicVertex, Integer>> entrySet() {
+            return new AbstractSet<Map.Entry<AtomicVertex, Integer>>() {
+                @Override
+                public int size() {
+                    return _indices.size();
+                }
+
+                @Override
+                public Iterator<Map.Entry<AtomicVertex, Integer>> iterator() {
+                    final Iterator<Map.Entry<AtomicVertex, Integer>> indices = _indices.entrySet().iterator();
+                    return new Iterator<Map.Entry<AtomicVertex, Integer>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return indices.hasNext();
+                        }
+
+                        @Override
+                        public Map.Entry<AtomicVertex, Integer> next() {
+                            final Map.Entry<AtomicVertex, Integer> index = indices.next();
+                            final Integer layer = Integer.valueOf(_layers[index.getValue().intValue()]);
+                            return Collections.singletonMap(index.getKey(), layer).entrySet().iterator().next();
+                        }
+
+                        @Override
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+            };
+        }
+    }
 }
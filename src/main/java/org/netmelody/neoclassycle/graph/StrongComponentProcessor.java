@@ -28,135 +28,209 @@
  */
 package org.netmelody.neoclassycle.graph;
 
-import java.util.Enumeration;
-import java.util.Hashtable;
-import java.util.Stack;
-import java.util.Vector;
+import java.util.Arrays;
 
 /**
  * A processor which extracts the strong components of a directed graph. A
  * strong component is a maximal strongly connected subgraph of a directed
- * graph. The implementation is based on Tarjan's algorithm.
+ * graph. The implementation is based on Tarjan's algorithm. The deep search
+ * first is not recursive. Its frames, the vertex stack, and the mapping of
+ * vertices onto strong components are kept in <tt>int</tt> arrays indexed by
+ * the vertex indices of a {@link CompactGraph}. Thus processing is linear in
+ * the number of arcs and does not depend on the size of the thread stack.
  *
  * @author Franz-Josef Elmer
  */
 public final class StrongComponentProcessor extends GraphProcessor {
     private final boolean _calculateAttributes;
-    private int _counter;
-    private final Stack<Vertex> _vertexStack = new Stack<Vertex>();
-    private final Vector<StrongComponent> _strongComponents = new Vector<StrongComponent>();
-    private final Hashtable<Vertex, StrongComponent> _vertexToComponents = new Hashtable<Vertex, StrongComponent>();
     private StrongComponent[] _graph;
+    private CompactGraph _condensedGraph;
+    private int[] _componentIndices;
 
     /**
      * Creates an instance.
      *
      * @param calculateAttributes
      *            If <tt>true</tt> the attributes of the strong components will
-     *            be calculated. Otherwise not.
+     *            be calculated. Otherwise they are calculated when they are
+     *            accessed the first time.
      */
     public StrongComponentProcessor(final boolean calculateAttributes) {
         _calculateAttributes = calculateAttributes;
     }
 
     /**
-     * Returns the result of {@link #deepSearchFirst}.
+     * Returns the result of {@link #deepSearchFirst}. The strong components are
+     * in the order they have been completed. Thus there is no arc from a
+     * component to a component with a higher index.
      */
     public StrongComponent[] getStrongComponents() {
         return _graph;
     }
 
-    @Override
-    protected void initializeProcessing(final Vertex[] graph) {
-        _counter = 0;
-        _vertexStack.setSize(0);
-        _strongComponents.setSize(0);
-        _vertexToComponents.clear();
+    /**
+     * Returns the result of {@link #deepSearchFirst} as a compact graph. The
+     * vertices are the strong components in the same order as in
+     * {@link #getStrongComponents()}.
+     *
+     * @return <tt>null</tt> before processing.
+     */
+    public CompactGraph getCondensedGraph() {
+        return _condensedGraph;
     }
 
     /**
+     * Returns for each graph vertex of the compact graph processed last the
+     * index of its strong component in {@link #getStrongComponents()}.
+     *
+     * @return <tt>null</tt> before processing.
+     */
+    public int[] getComponentIndices() {
+        return _componentIndices;
+    }
+
+    /**
+     * Extracts the strong components of the specified graph. Only arcs between
+     * vertices of the graph are taken into account. The vertices are not
+     * modified.
+     *
      * @throws IllegalArgumentException
-     *             if <tt>vertex</tt> is not an instance of {@link AtomicVertex}
-     *             .
+     *             if a vertex of the graph is not an instance of
+     *             {@link AtomicVertex}.
      */
     @Override
-    protected void processBefore(final Vertex vertex) {
-        final AtomicVertex atomicVertex = castAsAtomicVertex(vertex);
-        atomicVertex.setOrder(_counter);
-        atomicVertex.setLow(_counter++);
-        _vertexStack.push(atomicVertex);
+    public void deepSearchFirst(final Vertex[] graph) {
+        for (final Vertex vertex : graph) {
+            castAsAtomicVertex(vertex);
+        }
+        deepSearchFirst(CompactGraph.create(graph));
     }
 
     /**
+     * Extracts the strong components of the specified compact graph. Only arcs
+     * between vertices of the graph are taken into account. Vertices which are
+     * not graph vertices (see {@link AtomicVertex#isGraphVertex()}) are not
+     * reached via arcs. They end up in components of their own.
+     *
      * @throws IllegalArgumentException
-     *             if <tt>tail</tt> and <tt>head</tt> are not an instances of
+     *             if a vertex of the graph is not an instance of
      *             {@link AtomicVertex}.
      */
     @Override
-    protected void processArc(final Vertex tail, final Vertex head) {
-        final AtomicVertex t = castAsAtomicVertex(tail);
-        final AtomicVertex h = castAsAtomicVertex(head);
-        if (h.isGraphVertex()) {
-            if (!h.isVisited()) {
-                process(h);
-                t.setLow(Math.min(t.getLow(), h.getLow()));
-            }
-            else if (h.getOrder() < t.getOrder() && _vertexStack.contains(h)) {
-                t.setLow(Math.min(t.getLow(), h.getOrder()));
+    public void deepSearchFirst(final CompactGraph graph) {
+        final boolean[] graphVertices = getGraphVertexFlags(graph);
+        final StrongComponentSearch search = new StrongComponentSearch(graph, graphVertices.length);
+        search.run(graphVertices);
+
+        _graph = createStrongComponents(graph, search.getMembers(), search.getComponentOffsets(), search.getNumberOfComponents());
+        _componentIndices = search.getComponents();
+        if (_calculateAttributes) {
+            for (final StrongComponent component : _graph) {
+                component.calculateAttributes();
             }
         }
+        _condensedGraph = createCondensedGraph(graph, graphVertices, _graph, search.getComponents(), search.getMembers(),
+                                               search.getComponentOffsets());
     }
 
     /**
-     * Processes the specified vertex after all its outgoing arcs are processed.
+     * Returns the graph vertex flags of the vertices of the specified graph.
      *
      * @throws IllegalArgumentException
-     *             if <tt>vertex</tt> is not an instance of {@link AtomicVertex}
-     *             .
+     *             if a vertex of the graph is not an instance of
+     *             {@link AtomicVertex}.
      */
-    @Override
-    protected void processAfter(final Vertex vertex) {
-        final AtomicVertex atomicVertex = castAsAtomicVertex(vertex);
-        if (atomicVertex.getLow() == atomicVertex.getOrder()) {
-            final StrongComponent component = new StrongComponent();
-            while (!_vertexStack.isEmpty() && ((AtomicVertex) _vertexStack.peek()).getOrder() >= atomicVertex.getOrder()) {
-                final AtomicVertex vertexOfComponent = (AtomicVertex) _vertexStack.pop();
-                component.addVertex(vertexOfComponent);
-                _vertexToComponents.put(vertexOfComponent, component);
-            }
-            _strongComponents.addElement(component);
+    static boolean[] getGraphVertexFlags(final CompactGraph graph) {
+        final boolean[] graphVertices = new boolean[graph.getNumberOfGraphVertices()];
+        for (int i = 0; i < graphVertices.length; i++) {
+            graphVertices[i] = castAsAtomicVertex(graph.getVertex(i)).isGraphVertex();
         }
+        return graphVertices;
     }
 
     /**
-     * Adds all arcs to the strong components. There is an arc from a strong
-     * component to another one if there is at least one arc from a vertex of
-     * one component to a vertex the other one.
+     * Creates strong components. The vertices of component <tt>c</tt> are the
+     * vertices with the indices <tt>members[componentOffsets[c]]</tt> to
+     * <tt>members[componentOffsets[c + 1] - 1]</tt> in this order.
      */
-    @Override
-    protected void finishProcessing(final Vertex[] graph) {
-        _graph = new StrongComponent[_strongComponents.size()];
-        for (int i = 0; i < _graph.length; i++) {
-            _graph[i] = _strongComponents.elementAt(i);
-            if (_calculateAttributes) {
-                _graph[i].calculateAttributes();
+    static StrongComponent[] createStrongComponents(final CompactGraph graph, final int[] members, final int[] componentOffsets,
+            final int numberOfComponents) {
+        final StrongComponent[] result = new StrongComponent[numberOfComponents];
+        for (int c = 0; c < numberOfComponents; c++) {
+            result[c] = new StrongComponent();
+            for (int i = componentOffsets[c + 1] - 1; i >= componentOffsets[c]; i--) {
+                result[c].addVertex((AtomicVertex) graph.getVertex(members[i]));
             }
         }
+        return result;
+    }
 
-        final Enumeration<Vertex> keys = _vertexToComponents.keys();
-        while (keys.hasMoreElements()) {
-            final AtomicVertex vertex = (AtomicVertex) keys.nextElement();
-            final StrongComponent tail = _vertexToComponents.get(vertex);
-            for (int i = 0, n = vertex.getNumberOfOutgoingArcs(); i < n; i++) {
-                final AtomicVertex h = (AtomicVertex) vertex.getHeadVertex(i);
-                if (h.isGraphVertex()) {
-                    final StrongComponent head = _vertexToComponents.get(h);
-                    if (head != null && head != tail) {
-                        tail.addOutgoingArcTo(head);
+    /**
+     * Adds all arcs to the strong components and returns the condensed graph.
+     * There is an arc from a strong component to another one if there is at
+     * least one arc from a vertex of one component to a vertex of the other
+     * one. Arcs to vertices which are not graph vertices are ignored.
+     *
+     * @param components
+     *            Component index of each vertex of the graph.
+     */
+    static CompactGraph createCondensedGraph(final CompactGraph graph, final boolean[] graphVertices, final StrongComponent[] strongComponents,
+            final int[] components, final int[] members, final int[] componentOffsets) {
+        final int numberOfVertices = graphVertices.length;
+        final int numberOfComponents = strongComponents.length;
+        final int[] offsets = new int[numberOfComponents + 1];
+        final int[] tails = new int[graph.getNumberOfArcs()];
+        final int[] heads = new int[graph.getNumberOfArcs()];
+        final int[] lastTails = new int[numberOfComponents];
+        Arrays.fill(lastTails, -1);
+        int numberOfArcs = 0;
+        for (int c = 0; c < numberOfComponents; c++) {
+            offsets[c] = numberOfArcs;
+            for (int i = componentOffsets[c], n = componentOffsets[c + 1]; i < n; i++) {
+                final int vertex = members[i];
+                for (int j = 0, m = graph.getNumberOfOutgoingArcs(vertex); j < m; j++) {
+                    final int head = graph.getHead(vertex, j);
+                    if (head < numberOfVertices && graphVertices[head]) {
+                        final int headComponent = components[head];
+                        if (headComponent != c && lastTails[headComponent] != c) {
+                            lastTails[headComponent] = c;
+                            tails[numberOfArcs] = c;
+                            heads[numberOfArcs++] = headComponent;
+                        }
                     }
                 }
             }
         }
+        offsets[numberOfComponents] = numberOfArcs;
+        Vertex.addArcs(strongComponents, tails, heads, numberOfArcs);
+        final int[] usedHeads = new int[numberOfArcs];
+        System.arraycopy(heads, 0, usedHeads, 0, numberOfArcs);
+        return new CompactGraph(strongComponents, numberOfComponents, offsets, usedHeads);
+    }
+
+    /** Not used because the deep search first is not recursive. */
+    @Override
+    protected void initializeProcessing(final Vertex[] graph) {
+    }
+
+    /** Not used because the deep search first is not recursive. */
+    @Override
+    protected void processBefore(final Vertex vertex) {
+    }
+
+    /** Not used because the deep search first is not recursive. */
+    @Override
+    protected void processArc(final Vertex tail, final Vertex head) {
+    }
+
+    /** Not used because the deep search first is not recursive. */
+    @Override
+    protected void processAfter(final Vertex vertex) {
+    }
+
+    /** Not used because the deep search first is not recursive. */
+    @Override
+    protected void finishProcessing(final Vertex[] graph) {
     }
 
     /**
@@ -172,4 +246,4 @@ public final class StrongComponentProcessor extends GraphProcessor {
         }
         throw new IllegalArgumentException(vertex + " is not an instance of AtomicVertex");
     }
-}
\ No newline at end of file
+}
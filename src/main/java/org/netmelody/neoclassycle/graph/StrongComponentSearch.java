@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2012 Tom Denley
+ * This file incorporates work covered by the following copyright and
+ * permission notice:
+ *
+ * Copyright (c) 2003-2008, Franz-Josef Elmer, All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.netmelody.neoclassycle.graph;
+
+import java.util.Arrays;
+
+/**
+ * Tarjan's algorithm for finding the strong components of the vertices of a
+ * {@link CompactGraph}. The deep search first is not recursive: Its frames
+ * hold the vertex and the index of its next arc. Components are numbered in
+ * the order they are found, i.e.&nbsp;in reverse topological order. The
+ * vertices of each component are stored consecutively in the order they are
+ * added to the component. An instance can be run several times but not
+ * concurrently.
+ */
+final class StrongComponentSearch {
+    private final CompactGraph _graph;
+    private final int[] _orders;
+    private final int[] _lows;
+    private final int[] _stack;
+    private final boolean[] _onStack;
+    private final int[] _frameVertices;
+    private final int[] _frameArcs;
+    private final int[] _components;
+    private final int[] _members;
+    private final int[] _componentOffsets;
+    private boolean[] _reachableVertices;
+    private int _numberOfComponents;
+    private int _counter;
+    private int _stackSize;
+    private int _numberOfMembers;
+
+    /**
+     * Creates an instance for the vertices <tt>0</tt> to
+     * <tt>numberOfVertices - 1</tt> of the specified graph. Arcs to other
+     * vertices are ignored.
+     */
+    StrongComponentSearch(final CompactGraph graph, final int numberOfVertices) {
+        _graph = graph;
+        _orders = new int[numberOfVertices];
+        _lows = new int[numberOfVertices];
+        _stack = new int[numberOfVertices];
+        _onStack = new boolean[numberOfVertices];
+        _frameVertices = new int[numberOfVertices];
+        _frameArcs = new int[numberOfVertices];
+        _components = new int[numberOfVertices];
+        _members = new int[numberOfVertices];
+        _componentOffsets = new int[numberOfVertices + 1];
+    }
+
+    /**
+     * Finds the strong components of all vertices.
+     *
+     * @param reachableVertices
+     *            Flags of the vertices which can be reached via arcs. Arcs to
+     *            other vertices are ignored. Thus these vertices end up in
+     *            components of their own. <tt>null</tt> means that all
+     *            vertices can be reached.
+     */
+    void run(final boolean[] reachableVertices) {
+        _reachableVertices = reachableVertices;
+        Arrays.fill(_orders, -1);
+        _numberOfComponents = 0;
+        _counter = 0;
+        _stackSize = 0;
+        _numberOfMembers = 0;
+        for (int i = 0; i < _orders.length; i++) {
+            if (_orders[i] < 0) {
+                process(i);
+            }
+        }
+    }
+
+    /** Returns the number of strong components found. */
+    int getNumberOfComponents() {
+        return _numberOfComponents;
+    }
+
+    /** Returns the index of the strong component of each vertex. */
+    int[] getComponents() {
+        return _components;
+    }
+
+    /**
+     * Returns the vertices of all components. The vertices of component
+     * <tt>c</tt> are at the positions <tt>getComponentOffsets()[c]</tt> to
+     * <tt>getComponentOffsets()[c + 1] - 1</tt>.
+     */
+    int[] getMembers() {
+        return _members;
+    }
+
+    /** Returns the position of the first vertex of each component. */
+    int[] getComponentOffsets() {
+        return _componentOffsets;
+    }
+
+    /** Processes all vertices reachable from the specified one. */
+    private void process(final int root) {
+        int depth = 0;
+        enter(root, depth);
+        while (depth >= 0) {
+            final int vertex = _frameVertices[depth];
+            if (_frameArcs[depth] < _graph.getNumberOfOutgoingArcs(vertex)) {
+                final int head = _graph.getHead(vertex, _frameArcs[depth]++);
+                if (head < _orders.length && (_reachableVertices == null || _reachableVertices[head])) {
+                    if (_orders[head] < 0) {
+                        enter(head, ++depth);
+                    }
+                    else if (_orders[head] < _orders[vertex] && _onStack[head]) {
+                        _lows[vertex] = Math.min(_lows[vertex], _orders[head]);
+                    }
+                }
+            }
+            else {
+                if (_lows[vertex] == _orders[vertex]) {
+                    createComponent(vertex);
+                }
+                if (--depth >= 0) {
+                    final int tail = _frameVertices[depth];
+                    _lows[tail] = Math.min(_lows[tail], _lows[vertex]);
+                }
+            }
+        }
+    }
+
+    private void enter(final int vertex, final int depth) {
+        _orders[vertex] = _counter;
+        _lows[vertex] = _counter++;
+        _stack[_stackSize++] = vertex;
+        _onStack[vertex] = true;
+        _frameVertices[depth] = vertex;
+        _frameArcs[depth] = 0;
+    }
+
+    /**
+     * Pops the vertices of the strong component with the specified root from
+     * the stack.
+     */
+    private void createComponent(final int root) {
+        final int componentIndex = _numberOfComponents++;
+        int bottom = _stackSize;
+        while (bottom > 0 && _orders[_stack[bottom - 1]] >= _orders[root]) {
+            bottom--;
+        }
+        for (int i = bottom; i < _stackSize; i++) {
+            final int member = _stack[i];
+            _onStack[member] = false;
+            _components[member] = componentIndex;
+            _members[_numberOfMembers++] = member;
+        }
+        _stackSize = bottom;
+        _componentOffsets[componentIndex + 1] = _numberOfMembers;
+    }
+}
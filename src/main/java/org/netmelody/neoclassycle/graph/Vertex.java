@@ -28,30 +28,35 @@
  */
 package org.netmelody.neoclassycle.graph;
 
-import java.util.Vector;
+import org.netmelody.neoclassycle.util.LongHashSet;
 
 /**
  * The base class for any type of vertex in a directed graph.
  * <p>
  * A <tt>Vertex</tt> holds an {@link Attributes} object which encapsulates all
  * properties of the vertex which are not necessary to know for parsing a graph
- * in a {@link GraphProcessor}. Only the visited flag will be manipulated during
- * parsing.
+ * in a {@link GraphProcessor}. Processors keep their state in arrays indexed
+ * by the vertex indices of a {@link CompactGraph}. Thus a vertex is not
+ * modified by processing and a graph can be processed by several threads.
  * <p>
  * A <tt>Vertex</tt> knows the head and tail vertices of all its outgoing and
  * incoming arcs. When a head vertex is added by the method
  * {@link #addOutgoingArcTo} also the corresponding incoming arc is built in the
  * head vertex. The same is true the other way around. Note, that multi-arcs are
  * not possible. That is, adding an already added head/tail vertex again as a
- * head/tail vertex will be ignored.
+ * head/tail vertex will be ignored. Graphs with many arcs should be created by
+ * {@link #addArcs} which is linear in the number of arcs.
  *
  * @author Franz-Josef Elmer
  */
 public class Vertex implements Comparable<Vertex> {
-    private final Vector<Vertex> _heads = new Vector<Vertex>();
-    private final Vector<Vertex> _tails = new Vector<Vertex>();
+    private static final Vertex[] NO_VERTICES = new Vertex[0];
+
+    private Vertex[] _heads = NO_VERTICES;
+    private int _numberOfHeads;
+    private Vertex[] _tails = NO_VERTICES;
+    private int _numberOfTails;
     private final Attributes _attributes;
-    private boolean _visited;
 
     /** Create a new instance for the specified attributes. */
     public Vertex(final Attributes attributes) {
@@ -68,12 +73,15 @@ public class Vertex implements Comparable<Vertex> {
      * head vertices.
      */
     public int getNumberOfOutgoingArcs() {
-        return _heads.size();
+        return _numberOfHeads;
     }
 
     /** Returns the head vertex of the specified outgoing arc. */
     public Vertex getHeadVertex(final int index) {
-        return _heads.elementAt(index);
+        if (index >= _numberOfHeads) {
+            throw new ArrayIndexOutOfBoundsException(index + " >= " + _numberOfHeads);
+        }
+        return _heads[index];
     }
 
     /**
@@ -87,8 +95,8 @@ public class Vertex implements Comparable<Vertex> {
      *            <tt>Null</tt> is not allowed.
      */
     public void addOutgoingArcTo(final Vertex headVertex) {
-        if (!_heads.contains(headVertex)) {
-            _heads.addElement(headVertex);
+        if (!contains(_heads, _numberOfHeads, headVertex)) {
+            appendHead(headVertex);
             headVertex.addIncomingArcTo(this);
         }
     }
@@ -98,12 +106,15 @@ public class Vertex implements Comparable<Vertex> {
      * tail vertices.
      */
     public int getNumberOfIncomingArcs() {
-        return _tails.size();
+        return _numberOfTails;
     }
 
     /** Returns the tail vertex of the specified outgoing arc. */
     public Vertex getTailVertex(final int index) {
-        return _tails.elementAt(index);
+        if (index >= _numberOfTails) {
+            throw new ArrayIndexOutOfBoundsException(index + " >= " + _numberOfTails);
+        }
+        return _tails[index];
     }
 
     /**
@@ -117,28 +128,84 @@ public class Vertex implements Comparable<Vertex> {
      *            <tt>Null</tt> is not allowed.
      */
     public void addIncomingArcTo(final Vertex tailVertex) {
-        if (!_tails.contains(tailVertex)) {
-            _tails.addElement(tailVertex);
+        if (!contains(_tails, _numberOfTails, tailVertex)) {
+            appendTail(tailVertex);
             tailVertex.addOutgoingArcTo(this);
         }
     }
 
-    /** Reset this vertex. That is, the visited flag is set to <tt>false</tt>. */
-    public void reset() {
-        _visited = false;
-    }
-
     /**
-     * Marks this instance as visited. That is, the visited flag becomes
-     * <tt>true</tt>.
+     * Adds arcs between the specified vertices. Arc <tt>i</tt> goes from
+     * vertex <tt>vertices[tails[i]]</tt> to vertex
+     * <tt>vertices[heads[i]]</tt>. The arcs are added in this order. As for
+     * {@link #addOutgoingArcTo} an arc is ignored if it already exists. In
+     * contrast to {@link #addOutgoingArcTo} duplicates are detected by a hash
+     * set of the packed indices. Thus the time needed is linear in the number
+     * of arcs. Existing arcs are only searched if both vertices already had
+     * arcs before.
+     *
+     * @param vertices
+     *            Distinct vertices indexed by the elements of <tt>tails</tt>
+     *            and <tt>heads</tt>. <tt>Null</tt> is allowed for unused
+     *            indices.
+     * @param tails
+     *            Indices of the tail vertices.
+     * @param heads
+     *            Indices of the head vertices.
+     * @param numberOfArcs
+     *            Number of arcs. Further elements of <tt>tails</tt> and
+     *            <tt>heads</tt> are ignored.
      */
-    public void visit() {
-        _visited = true;
+    public static void addArcs(final Vertex[] vertices, final int[] tails, final int[] heads, final int numberOfArcs) {
+        // A vertex without arcs can not be the head or tail of an existing arc
+        final boolean[] withArcs = new boolean[vertices.length];
+        for (int i = 0; i < vertices.length; i++) {
+            final Vertex vertex = vertices[i];
+            withArcs[i] = vertex != null && (vertex._numberOfHeads > 0 || vertex._numberOfTails > 0);
+        }
+        final LongHashSet arcs = new LongHashSet(numberOfArcs);
+        for (int i = 0; i < numberOfArcs; i++) {
+            if (arcs.add(LongHashSet.pack(tails[i], heads[i]))) {
+                final Vertex tail = vertices[tails[i]];
+                final Vertex head = vertices[heads[i]];
+                if (withArcs[tails[i]] && withArcs[heads[i]]) {
+                    tail.addOutgoingArcTo(head);
+                }
+                else {
+                    tail.appendHead(head);
+                    head.appendTail(tail);
+                }
+            }
+        }
+    }
+
+    private static boolean contains(final Vertex[] vertices, final int size, final Vertex vertex) {
+        for (int i = 0; i < size; i++) {
+            if (vertices[i] == vertex) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void appendHead(final Vertex headVertex) {
+        if (_numberOfHeads == _heads.length) {
+            _heads = grow(_heads);
+        }
+        _heads[_numberOfHeads++] = headVertex;
     }
 
-    /** Returns the visited flag. */
-    public boolean isVisited() {
-        return _visited;
+    private void appendTail(final Vertex tailVertex) {
+        if (_numberOfTails == _tails.length) {
+            _tails = grow(_tails);
+        }
+        _tails[_numberOfTails++] = tailVertex;
+    }
+
+    private static Vertex[] grow(final Vertex[] vertices) {
+        final Vertex[] result = new Vertex[Math.max(4, 2 * vertices.length)];
+        System.arraycopy(vertices, 0, result, 0, vertices.length);
+        return result;
     }
 
     /**
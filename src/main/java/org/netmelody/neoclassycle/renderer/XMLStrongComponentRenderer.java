@@ -72,7 +72,7 @@ public class XMLStrongComponentRenderer extends AbstractStrongComponentRenderer
 
     private MessageFormat getStrongComponentElementTemplate() {
         return new MessageFormat("    <" + strongComponentElementName + " name=\"{0}\" size=\"{1}\" longestWalk=\"{2}\""
-                + " girth=\"{3}\" radius=\"{4}\" diameter=\"{5}\"" + " bestFragmentSize=\"{6}\">\n");
+                + " girth=\"{3}\" radius=\"{4}\" diameter=\"{5}\"" + " bestFragmentSize=\"{6}\"{7}>\n");
     }
 
     private MessageFormat getNodeElementTemplate() {
@@ -88,7 +88,7 @@ public class XMLStrongComponentRenderer extends AbstractStrongComponentRenderer
     public String render(final StrongComponent component) {
         final StringBuffer result = new StringBuffer();
         if (component.getNumberOfVertices() >= _minimumSize) {
-            final String[] values = new String[7];
+            final String[] values = new String[8];
             values[0] = createName(component);
             values[1] = Integer.toString(component.getNumberOfVertices());
             values[2] = Integer.toString(component.getLongestWalk());
@@ -97,6 +97,7 @@ public class XMLStrongComponentRenderer extends AbstractStrongComponentRenderer
             values[4] = Integer.toString(attributes.getRadius());
             values[5] = Integer.toString(attributes.getDiameter());
             values[6] = Integer.toString(attributes.getBestFragmentSize());
+            values[7] = attributes.isApproximate() ? " approximate=\"true\"" : "";
             getStrongComponentElementTemplate().format(values, result, null);
 
             renderClasses(component, result);
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2012 Tom Denley
+ * This file incorporates work covered by the following copyright and
+ * permission notice:
+ *
+ * Copyright (c) 2003-2008, Franz-Josef Elmer, All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.netmelody.neoclassycle.util;
+
+/**
+ * Set of <tt>long</tt> values based on open addressing with linear probing.
+ * In contrast to a <tt>HashSet&lt;Long&gt;</tt> no object is created per
+ * element. Typical elements are two <tt>int</tt> ids packed by
+ * {@link #pack(int, int)}.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public final class LongHashSet {
+    private static final int MINIMUM_CAPACITY = 16;
+
+    private long[] _elements;
+    private boolean[] _used;
+    private int _size;
+
+    /**
+     * Creates an instance which can hold the specified number of elements
+     * without growing.
+     */
+    public LongHashSet(final int expectedSize) {
+        int capacity = MINIMUM_CAPACITY;
+        while (capacity < 2 * expectedSize) {
+            capacity <<= 1;
+        }
+        _elements = new long[capacity];
+        _used = new boolean[capacity];
+    }
+
+    /** Packs the specified ids into one <tt>long</tt>. */
+    public static long pack(final int high, final int low) {
+        return ((long) high << 32) | (low & 0xffffffffL);
+    }
+
+    /** Returns the number of elements. */
+    public int size() {
+        return _size;
+    }
+
+    /** Returns <tt>true</tt> if the specified value is an element. */
+    public boolean contains(final long value) {
+        final int mask = _elements.length - 1;
+        for (int i = hash(value) & mask; _used[i]; i = (i + 1) & mask) {
+            if (_elements[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the specified value.
+     *
+     * @return <tt>false</tt> if the value is already an element.
+     */
+    public boolean add(final long value) {
+        final int mask = _elements.length - 1;
+        int i = hash(value) & mask;
+        for (; _used[i]; i = (i + 1) & mask) {
+            if (_elements[i] == value) {
+                return false;
+            }
+        }
+        _elements[i] = value;
+        _used[i] = true;
+        if (++_size > _elements.length / 2) {
+            grow();
+        }
+        return true;
+    }
+
+    private void grow() {
+        final long[] elements = _elements;
+        final boolean[] used = _used;
+        _elements = new long[2 * elements.length];
+        _used = new boolean[2 * elements.length];
+        final int mask = _elements.length - 1;
+        for (int j = 0; j < elements.length; j++) {
+            if (used[j]) {
+                int i = hash(elements[j]) & mask;
+                while (_used[i]) {
+                    i = (i + 1) & mask;
+                }
+                _elements[i] = elements[j];
+                _used[i] = true;
+            }
+        }
+    }
+
+    /** Spreads the bits of the value because packed ids differ mostly in a few bits. */
+    private static int hash(final long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return (int) (h ^ (h >>> 16));
+    }
+}
@@ -0,0 +1,466 @@
+/*
+ * Copyright (c) 2012 Tom Denley
+ * This file incorporates work covered by the following copyright and
+ * permission notice:
+ *
+ * Copyright (c) 2003-2008, Franz-Josef Elmer, All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.netmelody.neoclassycle.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Read-only zip file which is memory-mapped as a whole. The central directory
+ * is read directly from the mapped buffer. The content of a <tt>STORED</tt>
+ * entry is a slice of the mapped buffer, i.e. no bytes are copied. The content
+ * of a <tt>DEFLATED</tt> entry is inflated into a buffer of the calling
+ * thread which is reused for the next entry. Inflaters are pooled.
+ * <p>
+ * ZIP64 archives and archives larger than 2 GB are not supported. For them
+ * an {@link UnsupportedZipFileException} is thrown, so that the caller can
+ * fall back to <tt>java.util.zip</tt>.
+ * <p>
+ * Reading entries is thread-safe. An instance should be closed after use in
+ * order to release the mapping and the inflaters.
+ */
+public final class MappedZipFile {
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int CENTRAL_DIRECTORY_ENTRY = 0x02014b50;
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int STORED = 0, DEFLATED = 8;
+    private static final int MAX_COMMENT_LENGTH = 0xffff;
+
+    /** Per-thread buffers for compressed and inflated bytes. */
+    private static final class Buffers {
+        private byte[] _input = new byte[8192];
+        private byte[] _output = new byte[8192];
+    }
+
+    private static final ThreadLocal<Buffers> BUFFERS = new ThreadLocal<Buffers>() {
+        @Override
+        protected Buffers initialValue() {
+            return new Buffers();
+        }
+    };
+
+    /**
+     * Exception thrown if a zip file is valid but uses features not supported
+     * by {@link MappedZipFile}, e.g.&nbsp;ZIP64.
+     */
+    public static final class UnsupportedZipFileException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedZipFileException(final String message) {
+            super(message);
+        }
+    }
+
+    /** Entry of the central directory. */
+    public static final class Entry {
+        private final String _name;
+        private final int _method;
+        private final long _crc;
+        private final int _compressedSize;
+        private final int _size;
+        private final int _localHeaderOffset;
+
+        Entry(final String name, final int method, final long crc, final int compressedSize, final int size, final int localHeaderOffset) {
+            _name = name;
+            _method = method;
+            _crc = crc;
+            _compressedSize = compressedSize;
+            _size = size;
+            _localHeaderOffset = localHeaderOffset;
+        }
+
+        /** Returns the name of the entry. */
+        public String getName() {
+            return _name;
+        }
+
+        /** Returns <tt>true</tt> if the entry is a directory. */
+        public boolean isDirectory() {
+            return _name.endsWith("/");
+        }
+
+        /** Returns the CRC-32 of the uncompressed content. */
+        public long getCrc() {
+            return _crc;
+        }
+
+        /** Returns the size of the uncompressed content in bytes. */
+        public int getSize() {
+            return _size;
+        }
+
+        @Override
+        public String toString() {
+            return _name;
+        }
+    }
+
+    private final String _name;
+    private final ByteBuffer _buffer;
+    /** The mapped buffer if the file has been mapped by this instance. */
+    private final ByteBuffer _mappedBuffer;
+    private final List<Entry> _entries;
+    private final Queue<Inflater> _inflaters = new ConcurrentLinkedQueue<Inflater>();
+    private volatile boolean _closed;
+
+    /**
+     * Maps the specified zip file and reads its central directory.
+     *
+     * @throws UnsupportedZipFileException
+     *             if the file is a ZIP64 archive or larger than 2 GB.
+     * @throws IOException
+     *             if the file can not be read or is not a zip file.
+     */
+    public MappedZipFile(final File file) throws IOException {
+        this(file.getPath(), map(file), true);
+    }
+
+    /**
+     * Creates an instance for a zip file given as a buffer, e.g. the content
+     * of an entry of another zip file.
+     *
+     * @param name
+     *            Name of the zip file used in error messages.
+     * @param buffer
+     *            Buffer with the zip file between position and limit.
+     */
+    public MappedZipFile(final String name, final ByteBuffer buffer) throws IOException {
+        this(name, buffer, false);
+    }
+
+    private MappedZipFile(final String name, final ByteBuffer buffer, final boolean mapped) throws IOException {
+        _name = name;
+        _buffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        _mappedBuffer = mapped ? buffer : null;
+        try {
+            _entries = Collections.unmodifiableList(readCentralDirectory());
+        }
+        catch (final IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private static ByteBuffer map(final File file) throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = randomAccessFile.getChannel();
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new UnsupportedZipFileException("Zip file larger than 2 GB not supported: " + file);
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /** Returns the name of the zip file. */
+    public String getName() {
+        return _name;
+    }
+
+    /** Returns all entries in the order of the central directory. */
+    public List<Entry> getEntries() {
+        return _entries;
+    }
+
+    private List<Entry> readCentralDirectory() throws IOException {
+        final int endOfCentralDirectory = findEndOfCentralDirectory();
+        final int numberOfEntries = _buffer.getShort(endOfCentralDirectory + 10) & 0xffff;
+        final long centralDirectoryOffset = _buffer.getInt(endOfCentralDirectory + 16) & 0xffffffffL;
+        if (numberOfEntries == 0xffff || centralDirectoryOffset == 0xffffffffL) {
+            throw new UnsupportedZipFileException("ZIP64 not supported: " + _name);
+        }
+        if (centralDirectoryOffset > endOfCentralDirectory) {
+            throw new IOException("Invalid zip file: " + _name);
+        }
+        final List<Entry> entries = new ArrayList<Entry>(numberOfEntries);
+        int position = (int) centralDirectoryOffset;
+        for (int i = 0; i < numberOfEntries; i++) {
+            if (position + 46 > endOfCentralDirectory || _buffer.getInt(position) != CENTRAL_DIRECTORY_ENTRY) {
+                throw new IOException("Invalid central directory of zip file: " + _name);
+            }
+            final int method = _buffer.getShort(position + 10) & 0xffff;
+            final long crc = _buffer.getInt(position + 16) & 0xffffffffL;
+            final long compressedSize = _buffer.getInt(position + 20) & 0xffffffffL;
+            final long size = _buffer.getInt(position + 24) & 0xffffffffL;
+            final int nameLength = _buffer.getShort(position + 28) & 0xffff;
+            final int extraLength = _buffer.getShort(position + 30) & 0xffff;
+            final int commentLength = _buffer.getShort(position + 32) & 0xffff;
+            final long localHeaderOffset = _buffer.getInt(position + 42) & 0xffffffffL;
+            if (compressedSize >= _buffer.limit() || size > Integer.MAX_VALUE || localHeaderOffset >= _buffer.limit()) {
+                throw new UnsupportedZipFileException("ZIP64 not supported: " + _name);
+            }
+            final String name = decodeName(position + 46, nameLength);
+            entries.add(new Entry(name, method, crc, (int) compressedSize, (int) size, (int) localHeaderOffset));
+            position += 46 + nameLength + extraLength + commentLength;
+        }
+        return entries;
+    }
+
+    private int findEndOfCentralDirectory() throws IOException {
+        final int last = _buffer.limit() - 22;
+        for (int position = last; position >= 0 && position >= last - MAX_COMMENT_LENGTH; position--) {
+            if (_buffer.getInt(position) == END_OF_CENTRAL_DIRECTORY) {
+                return position;
+            }
+        }
+        throw new IOException("Not a zip file: " + _name);
+    }
+
+    private String decodeName(final int position, final int length) throws IOException {
+        final byte[] bytes = new byte[length];
+        final ByteBuffer buffer = _buffer.duplicate();
+        buffer.position(position);
+        buffer.get(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    private int getDataOffset(final Entry entry) throws IOException {
+        if (_closed) {
+            throw new IOException("Zip file closed: " + _name);
+        }
+        final int position = entry._localHeaderOffset;
+        if (position + 30 > _buffer.limit() || _buffer.getInt(position) != LOCAL_HEADER) {
+            throw new IOException("Invalid local header of entry " + entry + " in zip file: " + _name);
+        }
+        final int nameLength = _buffer.getShort(position + 26) & 0xffff;
+        final int extraLength = _buffer.getShort(position + 28) & 0xffff;
+        final int offset = position + 30 + nameLength + extraLength;
+        if (offset + entry._compressedSize > _buffer.limit()) {
+            throw new IOException("Unexpected end of entry " + entry + " in zip file: " + _name);
+        }
+        return offset;
+    }
+
+    /**
+     * Returns the uncompressed content of the specified entry between position
+     * and limit of the returned buffer. The content of a <tt>DEFLATED</tt>
+     * entry is only valid until the calling thread requests the content of the
+     * next <tt>DEFLATED</tt> entry.
+     */
+    public ByteBuffer getContent(final Entry entry) throws IOException {
+        final int offset = getDataOffset(entry);
+        if (entry._method == STORED) {
+            final ByteBuffer content = _buffer.duplicate();
+            content.limit(offset + entry._compressedSize).position(offset);
+            return content;
+        }
+        if (entry._method != DEFLATED) {
+            throw new IOException("Unsupported compression method " + entry._method + " of entry " + entry + " in zip file: " + _name);
+        }
+
+        final Buffers buffers = BUFFERS.get();
+        if (buffers._input.length < entry._compressedSize + 1) {
+            buffers._input = new byte[Math.max(entry._compressedSize + 1, 2 * buffers._input.length)];
+        }
+        if (buffers._output.length < entry._size) {
+            buffers._output = new byte[Math.max(entry._size, 2 * buffers._output.length)];
+        }
+        final ByteBuffer compressed = _buffer.duplicate();
+        compressed.position(offset);
+        compressed.get(buffers._input, 0, entry._compressedSize);
+        // A dummy byte is needed by the inflater in 'nowrap' mode
+        buffers._input[entry._compressedSize] = 0;
+
+        Inflater inflater = _inflaters.poll();
+        if (inflater == null) {
+            inflater = new Inflater(true);
+        }
+        try {
+            inflater.setInput(buffers._input, 0, entry._compressedSize + 1);
+            int length = 0;
+            while (length < entry._size) {
+                final int n = inflater.inflate(buffers._output, length, entry._size - length);
+                if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += n;
+            }
+            if (length != entry._size) {
+                throw new IOException("Invalid compressed data of entry " + entry + " in zip file: " + _name);
+            }
+        }
+        catch (final DataFormatException e) {
+            throw new IOException("Invalid compressed data of entry " + entry + " in zip file: " + _name + ": " + e.getMessage());
+        }
+        finally {
+            inflater.reset();
+            _inflaters.offer(inflater);
+        }
+        return ByteBuffer.wrap(buffers._output, 0, entry._size);
+    }
+
+    /**
+     * Returns a stream of the uncompressed content of the specified entry.
+     * In contrast to {@link #getContent(Entry)} no per-thread buffer is used.
+     * Thus the stream can be read while other entries are accessed.
+     */
+    public InputStream getInputStream(final Entry entry) throws IOException {
+        final int offset = getDataOffset(entry);
+        final ByteBuffer content = _buffer.duplicate();
+        content.limit(offset + entry._compressedSize).position(offset);
+        final InputStream stream = new ByteBufferInputStream(content);
+        if (entry._method == STORED) {
+            return stream;
+        }
+        if (entry._method != DEFLATED) {
+            throw new IOException("Unsupported compression method " + entry._method + " of entry " + entry + " in zip file: " + _name);
+        }
+        return new InflaterInputStream(stream, new Inflater(true)) {
+            private boolean _dummyByteAdded;
+
+            @Override
+            protected void fill() throws IOException {
+                if (_dummyByteAdded) {
+                    throw new IOException("Unexpected end of entry " + entry + " in zip file: " + _name);
+                }
+                len = in.read(buf, 0, buf.length);
+                if (len == -1) {
+                    // A dummy byte is needed by the inflater in 'nowrap' mode
+                    buf[0] = 0;
+                    len = 1;
+                    _dummyByteAdded = true;
+                }
+                inf.setInput(buf, 0, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                super.close();
+                inf.end();
+            }
+        };
+    }
+
+    /**
+     * Closes this zip file. The pooled inflaters are released and the mapping
+     * of the file is released if possible. Otherwise it is released by the
+     * garbage collector. Entries can no longer be read, and buffers returned
+     * by {@link #getContent(Entry)} must no longer be used. This method must
+     * not be called while entries are read. Closing a closed zip file has no
+     * effect.
+     */
+    public void close() {
+        if (_closed) {
+            return;
+        }
+        _closed = true;
+        for (Inflater inflater = _inflaters.poll(); inflater != null; inflater = _inflaters.poll()) {
+            inflater.end();
+        }
+        if (_mappedBuffer != null) {
+            unmap(_mappedBuffer);
+        }
+    }
+
+    /**
+     * Releases the specified mapped buffer immediately, so that the file is no
+     * longer locked (e.g.&nbsp;on Windows). There is no public API for it.
+     * Thus the internal API of the running Java version is used if it is
+     * accessible. Otherwise nothing happens.
+     */
+    private static void unmap(final ByteBuffer buffer) {
+        try {
+            // Java 9 and later
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            final Field unsafe = unsafeClass.getDeclaredField("theUnsafe");
+            unsafe.setAccessible(true);
+            invokeCleaner.invoke(unsafe.get(null), buffer);
+            return;
+        }
+        catch (final NoSuchMethodException e) {
+            // Java 8 and earlier
+        }
+        catch (final Exception e) {
+            return;
+        }
+        try {
+            final Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            final Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        }
+        catch (final Exception e) {
+            // released by the garbage collector
+        }
+    }
+
+    /** Input stream reading the remaining bytes of a buffer. */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer _buffer;
+
+        ByteBufferInputStream(final ByteBuffer buffer) {
+            _buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return _buffer.hasRemaining() ? _buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (_buffer.hasRemaining() == false) {
+                return -1;
+            }
+            final int n = Math.min(length, _buffer.remaining());
+            _buffer.get(bytes, offset, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return _buffer.remaining();
+        }
+    }
+}
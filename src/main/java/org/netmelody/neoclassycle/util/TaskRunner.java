@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2012 Tom Denley
+ * This file incorporates work covered by the following copyright and
+ * permission notice:
+ *
+ * Copyright (c) 2003-2008, Franz-Josef Elmer, All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.netmelody.neoclassycle.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs a list of independent tasks either on the calling thread or on a pool
+ * of worker threads. The pool threads take the next pending task from a shared
+ * queue as soon as they become idle, so many small tasks are balanced across
+ * the workers. Results are always returned in the order of the tasks, which
+ * makes the outcome independent of the number of threads.
+ */
+public final class TaskRunner {
+    private static final ThreadFactory DAEMON_THREADS = new ThreadFactory() {
+        private final ThreadFactory _delegate = Executors.defaultThreadFactory();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = _delegate.newThread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
+    private TaskRunner() {
+    }
+
+    /**
+     * Returns the number of processors available to the virtual machine.
+     */
+    public static int getNumberOfProcessors() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Creates a pool of the specified number of daemon worker threads. The
+     * caller has to shut it down.
+     */
+    public static ExecutorService createPool(final int numberOfThreads) {
+        return Executors.newFixedThreadPool(numberOfThreads, DAEMON_THREADS);
+    }
+
+    /**
+     * Runs the specified tasks and returns their results.
+     *
+     * @param tasks
+     *            Independent tasks.
+     * @param numberOfThreads
+     *            Number of worker threads. If less than two all tasks are run
+     *            one after another on the calling thread.
+     * @return the results in the order of <tt>tasks</tt>.
+     * @throws ExecutionException
+     *             wrapping the first failure (in task order) of a task.
+     */
+    public static <T> List<T> run(final List<? extends Callable<T>> tasks, final int numberOfThreads) throws ExecutionException {
+        final List<T> results = new ArrayList<T>(tasks.size());
+        if (numberOfThreads < 2 || tasks.size() < 2) {
+            for (final Callable<T> task : tasks) {
+                try {
+                    results.add(task.call());
+                }
+                catch (final Exception e) {
+                    throw new ExecutionException(e);
+                }
+            }
+            return results;
+        }
+
+        final ExecutorService executor = createPool(Math.min(numberOfThreads, tasks.size()));
+        try {
+            final List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+            for (final Callable<T> task : tasks) {
+                futures.add(executor.submit(task));
+            }
+            for (final Future<T> future : futures) {
+                results.add(future.get());
+            }
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExecutionException(e);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        return results;
+    }
+
+    /**
+     * Same as {@link #run(List, int)} but for tasks which throw no checked
+     * exceptions. The failure of a task is rethrown as described by
+     * {@link #toUncheckedException(ExecutionException)}.
+     */
+    public static <T> List<T> runUnchecked(final List<? extends Callable<T>> tasks, final int numberOfThreads) {
+        try {
+            return run(tasks, numberOfThreads);
+        }
+        catch (final ExecutionException e) {
+            throw toUncheckedException(e);
+        }
+    }
+
+    /**
+     * Returns the unchecked exception to be thrown for the specified failure
+     * of {@link #run(List, int)}. Runtime exceptions and errors of a task are
+     * thrown as they are. A checked exception of a task and the interruption
+     * of the calling thread are wrapped by an
+     * <tt>IllegalStateException</tt>.
+     *
+     * @throws Error
+     *             if the cause is an <tt>Error</tt>.
+     */
+    public static RuntimeException toUncheckedException(final ExecutionException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        if (cause instanceof InterruptedException) {
+            return new IllegalStateException("Interrupted while waiting for tasks.", cause);
+        }
+        return new IllegalStateException("Task failed: " + cause, cause);
+    }
+}
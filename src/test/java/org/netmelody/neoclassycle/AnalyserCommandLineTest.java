@@ -3,6 +3,8 @@
  */
 package org.netmelody.neoclassycle;
 
+import java.io.File;
+
 import org.junit.Test;
 import org.netmelody.neoclassycle.util.StringPattern;
 
@@ -99,6 +101,51 @@ public final class AnalyserCommandLineTest {
         checkPattern(pattern, false, new String[] { "foola", "bla" });
     }
 
+    @Test
+    public void testOptionDescriptorsOnly() {
+        assertFalse(new AnalyserCommandLine(new String[] { "foo.jar" }).isDescriptorsOnly());
+        final AnalyserCommandLine commandLine = new AnalyserCommandLine(new String[] { "-descriptorsOnly", "foo.jar" });
+        assertTrue(commandLine.isValid());
+        assertTrue(commandLine.isDescriptorsOnly());
+    }
+
+    @Test
+    public void testOptionThreads() {
+        AnalyserCommandLine commandLine = new AnalyserCommandLine(new String[] { "foo.jar" });
+        assertEquals(1, commandLine.getNumberOfThreads());
+
+        commandLine = new AnalyserCommandLine(new String[] { "-threads=4", "foo.jar" });
+        assertTrue(commandLine.isValid());
+        assertEquals(4, commandLine.getNumberOfThreads());
+
+        assertFalse(new AnalyserCommandLine(new String[] { "-threads=0", "foo.jar" }).isValid());
+        assertFalse(new AnalyserCommandLine(new String[] { "-threads=many", "foo.jar" }).isValid());
+    }
+
+    @Test
+    public void testOptionCache() {
+        AnalyserCommandLine commandLine = new AnalyserCommandLine(new String[] { "foo.jar" });
+        assertNull(commandLine.getCacheFile());
+
+        commandLine = new AnalyserCommandLine(new String[] { "-cache=build/parse.cache", "foo.jar" });
+        assertTrue(commandLine.isValid());
+        assertEquals(new File("build/parse.cache"), commandLine.getCacheFile());
+
+        assertFalse(new AnalyserCommandLine(new String[] { "-cache=", "foo.jar" }).isValid());
+    }
+
+    @Test
+    public void testOptionIndexDirectory() {
+        AnalyserCommandLine commandLine = new AnalyserCommandLine(new String[] { "foo.jar" });
+        assertNull(commandLine.getIndexDirectory());
+
+        commandLine = new AnalyserCommandLine(new String[] { "-indexDirectory=indices", "foo.jar" });
+        assertTrue(commandLine.isValid());
+        assertEquals(new File("indices"), commandLine.getIndexDirectory());
+
+        assertFalse(new AnalyserCommandLine(new String[] { "-indexDirectory=", "foo.jar" }).isValid());
+    }
+
     private static void checkPattern(final StringPattern pattern, final boolean expectedMatchResult, final String[] examples) {
         for (final String example : examples) {
             assertTrue(example + " match " + expectedMatchResult, pattern.matches(example) == expectedMatchResult);
@@ -0,0 +1,84 @@
+package org.netmelody.neoclassycle;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
+import org.netmelody.neoclassycle.graph.AtomicVertex;
+
+/**
+ * Base class of tests which parse the compiled classes of the package
+ * <tt>example</tt>.
+ */
+public abstract class ClassFilesTestCase {
+    protected static final String[] EXAMPLE_CLASSES = { "example/A.class", "example/AA.class", "example/B.class", "example/B$M.class",
+            "example/BofA.class", "example/p/A.class" };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** Copies the example class files into a new folder of the specified name. */
+    protected File createClassFolder(final String name) throws IOException {
+        final File classesDir = folder.newFolder(name);
+        for (final String resourceName : EXAMPLE_CLASSES) {
+            final File file = new File(classesDir, resourceName);
+            file.getParentFile().mkdirs();
+            final OutputStream out = new FileOutputStream(file);
+            try {
+                copyResource(resourceName, out);
+            }
+            finally {
+                out.close();
+            }
+        }
+        return classesDir;
+    }
+
+    /** Creates a zip file of the specified name containing the example class files. */
+    protected File createJar(final String name) throws IOException {
+        final File file = new File(folder.getRoot(), name);
+        final ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file));
+        try {
+            for (final String resourceName : EXAMPLE_CLASSES) {
+                out.putNextEntry(new ZipEntry(resourceName));
+                copyResource(resourceName, out);
+                out.closeEntry();
+            }
+        }
+        finally {
+            out.close();
+        }
+        return file;
+    }
+
+    protected static void copyResource(final String resourceName, final OutputStream out) throws IOException {
+        final InputStream in = ClassFilesTestCase.class.getResourceAsStream("/" + resourceName);
+        try {
+            final byte[] buffer = new byte[1024];
+            for (int len = in.read(buffer); len != -1; len = in.read(buffer)) {
+                out.write(buffer, 0, len);
+            }
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    /** Renders all vertices and their arcs in graph order. */
+    protected static String render(final AtomicVertex[] graph) {
+        final StringBuilder builder = new StringBuilder();
+        for (final AtomicVertex vertex : graph) {
+            builder.append(vertex.getAttributes()).append('\n');
+            for (int i = 0, n = vertex.getNumberOfOutgoingArcs(); i < n; i++) {
+                builder.append("  -> ").append(vertex.getHeadVertex(i).getAttributes()).append('\n');
+            }
+        }
+        return builder.toString();
+    }
+}
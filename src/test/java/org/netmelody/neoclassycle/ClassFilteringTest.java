@@ -0,0 +1,145 @@
+package org.netmelody.neoclassycle;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Test;
+import org.netmelody.neoclassycle.graph.AtomicVertex;
+import org.netmelody.neoclassycle.util.NotStringPattern;
+import org.netmelody.neoclassycle.util.StringPattern;
+import org.netmelody.neoclassycle.util.TrueStringPattern;
+import org.netmelody.neoclassycle.util.WildCardPattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public final class ClassFilteringTest extends ClassFilesTestCase {
+
+    private static AtomicVertex[] parse(final File file, final StringPattern pattern) throws IOException {
+        return Parser.readClassFiles(new String[] { file.getAbsolutePath() }, pattern, null, false, false, 2, null, null);
+    }
+
+    /**
+     * Creates a zip file with the example classes stored under the specified
+     * prefix and an additional entry of the specified name which is not a
+     * valid class file.
+     */
+    private File createArchive(final String name, final String prefix, final String invalidEntryName) throws IOException {
+        final File file = new File(folder.getRoot(), name);
+        final ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file));
+        try {
+            for (final String resourceName : EXAMPLE_CLASSES) {
+                out.putNextEntry(new ZipEntry(prefix + resourceName));
+                copyResource(resourceName, out);
+                out.closeEntry();
+            }
+            out.putNextEntry(new ZipEntry(invalidEntryName));
+            out.write(new byte[] { 1, 2, 3 });
+            out.closeEntry();
+        }
+        finally {
+            out.close();
+        }
+        return file;
+    }
+
+    @Test
+    public void testExcludedEntriesAreNotRead() throws IOException {
+        final File archive = createArchive("example.jar", "", "example/Invalid.class");
+        final StringPattern pattern = new NotStringPattern(new WildCardPattern("*.Invalid"));
+        assertEquals(renderNames(parse(createJar("reference.jar"), pattern)), renderNames(parse(archive, pattern)));
+
+        try {
+            parse(archive, new TrueStringPattern());
+            fail("IOException expected");
+        }
+        catch (final IOException e) {
+            assertEquals("Not a class file: Magic number missing.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testEntriesNotNamedLikeClassesAreParsed() throws IOException {
+        final File archive = createArchive("example.war", "WEB-INF/classes/", "WEB-INF/classes/example/generated/Invalid.class");
+        final StringPattern pattern = new WildCardPattern("example.*");
+        try {
+            parse(archive, pattern);
+            fail("IOException expected");
+        }
+        catch (final IOException e) {
+            assertEquals("Not a class file: Magic number missing.", e.getMessage());
+        }
+
+        final File validArchive = createArchive("valid.war", "WEB-INF/classes/", "WEB-INF/classes/readme.txt");
+        assertEquals(renderNames(parse(createJar("reference.jar"), pattern)), renderNames(parse(validArchive, pattern)));
+    }
+
+    @Test
+    public void testEntriesOfUnknownPackagesAreRead() throws IOException {
+        final File archive = createArchive("example.jar", "", "example/generated/Invalid.class");
+        try {
+            parse(archive, new NotStringPattern(new WildCardPattern("*.generated.*")));
+            fail("IOException expected");
+        }
+        catch (final IOException e) {
+            assertEquals("Not a class file: Magic number missing.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testPrefixedEntriesAreCheckedByTheirClassName() throws IOException {
+        final StringPattern[] patterns = { new WildCardPattern("example.*"), new NotStringPattern(new WildCardPattern("example.p.*")),
+                new NotStringPattern(new WildCardPattern("*.Invalid")) };
+        for (final String prefix : new String[] { "classes/", "bin/", "META-INF/versions/9/" }) {
+            final File archive = createArchive(prefix.replace('/', '_') + ".jar", prefix, prefix + "example/Invalid.class");
+            for (final StringPattern pattern : patterns) {
+                final String expected = renderNames(parse(createJar("reference.jar"), pattern));
+                if (pattern == patterns[2]) {
+                    assertEquals(expected, renderNames(parse(archive, pattern)));
+                }
+                else {
+                    try {
+                        parse(archive, pattern);
+                        fail("IOException expected");
+                    }
+                    catch (final IOException e) {
+                        assertEquals("Not a class file: Magic number missing.", e.getMessage());
+                    }
+                }
+            }
+            final File validArchive = createArchive(prefix.replace('/', '_') + "valid.jar", prefix, prefix + "readme.txt");
+            for (final StringPattern pattern : patterns) {
+                assertEquals(renderNames(parse(createJar("reference.jar"), pattern)), renderNames(parse(validArchive, pattern)));
+            }
+        }
+    }
+
+    @Test
+    public void testClassFilesAreCheckedByTheirClassName() throws IOException {
+        final File classes = createClassFolder("classes");
+        final StringPattern pattern = new WildCardPattern("example.*");
+        final String expected = render(parse(classes, pattern));
+
+        final File misplaced = new File(classes, "other/Misplaced.class");
+        misplaced.getParentFile().mkdirs();
+        if (new File(classes, EXAMPLE_CLASSES[0]).renameTo(misplaced) == false) {
+            fail("Couldn't move class file");
+        }
+        assertEquals(expected.replace(classes.getAbsolutePath() + File.separator + EXAMPLE_CLASSES[0].replace('/', File.separatorChar),
+                misplaced.getAbsolutePath()), render(parse(classes, pattern)));
+    }
+
+    private static String renderNames(final AtomicVertex[] graph) {
+        final StringBuilder builder = new StringBuilder();
+        for (final AtomicVertex vertex : graph) {
+            builder.append(((ClassAttributes) vertex.getAttributes()).getName()).append('\n');
+            for (int i = 0, n = vertex.getNumberOfOutgoingArcs(); i < n; i++) {
+                builder.append("  -> ").append(((ClassAttributes) vertex.getHeadVertex(i).getAttributes()).getName()).append('\n');
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,77 @@
+package org.netmelody.neoclassycle;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.junit.Test;
+import org.netmelody.neoclassycle.graph.AtomicVertex;
+import org.netmelody.neoclassycle.util.TrueStringPattern;
+import org.netmelody.neoclassycle.util.WildCardPattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public final class DependencyIndexTest extends ClassFilesTestCase {
+
+    private AtomicVertex[] parse(final String[] classFiles, final DependencyIndex index) throws IOException {
+        return Parser.readClassFiles(classFiles, new TrueStringPattern(), null, false, false, 2, null, index);
+    }
+
+    @Test
+    public void testIndexIsWrittenAndReadInsteadOfArchive() throws IOException {
+        final File jar = createJar("example.jar");
+        final String[] classFiles = { createClassFolder("classes").getAbsolutePath(), jar.getAbsolutePath() };
+        final File indexDirectory = new File(folder.getRoot(), "indices");
+        final String expected = render(parse(classFiles, null));
+
+        DependencyIndex index = new DependencyIndex(indexDirectory, null);
+        assertEquals(expected, render(parse(classFiles, index)));
+        assertEquals(0, index.getNumberOfReadIndices());
+        assertEquals(1, index.getNumberOfWrittenIndices());
+        final File indexFile = index.getIndexFile(jar);
+        assertTrue(indexFile.isFile());
+        assertEquals(1, indexDirectory.list().length);
+
+        index = new DependencyIndex(indexDirectory, null);
+        assertEquals(expected, render(parse(classFiles, index)));
+        assertEquals(1, index.getNumberOfReadIndices());
+        assertEquals(0, index.getNumberOfWrittenIndices());
+
+        final File copy = new File(folder.newFolder("other"), "copy.jar");
+        assertTrue(jar.renameTo(copy));
+        assertEquals(indexFile, index.getIndexFile(copy));
+    }
+
+    @Test
+    public void testIndexDependsOnReflectionPattern() throws IOException {
+        final File jar = createJar("example.jar");
+        final File indexDirectory = new File(folder.getRoot(), "indices");
+        assertFalse(new DependencyIndex(indexDirectory, null).getIndexFile(jar).equals(
+                new DependencyIndex(indexDirectory, new WildCardPattern("java.*")).getIndexFile(jar)));
+    }
+
+    @Test
+    public void testCorruptedIndexIsReplaced() throws IOException {
+        final String[] classFiles = { createJar("example.jar").getAbsolutePath() };
+        final File indexDirectory = new File(folder.getRoot(), "indices");
+        final DependencyIndex index = new DependencyIndex(indexDirectory, null);
+        final File indexFile = index.getIndexFile(new File(classFiles[0]));
+        indexDirectory.mkdirs();
+        final OutputStream out = new FileOutputStream(indexFile);
+        try {
+            out.write(new byte[] { 0x4e, 0x43, 0x44, 0x49, 0, 0, 0, 1, 0x7f, 0, 0, 0 });
+        }
+        finally {
+            out.close();
+        }
+
+        assertEquals(render(parse(classFiles, null)), render(parse(classFiles, index)));
+        assertEquals(0, index.getNumberOfReadIndices());
+        assertEquals(1, index.getNumberOfWrittenIndices());
+        assertEquals(render(parse(classFiles, null)), render(parse(classFiles, index)));
+        assertEquals(1, index.getNumberOfReadIndices());
+    }
+}
@@ -0,0 +1,89 @@
+package org.netmelody.neoclassycle;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Set;
+
+import org.junit.Test;
+import org.netmelody.neoclassycle.classfile.ClassFileScanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public final class DescriptorParserTest {
+    private static final String[] DESCRIPTORS = { "Ljava/lang/String;", "(Ljava/lang/String;)V", "([[Ljava/util/List;)V",
+            "(Ljava/util/List<Ljava/util/Map<Ljava/lang/Integer;[Ljava/lang/Number;>;>;)V", "(Ljava/util/Map<*+Ljava/lang/Number;>;)V",
+            "<T::Ljava/util/Set<Ljava/lang/Boolean;>;>Ljava/lang/Object;Ljava/util/Collection<Ljava/lang/Short;>;",
+            "(TT;Ljava/util/List;Ljava/util/List;)Ljava/lang/Object;", "Lpäckage/€uro;", "()V", "Ljava/util/Map", "(Ljava/lang/String;",
+            "Lhello world;", "[[", "<T:Ljava/lang/Object;>", "Xjava/lang/String;" };
+
+    private final SymbolTable _symbols = new SymbolTable();
+
+    /**
+     * Creates a scanner of a class file whose constant pool contains the
+     * specified UTF8 constants at index 1, 2, ...
+     */
+    private static ClassFileScanner createScanner(final String[] constants) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0xcafebabe);
+        out.writeInt(49);
+        out.writeShort(constants.length + 1);
+        for (final String constant : constants) {
+            out.writeByte(1);
+            out.writeUTF(constant);
+        }
+        out.writeShort(0);
+        out.writeShort(0);
+        out.writeShort(0);
+        out.close();
+        final ClassFileScanner scanner = new ClassFileScanner();
+        scanner.scan(bytes.toByteArray(), 0, bytes.size());
+        return scanner;
+    }
+
+    @Test
+    public void testSameResultsAsClassNameExtractor() throws IOException {
+        final ClassFileScanner scanner = createScanner(DESCRIPTORS);
+        final DescriptorParser parser = new DescriptorParser(_symbols, 16);
+        for (int i = 0; i < DESCRIPTORS.length; i++) {
+            final Set<String> expected = new ClassNameExtractor(DESCRIPTORS[i]).extract();
+            assertEquals(DESCRIPTORS[i], expected.toString(), names(parser.extract(scanner, i + 1)));
+        }
+    }
+
+    @Test
+    public void testCachedResultIsReused() throws IOException {
+        final ClassFileScanner scanner = createScanner(new String[] { "(Ljava/lang/String;)V", "Ljava/util/List;",
+                "(Ljava/lang/String;)V" });
+        final DescriptorParser parser = new DescriptorParser(_symbols, 64);
+        final int[] classIds = parser.extract(scanner, 1);
+        assertEquals("[java.lang.String]", names(classIds));
+        assertSame(classIds, parser.extract(scanner, 3));
+
+        final ClassFileScanner otherScanner = createScanner(new String[] { "(Ljava/lang/String;)V" });
+        assertSame(classIds, parser.extract(otherScanner, 1));
+    }
+
+    @Test
+    public void testEvictedResultIsParsedAgain() throws IOException {
+        final ClassFileScanner scanner = createScanner(new String[] { "Ljava/lang/String;", "Ljava/util/List;" });
+        final DescriptorParser parser = new DescriptorParser(_symbols, 1);
+        final int[] classIds = parser.extract(scanner, 1);
+        assertEquals("[java.util.List]", names(parser.extract(scanner, 2)));
+        final int[] parsedAgain = parser.extract(scanner, 1);
+        assertNotSame(classIds, parsedAgain);
+        assertEquals(Arrays.toString(classIds), Arrays.toString(parsedAgain));
+    }
+
+    private String names(final int[] classIds) {
+        final String[] names = new String[classIds.length];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = _symbols.getName(classIds[i]);
+        }
+        return Arrays.asList(names).toString();
+    }
+}
@@ -6,16 +6,19 @@ import java.util.StringTokenizer;
 
 import org.junit.Test;
 import org.netmelody.neoclassycle.graph.AtomicVertex;
+import org.netmelody.neoclassycle.graph.CompactGraph;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 public final class GraphBuilderTest {
+    private final SymbolTable _symbols = new SymbolTable();
 
     @Test
     public void testTwoClassesWithSameNameButDifferentSources() {
         final UnresolvedNode[] nodes = createNodes("a:s1:A -> b c a; a:s2 -> b d");
 
-        final AtomicVertex[] graph = GraphBuilder.createGraph(nodes, false);
+        final AtomicVertex[] graph = GraphBuilder.createGraph(nodes, _symbols, false);
 
         assertEquals(1, graph.length);
         final ClassAttributes attributes = (ClassAttributes) graph[0].getAttributes();
@@ -29,7 +32,7 @@ public final class GraphBuilderTest {
     public void testTwoClassesWithSameNameOneWithSourceOneWithoutSource() {
         final UnresolvedNode[] nodes = createNodes("a:s1 -> b c a; a: :A -> b d");
 
-        final AtomicVertex[] graph = GraphBuilder.createGraph(nodes, false);
+        final AtomicVertex[] graph = GraphBuilder.createGraph(nodes, _symbols, false);
 
         assertEquals(1, graph.length);
         final ClassAttributes attributes = (ClassAttributes) graph[0].getAttributes();
@@ -43,7 +46,7 @@ public final class GraphBuilderTest {
     public void testSupressedMergingOfInnerclasses() {
         final UnresolvedNode[] nodes = createNodes("a:s:A -> b c a$1; a$1:s -> b d");
 
-        final AtomicVertex[] graph = GraphBuilder.createGraph(nodes, false);
+        final AtomicVertex[] graph = GraphBuilder.createGraph(nodes, _symbols, false);
 
         assertEquals(2, graph.length);
         AtomicVertex node1 = graph[0];
@@ -67,7 +70,7 @@ public final class GraphBuilderTest {
     public void testMergingOfInnerclasses() {
         final UnresolvedNode[] nodes = createNodes("a:s:A -> b c a$1; a$1:s -> b d");
 
-        final AtomicVertex[] graph = GraphBuilder.createGraph(nodes, true);
+        final AtomicVertex[] graph = GraphBuilder.createGraph(nodes, _symbols, true);
 
         assertEquals(1, graph.length);
         final AtomicVertex node = graph[0];
@@ -79,7 +82,29 @@ public final class GraphBuilderTest {
         assertEquals(ClassAttributes.ABSTRACT_CLASS, attributes.getType());
     }
 
-    private static UnresolvedNode[] createNodes(final String description) {
+    @Test
+    public void testCompactGraph() {
+        final UnresolvedNode[] nodes = createNodes("e:s -> a b a; a:s:A -> b c a$1; a$1:s -> b d");
+
+        final CompactGraph graph = GraphBuilder.createCompactGraph(nodes, _symbols, true);
+
+        assertEquals(2, graph.getNumberOfGraphVertices());
+        final StringBuffer buffer = new StringBuffer();
+        for (int i = 0; i < graph.getNumberOfVertices(); i++) {
+            final AtomicVertex vertex = (AtomicVertex) graph.getVertex(i);
+            buffer.append(((ClassAttributes) vertex.getAttributes()).getName()).append(" >");
+            assertEquals(vertex.getNumberOfOutgoingArcs(), graph.getNumberOfOutgoingArcs(i));
+            for (int j = 0; j < graph.getNumberOfOutgoingArcs(i); j++) {
+                assertSame(vertex.getHeadVertex(j), graph.getVertex(graph.getHead(i, j)));
+                buffer.append(' ').append(graph.getHead(i, j));
+            }
+            assertEquals(vertex.getNumberOfIncomingArcs(), graph.getNumberOfIncomingArcs(i));
+            buffer.append("; ");
+        }
+        assertEquals("a > 2 3 4; e > 0 2; b >; c >; d >; ", buffer.toString());
+    }
+
+    private UnresolvedNode[] createNodes(final String description) {
         final List<UnresolvedNode> nodes = new ArrayList<UnresolvedNode>();
         final StringTokenizer tokenizer = new StringTokenizer(description, ";");
         while (tokenizer.hasMoreTokens()) {
@@ -88,8 +113,8 @@ public final class GraphBuilderTest {
         return nodes.toArray(new UnresolvedNode[nodes.size()]);
     }
 
-    private static UnresolvedNode createNode(final String description) {
-        final UnresolvedNode node = new UnresolvedNode();
+    private UnresolvedNode createNode(final String description) {
+        final UnresolvedNode node = new UnresolvedNode(_symbols);
         final int indexOfArrow = description.indexOf("->");
 
         final String links = description.substring(indexOfArrow + 2).trim();
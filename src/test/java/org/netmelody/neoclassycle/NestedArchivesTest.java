@@ -0,0 +1,130 @@
+package org.netmelody.neoclassycle;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Test;
+import org.netmelody.neoclassycle.graph.AtomicVertex;
+import org.netmelody.neoclassycle.util.TrueStringPattern;
+
+import static org.junit.Assert.assertEquals;
+
+public final class NestedArchivesTest extends ClassFilesTestCase {
+
+    /** Creates an archive containing the specified files under the specified entry names. */
+    private File createArchive(final String name, final String[] entryNames, final File[] files) throws IOException {
+        final File archive = new File(folder.getRoot(), name);
+        final ZipOutputStream out = new ZipOutputStream(new FileOutputStream(archive));
+        try {
+            for (int i = 0; i < files.length; i++) {
+                out.putNextEntry(new ZipEntry(entryNames[i]));
+                final InputStream in = new FileInputStream(files[i]);
+                try {
+                    final byte[] buffer = new byte[1024];
+                    for (int len = in.read(buffer); len != -1; len = in.read(buffer)) {
+                        out.write(buffer, 0, len);
+                    }
+                }
+                finally {
+                    in.close();
+                }
+                out.closeEntry();
+            }
+        }
+        finally {
+            out.close();
+        }
+        return archive;
+    }
+
+    private static AtomicVertex[] parse(final File archive, final int numberOfThreads, final DependencyIndex index) throws IOException {
+        return Parser.readClassFiles(new String[] { archive.getAbsolutePath() }, new TrueStringPattern(), null, false, false, numberOfThreads, null, index);
+    }
+
+    private static String renderNames(final AtomicVertex[] graph) {
+        final StringBuilder builder = new StringBuilder();
+        for (final AtomicVertex vertex : graph) {
+            final ClassAttributes attributes = (ClassAttributes) vertex.getAttributes();
+            builder.append(attributes.getType()).append(' ').append(attributes.getName()).append(' ').append(attributes.getSize()).append('\n');
+            for (int i = 0, n = vertex.getNumberOfOutgoingArcs(); i < n; i++) {
+                builder.append("  -> ").append(((ClassAttributes) vertex.getHeadVertex(i).getAttributes()).getName()).append('\n');
+            }
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void testJarsInWarAndEarAreAnalysed() throws IOException {
+        final File jar = createJar("example.jar");
+        final File war = createArchive("example.war", new String[] { "WEB-INF/lib/example.jar" }, new File[] { jar });
+        final File ear = createArchive("example.ear", new String[] { "example.war" }, new File[] { war });
+
+        final String expected = renderNames(parse(jar, 1, null));
+        assertEquals(expected, renderNames(parse(war, 1, null)));
+        assertEquals(expected, renderNames(parse(ear, 1, null)));
+
+        final AtomicVertex[] graph = parse(ear, 1, null);
+        assertEquals(ear.getAbsolutePath() + "!example.war!WEB-INF/lib/example.jar",
+                ((ClassAttributes) graph[0].getAttributes()).getSources());
+    }
+
+    @Test
+    public void testInnerArchivesAreParsedConcurrently() throws IOException {
+        final File jar = createJar("example.jar");
+        final File classes = new File(createClassFolder("classes"), "example/A.class");
+        final File war = createArchive("example.war", new String[] { "WEB-INF/classes/example/A.class", "WEB-INF/lib/a.jar",
+                "WEB-INF/lib/b.jar" }, new File[] { classes, jar, jar });
+
+        assertEquals(render(parse(war, 1, null)), render(parse(war, 4, null)));
+    }
+
+    @Test
+    public void testIndexOfWarContainsNestedArchives() throws IOException {
+        final File jar = createJar("example.jar");
+        final File war = createArchive("example.war", new String[] { "WEB-INF/lib/example.jar" }, new File[] { jar });
+        final DependencyIndex index = new DependencyIndex(new File(folder.getRoot(), "indices"), null);
+
+        final String expected = render(parse(war, 1, null));
+        assertEquals(expected, render(parse(war, 1, index)));
+        assertEquals(expected, render(parse(war, 1, index)));
+        assertEquals(1, index.getNumberOfReadIndices());
+    }
+
+    @Test
+    public void testZip64ArchivesAreStreamed() throws IOException {
+        final File jar = createJar("example.jar");
+        final File war = new File(folder.getRoot(), "zip64.war");
+        final ZipOutputStream out = new ZipOutputStream(new FileOutputStream(war));
+        try {
+            out.putNextEntry(new ZipEntry("WEB-INF/lib/example.jar"));
+            final InputStream in = new FileInputStream(jar);
+            try {
+                final byte[] buffer = new byte[1024];
+                for (int len = in.read(buffer); len != -1; len = in.read(buffer)) {
+                    out.write(buffer, 0, len);
+                }
+            }
+            finally {
+                in.close();
+            }
+            out.closeEntry();
+            for (int i = 0; i < 0x10000; i++) {
+                out.putNextEntry(new ZipEntry("dir" + i + "/"));
+                out.closeEntry();
+            }
+        }
+        finally {
+            out.close();
+        }
+        final DependencyIndex index = new DependencyIndex(new File(folder.getRoot(), "indices"), null);
+
+        final String expected = renderNames(parse(jar, 1, null));
+        assertEquals(expected, renderNames(parse(war, 2, null)));
+        assertEquals(expected, renderNames(parse(war, 2, index)));
+    }
+}
@@ -3,6 +3,7 @@ package org.netmelody.neoclassycle;
 import org.junit.Before;
 import org.junit.Test;
 import org.netmelody.neoclassycle.graph.AtomicVertex;
+import org.netmelody.neoclassycle.graph.CompactGraph;
 import org.netmelody.neoclassycle.graph.Vertex;
 
 import static org.junit.Assert.assertEquals;
@@ -24,7 +25,7 @@ public final class PackageProcessorTest {
         _c = new AtomicVertex(ClassAttributes.createClass("q.C", "s", 3));
         _d = new AtomicVertex(ClassAttributes.createClass("p.D", "s", 4));
         _o = new AtomicVertex(ClassAttributes.createClass("lang.Object", "s", 42));
-        _o.setDefaultValueOfGraphVertexFlag(false);
+        _o.setGraphVertex(false);
         _a.addOutgoingArcTo(_o);
         _a.addOutgoingArcTo(_b);
         _b.addOutgoingArcTo(_o);
@@ -36,7 +37,7 @@ public final class PackageProcessorTest {
 
     @Test
     public void testClassBExcluded() {
-        _b.setDefaultValueOfGraphVertexFlag(false);
+        _b.setGraphVertex(false);
         final PackageProcessor processor = new PackageProcessor();
         processor.deepSearchFirst(_graph);
 
@@ -72,7 +73,7 @@ public final class PackageProcessorTest {
 
     @Test
     public void testClassDExcluded() {
-        _d.setDefaultValueOfGraphVertexFlag(false);
+        _d.setGraphVertex(false);
         final PackageProcessor processor = new PackageProcessor();
         processor.deepSearchFirst(_graph);
 
@@ -106,8 +107,8 @@ public final class PackageProcessorTest {
 
     @Test
     public void testClassBAndCExcluded() {
-        _b.setDefaultValueOfGraphVertexFlag(false);
-        _c.setDefaultValueOfGraphVertexFlag(false);
+        _b.setGraphVertex(false);
+        _c.setGraphVertex(false);
         final PackageProcessor processor = new PackageProcessor();
         processor.deepSearchFirst(_graph);
 
@@ -127,4 +128,31 @@ public final class PackageProcessorTest {
         assertEquals("q", ((PackageAttributes) q.getAttributes()).getName());
         assertEquals(false, q.isGraphVertex());
     }
+
+    private static String render(final AtomicVertex[] packageGraph) {
+        final StringBuffer result = new StringBuffer();
+        for (final AtomicVertex vertex : packageGraph) {
+            final PackageAttributes attributes = (PackageAttributes) vertex.getAttributes();
+            result.append(attributes.getName()).append(' ').append(attributes.getSize()).append(" >");
+            for (int i = 0, n = vertex.getNumberOfOutgoingArcs(); i < n; i++) {
+                final AtomicVertex head = (AtomicVertex) vertex.getHeadVertex(i);
+                result.append(' ').append(((PackageAttributes) head.getAttributes()).getName()).append(head.isGraphVertex() ? "" : "*");
+            }
+            result.append("; ");
+        }
+        return new String(result);
+    }
+
+    @Test
+    public void testCompactGraph() {
+        _b.setGraphVertex(false);
+        PackageProcessor processor = new PackageProcessor();
+        processor.deepSearchFirst(_graph);
+        final String expected = render(processor.getGraph());
+
+        processor = new PackageProcessor();
+        processor.deepSearchFirst(CompactGraph.create(_graph));
+        assertEquals(expected, render(processor.getGraph()));
+        assertEquals("p 2 > lang*; q 2 > lang* p; ", expected);
+    }
 }
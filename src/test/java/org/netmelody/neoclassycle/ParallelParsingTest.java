@@ -0,0 +1,32 @@
+package org.netmelody.neoclassycle;
+
+import java.io.File;
+
+import org.junit.Test;
+import org.netmelody.neoclassycle.util.TrueStringPattern;
+
+import static org.junit.Assert.assertEquals;
+
+public final class ParallelParsingTest extends ClassFilesTestCase {
+
+    @Test
+    public void testParallelParsingCreatesSameGraphAsSequentialParsing() throws Exception {
+        final File classes = createClassFolder("classes");
+        final File jar = createJar("example.jar");
+        final String[] classFiles = { classes.getAbsolutePath(), jar.getAbsolutePath(), folder.getRoot().getAbsolutePath() };
+
+        final String sequential = render(Parser.readClassFiles(classFiles, new TrueStringPattern(), null, false, false, 1, null, null));
+        for (int numberOfThreads = 2; numberOfThreads <= 8; numberOfThreads *= 2) {
+            assertEquals(sequential, render(Parser.readClassFiles(classFiles, new TrueStringPattern(), null, false, false, numberOfThreads, null, null)));
+        }
+        assertEquals(render(Parser.readClassFiles(classFiles, new TrueStringPattern(), null, true, false, 1, null, null)),
+                render(Parser.readClassFiles(classFiles, new TrueStringPattern(), null, true, false, 4, null, null)));
+    }
+
+    @Test(expected = java.io.IOException.class)
+    public void testInvalidFileFailsInParallelMode() throws Exception {
+        final File invalid = folder.newFile("invalid.class");
+        Parser.readClassFiles(new String[] { createClassFolder("classes").getAbsolutePath(), invalid.getAbsolutePath() },
+                new TrueStringPattern(), null, false, false, 4, null, null);
+    }
+}
@@ -0,0 +1,95 @@
+package org.netmelody.neoclassycle;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.junit.Test;
+import org.netmelody.neoclassycle.graph.AtomicVertex;
+import org.netmelody.neoclassycle.util.StringPattern;
+import org.netmelody.neoclassycle.util.TrueStringPattern;
+import org.netmelody.neoclassycle.util.WildCardPattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class ParseCacheTest extends ClassFilesTestCase {
+
+    private AtomicVertex[] parse(final String[] classFiles, final ParseCache cache) throws IOException {
+        return Parser.readClassFiles(classFiles, new TrueStringPattern(), null, false, false, 2, cache, null);
+    }
+
+    @Test
+    public void testSecondRunUsesCachedResults() throws IOException {
+        final String[] classFiles = { createClassFolder("classes").getAbsolutePath(), createJar("example.jar").getAbsolutePath() };
+        final File cacheFile = new File(folder.getRoot(), "cache/parse.cache");
+        final String expected = render(parse(classFiles, null));
+
+        ParseCache cache = new ParseCache(cacheFile, null);
+        assertEquals(expected, render(parse(classFiles, cache)));
+        assertEquals(0, cache.getNumberOfHits());
+        cache.save();
+        assertTrue(cacheFile.isFile());
+
+        cache = new ParseCache(cacheFile, null);
+        assertEquals(expected, render(parse(classFiles, cache)));
+        assertEquals(2 * EXAMPLE_CLASSES.length, cache.getNumberOfHits());
+    }
+
+    @Test
+    public void testChangedClassFileIsParsedAgain() throws IOException {
+        final File classes = createClassFolder("classes");
+        final String[] classFiles = { classes.getAbsolutePath() };
+        final File cacheFile = new File(folder.getRoot(), "parse.cache");
+        ParseCache cache = new ParseCache(cacheFile, null);
+        parse(classFiles, cache);
+        cache.save();
+
+        final File classFile = new File(classes, EXAMPLE_CLASSES[0]);
+        final OutputStream out = new FileOutputStream(classFile);
+        try {
+            copyResource(EXAMPLE_CLASSES[1], out);
+        }
+        finally {
+            out.close();
+        }
+        classFile.setLastModified(classFile.lastModified() - 10000);
+
+        cache = new ParseCache(cacheFile, null);
+        final String result = render(parse(classFiles, cache));
+        assertEquals(EXAMPLE_CLASSES.length - 1, cache.getNumberOfHits());
+        assertEquals(render(parse(classFiles, null)), result);
+    }
+
+    @Test
+    public void testCacheOfOtherReflectionPatternIsIgnored() throws IOException {
+        final String[] classFiles = { createJar("example.jar").getAbsolutePath() };
+        final File cacheFile = new File(folder.getRoot(), "parse.cache");
+        ParseCache cache = new ParseCache(cacheFile, null);
+        parse(classFiles, cache);
+        cache.save();
+
+        final StringPattern reflectionPattern = new WildCardPattern("java.*");
+        cache = new ParseCache(cacheFile, reflectionPattern);
+        Parser.readClassFiles(classFiles, new TrueStringPattern(), reflectionPattern, false, false, 1, cache, null);
+        assertEquals(0, cache.getNumberOfHits());
+    }
+
+    @Test
+    public void testCorruptedCacheFileIsIgnored() throws IOException {
+        final String[] classFiles = { createClassFolder("classes").getAbsolutePath() };
+        final File cacheFile = folder.newFile("parse.cache");
+        final OutputStream out = new FileOutputStream(cacheFile);
+        try {
+            out.write(new byte[] { 0x4e, 0x43, 0x50, 0x43, 0, 0, 0, 1, 0, 0, 0, 0, 0x7f });
+        }
+        finally {
+            out.close();
+        }
+
+        final ParseCache cache = new ParseCache(cacheFile, null);
+        assertEquals(render(parse(classFiles, null)), render(parse(classFiles, cache)));
+        assertEquals(0, cache.getNumberOfHits());
+    }
+}
@@ -61,13 +61,18 @@ public final class ParserTest {
     }
 
     private AtomicVertex createVertex(final String code, final StringPattern reflectionPattern, final boolean mergeInnerClasses) throws IOException {
+        return createVertex(code, reflectionPattern, mergeInnerClasses, false);
+    }
+
+    private AtomicVertex createVertex(final String code, final StringPattern reflectionPattern, final boolean mergeInnerClasses,
+            final boolean descriptorsOnly) throws IOException {
         final File sourceFile = new File(folder.getRoot(), CLASS_NAME + ".java");
         final Writer writer = new FileWriter(sourceFile);
         writer.write(code);
         writer.close();
         assertEquals("Exit code", 0, compile(sourceFile.getAbsolutePath()));
         final AtomicVertex[] vertices = Parser.readClassFiles(new String[] { folder.getRoot().getAbsolutePath() }, new TrueStringPattern(),
-                reflectionPattern, mergeInnerClasses);
+                reflectionPattern, mergeInnerClasses, descriptorsOnly, 1, null, null);
         for (final AtomicVertex vertex : vertices) {
             final NameAttributes attributes = (NameAttributes) vertex.getAttributes();
             if (attributes.getName().equals(CLASS_NAME)) {
@@ -83,7 +88,10 @@ public final class ParserTest {
 
     private void check(final String[] expectedClasses, final String javaCode, final StringPattern reflectionPattern, final boolean mergeInnerClasses)
             throws IOException {
-        final AtomicVertex vertex = createVertex(javaCode, reflectionPattern, mergeInnerClasses);
+        check(expectedClasses, createVertex(javaCode, reflectionPattern, mergeInnerClasses));
+    }
+
+    private void check(final String[] expectedClasses, final AtomicVertex vertex) {
         assertEquals(folder.getRoot().getAbsolutePath(), ((ClassAttributes) vertex.getAttributes()).getSources());
         final HashSet<String> classSet = new HashSet<String>();
         for (final String expectedClasse : expectedClasses) {
@@ -150,6 +158,22 @@ public final class ParserTest {
         check(new String[] { "java.lang.Object" }, "class Test { int e = java.awt.Label.LEFT;}");
     }
 
+    @Test
+    public void testDescriptorsOnlyIgnoresStringLiterals() throws IOException {
+        final String code = "class Test { String a = \"Ljava/util/Map;\"; String b = \"(Ljava/util/List;)V\";}";
+        check(new String[] { "java.lang.Object", "java.lang.String", "java.util.Map", "java.util.List" }, code);
+        check(new String[] { "java.lang.Object", "java.lang.String" }, createVertex(code, null, false, true));
+    }
+
+    @Test
+    public void testDescriptorsOnlyFindsDescriptorsAndSignatures() throws IOException {
+        check(new String[] { "java.lang.Object", "java.util.Map", "java.util.List", "java.lang.Integer", "java.io.File", "java.util.Set",
+                "java.lang.Deprecated", "java.lang.Long", "java.lang.System", "java.io.PrintStream" },
+                createVertex("class Test<T extends java.util.Map> { java.util.List<Integer> l;"
+                + "@Deprecated void a(java.io.File f) {}"
+                + "java.util.Set<? extends Long> b() { System.out.println(); return null; }}", null, false, true));
+    }
+
     @Test
     public void testSuperClass() throws IOException {
         check(new String[] { "java.lang.Runnable", "java.awt.Canvas" }, "class Test extends java.awt.Canvas implements Runnable {"
@@ -0,0 +1,66 @@
+package org.netmelody.neoclassycle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.junit.Test;
+import org.netmelody.neoclassycle.util.TaskRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public final class SymbolTableTest {
+
+    @Test
+    public void testIdsAreDense() {
+        final SymbolTable symbols = new SymbolTable();
+        assertEquals(0, symbols.getId("a.B"));
+        assertEquals(1, symbols.getId("a.C"));
+        assertEquals(0, symbols.getId(new String("a.B")));
+        assertEquals(2, symbols.size());
+
+        final String name = "b.D";
+        assertSame(name, symbols.getName(symbols.getId(name)));
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i + 3, symbols.getId("c" + i));
+        }
+        assertEquals("c999", symbols.getName(1002));
+    }
+
+    @Test
+    public void testPackageIds() {
+        final SymbolTable symbols = new SymbolTable();
+        final int packageId = symbols.getPackageId(symbols.getId("a.b.C"));
+        assertEquals("a.b", symbols.getName(packageId));
+        assertEquals(packageId, symbols.getPackageId(symbols.getId("a.b.D")));
+        assertEquals(packageId, symbols.getId("a.b"));
+        assertEquals(SymbolTable.DEFAULT_PACKAGE, symbols.getName(symbols.getPackageId(symbols.getId("E"))));
+    }
+
+    @Test
+    public void testConcurrentlyAddedNamesGetOneIdEach() throws Exception {
+        final SymbolTable symbols = new SymbolTable();
+        final List<Callable<int[]>> tasks = new ArrayList<Callable<int[]>>();
+        for (int t = 0; t < 8; t++) {
+            tasks.add(new Callable<int[]>() {
+                @Override
+                public int[] call() {
+                    final int[] ids = new int[5000];
+                    for (int i = 0; i < ids.length; i++) {
+                        ids[i] = symbols.getId("class" + i);
+                    }
+                    return ids;
+                }
+            });
+        }
+        final List<int[]> results = TaskRunner.run(tasks, 8);
+        assertEquals(5000, symbols.size());
+        for (final int[] ids : results) {
+            for (int i = 0; i < ids.length; i++) {
+                assertEquals(ids[i], results.get(0)[i]);
+                assertEquals("class" + i, symbols.getName(ids[i]));
+            }
+        }
+    }
+}
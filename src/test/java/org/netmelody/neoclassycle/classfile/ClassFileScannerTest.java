@@ -0,0 +1,214 @@
+package org.netmelody.neoclassycle.classfile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public final class ClassFileScannerTest {
+
+    /**
+     * Creates a class file with a constant pool containing all kinds of
+     * constants (including those introduced by Java 7, 9 and 11).
+     */
+    private static byte[] createClassFile(final int unknownTag) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0xcafebabe);
+        out.writeShort(0);
+        out.writeShort(55);
+        out.writeShort(20);
+        out.writeByte(1); // 1
+        out.writeUTF("a/B");
+        out.writeByte(7); // 2
+        out.writeShort(1);
+        out.writeByte(1); // 3
+        out.writeUTF("[[Ljava/util/List;");
+        out.writeByte(7); // 4
+        out.writeShort(3);
+        out.writeByte(5); // 5 + 6
+        out.writeLong(42);
+        out.writeByte(15); // 7
+        out.writeByte(6);
+        out.writeShort(14);
+        out.writeByte(16); // 8
+        out.writeShort(12);
+        out.writeByte(17); // 9
+        out.writeShort(0);
+        out.writeShort(13);
+        out.writeByte(18); // 10
+        out.writeShort(0);
+        out.writeShort(13);
+        out.writeByte(19); // 11
+        out.writeShort(1);
+        out.writeByte(20); // 12
+        out.writeShort(1);
+        out.writeByte(unknownTag == 0 ? 1 : unknownTag); // 13
+        out.writeUTF("(Ljava/lang/String;)V");
+        out.writeByte(10); // 14
+        out.writeShort(2);
+        out.writeShort(13);
+        out.writeByte(6); // 15 + 16
+        out.writeDouble(3.14);
+        out.writeByte(8); // 17
+        out.writeShort(18);
+        out.writeByte(1); // 18
+        out.writeUTF("hällo w€rld");
+        out.writeByte(3); // 19
+        out.writeInt(7);
+        out.writeShort(0x421);
+        out.writeShort(2);
+        out.writeShort(0);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void testScanAllConstantTypes() throws IOException {
+        final ClassFileScanner scanner = new ClassFileScanner();
+        scanner.scan(new ByteArrayInputStream(createClassFile(0)), -1);
+
+        assertEquals(20, scanner.getNumberOfEntries());
+        assertEquals("[0, 1, 7, 1, 7, 5, 0, 15, 16, 17, 18, 19, 20, 1, 10, 6, 0, 8, 1, 3]", tags(scanner));
+        assertEquals(0x421, scanner.getAccessFlags());
+        assertEquals("a.B", scanner.getClassName(scanner.getThisClassIndex()));
+        assertEquals("java.util.List", scanner.getClassName(4));
+        assertEquals("hällo w€rld", scanner.getString(17));
+        assertEquals("(Ljava/lang/String;)V", scanner.getUtf8(13));
+        assertNull(scanner.getUtf8(2));
+    }
+
+    @Test
+    public void testScanAgreesWithConstantPool() throws IOException {
+        final byte[] classFile = createClassFile(0);
+        final ConstantPool pool = ConstantPool.extractConstantPool(new DataInputStream(new ByteArrayInputStream(classFile)));
+        final ClassFileScanner scanner = new ClassFileScanner();
+        final byte[] paddedClassFile = new byte[classFile.length + 5];
+        System.arraycopy(classFile, 0, paddedClassFile, 5, classFile.length);
+        scanner.scan(ByteBuffer.wrap(paddedClassFile), 5, classFile.length);
+
+        for (int i = 1; i < scanner.getNumberOfEntries(); i++) {
+            final Constant constant = pool.getConstantAt(i);
+            if (constant instanceof ClassConstant) {
+                assertEquals(((ClassConstant) constant).getName(), scanner.getClassName(i));
+            }
+            else if (constant instanceof Utf8Constant) {
+                assertEquals(((Utf8Constant) constant).getString(), scanner.getUtf8(i));
+            }
+            else if (constant instanceof StringConstant) {
+                assertEquals(((StringConstant) constant).getString(), scanner.getString(i));
+            }
+        }
+    }
+
+    @Test
+    public void testDescriptorCandidates() throws IOException {
+        final ClassFileScanner scanner = new ClassFileScanner();
+        scanner.scan(createClassFile(0), 0, createClassFile(0).length);
+
+        assertEquals(false, scanner.isDescriptorCandidate(1));
+        assertEquals(true, scanner.isDescriptorCandidate(3));
+        assertEquals(true, scanner.isDescriptorCandidate(13));
+        assertEquals(false, scanner.isDescriptorCandidate(18));
+    }
+
+    @Test
+    public void testFindDescriptors() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.write(createClassFile(0));
+        out.writeShort(0); // interfaces
+        out.writeShort(1); // fields
+        out.writeShort(0);
+        out.writeShort(1);
+        out.writeShort(3);
+        out.writeShort(0);
+        out.writeShort(0); // methods
+        out.writeShort(0); // attributes
+        out.close();
+        final ClassFileScanner scanner = new ClassFileScanner();
+        scanner.scan(new ByteArrayInputStream(bytes.toByteArray()), -1);
+        scanner.findDescriptors();
+
+        assertEquals(false, scanner.isDescriptor(1));
+        assertEquals(true, scanner.isDescriptor(3));
+        assertEquals(false, scanner.isDescriptor(13));
+        assertEquals(false, scanner.isDescriptor(18));
+    }
+
+    @Test
+    public void testFindDescriptorsOfTruncatedClassFile() throws IOException {
+        final ClassFileScanner scanner = new ClassFileScanner();
+        scanner.scan(new ByteArrayInputStream(createClassFile(0)), -1);
+        try {
+            scanner.findDescriptors();
+            fail("IOException expected");
+        }
+        catch (final IOException e) {
+            assertEquals("Invalid class file: Unexpected end of file.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testTruncatedConstantPoolAfterLargerClassFile() throws IOException {
+        final ClassFileScanner scanner = new ClassFileScanner();
+        final byte[] classFile = createClassFile(0);
+        scanner.scan(new ByteArrayInputStream(classFile), -1);
+        for (int length = 10; length < 60; length++) {
+            final byte[] truncatedClassFile = new byte[length];
+            System.arraycopy(classFile, 0, truncatedClassFile, 0, length);
+            try {
+                if (length % 2 == 0) {
+                    scanner.scan(new ByteArrayInputStream(truncatedClassFile), -1);
+                }
+                else {
+                    scanner.scan(truncatedClassFile, 0, length);
+                }
+                fail("IOException expected");
+            }
+            catch (final IOException e) {
+                assertEquals("Invalid class file: Unexpected end of file.", e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testUnknownTag() throws IOException {
+        final ClassFileScanner scanner = new ClassFileScanner();
+        try {
+            scanner.scan(new ByteArrayInputStream(createClassFile(2)), -1);
+            fail("IOException expected");
+        }
+        catch (final IOException e) {
+            assertEquals("Invalid class file: Unknown constant pool tag 2 at index 13.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testMissingMagicNumber() {
+        final ClassFileScanner scanner = new ClassFileScanner();
+        try {
+            scanner.scan(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10 }, 0, 10);
+            fail("IOException expected");
+        }
+        catch (final IOException e) {
+            assertEquals("Not a class file: Magic number missing.", e.getMessage());
+        }
+    }
+
+    private static String tags(final ClassFileScanner scanner) {
+        final StringBuffer buffer = new StringBuffer("[");
+        for (int i = 0; i < scanner.getNumberOfEntries(); i++) {
+            buffer.append(i == 0 ? "" : ", ").append(scanner.getTag(i));
+        }
+        return buffer.append(']').toString();
+    }
+}
@@ -100,6 +100,68 @@ public final class DependencyProcessorTest {
                 CHECK + "h.*" + DIDOF + "[a]" + DF + "\n  h.A\n    -> a.A\n" });
     }
 
+    @Test
+    public void testLayeringWithOverlappingSetsIsSameAsDependencyChecks() {
+        final String[][] layers = new String[][] { { "a.*", "e.A" }, { "e.*", "b.*" }, { "h.*", "f.*", "i.*" }, { "i.*", "c.*" } };
+        final StringBuffer definition = new StringBuffer();
+        final StringBuffer checks = new StringBuffer();
+        for (int i = 0; i < layers.length; i++) {
+            definition.append("layer l").append(i).append(" =");
+            for (int p = 0; p < layers[i].length; p++) {
+                definition.append(' ').append(layers[i][p]);
+                for (int q = 0; q < layers[i].length; q++) {
+                    if (p != q) {
+                        checks.append(CHECK).append(layers[i][p]).append(DIDOF).append(layers[i][q]).append('\n');
+                    }
+                }
+            }
+            definition.append('\n');
+            for (int j = i + 1; j < layers.length; j++) {
+                appendChecks(checks, layers[i], layers[j]);
+            }
+            for (int j = i - 2; j >= 0; j--) {
+                appendChecks(checks, layers[i], layers[j]);
+            }
+        }
+        definition.append("check strictLayeringOf l0 l1 l2 l3");
+        final AtomicVertex[] graph = createGraph();
+        final String expected = new DependencyProcessor(checks.toString(), null, new DefaultResultRenderer()).executeRemainingStatements(
+                graph, 1).toString();
+        final String result = new DependencyProcessor(definition.toString(), null, new DefaultResultRenderer())
+                .executeRemainingStatements(graph, 1).toString();
+        assertEquals(expected, result);
+    }
+
+    private static void appendChecks(final StringBuffer checks, final String[] startSets, final String[] finalSets) {
+        for (final String startSet : startSets) {
+            for (final String finalSet : finalSets) {
+                checks.append(CHECK).append(startSet).append(DIDOF).append(finalSet).append('\n');
+            }
+        }
+    }
+
+    @Test
+    public void testParallelExecutionKeepsOrderOfResults() {
+        final String s1 = "check b.* independentOf c.*";
+        final String s2 = "check f.* independentOf b.*";
+        final String s3 = "check h.* independentOf b.*";
+        final String s = s1 + '\n' + s2 + '\n' + s3 + '\n' + "check sets b.* bla.bla\n";
+        final String description = "[a] = a.*\n" + s + SHOW_ALLRESULTS + s + "check absenceOfClassCycles > 1 in [a]\n" + "show allPaths\n" + s;
+        final AtomicVertex[] graph = createGraph();
+        final DependencyProcessor sequentialProcessor = new DependencyProcessor(description, null, new DefaultResultRenderer());
+        final List<String> expected = new ArrayList<String>();
+        while (sequentialProcessor.hasMoreStatements()) {
+            expected.add(String.valueOf(sequentialProcessor.executeNextStatement(graph)));
+        }
+        final DependencyProcessor processor = new DependencyProcessor(description, null, new DefaultResultRenderer());
+        final ResultContainer result = processor.executeRemainingStatements(graph, 4);
+        final List<String> results = new ArrayList<String>();
+        for (int i = 0; i < result.getNumberOfResults(); i++) {
+            results.add(String.valueOf(result.getResult(i)));
+        }
+        assertEquals(expected, results);
+    }
+
     private static void check(final String description, final String[] expectedResults) {
         check(description, expectedResults, expectedResults);
     }
@@ -0,0 +1,49 @@
+package org.netmelody.neoclassycle.dependency;
+
+import java.util.BitSet;
+
+import org.junit.Test;
+import org.netmelody.neoclassycle.graph.AtomicVertex;
+import org.netmelody.neoclassycle.graph.GraphTestCase.MockAttributes;
+import org.netmelody.neoclassycle.util.StringPattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public final class GraphCacheTest {
+    private static final class CountingPattern implements StringPattern {
+        private int _numberOfMatches;
+
+        @Override
+        public boolean matches(final String string) {
+            _numberOfMatches++;
+            return string.startsWith("a.");
+        }
+    }
+
+    private static AtomicVertex[] createGraph() {
+        final AtomicVertex[] graph = new AtomicVertex[] { new AtomicVertex(new MockAttributes("a.A")),
+                new AtomicVertex(new MockAttributes("b.A")), new AtomicVertex(new MockAttributes("a.B")) };
+        final AtomicVertex external = new AtomicVertex(new MockAttributes("a.C"));
+        graph[0].addOutgoingArcTo(graph[1]);
+        graph[1].addOutgoingArcTo(external);
+        return graph;
+    }
+
+    @Test
+    public void testMembersAreMatchedOncePerGraph() {
+        final GraphCache cache = new GraphCache();
+        final CountingPattern pattern = new CountingPattern();
+        final AtomicVertex[] graph = createGraph();
+        final BitSet members = cache.getMembers(graph, pattern);
+        assertEquals("{0, 2, 3}", members.toString());
+        assertEquals(4, pattern._numberOfMatches);
+        assertSame(members, cache.getMembers(graph, pattern));
+        assertEquals(4, pattern._numberOfMatches);
+
+        final AtomicVertex[] otherGraph = createGraph();
+        assertNotSame(members, cache.getMembers(otherGraph, pattern));
+        assertEquals(8, pattern._numberOfMatches);
+    }
+}
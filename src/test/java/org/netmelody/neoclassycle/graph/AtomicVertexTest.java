@@ -2,7 +2,6 @@ package org.netmelody.neoclassycle.graph;
 
 import org.junit.Test;
 
-import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 public final class AtomicVertexTest {
@@ -10,38 +9,20 @@ public final class AtomicVertexTest {
     @Test
     public void testGraphVertexProperty() {
         final AtomicVertex vertex = new AtomicVertex(null);
-        assertTrue(!vertex.isGraphVertex());
-        vertex.reset();
         assertTrue(vertex.isGraphVertex());
-        vertex.reset();
+        vertex.setGraphVertex(false);
+        assertTrue(!vertex.isGraphVertex());
+        vertex.setGraphVertex(true);
         assertTrue(vertex.isGraphVertex());
     }
 
+    @SuppressWarnings("deprecation")
     @Test
-    public void testOrderProperty() {
-        final AtomicVertex vertex = new AtomicVertex(null);
-        assertEquals(0, vertex.getOrder());
-        vertex.reset();
-        assertEquals(-1, vertex.getOrder());
-        vertex.reset();
-        assertEquals(-1, vertex.getOrder());
-        vertex.setOrder(42);
-        assertEquals(42, vertex.getOrder());
-        vertex.reset();
-        assertEquals(-1, vertex.getOrder());
-    }
-
-    @Test
-    public void testLowProperty() {
+    public void testDeprecatedGraphVertexFlagSetter() {
         final AtomicVertex vertex = new AtomicVertex(null);
-        assertEquals(0, vertex.getLow());
-        vertex.reset();
-        assertEquals(-1, vertex.getLow());
-        vertex.reset();
-        assertEquals(-1, vertex.getLow());
-        vertex.setLow(42);
-        assertEquals(42, vertex.getLow());
-        vertex.reset();
-        assertEquals(-1, vertex.getLow());
+        vertex.setDefaultValueOfGraphVertexFlag(false);
+        assertTrue(!vertex.isGraphVertex());
+        vertex.setDefaultValueOfGraphVertexFlag(true);
+        assertTrue(vertex.isGraphVertex());
     }
 }
@@ -0,0 +1,97 @@
+package org.netmelody.neoclassycle.graph;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public final class CompactGraphTest extends GraphTestCase {
+
+    @Override
+    protected void process(final StrongComponentProcessor processor, final AtomicVertex[] graph) {
+        processor.deepSearchFirst(CompactGraph.create(graph));
+        new LongestWalkProcessor().deepSearchFirst(processor.getCondensedGraph());
+    }
+
+    private static String render(final CompactGraph graph) {
+        final StringBuffer result = new StringBuffer();
+        for (int i = 0; i < graph.getNumberOfVertices(); i++) {
+            result.append(i < graph.getNumberOfGraphVertices() ? "" : "*").append(i).append(" >");
+            for (int j = 0; j < graph.getNumberOfOutgoingArcs(i); j++) {
+                result.append(' ').append(graph.getHead(i, j));
+            }
+            result.append(" <");
+            for (int j = 0; j < graph.getNumberOfIncomingArcs(i); j++) {
+                result.append(' ').append(graph.getTail(i, j));
+            }
+            result.append(i + 1 < graph.getNumberOfVertices() ? ", " : "");
+        }
+        return new String(result);
+    }
+
+    private static Set<Vertex> heads(final StrongComponent component) {
+        final Set<Vertex> result = new HashSet<Vertex>();
+        for (int i = 0; i < component.getNumberOfOutgoingArcs(); i++) {
+            result.add(((StrongComponent) component.getHeadVertex(i)).getVertex(0));
+        }
+        return result;
+    }
+
+    @Test
+    public void testCreate() {
+        final AtomicVertex[] graph = createGraph(new int[][] { { 1, -1 }, { 0, 2 }, {}, { -1, 3 } });
+        final CompactGraph compactGraph = CompactGraph.create(graph);
+
+        assertEquals(5, compactGraph.getNumberOfVertices());
+        assertEquals(4, compactGraph.getNumberOfGraphVertices());
+        assertEquals(6, compactGraph.getNumberOfArcs());
+        assertSame(graph[2], compactGraph.getVertex(2));
+        assertSame(_externalVertex, compactGraph.getVertex(4));
+        assertEquals("0 > 1 4 < 1, 1 > 0 2 < 0, 2 > < 1, 3 > 4 3 < 3, *4 > < 0 3", render(compactGraph));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidOffsets() {
+        new CompactGraph(new Vertex[2], 2, new int[] { 0, 1, 1 }, new int[] { 1, 0 });
+    }
+
+    @Test
+    public void testStrongComponents() {
+        check(new String[] { "1: 0 1 2 3", "0: 4 5" }, new int[][] { { 1, 2 }, { 0 }, { 3, -1, -1 }, { 1, -1, 4 }, { 5 }, { 4 } });
+        check(new String[] { "1: 0 1 2 3 6", "0: 4 5", "0: 7" }, new int[][] { { 1 }, { 2 }, { 2, 3, -1, 4 }, { 1, -1, 0, 6 }, { 5 },
+                { 4 }, { 3, 7 }, { -1 } });
+        check(new String[] { "0: 0", "0: 1" }, new int[][] { {}, { -1 } });
+    }
+
+    @Test
+    public void testSameResultAsVertexBasedProcessing() {
+        for (int seed = 0; seed < 20; seed++) {
+            final AtomicVertex[] graph = createRandomGraph(60, 90, seed);
+            final StrongComponentProcessor processor = new StrongComponentProcessor(true);
+            processor.deepSearchFirst(graph);
+            final StrongComponent[] expected = processor.getStrongComponents();
+            new LongestWalkProcessor().deepSearchFirst(expected);
+
+            final StrongComponentAnalyser analyser = new StrongComponentAnalyser(graph);
+            final StrongComponent[] components = analyser.getLayeredCondensedGraph();
+
+            assertEquals(expected.length, components.length);
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(expected[i].getLongestWalk(), components[i].getLongestWalk());
+                assertEquals(expected[i].getNumberOfVertices(), components[i].getNumberOfVertices());
+                for (int j = 0; j < expected[i].getNumberOfVertices(); j++) {
+                    assertSame(expected[i].getVertex(j), components[i].getVertex(j));
+                }
+                assertEquals(heads(expected[i]), heads(components[i]));
+                final GraphAttributes expectedAttributes = (GraphAttributes) expected[i].getAttributes();
+                final GraphAttributes attributes = (GraphAttributes) components[i].getAttributes();
+                assertEquals(expectedAttributes.getGirth(), attributes.getGirth());
+                assertEquals(expectedAttributes.getRadius(), attributes.getRadius());
+                assertEquals(expectedAttributes.getBestFragmentSize(), attributes.getBestFragmentSize());
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.netmelody.neoclassycle.graph;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public final class FragmentSizeCalculatorTest {
+
+    private static CompactGraph createGraph(final int[][] nodeLinks) {
+        final int[] offsets = new int[nodeLinks.length + 1];
+        for (int i = 0; i < nodeLinks.length; i++) {
+            offsets[i + 1] = offsets[i] + nodeLinks[i].length;
+        }
+        final int[] heads = new int[offsets[nodeLinks.length]];
+        for (int i = 0; i < nodeLinks.length; i++) {
+            System.arraycopy(nodeLinks[i], 0, heads, offsets[i], nodeLinks[i].length);
+        }
+        return new CompactGraph(new Vertex[nodeLinks.length], nodeLinks.length, offsets, heads);
+    }
+
+    /** Creates a cycle through all vertices with additional random arcs. */
+    private static CompactGraph createRandomCycle(final int numberOfVertices, final int numberOfChords, final long seed) {
+        final Random random = new Random(seed);
+        final int[] numberOfArcs = new int[numberOfVertices];
+        final int[][] chords = new int[numberOfChords][2];
+        for (final int[] chord : chords) {
+            chord[0] = random.nextInt(numberOfVertices);
+            chord[1] = random.nextInt(numberOfVertices);
+            numberOfArcs[chord[0]]++;
+        }
+        final int[][] nodeLinks = new int[numberOfVertices][];
+        for (int i = 0; i < numberOfVertices; i++) {
+            nodeLinks[i] = new int[numberOfArcs[i] + 1];
+            nodeLinks[i][0] = (i + 1) % numberOfVertices;
+            numberOfArcs[i] = 1;
+        }
+        for (final int[] chord : chords) {
+            nodeLinks[chord[0]][numberOfArcs[chord[0]]++] = chord[1];
+        }
+        return createGraph(nodeLinks);
+    }
+
+    /** Calculates the fragment sizes by processing a clone of the graph for each removed vertex. */
+    private static int[] calculateByCloning(final CompactGraph compactGraph) {
+        final AtomicVertex[] graph = new AtomicVertex[compactGraph.getNumberOfVertices()];
+        for (int i = 0; i < graph.length; i++) {
+            graph[i] = new AtomicVertex(null);
+        }
+        for (int i = 0; i < graph.length; i++) {
+            for (int j = 0; j < compactGraph.getNumberOfOutgoingArcs(i); j++) {
+                graph[i].addOutgoingArcTo(graph[compactGraph.getHead(i, j)]);
+            }
+        }
+        final int[] result = new int[graph.length];
+        for (int i = 0; i < graph.length; i++) {
+            graph[i].setGraphVertex(false);
+            final StrongComponentProcessor processor = new StrongComponentProcessor(false);
+            processor.deepSearchFirst(graph);
+            for (final StrongComponent fragment : processor.getStrongComponents()) {
+                result[i] = Math.max(result[i], fragment.getNumberOfVertices());
+            }
+            graph[i].setGraphVertex(true);
+        }
+        return result;
+    }
+
+    @Test
+    public void testSmallGraphs() {
+        assertArrayEquals(new int[] { 1 }, FragmentSizeCalculator.calculate(createGraph(new int[][] { { 0 } }), 1));
+        assertArrayEquals(new int[] { 1, 1, 1 }, FragmentSizeCalculator.calculate(createGraph(new int[][] { { 1 }, { 2 }, { 0 } }), 1));
+        assertArrayEquals(new int[] { 1, 2, 2 },
+                          FragmentSizeCalculator.calculate(createGraph(new int[][] { { 1, 2 }, { 0 }, { 1, 0 } }), 1));
+        assertArrayEquals(new int[] { 1, 3, 2, 3 },
+                          FragmentSizeCalculator.calculate(createGraph(new int[][] { { 1, 3 }, { 2 }, { 0 }, { 0, 2 } }), 1));
+    }
+
+    @Test
+    public void testSameResultAsProcessingClones() {
+        for (int seed = 0; seed < 20; seed++) {
+            final CompactGraph graph = createRandomCycle(40, 30, seed);
+            assertArrayEquals(calculateByCloning(graph), FragmentSizeCalculator.calculate(graph, 1));
+        }
+    }
+
+    @Test
+    public void testParallelCalculation() {
+        final CompactGraph graph = createRandomCycle(FragmentSizeCalculator.MINIMUM_PARALLEL_SIZE, 700, 4711);
+        final int[] expected = FragmentSizeCalculator.calculate(graph, 1);
+        assertArrayEquals(expected, FragmentSizeCalculator.calculate(graph, 3));
+        assertEquals(expected.length, graph.getNumberOfVertices());
+    }
+}
@@ -2,6 +2,7 @@ package org.netmelody.neoclassycle.graph;
 
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Random;
 
 import org.netmelody.neoclassycle.ClassAttributes;
 
@@ -76,4 +77,20 @@ public abstract class GraphTestCase {
         }
         return result;
     }
-}
\ No newline at end of file
+
+    /**
+     * Creates a random graph with about the specified number of arcs. Some of
+     * them lead to the external vertex.
+     */
+    protected AtomicVertex[] createRandomGraph(final int numberOfVertices, final int numberOfArcs, final long seed) {
+        final Random random = new Random(seed);
+        final int[][] nodeLinks = new int[numberOfVertices][];
+        for (int i = 0; i < numberOfVertices; i++) {
+            nodeLinks[i] = new int[random.nextInt(2 * numberOfArcs / numberOfVertices + 1)];
+            for (int j = 0; j < nodeLinks[i].length; j++) {
+                nodeLinks[i][j] = random.nextInt(numberOfVertices + 1) - 1;
+            }
+        }
+        return createGraph(nodeLinks);
+    }
+}
@@ -1,7 +1,12 @@
 package org.netmelody.neoclassycle.graph;
 
+import java.util.Random;
+
 import org.junit.Test;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
 /**
  *
  *
@@ -15,6 +20,81 @@ public final class LongestWalkProcessorTest extends GraphTestCase {
         new LongestWalkProcessor().deepSearchFirst(processor.getStrongComponents());
     }
 
+    private static CompactGraph createCompactGraph(final int[][] nodeLinks) {
+        final int[] offsets = new int[nodeLinks.length + 1];
+        for (int i = 0; i < nodeLinks.length; i++) {
+            offsets[i + 1] = offsets[i] + nodeLinks[i].length;
+        }
+        final int[] heads = new int[offsets[nodeLinks.length]];
+        for (int i = 0; i < nodeLinks.length; i++) {
+            System.arraycopy(nodeLinks[i], 0, heads, offsets[i], nodeLinks[i].length);
+        }
+        return new CompactGraph(new Vertex[nodeLinks.length], nodeLinks.length, offsets, heads);
+    }
+
+    /** Creates a random graph without cycles. All arcs go to vertices with a lower index. */
+    private static int[][] createRandomAcyclicGraph(final int numberOfVertices, final int maximumNumberOfArcs, final long seed) {
+        final Random random = new Random(seed);
+        final int[][] nodeLinks = new int[numberOfVertices][];
+        for (int i = 0; i < numberOfVertices; i++) {
+            nodeLinks[i] = new int[i == 0 ? 0 : random.nextInt(maximumNumberOfArcs + 1)];
+            for (int j = 0; j < nodeLinks[i].length; j++) {
+                nodeLinks[i][j] = random.nextInt(i);
+            }
+        }
+        return nodeLinks;
+    }
+
+    /** Calculates the longest walks of a graph created by {@link #createRandomAcyclicGraph}. */
+    private static int[] calculateLongestWalks(final int[][] nodeLinks) {
+        final int[] result = new int[nodeLinks.length];
+        for (int i = 0; i < nodeLinks.length; i++) {
+            for (final int head : nodeLinks[i]) {
+                result[i] = Math.max(result[i], result[head] + 1);
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testCalculateLongestWalks() {
+        for (int seed = 0; seed < 20; seed++) {
+            final int[][] nodeLinks = createRandomAcyclicGraph(100, 4, seed);
+            final int[] expected = calculateLongestWalks(nodeLinks);
+            assertArrayEquals(expected, new LongestWalkProcessor().calculateLongestWalks(createCompactGraph(nodeLinks)));
+        }
+    }
+
+    @Test
+    public void testCalculateLongestWalksInParallel() {
+        final int[][] nodeLinks = createRandomAcyclicGraph(3 * LongestWalkProcessor.MINIMUM_PARALLEL_FRONTIER_SIZE, 2, 4711);
+        final CompactGraph graph = createCompactGraph(nodeLinks);
+        final int[] expected = calculateLongestWalks(nodeLinks);
+        assertArrayEquals(expected, new LongestWalkProcessor().calculateLongestWalks(graph));
+        assertArrayEquals(expected, new LongestWalkProcessor(3).calculateLongestWalks(graph));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCycle() {
+        new LongestWalkProcessor().calculateLongestWalks(createCompactGraph(new int[][] { {}, { 0, 2 }, { 3 }, { 1 } }));
+    }
+
+    @Test
+    public void testStableSort() {
+        final StrongComponent[] components = new StrongComponent[7];
+        final int[] walks = new int[] { 2, 0, 3, 0, 2, 5, 0 };
+        for (int i = 0; i < components.length; i++) {
+            components[i] = new StrongComponent();
+            components[i].setLongestWalk(walks[i]);
+        }
+        final StrongComponent[] sorted = components.clone();
+        LongestWalkProcessor.sort(sorted);
+        final int[] order = new int[] { 1, 3, 6, 0, 4, 2, 5 };
+        for (int i = 0; i < order.length; i++) {
+            assertEquals(components[order[i]], sorted[i]);
+        }
+    }
+
     @Test
     public void testOneVertexGraphs() {
         check(new String[] { "0: 0" }, new int[][] { {} });
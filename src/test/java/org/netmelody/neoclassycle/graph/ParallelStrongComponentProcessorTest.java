@@ -0,0 +1,118 @@
+package org.netmelody.neoclassycle.graph;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public final class ParallelStrongComponentProcessorTest extends GraphTestCase {
+
+    private static Map<Vertex, Set<Vertex>> componentsByVertex(final StrongComponent[] components) {
+        final Map<Vertex, Set<Vertex>> result = new HashMap<Vertex, Set<Vertex>>();
+        for (final StrongComponent component : components) {
+            final Set<Vertex> vertices = new HashSet<Vertex>();
+            for (int i = 0; i < component.getNumberOfVertices(); i++) {
+                vertices.add(component.getVertex(i));
+            }
+            for (final Vertex vertex : vertices) {
+                result.put(vertex, vertices);
+            }
+        }
+        return result;
+    }
+
+    private static int index(final Vertex vertex) {
+        return Integer.parseInt(vertex.getAttributes().toString());
+    }
+
+    private static void checkReverseTopologicalOrder(final StrongComponent[] components, final CompactGraph condensedGraph) {
+        for (int i = 0; i < components.length; i++) {
+            assertSame(components[i], condensedGraph.getVertex(i));
+            for (int j = 0; j < condensedGraph.getNumberOfOutgoingArcs(i); j++) {
+                assertTrue("arc from " + i + " to " + condensedGraph.getHead(i, j), condensedGraph.getHead(i, j) < i);
+            }
+            for (int j = 0; j < components[i].getNumberOfOutgoingArcs(); j++) {
+                assertSame(components[condensedGraph.getHead(i, j)], components[i].getHeadVertex(j));
+            }
+        }
+    }
+
+    private void checkSameComponents(final AtomicVertex[] graph, final int numberOfThreads, final int threshold) {
+        final StrongComponentProcessor expectedProcessor = new StrongComponentProcessor(true);
+        expectedProcessor.deepSearchFirst(graph);
+        final StrongComponent[] expected = expectedProcessor.getStrongComponents();
+
+        final ParallelStrongComponentProcessor processor = new ParallelStrongComponentProcessor(true, numberOfThreads, threshold);
+        processor.process(CompactGraph.create(graph));
+        final StrongComponent[] components = processor.getStrongComponents();
+
+        assertEquals(expected.length, components.length);
+        assertEquals(componentsByVertex(expected), componentsByVertex(components));
+        checkReverseTopologicalOrder(components, processor.getCondensedGraph());
+        final Map<Vertex, StrongComponent> expectedComponents = new HashMap<Vertex, StrongComponent>();
+        for (final StrongComponent component : expected) {
+            expectedComponents.put(component.getVertex(0), component);
+        }
+        for (final StrongComponent component : components) {
+            for (int i = 1; numberOfThreads > 1 && graph.length >= threshold && i < component.getNumberOfVertices(); i++) {
+                assertTrue(index(component.getVertex(i - 1)) < index(component.getVertex(i)));
+            }
+            StrongComponent expectedComponent = null;
+            for (int i = 0; expectedComponent == null; i++) {
+                expectedComponent = expectedComponents.get(component.getVertex(i));
+            }
+            assertEquals(expectedComponent.getNumberOfOutgoingArcs(), component.getNumberOfOutgoingArcs());
+            final GraphAttributes expectedAttributes = (GraphAttributes) expectedComponent.getAttributes();
+            final GraphAttributes attributes = (GraphAttributes) component.getAttributes();
+            assertEquals(expectedAttributes.getGirth(), attributes.getGirth());
+            assertEquals(expectedAttributes.getDiameter(), attributes.getDiameter());
+            assertEquals(expectedAttributes.getBestFragmentSize(), attributes.getBestFragmentSize());
+        }
+    }
+
+    @Test
+    public void testSameComponentsAsSequentialProcessing() {
+        for (int seed = 0; seed < 20; seed++) {
+            checkSameComponents(createRandomGraph(200, 260, seed), 4, 2);
+        }
+    }
+
+    @Test
+    public void testSmallSetsAreDecomposedSequentially() {
+        for (int seed = 0; seed < 10; seed++) {
+            checkSameComponents(createRandomGraph(500, 700, seed), 3, 50);
+        }
+    }
+
+    @Test
+    public void testSmallGraphsAreDelegated() {
+        checkSameComponents(createRandomGraph(100, 150, 42), 4, 1000);
+        checkSameComponents(createRandomGraph(100, 150, 42), 1, 2);
+    }
+
+    @Test
+    public void testEmptyAndTrivialGraphs() {
+        checkSameComponents(createGraph(new int[0][0]), 2, 1);
+        checkSameComponents(createGraph(new int[][] { { -1 }, { 0 }, { 1, -1 } }), 2, 1);
+        checkSameComponents(createGraph(new int[][] { { 1 }, { 2 }, { 0 } }), 2, 1);
+    }
+
+    @Test
+    public void testSelectableFromAnalyser() {
+        final AtomicVertex[] graph = createRandomGraph(300, 400, 7);
+        final StrongComponentAnalyser sequentialAnalyser = new StrongComponentAnalyser(graph);
+        final Map<AtomicVertex, Integer> expectedLayers = new HashMap<AtomicVertex, Integer>(sequentialAnalyser.getLayerMap());
+        final Map<Vertex, Set<Vertex>> expectedComponents = componentsByVertex(sequentialAnalyser.getCondensedGraph());
+
+        final StrongComponentAnalyser analyser = new StrongComponentAnalyser(graph);
+        analyser.setNumberOfThreads(4);
+        assertEquals(expectedLayers, analyser.getLayerMap());
+        assertEquals(expectedComponents, componentsByVertex(analyser.getCondensedGraph()));
+    }
+}
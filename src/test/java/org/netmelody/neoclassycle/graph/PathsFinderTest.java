@@ -6,6 +6,7 @@ package org.netmelody.neoclassycle.graph;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Random;
 import java.util.StringTokenizer;
 
 import org.junit.Test;
@@ -62,16 +63,6 @@ public final class PathsFinderTest {
             REPOSITORY.put(name, this);
         }
 
-        @Override
-        public void reset() {
-            super.reset();
-        }
-
-        @Override
-        public void visit() {
-            super.visit();
-        }
-
         @Override
         public String toString() {
             return name;
@@ -105,6 +96,9 @@ public final class PathsFinderTest {
         check("a b", "e", "a c e", "a > c, c > e, b > d, d > a", false);
         check("a", "b", "a b c d", "a > b c, c > b d, d > b c", false);
         check("a", "e", "a b c d e f", "a > b, b > c f, c > d, d > e, f > e", false);
+        check("a", "e", "a b e", "a > b, b > c e, c > d, d > b", false);
+        check("a", "e", "a b c e", "a > b, b > c, c > d e, d > b", false);
+        check("a", "f", "a b c d f", "a > b, b > c, c > d, d > b f", false);
     }
 
     @Test
@@ -118,6 +112,132 @@ public final class PathsFinderTest {
         check("a b", "e", "a b c d e", "a > c, c > e, b > d, d > c e", true);
         check("a e", "d h", "a b h e f d", "a > b, b > c h, c > d," + "e > f, f > d g, g > h", true);
         check("a", "h", "a b c h", "a > b i," + "b > a c," + "c > d h," + "d > b e," + "e > f," + "f > g," + "i > j," + "j > i d", true);
+        check("a d", "c d", "a b c d", "a > b, b > c d", true);
+    }
+
+    /**
+     * Recursive search for all (or only the shortest) paths as done by earlier
+     * versions of {@link PathsFinder}. The start vertices are processed in the
+     * order of the graph.
+     */
+    private static final class RecursivePathsSearch {
+        private final VertexCondition _startCondition;
+        private final VertexCondition _finalCondition;
+        private final boolean _shortestPathsOnly;
+        private final HashSet<Vertex> _visited = new HashSet<Vertex>();
+        private final HashSet<Vertex> _currentPath = new HashSet<Vertex>();
+        private final HashMap<Vertex, Integer> _orders = new HashMap<Vertex, Integer>();
+        private final HashSet<Vertex> _pathVertices = new HashSet<Vertex>();
+
+        RecursivePathsSearch(final VertexCondition startCondition, final VertexCondition finalCondition, final boolean shortestPathsOnly) {
+            _startCondition = startCondition;
+            _finalCondition = finalCondition;
+            _shortestPathsOnly = shortestPathsOnly;
+        }
+
+        HashSet<Vertex> findPaths(final AtomicVertex[] graph) {
+            for (final AtomicVertex vertex : graph) {
+                if (_startCondition.isFulfilled(vertex)) {
+                    _visited.add(vertex);
+                }
+            }
+            for (final AtomicVertex vertex : graph) {
+                if (_startCondition.isFulfilled(vertex)) {
+                    prepareIfFinal(vertex);
+                    final int pathLength = calculateShortestPath(vertex);
+                    if (pathLength < Integer.MAX_VALUE) {
+                        _orders.put(vertex, Integer.valueOf(pathLength));
+                        followPaths(vertex);
+                    }
+                }
+            }
+            return _pathVertices;
+        }
+
+        private int getOrder(final Vertex vertex) {
+            final Integer order = _orders.get(vertex);
+            return order == null ? Integer.MAX_VALUE : order.intValue();
+        }
+
+        private void prepareIfFinal(final Vertex vertex) {
+            if (_finalCondition.isFulfilled(vertex)) {
+                _visited.add(vertex);
+                _orders.put(vertex, Integer.valueOf(0));
+            }
+        }
+
+        private int calculateShortestPath(final Vertex vertex) {
+            _currentPath.add(vertex);
+            int shortestPath = Integer.MAX_VALUE;
+            for (int i = 0, n = vertex.getNumberOfOutgoingArcs(); i < n; i++) {
+                final Vertex nextVertex = vertex.getHeadVertex(i);
+                prepareIfFinal(nextVertex);
+                int pathLength = _startCondition.isFulfilled(nextVertex) ? Integer.MAX_VALUE : getOrder(nextVertex);
+                if (!_currentPath.contains(nextVertex) && !_visited.contains(nextVertex)) {
+                    pathLength = calculateShortestPath(nextVertex);
+                    _orders.put(nextVertex, Integer.valueOf(pathLength));
+                    _visited.add(nextVertex);
+                }
+                shortestPath = Math.min(shortestPath, pathLength);
+            }
+            _currentPath.remove(vertex);
+            return shortestPath < Integer.MAX_VALUE ? shortestPath + 1 : shortestPath;
+        }
+
+        private void followPaths(final Vertex vertex) {
+            _pathVertices.add(vertex);
+            final int shortestPathLength = getOrder(vertex) - 1;
+            for (int i = 0, n = vertex.getNumberOfOutgoingArcs(); i < n; i++) {
+                final Vertex nextVertex = vertex.getHeadVertex(i);
+                final int pathLength = getOrder(nextVertex);
+                if (pathLength < Integer.MAX_VALUE && !_pathVertices.contains(nextVertex)) {
+                    if (!_shortestPathsOnly || pathLength == shortestPathLength) {
+                        _pathVertices.add(nextVertex);
+                        if (pathLength > 0) {
+                            followPaths(nextVertex);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void checkRandomGraphs(final long seed, final int numberOfGraphs, final boolean shortestPathsOnly) {
+        final Random random = new Random(seed);
+        for (int n = 0; n < numberOfGraphs; n++) {
+            final AtomicVertex[] graph = new AtomicVertex[30];
+            final HashSet<Vertex> startVertices = new HashSet<Vertex>();
+            final HashSet<Vertex> finalVertices = new HashSet<Vertex>();
+            for (int i = 0; i < graph.length; i++) {
+                graph[i] = new MockVertex(Integer.toString(i));
+                if (random.nextInt(6) == 0) {
+                    startVertices.add(graph[i]);
+                }
+                if (random.nextInt(6) == 0) {
+                    finalVertices.add(graph[i]);
+                }
+            }
+            for (int i = 0; i < 2 * graph.length; i++) {
+                graph[random.nextInt(graph.length)].addOutgoingArcTo(graph[random.nextInt(graph.length)]);
+            }
+            final MockVertexCondition startCondition = new MockVertexCondition(startVertices.toArray(new Vertex[0]));
+            final MockVertexCondition finalCondition = new MockVertexCondition(finalVertices.toArray(new Vertex[0]));
+
+            final HashSet<Vertex> expectedPaths = new RecursivePathsSearch(startCondition, finalCondition, shortestPathsOnly)
+                    .findPaths(graph);
+            final PathsFinder pathsFinder = new PathsFinder(startCondition, finalCondition, shortestPathsOnly);
+            assertEquals(expectedPaths, new HashSet<Vertex>(Arrays.asList(pathsFinder.findPaths(graph))));
+        }
+    }
+
+    @Test
+    public void testFindAllPathsInRandomGraphs() {
+        checkRandomGraphs(42, 200, false);
+    }
+
+    @Test
+    public void testFindShortestPathsInRandomGraphs() {
+        checkRandomGraphs(4711, 200, true);
     }
 
     @Test
@@ -144,7 +264,11 @@ public final class PathsFinderTest {
             createLinks(tokenizer.nextToken().trim());
         }
         final Vertex[] paths = pathsFinder.findPaths(getAllVertices());
+        checkPaths(expectedPaths, paths);
+        checkPaths(expectedPaths, pathsFinder.findPaths(CompactGraph.create(getAllVertices())));
+    }
 
+    private static void checkPaths(final MockVertex[] expectedPaths, final Vertex[] paths) {
         final HashSet<Vertex> pathNodes = new HashSet<Vertex>(Arrays.asList(paths));
         if (expectedPaths.length == pathNodes.size() && expectedPaths.length == paths.length) {
             for (final MockVertex expectedPath : expectedPaths) {
@@ -0,0 +1,99 @@
+package org.netmelody.neoclassycle.graph;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public final class ReachabilityIndexTest {
+
+    /**
+     * Creates a random graph. The last vertices are not in the graph, but they
+     * have outgoing arcs too.
+     */
+    private static CompactGraph createRandomGraph(final int numberOfVertices, final int numberOfArcs, final Random random) {
+        final int[][] nodeLinks = new int[numberOfVertices][0];
+        for (int i = 0; i < numberOfArcs; i++) {
+            final int tail = random.nextInt(numberOfVertices);
+            final int[] links = new int[nodeLinks[tail].length + 1];
+            System.arraycopy(nodeLinks[tail], 0, links, 0, nodeLinks[tail].length);
+            links[nodeLinks[tail].length] = random.nextInt(numberOfVertices);
+            nodeLinks[tail] = links;
+        }
+        final int[] offsets = new int[numberOfVertices + 1];
+        for (int i = 0; i < numberOfVertices; i++) {
+            offsets[i + 1] = offsets[i] + nodeLinks[i].length;
+        }
+        final int[] heads = new int[offsets[numberOfVertices]];
+        for (int i = 0; i < numberOfVertices; i++) {
+            System.arraycopy(nodeLinks[i], 0, heads, offsets[i], nodeLinks[i].length);
+        }
+        return new CompactGraph(new Vertex[numberOfVertices], numberOfVertices - 5, offsets, heads);
+    }
+
+    private static BitSet createRandomSet(final int numberOfVertices, final int numberOfElements, final Random random) {
+        final BitSet result = new BitSet(numberOfVertices);
+        for (int i = 0; i < numberOfElements; i++) {
+            result.set(random.nextInt(numberOfVertices));
+        }
+        return result;
+    }
+
+    /** Decides reachability by a breadth first search of the graph. */
+    private static boolean canReach(final CompactGraph graph, final BitSet sources, final BitSet targets) {
+        final BitSet visited = (BitSet) sources.clone();
+        final int[] queue = new int[graph.getNumberOfVertices()];
+        int size = 0;
+        for (int v = sources.nextSetBit(0); v >= 0; v = sources.nextSetBit(v + 1)) {
+            queue[size++] = v;
+        }
+        for (int index = 0; index < size; index++) {
+            final int vertex = queue[index];
+            if (targets.get(vertex)) {
+                return true;
+            }
+            for (int i = 0; i < graph.getNumberOfOutgoingArcs(vertex); i++) {
+                final int head = graph.getHead(vertex, i);
+                if (visited.get(head) == false) {
+                    visited.set(head);
+                    queue[size++] = head;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void testChain() {
+        final CompactGraph graph = new CompactGraph(new Vertex[4], 4, new int[] { 0, 1, 2, 3, 3 }, new int[] { 1, 2, 3 });
+        final ReachabilityIndex index = new ReachabilityIndex(graph);
+        assertEquals(4, index.getNumberOfComponents());
+        final BitSet first = new BitSet();
+        first.set(0);
+        final BitSet last = new BitSet();
+        last.set(3);
+        assertTrue(index.canReach(first, last));
+        assertFalse(index.canReach(last, first));
+        assertTrue(index.canReach(last, last));
+        assertFalse(index.canReach(first, new BitSet()));
+    }
+
+    @Test
+    public void testSameResultsAsBreadthFirstSearch() {
+        final Random random = new Random(4711);
+        for (int n = 0; n < 30; n++) {
+            final int numberOfVertices = 20 + random.nextInt(200);
+            final CompactGraph graph = createRandomGraph(numberOfVertices, random.nextInt(2 * numberOfVertices), random);
+            final ReachabilityIndex index = new ReachabilityIndex(graph);
+            for (int q = 0; q < 50; q++) {
+                final BitSet sources = createRandomSet(numberOfVertices, 1 + random.nextInt(5), random);
+                final BitSet targets = createRandomSet(numberOfVertices, 1 + random.nextInt(5), random);
+                assertEquals(canReach(graph, sources, targets), index.canReach(sources, targets));
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package org.netmelody.neoclassycle.graph;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public final class StrongComponentAnalyserTest extends GraphTestCase {
+
+    /**
+     * Creates cycles of different sizes with random chords. Each cycle has an
+     * arc into the next one.
+     */
+    private AtomicVertex[] createCycles(final int[] sizes, final long seed) {
+        final Random random = new Random(seed);
+        final List<int[]> nodeLinks = new ArrayList<int[]>();
+        int first = 0;
+        for (int c = 0; c < sizes.length; c++) {
+            final int size = sizes[c];
+            final int next = first + size;
+            for (int i = 0; i < size; i++) {
+                final int successor = first + (i + 1) % size;
+                final int chord = first + random.nextInt(size);
+                nodeLinks.add(i == 0 && c + 1 < sizes.length ? new int[] { successor, chord, next } : new int[] { successor, chord });
+            }
+            first = next;
+        }
+        return createGraph(nodeLinks.toArray(new int[nodeLinks.size()][]));
+    }
+
+    @Test
+    public void testCalculateAttributes() {
+        final AtomicVertex[] graph = createCycles(new int[] { 3, 1, 40, FragmentSizeCalculator.MINIMUM_PARALLEL_SIZE, 7, 2, 90, 5 }, 4711);
+        final StrongComponentProcessor processor = new StrongComponentProcessor(true);
+        processor.deepSearchFirst(graph);
+        final StrongComponent[] expected = processor.getStrongComponents();
+
+        final StrongComponentAnalyser analyser = new StrongComponentAnalyser(graph);
+        analyser.setNumberOfThreads(3);
+        analyser.calculateAttributes();
+        analyser.calculateAttributes();
+        final StrongComponent[] components = analyser.getCondensedGraph();
+
+        assertEquals(expected.length, components.length);
+        for (int i = 0; i < components.length; i++) {
+            assertSame(expected[i].getVertex(0), components[i].getVertex(0));
+            final GraphAttributes expectedAttributes = (GraphAttributes) expected[i].getAttributes();
+            final GraphAttributes attributes = (GraphAttributes) components[i].getAttributes();
+            assertEquals(expectedAttributes.getGirth(), attributes.getGirth());
+            assertArrayEquals(expectedAttributes.getEccentricities(), attributes.getEccentricities());
+            assertArrayEquals(expectedAttributes.getMaximumFragmentSizes(), attributes.getMaximumFragmentSizes());
+            assertArrayEquals(expectedAttributes.getCenterVertices(), attributes.getCenterVertices());
+            assertArrayEquals(expectedAttributes.getBestFragmenters(), attributes.getBestFragmenters());
+        }
+    }
+
+    @Test
+    public void testCalculateAttributesWithinBudget() {
+        final AtomicVertex[] graph = createCycles(new int[] { 30, 4, 60 }, 42);
+        final StrongComponentAnalyser analyser = new StrongComponentAnalyser(graph);
+        analyser.setNumberOfThreads(2);
+        analyser.setGeometryBudget(new GeometryBudget(30, 60000, 5));
+        analyser.calculateAttributes();
+        for (final StrongComponent component : analyser.getCondensedGraph()) {
+            final GraphAttributes attributes = (GraphAttributes) component.getAttributes();
+            assertEquals(component.getNumberOfVertices() > 30, attributes.isApproximate());
+        }
+    }
+
+    @Test
+    public void testLayers() {
+        final AtomicVertex[] graph = createCycles(new int[] { 3, 1, 4, 1, 5 }, 17);
+        final StrongComponentAnalyser analyser = new StrongComponentAnalyser(graph);
+        final int[] layers = analyser.getLayers();
+        assertArrayEquals(new int[] { 4, 4, 4, 3, 2, 2, 2, 2, 1, 0, 0, 0, 0, 0 }, layers);
+        for (int i = 0; i < graph.length; i++) {
+            assertEquals(Integer.valueOf(layers[i]), analyser.getLayerMap().get(graph[i]));
+        }
+    }
+
+    @Test
+    public void testLayerMapIsReadOnlyView() {
+        final AtomicVertex[] graph = createCycles(new int[] { 3, 1, 4, 1, 5 }, 17);
+        final StrongComponentAnalyser analyser = new StrongComponentAnalyser(graph);
+        final int[] layers = analyser.getLayers();
+        final Map<AtomicVertex, Integer> expected = new HashMap<AtomicVertex, Integer>();
+        for (int i = 0; i < graph.length; i++) {
+            expected.put(graph[i], Integer.valueOf(layers[i]));
+        }
+        final Map<AtomicVertex, Integer> layerMap = analyser.getLayerMap();
+        assertEquals(expected, layerMap);
+        assertEquals(layerMap, expected);
+        assertEquals(expected.hashCode(), layerMap.hashCode());
+        assertFalse(layerMap.containsKey(new AtomicVertex(null)));
+        assertNull(layerMap.get("a"));
+        try {
+            layerMap.put(graph[0], Integer.valueOf(0));
+            fail("UnsupportedOperationException expected");
+        }
+        catch (final UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            layerMap.entrySet().iterator().next().setValue(Integer.valueOf(0));
+            fail("UnsupportedOperationException expected");
+        }
+        catch (final UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testLayersAreCalculatedOnceForConcurrentCalls() throws InterruptedException {
+        final AtomicVertex[] graph = createCycles(new int[] { 3, 1, 4, 1, 5 }, 17);
+        final StrongComponentAnalyser analyser = new StrongComponentAnalyser(graph);
+        final StrongComponent[] components = analyser.getCondensedGraph().clone();
+        final int[][] results = new int[4][];
+        final Thread[] threads = new Thread[results.length];
+        for (int t = 0; t < threads.length; t++) {
+            final int index = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    results[index] = analyser.getLayers();
+                    analyser.getLayerMap();
+                }
+            };
+            threads[t].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        for (final int[] layers : results) {
+            assertSame(results[0], layers);
+        }
+        assertArrayEquals(new int[] { 4, 4, 4, 3, 2, 2, 2, 2, 1, 0, 0, 0, 0, 0 }, results[0]);
+        assertArrayEquals(components, analyser.getCondensedGraph());
+        final StrongComponent[] layeredComponents = analyser.getLayeredCondensedGraph();
+        for (int i = 1; i < layeredComponents.length; i++) {
+            assertTrue(layeredComponents[i - 1].getLongestWalk() <= layeredComponents[i].getLongestWalk());
+        }
+    }
+}
@@ -1,8 +1,19 @@
 package org.netmelody.neoclassycle.graph;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
 import org.junit.Test;
+import org.netmelody.neoclassycle.util.TaskRunner;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 /**
  *
@@ -111,6 +122,182 @@ public final class StrongComponentProcessorTest extends GraphTestCase {
         checkAttributes(new int[] { 1, 1, 1, 1, 1, 1, 1, 2, 2, 3 }, new int[] { 0, 0, 1, 2, 0, 0, 1, 3, 2, 3 }, components);
     }
 
+    @Test
+    public void testLongChainsDoNotOverflowTheStack() {
+        final int n = 200000;
+        final AtomicVertex[] graph = new AtomicVertex[n];
+        for (int i = 0; i < n; i++) {
+            graph[i] = new AtomicVertex(new MockAttributes(Integer.toString(i)));
+        }
+        final StrongComponentProcessor processor = new StrongComponentProcessor(false);
+        for (int i = 1; i < n; i++) {
+            graph[i - 1].addOutgoingArcTo(graph[i]);
+        }
+        processor.deepSearchFirst(graph);
+        StrongComponent[] components = processor.getStrongComponents();
+        assertEquals(n, components.length);
+        assertSame(graph[n - 1], components[0].getVertex(0));
+        assertSame(components[0], components[1].getHeadVertex(0));
+
+        graph[n - 1].addOutgoingArcTo(graph[0]);
+        processor.deepSearchFirst(graph);
+        components = processor.getStrongComponents();
+        assertEquals(1, components.length);
+        assertEquals(n, components[0].getNumberOfVertices());
+        assertSame(graph[0], components[0].getVertex(0));
+        assertSame(graph[n - 1], components[0].getVertex(n - 1));
+    }
+
+    @Test
+    public void testConcurrentProcessingOfTheSameGraph() throws Exception {
+        final Random random = new Random(4711);
+        final int n = 2000;
+        final int[][] nodeLinks = new int[n][];
+        for (int i = 0; i < n; i++) {
+            nodeLinks[i] = new int[] { random.nextInt(n + 1) - 1, random.nextInt(n + 1) - 1 };
+        }
+        final AtomicVertex[] graph = createGraph(nodeLinks);
+        final StrongComponentProcessor expectedProcessor = new StrongComponentProcessor(false);
+        expectedProcessor.deepSearchFirst(graph);
+        final StrongComponent[] expected = expectedProcessor.getStrongComponents();
+
+        final List<Callable<StrongComponent[]>> tasks = new ArrayList<Callable<StrongComponent[]>>();
+        for (int i = 0; i < 4; i++) {
+            tasks.add(new Callable<StrongComponent[]>() {
+                @Override
+                public StrongComponent[] call() {
+                    final StrongComponentProcessor processor = new StrongComponentProcessor(false);
+                    processor.deepSearchFirst(graph);
+                    return processor.getStrongComponents();
+                }
+            });
+        }
+        for (final StrongComponent[] components : TaskRunner.run(tasks, 4)) {
+            assertEquals(expected.length, components.length);
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(expected[i].getNumberOfVertices(), components[i].getNumberOfVertices());
+                for (int j = 0; j < expected[i].getNumberOfVertices(); j++) {
+                    assertSame(expected[i].getVertex(j), components[i].getVertex(j));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testGirthAndEccentricities() {
+        final Random random = new Random(4711);
+        for (int k = 0; k < 30; k++) {
+            final int n = 2 + random.nextInt(30);
+            final int[][] nodeLinks = new int[n][];
+            for (int i = 0; i < n; i++) {
+                nodeLinks[i] = new int[random.nextInt(4)];
+                for (int j = 0; j < nodeLinks[i].length; j++) {
+                    nodeLinks[i][j] = random.nextInt(n + 1) - 1;
+                }
+            }
+            final AtomicVertex[] graph = createGraph(nodeLinks);
+            final StrongComponentProcessor processor = new StrongComponentProcessor(true);
+            processor.deepSearchFirst(graph);
+            for (final StrongComponent component : processor.getStrongComponents()) {
+                checkGeometry(component);
+            }
+        }
+    }
+
+    @Test
+    public void testAttributesAreCalculatedOnFirstAccess() {
+        final int[][] nodeLinks = new int[][] { { 1, 2 }, { 0 }, { 3, -1 }, { 1, 4 }, { 4, 5 }, { -1 } };
+        final StrongComponentProcessor processor = new StrongComponentProcessor(false);
+        processor.deepSearchFirst(createGraph(nodeLinks));
+        for (final StrongComponent component : processor.getStrongComponents()) {
+            checkGeometry(component);
+            final GraphAttributes attributes = (GraphAttributes) component.getAttributes();
+            assertFalse(attributes.isApproximate());
+            if (component.getNumberOfVertices() == 1) {
+                assertArrayEquals(new int[] { 1 }, attributes.getMaximumFragmentSizes());
+                assertSame(component.getVertex(0), attributes.getCenterVertices()[0]);
+                assertSame(component.getVertex(0), attributes.getBestFragmenters()[0]);
+            }
+        }
+    }
+
+    @Test
+    public void testApproximateAttributesOutsideOfBudget() {
+        final int n = 200;
+        final Random random = new Random(42);
+        final int[][] nodeLinks = new int[n + 1][];
+        for (int i = 0; i < n; i++) {
+            nodeLinks[i] = new int[] { (i + 1) % n, random.nextInt(n) };
+        }
+        nodeLinks[n] = new int[] { n, 0 };
+        final AtomicVertex[] graph = createGraph(nodeLinks);
+        final StrongComponentProcessor processor = new StrongComponentProcessor(true);
+        processor.deepSearchFirst(graph);
+        final StrongComponent[] expected = processor.getStrongComponents();
+
+        final StrongComponentAnalyser analyser = new StrongComponentAnalyser(graph);
+        analyser.setGeometryBudget(new GeometryBudget(n - 1, 60000, 10));
+        final StrongComponent[] components = analyser.getCondensedGraph();
+        assertEquals(2, components.length);
+        assertEquals(1, components[1].getNumberOfVertices());
+        assertEquals(1, ((GraphAttributes) components[1].getAttributes()).getGirth());
+        assertFalse(((GraphAttributes) components[1].getAttributes()).isApproximate());
+
+        final GraphAttributes expectedAttributes = (GraphAttributes) expected[0].getAttributes();
+        final GraphAttributes attributes = (GraphAttributes) components[0].getAttributes();
+        assertTrue(attributes.isApproximate());
+        assertTrue(attributes.getGirth() >= expectedAttributes.getGirth());
+        int numberOfExactEccentricities = 0;
+        int numberOfExactFragmentSizes = 0;
+        for (int i = 0; i < n; i++) {
+            assertSame(expected[0].getVertex(i), components[0].getVertex(i));
+            final int eccentricity = attributes.getEccentricities()[i];
+            assertTrue(eccentricity <= expectedAttributes.getEccentricities()[i]);
+            numberOfExactEccentricities += eccentricity == expectedAttributes.getEccentricities()[i] ? 1 : 0;
+            final int fragmentSize = attributes.getMaximumFragmentSizes()[i];
+            assertTrue(fragmentSize >= expectedAttributes.getMaximumFragmentSizes()[i]);
+            numberOfExactFragmentSizes += fragmentSize == expectedAttributes.getMaximumFragmentSizes()[i] ? 1 : 0;
+        }
+        assertTrue(numberOfExactEccentricities >= 10);
+        assertTrue(numberOfExactFragmentSizes >= 10);
+    }
+
+    /** Compares the geometry attributes with the distances calculated by the Floyd-Warshall algorithm. */
+    private static void checkGeometry(final StrongComponent component) {
+        final int n = component.getNumberOfVertices();
+        final int[][] distances = new int[n][n];
+        for (int i = 0; i < n; i++) {
+            Arrays.fill(distances[i], Integer.MAX_VALUE / 2);
+            for (int j = 0; j < n; j++) {
+                for (int a = 0; a < component.getVertex(i).getNumberOfOutgoingArcs(); a++) {
+                    if (component.getVertex(i).getHeadVertex(a) == component.getVertex(j)) {
+                        distances[i][j] = 1;
+                    }
+                }
+            }
+        }
+        for (int k = 0; k < n; k++) {
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    distances[i][j] = Math.min(distances[i][j], distances[i][k] + distances[k][j]);
+                }
+            }
+        }
+        final GraphAttributes attributes = (GraphAttributes) component.getAttributes();
+        int girth = Integer.MAX_VALUE / 2;
+        for (int i = 0; i < n; i++) {
+            girth = Math.min(girth, distances[i][i]);
+            int eccentricity = 0;
+            for (int j = 0; j < n; j++) {
+                if (i != j) {
+                    eccentricity = Math.max(eccentricity, distances[i][j]);
+                }
+            }
+            assertEquals("eccentricity of vertex " + i, eccentricity, attributes.getEccentricities()[i]);
+        }
+        assertEquals("girth", girth, attributes.getGirth());
+    }
+
     private static void checkAttributes(final int[] expectedMaximumFragmentSizes, final int[] expectedEccentricities, final StrongComponent[] components) {
         for (final StrongComponent component : components) {
             final GraphAttributes attributes = (GraphAttributes) component.getAttributes();
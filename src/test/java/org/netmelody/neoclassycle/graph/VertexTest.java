@@ -4,7 +4,6 @@ import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
-import static org.junit.Assert.assertTrue;
 
 public final class VertexTest {
 
@@ -34,6 +33,32 @@ public final class VertexTest {
         assertSame(head2, tail.getHeadVertex(1));
     }
 
+    @Test
+    public void testAddArcs() {
+        final Vertex a = new Vertex(null);
+        final Vertex b = new Vertex(null);
+        final Vertex c = new Vertex(null);
+        a.addOutgoingArcTo(b);
+        final Vertex[] vertices = new Vertex[] { a, null, b, c };
+
+        Vertex.addArcs(vertices, new int[] { 0, 2, 2, 0, 3, 3, 9 }, new int[] { 2, 0, 3, 3, 0, 3, 9 }, 6);
+        assertEquals(2, a.getNumberOfOutgoingArcs());
+        assertSame(b, a.getHeadVertex(0));
+        assertSame(c, a.getHeadVertex(1));
+        assertEquals(2, a.getNumberOfIncomingArcs());
+        assertSame(b, a.getTailVertex(0));
+        assertSame(c, a.getTailVertex(1));
+        assertEquals(2, b.getNumberOfOutgoingArcs());
+        assertEquals(1, b.getNumberOfIncomingArcs());
+        assertEquals(2, c.getNumberOfOutgoingArcs());
+        assertSame(a, c.getHeadVertex(0));
+        assertSame(c, c.getHeadVertex(1));
+        assertEquals(3, c.getNumberOfIncomingArcs());
+        assertSame(b, c.getTailVertex(0));
+        assertSame(a, c.getTailVertex(1));
+        assertSame(c, c.getTailVertex(2));
+    }
+
     @Test
     public void testAddIncomingArc() {
         final Vertex head = new Vertex(null);
@@ -59,18 +84,4 @@ public final class VertexTest {
         assertSame(tail, head.getTailVertex(0));
         assertSame(tail2, head.getTailVertex(1));
     }
-
-    @Test
-    public void testVisit() {
-        final Vertex vertex = new Vertex(null);
-        assertTrue(!vertex.isVisited());
-        vertex.visit();
-        assertTrue(vertex.isVisited());
-        vertex.visit();
-        assertTrue(vertex.isVisited());
-        vertex.reset();
-        assertTrue(!vertex.isVisited());
-        vertex.reset();
-        assertTrue(!vertex.isVisited());
-    }
 }
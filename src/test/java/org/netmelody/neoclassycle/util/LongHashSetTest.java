@@ -0,0 +1,31 @@
+package org.netmelody.neoclassycle.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public final class LongHashSetTest {
+
+    @Test
+    public void testAddAndContains() {
+        final LongHashSet set = new LongHashSet(0);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(set.add(LongHashSet.pack(i % 37, i)));
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertFalse(set.add(LongHashSet.pack(i % 37, i)));
+            assertTrue(set.contains(LongHashSet.pack(i % 37, i)));
+            assertFalse(set.contains(LongHashSet.pack(i, i % 37 + 1000)));
+        }
+        assertEquals(1000, set.size());
+    }
+
+    @Test
+    public void testPack() {
+        assertEquals(0x0000000100000002L, LongHashSet.pack(1, 2));
+        assertEquals(0x00000001ffffffffL, LongHashSet.pack(1, -1));
+        assertTrue(LongHashSet.pack(0, 1) != LongHashSet.pack(1, 0));
+    }
+}
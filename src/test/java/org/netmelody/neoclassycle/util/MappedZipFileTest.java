@@ -0,0 +1,183 @@
+package org.netmelody.neoclassycle.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public final class MappedZipFileTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] createContent(final int size) {
+        final byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) ((i * 31) % 17 + (i / 1000));
+        }
+        return content;
+    }
+
+    private File createZipFile(final byte[] content) throws IOException {
+        final File file = folder.newFile("test.zip");
+        final ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file));
+        try {
+            out.putNextEntry(new ZipEntry("dir/"));
+            out.closeEntry();
+            out.putNextEntry(new ZipEntry("dir/deflated.bin"));
+            out.write(content);
+            out.closeEntry();
+            final ZipEntry stored = new ZipEntry("dir/stored.bin");
+            stored.setMethod(ZipEntry.STORED);
+            stored.setSize(content.length);
+            final CRC32 crc = new CRC32();
+            crc.update(content);
+            stored.setCrc(crc.getValue());
+            out.putNextEntry(stored);
+            out.write(content);
+            out.closeEntry();
+            out.putNextEntry(new ZipEntry("empty.bin"));
+            out.closeEntry();
+        }
+        finally {
+            out.close();
+        }
+        return file;
+    }
+
+    private static byte[] toBytes(final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private static byte[] toBytes(final InputStream stream) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            final byte[] buffer = new byte[100];
+            for (int len = stream.read(buffer); len != -1; len = stream.read(buffer)) {
+                bytes.write(buffer, 0, len);
+            }
+        }
+        finally {
+            stream.close();
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void testReadEntries() throws IOException {
+        final byte[] content = createContent(100000);
+        final MappedZipFile zipFile = new MappedZipFile(createZipFile(content));
+
+        final List<MappedZipFile.Entry> entries = zipFile.getEntries();
+        assertEquals("[dir/, dir/deflated.bin, dir/stored.bin, empty.bin]", entries.toString());
+        assertTrue(entries.get(0).isDirectory());
+        assertFalse(entries.get(1).isDirectory());
+        final CRC32 crc = new CRC32();
+        crc.update(content);
+        for (int i = 1; i < 3; i++) {
+            final MappedZipFile.Entry entry = entries.get(i);
+            assertEquals(content.length, entry.getSize());
+            assertEquals(crc.getValue(), entry.getCrc());
+            assertEquals(new String(content, "ISO-8859-1"), new String(toBytes(zipFile.getContent(entry)), "ISO-8859-1"));
+            assertEquals(new String(content, "ISO-8859-1"), new String(toBytes(zipFile.getInputStream(entry)), "ISO-8859-1"));
+        }
+        assertEquals(0, zipFile.getContent(entries.get(3)).remaining());
+        assertEquals(0, toBytes(zipFile.getInputStream(entries.get(3))).length);
+        zipFile.close();
+    }
+
+    @Test
+    public void testEntriesCanNotBeReadAfterClose() throws IOException {
+        final File file = createZipFile(createContent(1000));
+        final MappedZipFile zipFile = new MappedZipFile(file);
+        assertEquals(1000, zipFile.getContent(zipFile.getEntries().get(1)).remaining());
+        zipFile.close();
+        zipFile.close();
+        try {
+            zipFile.getContent(zipFile.getEntries().get(2));
+            fail("IOException expected");
+        }
+        catch (final IOException e) {
+            assertEquals("Zip file closed: " + file.getPath(), e.getMessage());
+        }
+        try {
+            zipFile.getInputStream(zipFile.getEntries().get(1));
+            fail("IOException expected");
+        }
+        catch (final IOException e) {
+            assertEquals("Zip file closed: " + file.getPath(), e.getMessage());
+        }
+    }
+
+    @Test
+    public void testZip64IsNotSupported() throws IOException {
+        final File file = folder.newFile("zip64.zip");
+        final ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file));
+        try {
+            for (int i = 0; i < 0x10000; i++) {
+                out.putNextEntry(new ZipEntry("e" + i));
+                out.closeEntry();
+            }
+        }
+        finally {
+            out.close();
+        }
+        try {
+            new MappedZipFile(file);
+            fail("UnsupportedZipFileException expected");
+        }
+        catch (final MappedZipFile.UnsupportedZipFileException e) {
+            assertEquals("ZIP64 not supported: " + file.getPath(), e.getMessage());
+        }
+    }
+
+    @Test
+    public void testReadNestedZipFile() throws IOException {
+        final byte[] content = createContent(1000);
+        final byte[] zip = toBytes(new FileInputStream(createZipFile(content)));
+        final ByteBuffer buffer = ByteBuffer.allocate(zip.length + 10);
+        buffer.position(5);
+        buffer.put(zip);
+        buffer.flip().position(5);
+
+        final MappedZipFile zipFile = new MappedZipFile("nested", buffer);
+        assertEquals(4, zipFile.getEntries().size());
+        assertEquals(content.length, toBytes(zipFile.getContent(zipFile.getEntries().get(2))).length);
+    }
+
+    @Test
+    public void testNotAZipFile() throws IOException {
+        final File file = folder.newFile("invalid.jar");
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(createContent(100));
+        }
+        finally {
+            out.close();
+        }
+        try {
+            new MappedZipFile(file);
+            fail("IOException expected");
+        }
+        catch (final IOException e) {
+            assertEquals("Not a zip file: " + file.getPath(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.netmelody.neoclassycle.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public final class TaskRunnerTest {
+    private static List<Callable<Integer>> createTasks(final Exception failure) {
+        final List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+        for (int i = 0; i < 5; i++) {
+            final int value = i;
+            tasks.add(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    if (value == 3 && failure != null) {
+                        throw failure;
+                    }
+                    return Integer.valueOf(value);
+                }
+            });
+        }
+        return tasks;
+    }
+
+    @Test
+    public void testResultsAreInTaskOrder() {
+        final List<Integer> expected = Arrays.asList(0, 1, 2, 3, 4);
+        assertEquals(expected, TaskRunner.runUnchecked(createTasks(null), 1));
+        assertEquals(expected, TaskRunner.runUnchecked(createTasks(null), 3));
+    }
+
+    @Test
+    public void testRuntimeExceptionIsRethrown() {
+        final IllegalArgumentException failure = new IllegalArgumentException();
+        for (int numberOfThreads = 1; numberOfThreads < 3; numberOfThreads++) {
+            try {
+                TaskRunner.runUnchecked(createTasks(failure), numberOfThreads);
+                fail("IllegalArgumentException expected");
+            }
+            catch (final IllegalArgumentException e) {
+                assertSame(failure, e);
+            }
+        }
+    }
+
+    @Test
+    public void testCheckedExceptionIsWrapped() {
+        final IOException failure = new IOException("failure");
+        for (int numberOfThreads = 1; numberOfThreads < 3; numberOfThreads++) {
+            try {
+                TaskRunner.runUnchecked(createTasks(failure), numberOfThreads);
+                fail("IllegalStateException expected");
+            }
+            catch (final IllegalStateException e) {
+                assertSame(failure, e.getCause());
+                assertEquals("Task failed: java.io.IOException: failure", e.getMessage());
+            }
+        }
+    }
+}